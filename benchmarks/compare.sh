@@ -0,0 +1,55 @@
+#!/bin/bash
+#
+# Compares two JMH result files written with -rf csv, matching benchmarks by
+# name and parameters. Scores are throughput, so a positive change is faster.
+#
+# Usage: compare.sh baseline.csv candidate.csv [THRESHOLD_PERCENT]
+#
+# Changes larger than the threshold (default 5%) and outside the combined 
+# error of both runs are marked with + or -.
+#
+
+set -e
+
+if [ $# -lt 2 ]; then
+    echo "Usage: $0 baseline.csv candidate.csv [THRESHOLD_PERCENT]" >&2
+    exit 1
+fi
+
+awk -v threshold="${3:-5}" '
+    BEGIN {
+        FS = ","
+        printf "  %-70s %14s %14s %9s\n", "Benchmark", "Baseline", "Candidate", "Change"
+    }
+    
+    # Benchmark name followed by the parameter values
+    function key(   k, i) {
+        k = $1
+        sub(/.*\.virge\.sql\.benchmarks\./, "", k)
+        for(i = 8; i <= NF; i++) if($i != "") k = k " " $i
+        return k
+    }
+    
+    { gsub(/"/, "") }
+    
+    FNR == 1 { file++; next }
+    
+    file == 1 { score[key()] = $5; error[key()] = $6; next }
+    
+    file == 2 {
+        k = key()
+        
+        if(!(k in score)) { printf "  %-70s %14s %14.1f %9s\n", k, "-", $5, "new"; next }
+        
+        change = (score[k] > 0) ? ($5 - score[k]) * 100 / score[k] : 0
+        mark = " "
+        
+        if(change >= threshold && $5 - $6 > score[k] + error[k]) mark = "+"
+        if(change <= -threshold && $5 + $6 < score[k] - error[k]) mark = "-"
+        
+        printf "%s %-70s %14.1f %14.1f %+8.1f%%\n", mark, k, score[k], $5, change
+        delete score[k]
+    }
+    
+    END { for(k in score) printf "  %-70s %14.1f %14s %9s\n", k, score[k], "-", "removed" }
+' "$1" "$2"
@@ -0,0 +1,349 @@
+/*
+ * Copyright 2024 INVIRGANCE LLC
+
+Permission is hereby granted, free of charge, to any person obtaining a copy 
+of this software and associated documentation files (the “Software”), to deal 
+in the Software without restriction, including without limitation the rights to 
+use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies 
+of the Software, and to permit persons to whom the Software is furnished to do 
+so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all 
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR 
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, 
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER 
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE 
+SOFTWARE.
+ */
+package com.invirgance.virge.sql.benchmarks;
+
+import com.invirgance.convirgance.ConvirganceException;
+import com.invirgance.convirgance.json.JSONObject;
+import com.invirgance.convirgance.output.CSVOutput;
+import com.invirgance.convirgance.output.JBINOutput;
+import com.invirgance.convirgance.output.JSONOutput;
+import com.invirgance.convirgance.output.Output;
+import com.invirgance.convirgance.output.OutputCursor;
+import com.invirgance.convirgance.target.FileTarget;
+import java.io.File;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates the synthetic data sets used by the benchmarks. The data is 
+ * created from a fixed seed so every run, and every machine, measures the 
+ * same records.
+ * 
+ * <ul>
+ * <li>narrow - 5 short columns, typical of fact and lookup tables</li>
+ * <li>wide - 50 mixed columns with 5% nulls</li>
+ * <li>text - a few columns of long text with quotes, commas and non-ASCII characters</li>
+ * </ul>
+ * 
+ * @author tadghh
+ */
+public class Datasets
+{
+    /**
+     * The number of records in each data set.
+     */
+    public static final int ROWS = 10000;
+    
+    private static final String[] STATUSES = { "pending", "shipped", "delivered", "returned", "cancelled" };
+    private static final String[] WORDS = { "order", "café", "delivery", "\"express\"", "warehouse", "naïve", "item,", "customer", "résumé", "invoice", "返品", "quantity" };
+    
+    private static String getText(Random random, int minimum, int maximum)
+    {
+        StringBuilder text = new StringBuilder();
+        int length = minimum + random.nextInt(maximum - minimum);
+        
+        while(text.length() < length)
+        {
+            if(text.length() > 0) text.append(' ');
+            
+            text.append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        
+        return text.toString();
+    }
+    
+    private static String getCode(Random random, int length)
+    {
+        StringBuilder code = new StringBuilder();
+        
+        for(int i=0; i<length; i++) code.append((char)('A' + random.nextInt(26)));
+        
+        return code.toString();
+    }
+    
+    /**
+     * Generates the records of a data set.
+     * 
+     * @param name narrow, wide or text
+     * @param rows The number of records to generate
+     * @return The records
+     */
+    public static List<JSONObject> generate(String name, int rows)
+    {
+        Random random = new Random(42);
+        List<JSONObject> records = new ArrayList<>(rows);
+        JSONObject record;
+        
+        for(int i=0; i<rows; i++)
+        {
+            record = new JSONObject(true);
+            
+            record.put("id", (long)i);
+            
+            switch(name)
+            {
+                case "narrow":
+                    record.put("customer_id", (long)random.nextInt(100000));
+                    record.put("quantity", (long)random.nextInt(100));
+                    record.put("price", Math.round(random.nextDouble() * 100000) / 100.0);
+                    record.put("status", STATUSES[random.nextInt(STATUSES.length)]);
+                    break;
+                    
+                case "wide":
+                    for(int column=1; column<50; column++)
+                    {
+                        if(random.nextInt(20) == 0)
+                        {
+                            record.put("c" + column, null);
+                            continue;
+                        }
+                        
+                        switch(column % 3)
+                        {
+                            case 0:
+                                record.put("c" + column, random.nextLong(1000000000L));
+                                break;
+                                
+                            case 1:
+                                record.put("c" + column, random.nextDouble() * 1000);
+                                break;
+                                
+                            default:
+                                record.put("c" + column, getCode(random, 8 + random.nextInt(9)));
+                        }
+                    }
+                    break;
+                    
+                case "text":
+                    record.put("title", getText(random, 20, 60));
+                    record.put("body", getText(random, 500, 2000));
+                    record.put("tags", getText(random, 10, 40));
+                    break;
+                    
+                default:
+                    throw new ConvirganceException("Unknown data set: " + name);
+            }
+            
+            records.add(record);
+        }
+        
+        return records;
+    }
+    
+    /**
+     * Writes records to a file in one of the input formats.
+     * 
+     * @param records The records to write
+     * @param format csv, json or jbin
+     * @param file The file to write to
+     * @return The file
+     * @throws Exception If the file can't be written
+     */
+    public static File write(List<JSONObject> records, String format, File file) throws Exception
+    {
+        Output output;
+        
+        switch(format)
+        {
+            case "csv":
+                output = new CSVOutput();
+                break;
+                
+            case "json":
+                output = new JSONOutput();
+                break;
+                
+            case "jbin":
+                output = new JBINOutput();
+                break;
+                
+            default:
+                throw new ConvirganceException("Unknown format: " + format);
+        }
+        
+        try(OutputCursor cursor = output.write(new FileTarget(file)))
+        {
+            for(JSONObject record : records) cursor.write(record);
+        }
+        
+        return file;
+    }
+    
+    /**
+     * Returns the JDBC types of the columns of a data set, based on its first
+     * non-null values.
+     * 
+     * @param records The records of the data set
+     * @return The java.sql.Types of each column, in key order
+     */
+    public static int[] getTypes(List<JSONObject> records)
+    {
+        JSONObject first = records.get(0);
+        int[] types = new int[first.size()];
+        Object value;
+        int index = 0;
+        
+        for(String key : first.keySet())
+        {
+            value = null;
+            
+            for(int i=0; i<records.size() && value == null; i++) value = records.get(i).get(key);
+            
+            if(value instanceof Long) types[index++] = Types.BIGINT;
+            else if(value instanceof Double) types[index++] = Types.DOUBLE;
+            else types[index++] = Types.VARCHAR;
+        }
+        
+        return types;
+    }
+    
+    /**
+     * Creates a table for a data set, replacing any existing table.
+     * 
+     * @param connection The database to create the table in
+     * @param table The table name
+     * @param records The records of the data set
+     * @throws SQLException If the table can't be created
+     */
+    public static void createTable(Connection connection, String table, List<JSONObject> records) throws SQLException
+    {
+        StringBuilder sql = new StringBuilder("CREATE TABLE " + table + " (");
+        int[] types = getTypes(records);
+        int index = 0;
+        
+        for(String key : records.get(0).keySet())
+        {
+            if(index > 0) sql.append(", ");
+            
+            sql.append(key).append(' ');
+            
+            switch(types[index++])
+            {
+                case Types.BIGINT:
+                    sql.append("BIGINT");
+                    break;
+                    
+                case Types.DOUBLE:
+                    sql.append("DOUBLE PRECISION");
+                    break;
+                    
+                default:
+                    sql.append("VARCHAR(4000)");
+            }
+        }
+        
+        sql.append(")");
+        
+        try(Statement statement = connection.createStatement())
+        {
+            try
+            {
+                statement.execute("DROP TABLE " + table);
+            }
+            catch(SQLException e)
+            {
+                // Not every database supports DROP TABLE IF EXISTS
+            }
+            
+            statement.execute(sql.toString());
+        }
+        
+        if(!connection.getAutoCommit()) connection.commit();
+    }
+    
+    /**
+     * Returns an INSERT statement with a parameter for each column.
+     * 
+     * @param table The table name
+     * @param records The records of the data set
+     * @return The SQL
+     */
+    public static String getInsertSQL(String table, List<JSONObject> records)
+    {
+        StringBuilder sql = new StringBuilder("INSERT INTO " + table + " (");
+        StringBuilder values = new StringBuilder(") VALUES (");
+        int index = 0;
+        
+        for(String key : records.get(0).keySet())
+        {
+            if(index++ > 0)
+            {
+                sql.append(", ");
+                values.append(", ");
+            }
+            
+            sql.append(key);
+            values.append('?');
+        }
+        
+        return sql.append(values).append(')').toString();
+    }
+    
+    /**
+     * Inserts records with JDBC batches of the given size and commits.
+     * 
+     * @param connection The database to insert into, with auto commit off
+     * @param sql The statement from getInsertSQL()
+     * @param records The records to insert
+     * @param types The column types from getTypes()
+     * @param batchSize The number of rows sent per executeBatch()
+     * @throws SQLException If the rows can't be inserted
+     */
+    public static void insert(Connection connection, String sql, List<JSONObject> records, int[] types, int batchSize) throws SQLException
+    {
+        Object value;
+        int count = 0;
+        int index;
+        
+        try(PreparedStatement statement = connection.prepareStatement(sql))
+        {
+            for(JSONObject record : records)
+            {
+                index = 0;
+                
+                for(String key : record.keySet())
+                {
+                    value = record.get(key);
+                    
+                    if(value == null) statement.setNull(index + 1, types[index]);
+                    else statement.setObject(index + 1, value);
+                    
+                    index++;
+                }
+                
+                statement.addBatch();
+                
+                if(++count % batchSize == 0) statement.executeBatch();
+            }
+            
+            if(count % batchSize != 0) statement.executeBatch();
+        }
+        
+        connection.commit();
+    }
+}
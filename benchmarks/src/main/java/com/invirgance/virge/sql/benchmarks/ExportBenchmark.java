@@ -0,0 +1,204 @@
+/*
+ * Copyright 2024 INVIRGANCE LLC
+
+Permission is hereby granted, free of charge, to any person obtaining a copy 
+of this software and associated documentation files (the “Software”), to deal 
+in the Software without restriction, including without limitation the rights to 
+use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies 
+of the Software, and to permit persons to whom the Software is furnished to do 
+so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all 
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR 
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, 
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER 
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE 
+SOFTWARE.
+ */
+package com.invirgance.virge.sql.benchmarks;
+
+import com.invirgance.convirgance.json.JSONObject;
+import com.invirgance.convirgance.output.CSVOutput;
+import com.invirgance.convirgance.output.JBINOutput;
+import com.invirgance.convirgance.output.JSONOutput;
+import com.invirgance.convirgance.output.Output;
+import com.invirgance.convirgance.output.OutputCursor;
+import com.invirgance.convirgance.target.OutputStreamTarget;
+import com.invirgance.virge.sql.export.DirectExporter;
+import com.invirgance.virge.sql.export.ExportColumn;
+import com.invirgance.virge.sql.export.OutputBuffer;
+import com.invirgance.virge.sql.export.RecordEncoder;
+import com.invirgance.virge.sql.export.RowBatch;
+import com.invirgance.virge.sql.export.TableExporter.RecordIterator;
+import java.io.OutputStream;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the export paths of 'sql export' on a table in an in-memory H2 
+ * database. The direct benchmark uses the byte-level RecordEncoders, the
+ * records benchmark converts each row to a JSONObject for a convirgance 
+ * Output, and the encode benchmark measures the encoders alone on rows that
+ * were read ahead of time. Output is discarded. Scores are in rows per second.
+ * 
+ * @author tadghh
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ExportBenchmark
+{
+    private static final String TABLE = "bench_export";
+    private static final String QUERY = "SELECT * FROM " + TABLE;
+    
+    @Param({"narrow", "wide", "text"})
+    public String dataset;
+    
+    private Connection connection;
+    private RowBatch batch;
+    
+    /**
+     * Formats supported by the direct encoders.
+     */
+    @State(Scope.Benchmark)
+    public static class Encoded
+    {
+        @Param({"csv", "json"})
+        public String format;
+    }
+    
+    /**
+     * Formats supported by convirgance outputs.
+     */
+    @State(Scope.Benchmark)
+    public static class Records
+    {
+        @Param({"csv", "json", "jbin"})
+        public String format;
+        
+        public Output getOutput()
+        {
+            switch(format)
+            {
+                case "csv":
+                    return new CSVOutput();
+                    
+                case "json":
+                    return new JSONOutput();
+                    
+                default:
+                    return new JBINOutput();
+            }
+        }
+    }
+    
+    @Setup
+    public void setup() throws Exception
+    {
+        List<JSONObject> records = Datasets.generate(dataset, Datasets.ROWS);
+        
+        connection = DriverManager.getConnection("jdbc:h2:mem:export");
+        
+        connection.setAutoCommit(false);
+        Datasets.createTable(connection, TABLE, records);
+        Datasets.insert(connection, Datasets.getInsertSQL(TABLE, records), records, Datasets.getTypes(records), 1000);
+        
+        try(Statement statement = connection.createStatement(); ResultSet set = statement.executeQuery(QUERY))
+        {
+            batch = new RowBatch(ExportColumn.getColumns(set.getMetaData()), Datasets.ROWS);
+            
+            batch.fill(set);
+        }
+    }
+    
+    @TearDown
+    public void tearDown() throws SQLException
+    {
+        connection.close();
+    }
+    
+    @Benchmark
+    @OperationsPerInvocation(Datasets.ROWS)
+    public long direct(Encoded encoded) throws Exception
+    {
+        try(Statement statement = connection.createStatement(); ResultSet set = statement.executeQuery(QUERY))
+        {
+            return new DirectExporter().export(set, encoded.format, ',', OutputStream.nullOutputStream());
+        }
+    }
+    
+    @Benchmark
+    @OperationsPerInvocation(Datasets.ROWS)
+    public long records(Records records) throws Exception
+    {
+        RecordIterator iterator;
+        long rows = 0;
+        
+        try(Statement statement = connection.createStatement(); ResultSet set = statement.executeQuery(QUERY))
+        {
+            iterator = new RecordIterator(set);
+            
+            try(OutputCursor cursor = records.getOutput().write(new OutputStreamTarget(OutputStream.nullOutputStream())))
+            {
+                while(iterator.hasNext())
+                {
+                    cursor.write(iterator.next());
+                    rows++;
+                }
+            }
+        }
+        
+        return rows;
+    }
+    
+    @Benchmark
+    @OperationsPerInvocation(Datasets.ROWS)
+    public int encode(Encoded encoded)
+    {
+        RecordEncoder encoder = RecordEncoder.getEncoder(encoded.format, ',', batch.getColumns());
+        OutputBuffer buffer = new OutputBuffer();
+        int size = 0;
+        
+        encoder.begin(buffer);
+        
+        for(int row=0; row<batch.size(); row++)
+        {
+            encoder.encode(batch, row, buffer);
+            
+            if(buffer.size() >= 65536)
+            {
+                size += buffer.size();
+                buffer.reset();
+            }
+        }
+        
+        encoder.end(buffer);
+        
+        return size + buffer.size();
+    }
+}
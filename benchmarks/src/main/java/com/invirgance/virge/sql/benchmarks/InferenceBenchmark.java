@@ -0,0 +1,113 @@
+/*
+ * Copyright 2024 INVIRGANCE LLC
+
+Permission is hereby granted, free of charge, to any person obtaining a copy 
+of this software and associated documentation files (the “Software”), to deal 
+in the Software without restriction, including without limitation the rights to 
+use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies 
+of the Software, and to permit persons to whom the Software is furnished to do 
+so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all 
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR 
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, 
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER 
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE 
+SOFTWARE.
+ */
+package com.invirgance.virge.sql.benchmarks;
+
+import com.invirgance.convirgance.input.CSVInput;
+import com.invirgance.convirgance.jdbc.AutomaticDriver;
+import com.invirgance.convirgance.jdbc.AutomaticDrivers;
+import com.invirgance.convirgance.json.JSONObject;
+import com.invirgance.convirgance.source.FileSource;
+import com.invirgance.virge.sql.generate.GenerateTable;
+import java.io.File;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures type inference by GenerateTable.generateTableSQL() on CSV files,
+ * where every value starts as a string and has to be detected. Along with 
+ * the calls per second, the cells counter reports cells analyzed per second
+ * so data sets of different widths can be compared.
+ * 
+ * @author tadghh
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class InferenceBenchmark
+{
+    @Param({"narrow", "wide", "text"})
+    public String dataset;
+    
+    private File file;
+    private AutomaticDriver driver;
+    private long cells;
+    
+    /**
+     * Counts the cells analyzed, reported by JMH as a secondary rate.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Counters
+    {
+        public long cells;
+        
+        @Setup(Level.Iteration)
+        public void clear()
+        {
+            cells = 0;
+        }
+    }
+    
+    @Setup
+    public void setup() throws Exception
+    {
+        List<JSONObject> records = Datasets.generate(dataset, Datasets.ROWS);
+        
+        file = File.createTempFile("virge-" + dataset, ".csv");
+        driver = AutomaticDrivers.getDriverByURL("jdbc:h2:mem:");
+        cells = (long)records.size() * records.get(0).size();
+        
+        Datasets.write(records, "csv", file);
+    }
+    
+    @TearDown
+    public void tearDown() throws Exception
+    {
+        Files.deleteIfExists(file.toPath());
+    }
+    
+    @Benchmark
+    public String generateTableSQL(Counters counters) throws Exception
+    {
+        counters.cells += cells;
+        
+        return new GenerateTable().generateTableSQL(driver, new FileSource(file), new CSVInput(), "bench", true);
+    }
+}
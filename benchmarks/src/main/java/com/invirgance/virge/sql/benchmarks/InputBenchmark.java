@@ -0,0 +1,114 @@
+/*
+ * Copyright 2024 INVIRGANCE LLC
+
+Permission is hereby granted, free of charge, to any person obtaining a copy 
+of this software and associated documentation files (the “Software”), to deal 
+in the Software without restriction, including without limitation the rights to 
+use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies 
+of the Software, and to permit persons to whom the Software is furnished to do 
+so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all 
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR 
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, 
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER 
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE 
+SOFTWARE.
+ */
+package com.invirgance.virge.sql.benchmarks;
+
+import com.invirgance.convirgance.input.CSVInput;
+import com.invirgance.convirgance.input.Input;
+import com.invirgance.convirgance.input.JBINInput;
+import com.invirgance.convirgance.input.JSONInput;
+import com.invirgance.convirgance.json.JSONObject;
+import com.invirgance.convirgance.source.FileSource;
+import com.invirgance.convirgance.transform.CoerceStringsTransformer;
+import java.io.File;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures how fast each input format is parsed into records, as done by
+ * 'sql import', with and without the type detection applied by --detect-types.
+ * Scores are in records per second.
+ * 
+ * @author tadghh
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class InputBenchmark
+{
+    @Param({"narrow", "wide", "text"})
+    public String dataset;
+    
+    @Param({"csv", "json", "jbin"})
+    public String format;
+    
+    private File file;
+    private Input<JSONObject> input;
+    
+    @Setup
+    public void setup() throws Exception
+    {
+        file = File.createTempFile("virge-" + dataset, "." + format);
+        
+        Datasets.write(Datasets.generate(dataset, Datasets.ROWS), format, file);
+        
+        switch(format)
+        {
+            case "csv":
+                input = new CSVInput();
+                break;
+                
+            case "json":
+                input = new JSONInput();
+                break;
+                
+            default:
+                input = new JBINInput();
+        }
+    }
+    
+    @TearDown
+    public void tearDown() throws Exception
+    {
+        Files.deleteIfExists(file.toPath());
+    }
+    
+    @Benchmark
+    @OperationsPerInvocation(Datasets.ROWS)
+    public void parse(Blackhole blackhole)
+    {
+        for(JSONObject record : input.read(new FileSource(file))) blackhole.consume(record);
+    }
+    
+    @Benchmark
+    @OperationsPerInvocation(Datasets.ROWS)
+    public void parseAndCoerce(Blackhole blackhole)
+    {
+        for(JSONObject record : new CoerceStringsTransformer().transform(input.read(new FileSource(file)))) blackhole.consume(record);
+    }
+}
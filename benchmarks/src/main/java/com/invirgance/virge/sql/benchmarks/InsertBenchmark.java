@@ -0,0 +1,171 @@
+/*
+ * Copyright 2024 INVIRGANCE LLC
+
+Permission is hereby granted, free of charge, to any person obtaining a copy 
+of this software and associated documentation files (the “Software”), to deal 
+in the Software without restriction, including without limitation the rights to 
+use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies 
+of the Software, and to permit persons to whom the Software is furnished to do 
+so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all 
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR 
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, 
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER 
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE 
+SOFTWARE.
+ */
+package com.invirgance.virge.sql.benchmarks;
+
+import com.invirgance.convirgance.dbms.AtomicOperation;
+import com.invirgance.convirgance.dbms.BatchOperation;
+import com.invirgance.convirgance.dbms.Query;
+import com.invirgance.convirgance.dbms.TransactionOperation;
+import com.invirgance.convirgance.json.JSONObject;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures insert throughput on embedded databases. The batched benchmark
+ * binds each record to a prepared statement and is run for several JDBC
+ * batch sizes. The import benchmark uses the same BatchOperation as 
+ * 'sql import'. Scores are in rows per second.
+ * 
+ * @author tadghh
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class InsertBenchmark
+{
+    private static final String TABLE = "bench_insert";
+    
+    @Param({"h2", "derby", "sqlite"})
+    public String database;
+    
+    @Param({"narrow", "wide"})
+    public String dataset;
+    
+    private Connection connection;
+    private List<JSONObject> records;
+    private int[] types;
+    private String sql;
+    private String importSQL;
+    
+    /**
+     * The batch size is kept in its own state so only the batched benchmark
+     * is repeated for each size.
+     */
+    @State(Scope.Benchmark)
+    public static class Batching
+    {
+        @Param({"1", "100", "1000", "10000"})
+        public int batchSize;
+    }
+    
+    private String getURL()
+    {
+        switch(database)
+        {
+            case "derby":
+                return "jdbc:derby:memory:bench;create=true";
+                
+            case "sqlite":
+                return "jdbc:sqlite::memory:";
+                
+            default:
+                return "jdbc:h2:mem:bench";
+        }
+    }
+    
+    // The named parameter form used by ImportTable
+    private String getImportSQL()
+    {
+        StringBuilder query = new StringBuilder("INSERT INTO " + TABLE + " (");
+        StringBuilder values = new StringBuilder(") VALUES (");
+        int index = 0;
+        
+        for(String key : records.get(0).keySet())
+        {
+            if(index++ > 0)
+            {
+                query.append(", ");
+                values.append(", ");
+            }
+            
+            query.append(key);
+            values.append(':').append(key);
+        }
+        
+        return query.append(values).append(')').toString();
+    }
+    
+    @Setup
+    public void setup() throws Exception
+    {
+        records = Datasets.generate(dataset, Datasets.ROWS);
+        types = Datasets.getTypes(records);
+        sql = Datasets.getInsertSQL(TABLE, records);
+        importSQL = getImportSQL();
+        connection = DriverManager.getConnection(getURL());
+        
+        connection.setAutoCommit(false);
+        Datasets.createTable(connection, TABLE, records);
+    }
+    
+    @Setup(Level.Invocation)
+    public void clear() throws SQLException
+    {
+        try(Statement statement = connection.createStatement())
+        {
+            statement.execute("DELETE FROM " + TABLE);
+        }
+        
+        connection.commit();
+    }
+    
+    @TearDown
+    public void tearDown() throws SQLException
+    {
+        connection.close();
+    }
+    
+    @Benchmark
+    @OperationsPerInvocation(Datasets.ROWS)
+    public void batched(Batching batching) throws SQLException
+    {
+        Datasets.insert(connection, sql, records, types, batching.batchSize);
+    }
+    
+    @Benchmark
+    @OperationsPerInvocation(Datasets.ROWS)
+    public void importOperation() throws SQLException
+    {
+        new TransactionOperation(new AtomicOperation[]{ new BatchOperation(new Query(importSQL), records) }).execute(connection);
+    }
+}
@@ -36,12 +36,14 @@ import java.util.ArrayList;
  */
 public class ConnectionTools implements Tool
 {
+    public static final String DESCRIPTION = "Add/Remove StoredConnections and configure DataSources.";
+    
     private Tool tool;
     
-    private static final Tool[] TOOLS = new Tool[]{
-        new RegisterStoredConnection(),
-        new UnregisterStoredConnection(),
-        new ListStoredConnections()
+    private static final ToolEntry[] TOOLS = new ToolEntry[]{
+        new ToolEntry("add", RegisterStoredConnection.DESCRIPTION, () -> new RegisterStoredConnection()),
+        new ToolEntry("remove", UnregisterStoredConnection.DESCRIPTION, () -> new UnregisterStoredConnection()),
+        new ToolEntry("list", ListStoredConnections.DESCRIPTION, () -> new ListStoredConnections())
     };
 
     @Override
@@ -53,7 +55,7 @@ public class ConnectionTools implements Tool
     @Override
     public String getShortDescription()
     {
-        return "Add/Remove StoredConnections and configure DataSources.";
+        return DESCRIPTION;
     }
     
     @Override
@@ -61,9 +63,9 @@ public class ConnectionTools implements Tool
     {
         ArrayList<String> help = new ArrayList<>();
         
-        for(Tool tool : TOOLS)
+        for(ToolEntry entry : TOOLS)
         {
-            help.add(HELP_SPACING + tool.getName() + " - " + tool.getShortDescription());
+            help.add(HELP_SPACING + entry.getName() + " - " + entry.getShortDescription());
         }
         
         return help.toArray(new String[help.size()]);
@@ -75,11 +77,11 @@ public class ConnectionTools implements Tool
         if(start == args.length) return false;
         else if("-h".equals(args[start]) || "--help".equals(args[start])) return false;
         
-        for(Tool tool : TOOLS)
+        for(ToolEntry entry : TOOLS)
         { 
-            if(tool.getName().equals(args[start]))
+            if(entry.getName().equals(args[start]))
             {
-                this.tool = tool;
+                this.tool = entry.getTool();
                 
                 if(!this.tool.parse(args, start + 1)) printToolHelp(this.tool);               
                 else return true;
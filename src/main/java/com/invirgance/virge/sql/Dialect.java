@@ -0,0 +1,100 @@
+/*
+ * Copyright 2024 INVIRGANCE LLC
+
+Permission is hereby granted, free of charge, to any person obtaining a copy 
+of this software and associated documentation files (the “Software”), to deal 
+in the Software without restriction, including without limitation the rights to 
+use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies 
+of the Software, and to permit persons to whom the Software is furnished to do 
+so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all 
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR 
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, 
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER 
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE 
+SOFTWARE.
+ */
+package com.invirgance.virge.sql;
+
+import com.invirgance.convirgance.jdbc.AutomaticDriver;
+
+/**
+ * Identifies the database behind a driver for tools that need database 
+ * specific SQL or APIs.
+ * 
+ * @author tadghh
+ */
+public enum Dialect
+{
+    POSTGRESQL("jdbc:postgresql:"),
+    MYSQL("jdbc:mysql:", "jdbc:mariadb:"),
+    SQLSERVER("jdbc:sqlserver:", "jdbc:jtds:sqlserver:"),
+    ORACLE("jdbc:oracle:"),
+    DB2("jdbc:db2:"),
+    H2("jdbc:h2:"),
+    DERBY("jdbc:derby:"),
+    HSQLDB("jdbc:hsqldb:"),
+    SQLITE("jdbc:sqlite:"),
+    GENERIC();
+    
+    private final String[] prefixes;
+    
+    private Dialect(String... prefixes)
+    {
+        this.prefixes = prefixes;
+    }
+    
+    private boolean matches(String url)
+    {
+        for(String prefix : prefixes)
+        {
+            if(url.toLowerCase().startsWith(prefix)) return true;
+        }
+        
+        return false;
+    }
+    
+    /**
+     * Determines the dialect from the URL prefixes registered for the driver.
+     * 
+     * @param driver The driver to identify
+     * @return The dialect, or GENERIC if the database is not recognized
+     */
+    public static Dialect getDialect(AutomaticDriver driver)
+    {
+        if(driver == null || driver.getPrefixes() == null) return GENERIC;
+        
+        for(String prefix : driver.getPrefixes())
+        {
+            for(Dialect dialect : values())
+            {
+                if(dialect.matches(prefix)) return dialect;
+            }
+        }
+        
+        return GENERIC;
+    }
+    
+    /**
+     * Determines the dialect from a JDBC URL.
+     * 
+     * @param url The JDBC connection URL
+     * @return The dialect, or GENERIC if the database is not recognized
+     */
+    public static Dialect getDialect(String url)
+    {
+        if(url == null) return GENERIC;
+        
+        for(Dialect dialect : values())
+        {
+            if(dialect.matches(url)) return dialect;
+        }
+        
+        return GENERIC;
+    }
+}
@@ -26,6 +26,7 @@ import static com.invirgance.virge.Virge.HELP_SPACING;
 import static com.invirgance.virge.sql.VirgeSQL.printToolHelp;
 import com.invirgance.virge.sql.drivers.ListDataSource;
 import com.invirgance.virge.sql.drivers.ListDriver;
+import com.invirgance.virge.sql.drivers.PrefetchDrivers;
 import com.invirgance.virge.sql.drivers.RegisterDriver;
 import com.invirgance.virge.sql.drivers.UnregisterDriver;
 import com.invirgance.virge.tool.Tool;
@@ -38,13 +39,16 @@ import java.util.ArrayList;
  */
 public class DriverTools implements Tool
 {        
+    public static final String DESCRIPTION = "List and manage available database drivers.";
+    
     private Tool tool;
     
-    private static final Tool[] TOOLS = new Tool[]{
-        new RegisterDriver(),
-        new UnregisterDriver(),        
-        new ListDriver(),
-        new ListDataSource()
+    private static final ToolEntry[] TOOLS = new ToolEntry[]{
+        new ToolEntry("add", RegisterDriver.DESCRIPTION, () -> new RegisterDriver()),
+        new ToolEntry("remove", UnregisterDriver.DESCRIPTION, () -> new UnregisterDriver()),
+        new ToolEntry("list", ListDriver.DESCRIPTION, () -> new ListDriver()),
+        new ToolEntry("datasource", ListDataSource.DESCRIPTION, () -> new ListDataSource()),
+        new ToolEntry("prefetch", PrefetchDrivers.DESCRIPTION, () -> new PrefetchDrivers())
     };
     
     @Override
@@ -58,9 +62,9 @@ public class DriverTools implements Tool
     {
         ArrayList<String> help = new ArrayList<>();
         
-        for(Tool tool : TOOLS)
+        for(ToolEntry entry : TOOLS)
         {
-            help.add(HELP_SPACING + tool.getName() + " - " + tool.getShortDescription());
+            help.add(HELP_SPACING + entry.getName() + " - " + entry.getShortDescription());
         }
         
         return help.toArray(new String[help.size()]);
@@ -69,7 +73,7 @@ public class DriverTools implements Tool
     @Override
     public String getShortDescription()
     {
-        return "List and manage available database drivers.";
+        return DESCRIPTION;
     }
     
     @Override
@@ -78,11 +82,11 @@ public class DriverTools implements Tool
         if(start == args.length) return false;
         else if("-h".equals(args[start]) || "--help".equals(args[start])) return false;
 
-        for(Tool tool : TOOLS)
+        for(ToolEntry entry : TOOLS)
         { 
-            if(tool.getName().equals(args[start]))
+            if(entry.getName().equals(args[start]))
             {
-                this.tool = tool;
+                this.tool = entry.getTool();
                 
                 if(!this.tool.parse(args, start + 1)) printToolHelp(this.tool);               
                 else return true;
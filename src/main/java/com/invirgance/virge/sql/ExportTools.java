@@ -23,6 +23,7 @@ package com.invirgance.virge.sql;
 
 import static com.invirgance.virge.Virge.HELP_SPACING;
 import static com.invirgance.virge.sql.VirgeSQL.printToolHelp;
+import com.invirgance.virge.sql.export.ExportSchema;
 import com.invirgance.virge.sql.export.ExportTable;
 import com.invirgance.virge.tool.Tool;
 import java.util.ArrayList;
@@ -33,10 +34,13 @@ import java.util.ArrayList;
  */
 public class ExportTools  implements Tool
 {
+    public static final String DESCRIPTION = "Export data from existing table(s).";
+    
     private Tool tool;
     
-    private static final Tool[] TOOLS = new Tool[]{
-        new ExportTable()
+    private static final ToolEntry[] TOOLS = new ToolEntry[]{
+        new ToolEntry("table", ExportTable.DESCRIPTION, () -> new ExportTable()),
+        new ToolEntry("schema", ExportSchema.DESCRIPTION, () -> new ExportSchema())
     };
     
     @Override
@@ -50,9 +54,9 @@ public class ExportTools  implements Tool
     {
         ArrayList<String> help = new ArrayList<>();
         
-        for(Tool tool : TOOLS)
+        for(ToolEntry entry : TOOLS)
         {
-            help.add(HELP_SPACING + tool.getName() + " - " + tool.getShortDescription());
+            help.add(HELP_SPACING + entry.getName() + " - " + entry.getShortDescription());
         }
         
         return help.toArray(new String[help.size()]);
@@ -61,7 +65,7 @@ public class ExportTools  implements Tool
     @Override
     public String getShortDescription()
     {
-        return "Export data from existing table(s).";
+        return DESCRIPTION;
     }
     
     @Override
@@ -70,11 +74,11 @@ public class ExportTools  implements Tool
         if(start == args.length) return false;
         else if("-h".equals(args[start]) || "--help".equals(args[start])) return false;
 
-        for(Tool tool : TOOLS)
+        for(ToolEntry entry : TOOLS)
         { 
-            if(tool.getName().equals(args[start]))
+            if(entry.getName().equals(args[start]))
             {
-                this.tool = tool;
+                this.tool = entry.getTool();
                 
                 if(!this.tool.parse(args, start + 1)) printToolHelp(this.tool);               
                 else return true;
@@ -24,6 +24,7 @@ package com.invirgance.virge.sql;
 
 import static com.invirgance.virge.Virge.HELP_SPACING;
 import static com.invirgance.virge.sql.VirgeSQL.printToolHelp;
+import com.invirgance.virge.sql.generate.GenerateData;
 import com.invirgance.virge.sql.generate.GenerateTable;
 import com.invirgance.virge.tool.Tool;
 import java.util.ArrayList;
@@ -35,10 +36,13 @@ import java.util.ArrayList;
  */
 public class GenerationTools implements Tool
 {
+    public static final String DESCRIPTION = "Generate SQL Queries from existing data.";
+    
     private Tool tool;
     
-    private static final Tool[] TOOLS = new Tool[]{
-        new GenerateTable(),
+    private static final ToolEntry[] TOOLS = new ToolEntry[]{
+        new ToolEntry("table", GenerateTable.DESCRIPTION, () -> new GenerateTable()),
+        new ToolEntry("data", GenerateData.DESCRIPTION, () -> new GenerateData())
     };
       
     @Override
@@ -52,9 +56,9 @@ public class GenerationTools implements Tool
     {
         ArrayList<String> help = new ArrayList<>();
         
-        for(Tool tool : TOOLS)
+        for(ToolEntry entry : TOOLS)
         {
-            help.add(HELP_SPACING + tool.getName() + " - " + tool.getShortDescription());
+            help.add(HELP_SPACING + entry.getName() + " - " + entry.getShortDescription());
         }
         
         return help.toArray(new String[help.size()]);
@@ -63,7 +67,7 @@ public class GenerationTools implements Tool
     @Override
     public String getShortDescription()
     {
-        return "Generate SQL Queries from existing data.";
+        return DESCRIPTION;
     }
     
     @Override
@@ -72,11 +76,11 @@ public class GenerationTools implements Tool
         if(start == args.length) return false;
         else if("-h".equals(args[start]) || "--help".equals(args[start])) return false;
 
-        for(Tool tool : TOOLS)
+        for(ToolEntry entry : TOOLS)
         { 
-            if(tool.getName().equals(args[start]))
+            if(entry.getName().equals(args[start]))
             {
-                this.tool = tool;
+                this.tool = entry.getTool();
                 
                 if(!this.tool.parse(args, start + 1))
                 {                    
@@ -33,10 +33,12 @@ import java.util.ArrayList;
  */
 public class ImportTools implements Tool
 {
+    public static final String DESCRIPTION = "Import data into a existing, or new table.";
+    
     private Tool tool;
     
-    private static final Tool[] TOOLS = new Tool[]{
-        new ImportTable(),
+    private static final ToolEntry[] TOOLS = new ToolEntry[]{
+        new ToolEntry("load", ImportTable.DESCRIPTION, () -> new ImportTable())
     };
        
     @Override
@@ -50,9 +52,9 @@ public class ImportTools implements Tool
     {
         ArrayList<String> help = new ArrayList<>();
         
-        for(Tool tool : TOOLS)
+        for(ToolEntry entry : TOOLS)
         {
-            help.add(HELP_SPACING + tool.getName() + " - " + tool.getShortDescription());
+            help.add(HELP_SPACING + entry.getName() + " - " + entry.getShortDescription());
         }
         
         return help.toArray(new String[help.size()]);
@@ -61,7 +63,7 @@ public class ImportTools implements Tool
     @Override
     public String getShortDescription()
     {
-        return "Import data into a existing, or new table.";
+        return DESCRIPTION;
     }
     
     @Override
@@ -70,11 +72,11 @@ public class ImportTools implements Tool
         if(start == args.length) return false;
         else if("-h".equals(args[start]) || "--help".equals(args[start])) return false;
 
-        for(Tool tool : TOOLS)
+        for(ToolEntry entry : TOOLS)
         { 
-            if(tool.getName().equals(args[start]))
+            if(entry.getName().equals(args[start]))
             {
-                this.tool = tool;
+                this.tool = entry.getTool();
                 
                 if(!this.tool.parse(args, start + 1)) printToolHelp(this.tool);               
                 else return true;
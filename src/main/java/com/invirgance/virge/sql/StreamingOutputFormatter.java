@@ -0,0 +1,170 @@
+/*
+ * Copyright 2024 INVIRGANCE LLC
+
+Permission is hereby granted, free of charge, to any person obtaining a copy 
+of this software and associated documentation files (the “Software”), to deal 
+in the Software without restriction, including without limitation the rights to 
+use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies 
+of the Software, and to permit persons to whom the Software is furnished to do 
+so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all 
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR 
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, 
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER 
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE 
+SOFTWARE.
+ */
+package com.invirgance.virge.sql;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Prints rows into named columns as they arrive. Unlike ConsoleOutputFormatter,
+ * only the first rows are held in memory to size the columns. Once the sample
+ * is full it is printed and every later row is printed immediately, with 
+ * values that don't fit cut short and marked with "...".
+ * 
+ * Example:
+ *      StreamingOutputFormatter formatter = new StreamingOutputFormatter(titles, 100, 40, System.out);
+ *      
+ *      while(set.next()) formatter.print(row);
+ *      
+ *      formatter.finish();
+ * 
+ * @author tadghh
+ */
+public class StreamingOutputFormatter
+{
+    private final String[] titles;
+    private final int sampleRows;
+    private final int maxWidth;
+    private final PrintStream out;
+    
+    private final List<String[]> sample = new ArrayList<>();
+    private int[] widths;
+    
+    /**
+     * Creates a new formatter.
+     * 
+     * @param titles The column titles
+     * @param sampleRows The number of rows used to size the columns
+     * @param maxWidth The maximum width of a column
+     * @param out The stream to print to
+     */
+    public StreamingOutputFormatter(String[] titles, int sampleRows, int maxWidth, PrintStream out)
+    {
+        this.titles = titles;
+        this.sampleRows = Math.max(1, sampleRows);
+        this.maxWidth = Math.max(4, maxWidth);
+        this.out = out;
+    }
+    
+    /**
+     * Adds a row to the output.
+     * 
+     * @param row The values of the row, one per column
+     */
+    public void print(String[] row)
+    {
+        if(widths != null)
+        {
+            printRow(row);
+            return;
+        }
+        
+        sample.add(row);
+        
+        if(sample.size() >= sampleRows) printSample();
+    }
+    
+    /**
+     * Prints any rows still held for sizing and flushes the stream.
+     */
+    public void finish()
+    {
+        if(widths == null) printSample();
+        
+        out.flush();
+    }
+    
+    private void printSample()
+    {
+        widths = new int[titles.length];
+        
+        for(int i=0; i<titles.length; i++) widths[i] = Math.min(titles[i].length(), maxWidth);
+        
+        for(String[] row : sample)
+        {
+            for(int i=0; i<widths.length; i++)
+            {
+                widths[i] = Math.max(widths[i], Math.min((row[i] != null) ? row[i].length() : 4, maxWidth));
+            }
+        }
+        
+        printRow(titles);
+        printSeparator();
+        
+        for(String[] row : sample) printRow(row);
+        
+        sample.clear();
+        
+        // Show the first rows right away rather than when the buffer fills
+        out.flush();
+    }
+    
+    private void printRow(String[] row)
+    {
+        StringBuilder line = new StringBuilder();
+        String value;
+        
+        for(int i=0; i<widths.length; i++)
+        {
+            value = fit(row[i], widths[i]);
+            
+            if(i > 0) line.append("  ");
+            
+            line.append(value);
+            
+            // No trailing spaces after the last column
+            if(i < widths.length - 1) for(int j=value.length(); j<widths[i]; j++) line.append(' ');
+        }
+        
+        out.println(line);
+    }
+    
+    private void printSeparator()
+    {
+        StringBuilder line = new StringBuilder();
+        
+        for(int i=0; i<widths.length; i++)
+        {
+            if(i > 0) line.append("  ");
+            
+            for(int j=0; j<widths[i]; j++) line.append('=');
+        }
+        
+        out.println(line);
+    }
+    
+    private String fit(String value, int width)
+    {
+        if(value == null) value = "NULL";
+        
+        if(value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0 || value.indexOf('\t') >= 0)
+        {
+            value = value.replace('\n', ' ').replace('\r', ' ').replace('\t', ' ');
+        }
+        
+        if(value.length() <= width) return value;
+        if(width < 4) return value.substring(0, width);
+        
+        return value.substring(0, width - 3) + "...";
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2024 INVIRGANCE LLC
+
+Permission is hereby granted, free of charge, to any person obtaining a copy 
+of this software and associated documentation files (the “Software”), to deal 
+in the Software without restriction, including without limitation the rights to 
+use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies 
+of the Software, and to permit persons to whom the Software is furnished to do 
+so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all 
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR 
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, 
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER 
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE 
+SOFTWARE.
+ */
+package com.invirgance.virge.sql;
+
+import com.invirgance.virge.tool.Tool;
+import java.util.function.Supplier;
+
+/**
+ * A registered tool that isn't created until it is selected. Listing the 
+ * available tools only needs the name and description, so the classes of a
+ * tool (and everything it pulls in) are only loaded for the command that is
+ * actually run. Entries take the tool's DESCRIPTION constant, which the 
+ * compiler inlines without loading the class, and create the tool with a 
+ * lambda rather than a constructor reference, which would load the class as
+ * soon as the entry is built.
+ * 
+ * @author tadghh
+ */
+public class ToolEntry
+{
+    private final String name;
+    private final String description;
+    private final Supplier<Tool> supplier;
+    
+    private Tool tool;
+    
+    public ToolEntry(String name, String description, Supplier<Tool> supplier)
+    {
+        this.name = name;
+        this.description = description;
+        this.supplier = supplier;
+    }
+    
+    public String getName()
+    {
+        return name;
+    }
+    
+    public String getShortDescription()
+    {
+        return description;
+    }
+    
+    /**
+     * Returns the tool, creating it on first use.
+     * 
+     * @return The tool instance
+     */
+    public Tool getTool()
+    {
+        if(tool == null) tool = supplier.get();
+        
+        return tool;
+    }
+}
@@ -22,9 +22,19 @@ SOFTWARE.
 
 package com.invirgance.virge.sql;
 
+import com.invirgance.virge.Virge;
 import static com.invirgance.virge.Virge.HELP_DESCRIPTION_SPACING;
 import static com.invirgance.virge.Virge.HELP_SPACING;
+import com.invirgance.virge.sql.bench.Benchmark;
+import com.invirgance.virge.sql.copy.CompareTable;
+import com.invirgance.virge.sql.copy.CopyTable;
+import com.invirgance.virge.sql.copy.MigrateSchema;
+import com.invirgance.virge.sql.daemon.DaemonTool;
+import com.invirgance.virge.sql.daemon.ExitException;
+import com.invirgance.virge.sql.daemon.Session;
+import com.invirgance.virge.sql.query.RunQuery;
 import com.invirgance.virge.tool.Tool;
+import java.io.File;
 import java.io.PrintStream;
 import java.util.HashMap;
 import java.util.Map;
@@ -41,18 +51,25 @@ public class VirgeSQL
     
     public static Tool SELECTED;
     
-    public static final Map<String,Tool> lookup = new HashMap<>();
+    public static final Map<String,ToolEntry> lookup = new HashMap<>();
         
-    public static final Tool[] tools = new Tool[] {
-        new DriverTools(),
-        new GenerationTools(),
-        new ImportTools(),
-        new ExportTools(),
-        new ConnectionTools()
+    // Tools are only created when selected so a command doesn't load the classes of every other tool (see ToolEntry)
+    public static final ToolEntry[] tools = new ToolEntry[] {
+        new ToolEntry("drivers", DriverTools.DESCRIPTION, () -> new DriverTools()),
+        new ToolEntry("generate", GenerationTools.DESCRIPTION, () -> new GenerationTools()),
+        new ToolEntry("import", ImportTools.DESCRIPTION, () -> new ImportTools()),
+        new ToolEntry("export", ExportTools.DESCRIPTION, () -> new ExportTools()),
+        new ToolEntry("query", RunQuery.DESCRIPTION, () -> new RunQuery()),
+        new ToolEntry("bench", Benchmark.DESCRIPTION, () -> new Benchmark()),
+        new ToolEntry("copy", CopyTable.DESCRIPTION, () -> new CopyTable()),
+        new ToolEntry("migrate", MigrateSchema.DESCRIPTION, () -> new MigrateSchema()),
+        new ToolEntry("compare", CompareTable.DESCRIPTION, () -> new CompareTable()),
+        new ToolEntry("daemon", DaemonTool.DESCRIPTION, () -> new DaemonTool()),
+        new ToolEntry("connection", ConnectionTools.DESCRIPTION, () -> new ConnectionTools())
     }; 
      
     static {
-        for(Tool tool : tools) lookup.put(tool.getName(), tool);
+        for(ToolEntry tool : tools) lookup.put(tool.getName(), tool);
     }
     
     private static void print(String[] lines, PrintStream out)
@@ -127,7 +144,7 @@ public class VirgeSQL
             System.out.println("Tools:");
             System.out.println();
 
-            for(Tool help : tools)
+            for(ToolEntry help : tools)
             {
                 System.out.println(HELP_SPACING + help.getName() + " - " + help.getShortDescription());
             }  
@@ -135,7 +152,90 @@ public class VirgeSQL
             System.out.println(); 
         }
         
-        System.exit(1);
+        exit(1, null);
+    }
+    
+    /**
+     * Ends the command with an exit code. Tools call this instead of 
+     * System.exit() so that a command running in the daemon only ends itself
+     * rather than the whole daemon.
+     * 
+     * @param code The exit code
+     * @param message The message printed to standard error, or null for none
+     */
+    public static void exit(int code, String message)
+    {
+        if(Session.current() != null)
+        {
+            if(message != null) System.err.println(message);
+            
+            throw new ExitException(code);
+        }
+        
+        if(message == null) System.exit(code);
+        
+        Virge.exit(code, message);
+    }
+    
+    /**
+     * Returns the file for a path given on the command line. A command 
+     * running in the daemon resolves relative paths against the client's 
+     * working directory rather than the daemon's.
+     * 
+     * @param path A relative or absolute path
+     * @return The file
+     */
+    public static File getFile(String path)
+    {
+        Session session = Session.current();
+        
+        if(session == null) return new File(path);
+        
+        return session.resolve(path).toFile();
+    }
+    
+    /**
+     * Returns an environment variable. A command running in the daemon sees 
+     * the variables its client forwarded (see DaemonProtocol) rather than the
+     * daemon's.
+     * 
+     * @param name The name of the variable
+     * @return The value, or null if it isn't set
+     */
+    public static String getenv(String name)
+    {
+        Session session = Session.current();
+        
+        if(session == null) return System.getenv(name);
+        
+        return session.getenv(name);
+    }
+    
+    /**
+     * Parses a size in bytes with an optional k, m or g suffix, such as the
+     * value of --max-bytes-per-file or --sort-memory.
+     * 
+     * @param value The size, e.g. 512m
+     * @return The number of bytes
+     */
+    public static long parseBytes(String value)
+    {
+        char unit = Character.toLowerCase(value.charAt(value.length() - 1));
+        
+        switch(unit)
+        {
+            case 'k':
+                return Long.parseLong(value.substring(0, value.length() - 1)) * 1024;
+                
+            case 'm':
+                return Long.parseLong(value.substring(0, value.length() - 1)) * 1024 * 1024;
+                
+            case 'g':
+                return Long.parseLong(value.substring(0, value.length() - 1)) * 1024 * 1024 * 1024;
+                
+            default:
+                return Long.parseLong(value);
+        }
     }
     
     /**
@@ -153,15 +253,17 @@ public class VirgeSQL
             return;
         }
         
-        SELECTED = lookup.get(args[0]);
+        ToolEntry entry = lookup.get(args[0]);
 
-        if(SELECTED == null) 
+        if(entry == null) 
         {
             System.err.println("\nUnknown Tool: " + args[0]);
             
             printToolHelp(null);
         }
         
+        SELECTED = entry.getTool();
+        
         if(!SELECTED.parse(args, 1)) printToolHelp(null);
         
         SELECTED.execute();
@@ -0,0 +1,244 @@
+/*
+ * Copyright 2024 INVIRGANCE LLC
+
+Permission is hereby granted, free of charge, to any person obtaining a copy 
+of this software and associated documentation files (the “Software”), to deal 
+in the Software without restriction, including without limitation the rights to 
+use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies 
+of the Software, and to permit persons to whom the Software is furnished to do 
+so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all 
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR 
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, 
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER 
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE 
+SOFTWARE.
+ */
+package com.invirgance.virge.sql.bench;
+
+import com.invirgance.convirgance.ConvirganceException;
+import static com.invirgance.virge.sql.VirgeSQL.getFile;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A weighted transaction run by the benchmark. Scripts use a small subset of 
+ * the pgbench syntax: statements end with a semicolon, and variables are set
+ * with \set and referenced as :name. Variables are bound as parameters of a
+ * prepared statement rather than substituted into the SQL text.
+ * 
+ * <pre>
+ * \set id random(1, 100000)
+ * SELECT * FROM orders WHERE id = :id;
+ * </pre>
+ * 
+ * @author tadghh
+ */
+public class BenchScript
+{
+    private static final Pattern SET = Pattern.compile("\\\\set\\s+(\\w+)\\s+(.+)");
+    private static final Pattern RANDOM = Pattern.compile("random\\(\\s*(-?\\d+)\\s*,\\s*(-?\\d+)\\s*\\)");
+    private static final Pattern CONSTANT = Pattern.compile("-?\\d+");
+    private static final Pattern VARIABLE = Pattern.compile("(?<!:):(\\w+)");
+    
+    private final String name;
+    private final int weight;
+    
+    private final Map<String,long[]> variables = new LinkedHashMap<>();
+    private final List<Step> steps = new ArrayList<>();
+    
+    /**
+     * Creates a script from its source text.
+     * 
+     * @param name The name used when reporting results
+     * @param text The script source
+     * @param weight The relative number of times this script is chosen
+     */
+    public BenchScript(String name, String text, int weight)
+    {
+        StringBuilder statement = new StringBuilder();
+        String line;
+        
+        this.name = name;
+        this.weight = weight;
+        
+        if(weight < 1) throw new ConvirganceException("Weight of " + name + " must be at least 1");
+        
+        for(String raw : text.split("\\R"))
+        {
+            line = raw.trim();
+            
+            if(line.isEmpty() || line.startsWith("--")) continue;
+            
+            if(line.startsWith("\\"))
+            {
+                parseCommand(line);
+                continue;
+            }
+            
+            statement.append(statement.length() > 0 ? " " : "").append(line);
+            
+            if(line.endsWith(";"))
+            {
+                addStep(statement.substring(0, statement.length() - 1));
+                statement.setLength(0);
+            }
+        }
+        
+        if(!statement.toString().isBlank()) addStep(statement.toString());
+        if(steps.isEmpty()) throw new ConvirganceException("Script " + name + " contains no statements");
+    }
+    
+    /**
+     * Loads a script from a file. A weight can be appended to the file name
+     * with an @ sign, e.g. lookup.sql@10.
+     * 
+     * @param spec The file name with an optional weight
+     * @return The parsed script
+     * @throws IOException if the file can't be read
+     */
+    public static BenchScript load(String spec) throws IOException
+    {
+        int index = spec.lastIndexOf('@');
+        File file = getFile((index > 0) ? spec.substring(0, index) : spec);
+        int weight = (index > 0) ? Integer.parseInt(spec.substring(index + 1)) : 1;
+        
+        if(!file.exists()) throw new ConvirganceException("Script " + file + " does not exist!");
+        
+        return new BenchScript(file.getName(), Files.readString(file.toPath(), StandardCharsets.UTF_8), weight);
+    }
+    
+    private void parseCommand(String line)
+    {
+        Matcher set = SET.matcher(line);
+        Matcher random;
+        String expression;
+        
+        if(!set.matches()) throw new ConvirganceException("Unsupported command in " + name + ": " + line);
+        
+        expression = set.group(2).trim();
+        random = RANDOM.matcher(expression);
+        
+        if(random.matches())
+        {
+            variables.put(set.group(1), new long[]{ Long.parseLong(random.group(1)), Long.parseLong(random.group(2)) });
+        }
+        else if(CONSTANT.matcher(expression).matches())
+        {
+            variables.put(set.group(1), new long[]{ Long.parseLong(expression), Long.parseLong(expression) });
+        }
+        else
+        {
+            throw new ConvirganceException("Unsupported expression in " + name + ": " + expression);
+        }
+    }
+    
+    private void addStep(String sql)
+    {
+        Matcher matcher = VARIABLE.matcher(sql);
+        StringBuilder buffer = new StringBuilder();
+        List<String> parameters = new ArrayList<>();
+        
+        while(matcher.find())
+        {
+            // Like pgbench, unknown names are left alone (e.g. times in string literals)
+            if(!variables.containsKey(matcher.group(1))) continue;
+            
+            parameters.add(matcher.group(1));
+            matcher.appendReplacement(buffer, "?");
+        }
+        
+        matcher.appendTail(buffer);
+        steps.add(new Step(buffer.toString(), parameters.toArray(String[]::new)));
+    }
+    
+    public String getName()
+    {
+        return name;
+    }
+    
+    public int getWeight()
+    {
+        return weight;
+    }
+    
+    /**
+     * Runs every statement in the script once. Query results are read to the
+     * end so the time to fetch the rows is included in the latency. Prepared
+     * statements are kept in the cache for reuse by the next run on the same 
+     * connection.
+     * 
+     * @param connection The connection to run on
+     * @param cache The prepared statements of this connection
+     * @param random The source of variable values
+     * @throws SQLException if a statement fails
+     */
+    public void execute(Connection connection, Map<String,PreparedStatement> cache, Random random) throws SQLException
+    {
+        Map<String,Long> values = new LinkedHashMap<>();
+        PreparedStatement statement;
+        long[] range;
+        
+        for(Map.Entry<String,long[]> entry : variables.entrySet())
+        {
+            range = entry.getValue();
+            
+            values.put(entry.getKey(), (range[0] == range[1]) ? range[0] : random.nextLong(range[0], range[1] + 1));
+        }
+        
+        for(Step step : steps)
+        {
+            statement = cache.get(step.sql);
+            
+            if(statement == null)
+            {
+                statement = connection.prepareStatement(step.sql);
+                
+                cache.put(step.sql, statement);
+            }
+            
+            for(int i=0; i<step.parameters.length; i++)
+            {
+                statement.setLong(i + 1, values.get(step.parameters[i]));
+            }
+            
+            if(statement.execute())
+            {
+                try(ResultSet set = statement.getResultSet())
+                {
+                    while(set.next());
+                }
+            }
+        }
+    }
+    
+    private static class Step
+    {
+        private final String sql;
+        private final String[] parameters;
+        
+        public Step(String sql, String[] parameters)
+        {
+            this.sql = sql;
+            this.parameters = parameters;
+        }
+    }
+}
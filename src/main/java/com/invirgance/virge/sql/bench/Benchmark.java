@@ -0,0 +1,418 @@
+/*
+ * Copyright 2024 INVIRGANCE LLC
+
+Permission is hereby granted, free of charge, to any person obtaining a copy 
+of this software and associated documentation files (the “Software”), to deal 
+in the Software without restriction, including without limitation the rights to 
+use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies 
+of the Software, and to permit persons to whom the Software is furnished to do 
+so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all 
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR 
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, 
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER 
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE 
+SOFTWARE.
+ */
+package com.invirgance.virge.sql.bench;
+
+import com.invirgance.convirgance.jdbc.StoredConnection;
+import com.invirgance.convirgance.jdbc.StoredConnections;
+import static com.invirgance.virge.Virge.HELP_DESCRIPTION_SPACING;
+import static com.invirgance.virge.Virge.HELP_SPACING;
+import static com.invirgance.virge.sql.VirgeSQL.exit;
+import static com.invirgance.virge.sql.VirgeSQL.getFile;
+import static com.invirgance.virge.sql.VirgeSQL.printToolHelp;
+import com.invirgance.virge.sql.pool.ConnectionPool;
+import com.invirgance.virge.sql.pool.ConnectionPools;
+import com.invirgance.virge.tool.Tool;
+import java.io.File;
+import java.io.PrintStream;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+/**
+ * Runs a query or a weighted mix of scripts against a stored connection from 
+ * many clients at once and reports the throughput and latency percentiles.
+ * Each client is a virtual thread holding its own pooled connection.
+ * 
+ * When a target rate is given, transactions are scheduled at fixed intervals 
+ * and latency is measured from the scheduled start rather than the actual 
+ * start. A stall then counts against every transaction that should have run
+ * during it, instead of hiding them (coordinated omission).
+ * 
+ * @author tadghh
+ */
+public class Benchmark implements Tool
+{
+    public static final String DESCRIPTION = "Measure throughput and latency of queries under concurrent load.";
+    
+    private static final double MICROS_PER_MILLI = 1000.0;
+    
+    private String connectionName;
+    private String sql;
+    private List<String> files = new ArrayList<>();
+    private int clients = 8;
+    private long duration;
+    private long transactions;
+    private double rate;
+    private int progress;
+    private File histogram;
+    
+    private StoredConnection connection;
+    private List<BenchScript> scripts = new ArrayList<>();
+    private int totalWeight;
+    
+    private final Recorder recorder = new Recorder(3);
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong remaining = new AtomicLong(Long.MAX_VALUE);
+    private volatile String firstError;
+    private AtomicLongArray counts;
+    
+    private boolean error(String message)
+    {
+        System.err.println(message);
+        
+        return false;
+    }
+    
+    @Override
+    public String getName()
+    {
+        return "bench";
+    }
+    
+    @Override
+    public String getShortDescription()
+    {
+        return DESCRIPTION;
+    }
+    
+    @Override
+    public String[] getHelp()
+    {
+        return new String[] {
+            HELP_SPACING + "<SQL>",
+            HELP_SPACING + HELP_DESCRIPTION_SPACING + "A single statement to run as the transaction.",
+            "",
+            HELP_SPACING + "--file <FILE>[@WEIGHT]",
+            HELP_SPACING + "-f <FILE>[@WEIGHT]",
+            HELP_SPACING + HELP_DESCRIPTION_SPACING + "A script of statements to run as one transaction. May be repeated,",
+            HELP_SPACING + HELP_DESCRIPTION_SPACING + "scripts are picked at random in proportion to their weight.",
+            HELP_SPACING + HELP_DESCRIPTION_SPACING + "Variables are set with \\set id random(1, 1000) and used as :id",
+            "",
+            HELP_SPACING + "--connection-name <STORED_CONNECTION>",
+            HELP_SPACING + "-c <STORED_CONNECTION>",
+            HELP_SPACING + HELP_DESCRIPTION_SPACING + "The name of the stored connection to use.",
+            "",
+            HELP_SPACING + "--clients <COUNT>",
+            HELP_SPACING + "-t <COUNT>",
+            HELP_SPACING + HELP_DESCRIPTION_SPACING + "The number of concurrent clients, each with its own connection. Defaults to 8.",
+            "",
+            HELP_SPACING + "--duration <SECONDS>",
+            HELP_SPACING + "-d <SECONDS>",
+            HELP_SPACING + HELP_DESCRIPTION_SPACING + "How long to run for. Defaults to 10 seconds if no transaction count is given.",
+            "",
+            HELP_SPACING + "--transactions <COUNT>",
+            HELP_SPACING + "-n <COUNT>",
+            HELP_SPACING + HELP_DESCRIPTION_SPACING + "The total number of transactions to run across all clients.",
+            "",
+            HELP_SPACING + "--rate <TPS>",
+            HELP_SPACING + "-R <TPS>",
+            HELP_SPACING + HELP_DESCRIPTION_SPACING + "Schedule transactions at a fixed rate and measure latency from the",
+            HELP_SPACING + HELP_DESCRIPTION_SPACING + "scheduled start, so stalls are not hidden by coordinated omission.",
+            "",
+            HELP_SPACING + "--progress <SECONDS>",
+            HELP_SPACING + "-P <SECONDS>",
+            HELP_SPACING + HELP_DESCRIPTION_SPACING + "Print throughput and latency at this interval while running.",
+            "",
+            HELP_SPACING + "--histogram <FILE>",
+            HELP_SPACING + HELP_DESCRIPTION_SPACING + "Write the full latency distribution (HdrHistogram format, in ms) to a file.",
+            "",
+            HELP_SPACING + "--help",
+            HELP_SPACING + "-h",
+            HELP_SPACING + HELP_DESCRIPTION_SPACING  + "Display this menu.",
+        };
+    }
+    
+    @Override
+    public String getExample()
+    {
+        return "virge.jar sql bench -c warehouse -f lookup.sql@9 -f update.sql@1 -t 32 -d 60 -R 2000";
+    }
+    
+    @Override
+    public boolean parse(String[] args, int start) throws Exception
+    {
+        if(start == args.length) return false;
+        
+        for(int i=start; i<args.length; i++)
+        {
+            // Handle single-letter params with no spaces in them
+            if(args[i].length() > 2 && args[i].charAt(0) == '-' && Character.isLetter(args[i].charAt(1)))
+            {
+                parse(new String[]{ args[i].substring(0, 2), args[i].substring(2) }, 0);
+                
+                continue;
+            }
+            
+            switch(args[i])
+            {
+                case "--help":
+                case "-h":
+                    printToolHelp(this);
+                    
+                case "--connection-name":
+                case "-c":
+                    connectionName = args[++i];
+                    break;
+                    
+                case "--file":
+                case "-f":
+                    files.add(args[++i]);
+                    break;
+                    
+                case "--clients":
+                case "-t":
+                    clients = Integer.parseInt(args[++i]);
+                    break;
+                    
+                case "--duration":
+                case "-d":
+                    duration = Long.parseLong(args[++i]);
+                    break;
+                    
+                case "--transactions":
+                case "-n":
+                    transactions = Long.parseLong(args[++i]);
+                    break;
+                    
+                case "--rate":
+                case "-R":
+                    rate = Double.parseDouble(args[++i]);
+                    break;
+                    
+                case "--progress":
+                case "-P":
+                    progress = Integer.parseInt(args[++i]);
+                    break;
+                    
+                case "--histogram":
+                    histogram = getFile(args[++i]);
+                    break;
+                    
+                default:
+                    if(sql != null || args[i].startsWith("-"))
+                    {
+                        System.err.println("Unknown parameter: " + args[i]);
+                        printToolHelp(this);
+                    }
+                    
+                    sql = args[i];
+            }
+        }
+        
+        if(sql == null && files.isEmpty()) return error("No query or script specified!");
+        if(connectionName == null) return error("No connection specified! Use -c to specify a stored connection.");
+        if(clients < 1) return error("At least one client is required!");
+        if(rate < 0) return error("The rate must be positive!");
+        
+        if(duration < 1 && transactions < 1) duration = 10;
+        
+        if(sql != null) scripts.add(new BenchScript("query", sql, 1));
+        
+        for(String file : files) scripts.add(BenchScript.load(file));
+        
+        for(BenchScript script : scripts) totalWeight += script.getWeight();
+        
+        connection = StoredConnections.getConnection(connectionName);
+        
+        if(connection == null) exit(255, "Saved connection " + connectionName + " does not exist!");
+        
+        return true;
+    }
+    
+    private int choose(ThreadLocalRandom random)
+    {
+        int value;
+        
+        if(scripts.size() == 1) return 0;
+        
+        value = random.nextInt(totalWeight);
+        
+        for(int i=0; i<scripts.size(); i++)
+        {
+            value -= scripts.get(i).getWeight();
+            
+            if(value < 0) return i;
+        }
+        
+        return scripts.size() - 1;
+    }
+    
+    private void run(ConnectionPool pool, int client, long start, long deadline)
+    {
+        Map<String,PreparedStatement> cache = new HashMap<>();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long interval = (rate > 0) ? (long)(clients * TimeUnit.SECONDS.toNanos(1) / rate) : 0;
+        long scheduled = start + (long)(client * (interval / (double)clients));
+        long begin;
+        long end;
+        int index;
+        
+        try(Connection jdbc = pool.getConnection())
+        {
+            while(remaining.decrementAndGet() >= 0)
+            {
+                if(interval > 0)
+                {
+                    while((begin = System.nanoTime()) < scheduled) LockSupport.parkNanos(scheduled - begin);
+                    
+                    begin = scheduled;
+                    scheduled += interval;
+                }
+                else
+                {
+                    begin = System.nanoTime();
+                }
+                
+                if(begin >= deadline) break;
+                
+                index = choose(random);
+                
+                try
+                {
+                    scripts.get(index).execute(jdbc, cache, random);
+                    counts.incrementAndGet(index);
+                    
+                    end = System.nanoTime();
+                    
+                    recorder.recordValue(Math.max(0, TimeUnit.NANOSECONDS.toMicros(end - begin)));
+                }
+                catch(SQLException e)
+                {
+                    if(failures.getAndIncrement() == 0) firstError = e.getMessage();
+                    if(jdbc.isClosed() || !jdbc.isValid(5)) throw e;
+                }
+            }
+            
+            for(PreparedStatement statement : cache.values()) statement.close();
+        }
+        catch(SQLException e)
+        {
+            System.err.println("Client " + (client + 1) + " stopped: " + e.getMessage());
+        }
+    }
+    
+    private void printLatency(String prefix, Histogram latency, PrintStream out)
+    {
+        out.println(String.format("%s min %.3f, mean %.3f, p50 %.3f, p90 %.3f, p99 %.3f, p99.9 %.3f, max %.3f ms",
+            prefix,
+            latency.getMinValue() / MICROS_PER_MILLI,
+            latency.getMean() / MICROS_PER_MILLI,
+            latency.getValueAtPercentile(50) / MICROS_PER_MILLI,
+            latency.getValueAtPercentile(90) / MICROS_PER_MILLI,
+            latency.getValueAtPercentile(99) / MICROS_PER_MILLI,
+            latency.getValueAtPercentile(99.9) / MICROS_PER_MILLI,
+            latency.getMaxValue() / MICROS_PER_MILLI
+        ));
+    }
+    
+    @Override
+    public void execute() throws Exception
+    {
+        ConnectionPool pool = ConnectionPools.getPool(connection, clients);
+        List<Thread> threads = new ArrayList<>();
+        Histogram total = new Histogram(3);
+        Histogram interval;
+        long start;
+        long deadline;
+        long elapsed;
+        long last;
+        long now;
+        
+        counts = new AtomicLongArray(scripts.size());
+        
+        if(transactions > 0) remaining.set(transactions);
+        
+        // Fail before starting the clients if the database can't be reached
+        try(Connection warm = pool.getConnection())
+        {
+            warm.isValid(5);
+        }
+        
+        start = System.nanoTime();
+        deadline = (duration > 0) ? start + TimeUnit.SECONDS.toNanos(duration) : Long.MAX_VALUE;
+        last = start;
+        
+        for(int i=0; i<clients; i++)
+        {
+            final int client = i;
+            
+            threads.add(Thread.ofVirtual().name("bench-client-" + (i + 1)).start(() -> run(pool, client, start, deadline)));
+        }
+        
+        for(Thread thread : threads)
+        {
+            while(!thread.join(Duration.ofSeconds(Math.max(1, progress))))
+            {
+                now = System.nanoTime();
+                
+                if(progress < 1 || now - last < TimeUnit.SECONDS.toNanos(progress)) continue;
+                
+                interval = recorder.getIntervalHistogram();
+                total.add(interval);
+                
+                printLatency(String.format("progress: %.1f s, %.1f tps, lat", (now - start) / 1e9, interval.getTotalCount() / ((now - last) / 1e9)), interval, System.err);
+                
+                last = now;
+            }
+        }
+        
+        elapsed = System.nanoTime() - start;
+        total.add(recorder.getIntervalHistogram());
+        
+        System.out.println("clients: " + clients);
+        if(rate > 0) System.out.println(String.format("target rate: %.1f tps (latency includes schedule lag)", rate));
+        System.out.println(String.format("duration: %.2f s", elapsed / 1e9));
+        System.out.println("transactions: " + total.getTotalCount() + " (" + failures.get() + " failed)");
+        System.out.println(String.format("throughput: %.1f tps", total.getTotalCount() / (elapsed / 1e9)));
+        printLatency("latency:", total, System.out);
+        
+        if(scripts.size() > 1)
+        {
+            for(int i=0; i<scripts.size(); i++)
+            {
+                System.out.println("  " + scripts.get(i).getName() + " (weight " + scripts.get(i).getWeight() + "): " + counts.get(i) + " transactions");
+            }
+        }
+        
+        if(firstError != null) System.err.println("First error: " + firstError);
+        
+        if(histogram != null)
+        {
+            try(PrintStream out = new PrintStream(histogram))
+            {
+                total.outputPercentileDistribution(out, MICROS_PER_MILLI);
+            }
+        }
+    }
+}
@@ -27,6 +27,7 @@ import static com.invirgance.virge.Virge.HELP_DESCRIPTION_SPACING;
 import static com.invirgance.virge.Virge.HELP_SPACING;
 import com.invirgance.virge.sql.ConsoleOutputFormatter;
 import static com.invirgance.virge.sql.VirgeSQL.printToolHelp;
+import com.invirgance.virge.sql.drivers.TuningProfile;
 import com.invirgance.virge.tool.Tool;
 import java.util.ArrayList;
 import java.util.Iterator;
@@ -39,6 +40,8 @@ import java.util.List;
  */
 public class ListStoredConnections implements Tool
 {
+    public static final String DESCRIPTION = "Lists all the stored connections.";
+    
     private String name;
     
     @Override
@@ -50,7 +53,7 @@ public class ListStoredConnections implements Tool
     @Override
     public String getShortDescription()
     {
-        return "Lists all the stored connections.";
+        return DESCRIPTION;
     }
     
     @Override
@@ -108,6 +111,8 @@ public class ListStoredConnections implements Tool
         
         System.out.println("Config: " + connection.getName());
         System.out.println(connection.toString());
+        System.out.println("Bulk load tuning: " + TuningProfile.format(TuningProfile.getProperties(connection.getDriver(), TuningProfile.BULK_LOAD)));
+        System.out.println("Bulk extract tuning: " + TuningProfile.format(TuningProfile.getProperties(connection.getDriver(), TuningProfile.BULK_EXTRACT)));
     }
     
     /**
@@ -121,6 +126,8 @@ public class ListStoredConnections implements Tool
         List<String> names = new ArrayList<>();
         List<String> drivers = new ArrayList<>();
         List<String> datasources = new ArrayList<>();
+        List<String> loads = new ArrayList<>();
+        List<String> extracts = new ArrayList<>();
 
         while(connections.hasNext()) 
         {
@@ -129,12 +136,16 @@ public class ListStoredConnections implements Tool
             names.add(connection.getName());
             drivers.add(connection.getDriver().getName());
             datasources.add(connection.getDataSource().getClass().getCanonicalName());
+            loads.add(TuningProfile.format(TuningProfile.getProperties(connection.getDriver(), TuningProfile.BULK_LOAD)));
+            extracts.add(TuningProfile.format(TuningProfile.getProperties(connection.getDriver(), TuningProfile.BULK_EXTRACT)));
         }
         
         new ConsoleOutputFormatter()
                 .addColumn("Connection Name", names)
                 .addColumn("Driver", drivers)
                 .addColumn("Data Source", datasources)
+                .addColumn("Bulk Load", loads)
+                .addColumn("Bulk Extract", extracts)
                 .print();
     }
 }
@@ -27,9 +27,9 @@ import com.invirgance.convirgance.jdbc.AutomaticDrivers;
 import com.invirgance.convirgance.jdbc.StoredConnection;
 import com.invirgance.convirgance.jdbc.StoredConnections.DataSourceConfigBuilder;
 import com.invirgance.convirgance.jdbc.datasource.DataSourceManager;
-import com.invirgance.virge.Virge;
 import static com.invirgance.virge.Virge.HELP_DESCRIPTION_SPACING;
 import static com.invirgance.virge.Virge.HELP_SPACING;
+import static com.invirgance.virge.sql.VirgeSQL.exit;
 import static com.invirgance.virge.sql.VirgeSQL.printToolHelp;
 import com.invirgance.virge.tool.Tool;
 import java.util.Arrays;
@@ -44,6 +44,8 @@ import java.util.Map;
  */
 public class RegisterStoredConnection implements Tool
 {
+    public static final String DESCRIPTION = "Create a new Stored Connection.";
+    
     private boolean isDataSource = false;
     private boolean skipConnectionTest = false;
     private StoredConnection storedConnection;
@@ -64,7 +66,7 @@ public class RegisterStoredConnection implements Tool
     @Override 
     public String getShortDescription()
     {
-        return "Create a new Stored Connection.";
+        return DESCRIPTION;
     }
     
     @Override
@@ -162,12 +164,12 @@ public class RegisterStoredConnection implements Tool
         
         if(this.isDataSource && this.database == null)
         {
-            Virge.exit(255, "Failed: Attempted to create a stored connection without a selected database...");
+            exit(255, "Failed: Attempted to create a stored connection without a selected database...");
         }
         else if(!this.isDataSource)
         {
-            if(this.username == null) Virge.exit(255, "Failed: Stored Connection can not be created without a username");
-            if(this.url == null) Virge.exit(255, "Failed: The Stored Connection was not provided a url...");  
+            if(this.username == null) exit(255, "Failed: Stored Connection can not be created without a username");
+            if(this.url == null) exit(255, "Failed: The Stored Connection was not provided a url...");  
         }
 
         return true;
@@ -247,7 +249,7 @@ public class RegisterStoredConnection implements Tool
                 
                 if(!properties.contains(key))
                 {
-                    Virge.exit(255, "Unknown datasource option for " + this.database + ": " + key);
+                    exit(255, "Unknown datasource option for " + this.database + ": " + key);
                     return;
                 }
                 
@@ -35,6 +35,8 @@ import com.invirgance.virge.tool.Tool;
  */
 public class UnregisterStoredConnection implements Tool
 {
+    public static final String DESCRIPTION = "Remove a Stored Connection.";
+    
     private String name;
     
     @Override
@@ -46,7 +48,7 @@ public class UnregisterStoredConnection implements Tool
     @Override 
     public String getShortDescription()
     {
-        return "Remove a Stored Connection.";
+        return DESCRIPTION;
     }
     
     @Override
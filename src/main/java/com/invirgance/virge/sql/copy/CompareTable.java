@@ -0,0 +1,237 @@
+/*
+ * Copyright 2024 INVIRGANCE LLC
+
+Permission is hereby granted, free of charge, to any person obtaining a copy 
+of this software and associated documentation files (the “Software”), to deal 
+in the Software without restriction, including without limitation the rights to 
+use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies 
+of the Software, and to permit persons to whom the Software is furnished to do 
+so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all 
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR 
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, 
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER 
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE 
+SOFTWARE.
+ */
+package com.invirgance.virge.sql.copy;
+
+import com.invirgance.convirgance.jdbc.StoredConnection;
+import com.invirgance.convirgance.jdbc.StoredConnections;
+import static com.invirgance.virge.Virge.HELP_DESCRIPTION_SPACING;
+import static com.invirgance.virge.Virge.HELP_SPACING;
+import static com.invirgance.virge.sql.VirgeSQL.exit;
+import static com.invirgance.virge.sql.VirgeSQL.printToolHelp;
+import com.invirgance.virge.sql.copy.TableComparator.KeyRange;
+import com.invirgance.virge.tool.Tool;
+import java.util.List;
+
+/**
+ * Compares a table on two connections using checksums of key ranges, and 
+ * optionally copies the ranges that differ from the source to the target.
+ * 
+ * @author tadghh
+ */
+public class CompareTable implements Tool
+{
+    public static final String DESCRIPTION = "Compare a table on two database connections and optionally resync the differences.";
+    
+    private String fromName;
+    private String toName;
+    private String tableName;
+    private String targetName;
+    private String key;
+    
+    private int chunkSize = 100000;
+    private int minChunkSize = 1000;
+    private boolean sync;
+    private boolean clientChecksums;
+    
+    private StoredConnection from;
+    private StoredConnection to;
+    
+    private boolean error(String message)
+    {
+        System.err.println(message);
+        
+        return false;
+    }
+    
+    @Override
+    public String getName()
+    {
+        return "compare";
+    }
+    
+    @Override
+    public String getShortDescription()
+    {
+        return DESCRIPTION;
+    }
+    
+    @Override
+    public String[] getHelp()
+    {
+        return new String[] {
+            HELP_SPACING + "--from <STORED_CONNECTION>",
+            HELP_SPACING + "-f <STORED_CONNECTION>",
+            HELP_SPACING + HELP_DESCRIPTION_SPACING + "The stored connection holding the correct data.",
+            "",
+            HELP_SPACING + "--to <STORED_CONNECTION>",
+            HELP_SPACING + "-t <STORED_CONNECTION>",
+            HELP_SPACING + HELP_DESCRIPTION_SPACING + "The stored connection holding the copy to check.",
+            "",
+            HELP_SPACING + "--table <NAME>",
+            HELP_SPACING + "-n <NAME>",
+            HELP_SPACING + HELP_DESCRIPTION_SPACING + "The name of the table to compare.",
+            "",
+            HELP_SPACING + "--target-name <NAME>",
+            HELP_SPACING + HELP_DESCRIPTION_SPACING + "The name of the table on the target. Defaults to the source table's name.",
+            "",
+            HELP_SPACING + "--key <COLUMN>",
+            HELP_SPACING + "-k <COLUMN>",
+            HELP_SPACING + HELP_DESCRIPTION_SPACING + "The unique column to split the table by. Defaults to the primary key.",
+            "",
+            HELP_SPACING + "--chunk-size <ROWS>",
+            HELP_SPACING + HELP_DESCRIPTION_SPACING + "The approximate number of rows per checksum on the first pass. Defaults to 100000.",
+            "",
+            HELP_SPACING + "--min-chunk-size <ROWS>",
+            HELP_SPACING + HELP_DESCRIPTION_SPACING + "Differing ranges are split until they are this small. Defaults to 1000.",
+            "",
+            HELP_SPACING + "--client-checksum",
+            HELP_SPACING + HELP_DESCRIPTION_SPACING + "Hash rows on the client when the databases have no common checksum, e.g. PostgreSQL to MySQL.",
+            HELP_SPACING + HELP_DESCRIPTION_SPACING + "Every row of both tables is read.",
+            "",
+            HELP_SPACING + "--sync",
+            HELP_SPACING + HELP_DESCRIPTION_SPACING + "Replace the target rows in each differing range with the source rows.",
+            "",
+            HELP_SPACING + "--help",
+            HELP_SPACING + "-h",
+            HELP_SPACING + HELP_DESCRIPTION_SPACING  + "Display this menu.",
+        };
+    }
+    
+    private StoredConnection getConnection(String name)
+    {
+        StoredConnection connection = StoredConnections.getConnection(name);
+        
+        if(connection == null) exit(255, "Saved connection " + name + " does not exist!");
+        
+        return connection;
+    }
+    
+    @Override
+    public boolean parse(String[] args, int start) throws Exception
+    {
+        if(start == args.length) return false;
+        
+        for(int i=start; i<args.length; i++)
+        {
+            // Handle single-letter params with no spaces in them
+            if(args[i].length() > 2 && args[i].charAt(0) == '-' && Character.isLetterOrDigit(args[i].charAt(1)))
+            {
+                parse(new String[]{ args[i].substring(0, 2), args[i].substring(2) }, 0);
+                
+                continue;
+            }
+            
+            switch(args[i])
+            {
+                case "--help":
+                case "-h":
+                    printToolHelp(this);
+                    
+                case "--from":
+                case "-f":
+                    fromName = args[++i];
+                    break;
+                    
+                case "--to":
+                case "-t":
+                    toName = args[++i];
+                    break;
+                    
+                case "--table":
+                case "-n":
+                    tableName = args[++i];
+                    break;
+                    
+                case "--target-name":
+                    targetName = args[++i];
+                    break;
+                    
+                case "--key":
+                case "-k":
+                    key = args[++i];
+                    break;
+                    
+                case "--chunk-size":
+                    chunkSize = Integer.parseInt(args[++i]);
+                    break;
+                    
+                case "--min-chunk-size":
+                    minChunkSize = Integer.parseInt(args[++i]);
+                    break;
+                    
+                case "--client-checksum":
+                    clientChecksums = true;
+                    break;
+                    
+                case "--sync":
+                    sync = true;
+                    break;
+                    
+                default:
+                    System.err.println("Unknown parameter: " + args[i]);
+                    printToolHelp(this);
+            }
+        }
+        
+        if(fromName == null) return error("No source connection specified! Use --from to specify one.");
+        if(toName == null) return error("No target connection specified! Use --to to specify one.");
+        if(tableName == null) return error("No table name specified! Use -n to specify a name.");
+        if(minChunkSize < 1 || chunkSize < minChunkSize) return error("Chunk size must be at least the minimum chunk size, which must be at least 1!");
+        
+        if(targetName == null) targetName = tableName;
+        
+        from = getConnection(fromName);
+        to = getConnection(toName);
+        
+        return true;
+    }
+    
+    @Override
+    public void execute() throws Exception
+    {
+        TableComparator comparator = new TableComparator(from, to, tableName, targetName);
+        List<KeyRange> ranges;
+        long rows;
+        
+        comparator.setKey(key);
+        comparator.setChunkSize(chunkSize);
+        comparator.setMinChunkSize(minChunkSize);
+        comparator.setClientChecksums(clientChecksums);
+        
+        ranges = comparator.compare();
+        
+        for(KeyRange range : ranges)
+        {
+            System.out.println("Range " + range + " differs: " + range.getSourceRows() + " source rows, " + range.getTargetRows() + " target rows");
+        }
+        
+        System.out.println("Compared " + comparator.getChunkCount() + " chunks, " + ranges.size() + " range(s) differ");
+        
+        if(ranges.isEmpty()) return;
+        
+        if(!sync) exit(1, "Tables do not match");
+        
+        rows = comparator.sync(ranges);
+        
+        System.out.println("Resynced " + ranges.size() + " range(s), copied " + rows + " rows");
+    }
+}
@@ -0,0 +1,233 @@
+/*
+ * Copyright 2024 INVIRGANCE LLC
+
+Permission is hereby granted, free of charge, to any person obtaining a copy 
+of this software and associated documentation files (the “Software”), to deal 
+in the Software without restriction, including without limitation the rights to 
+use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies 
+of the Software, and to permit persons to whom the Software is furnished to do 
+so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all 
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR 
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, 
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER 
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE 
+SOFTWARE.
+ */
+package com.invirgance.virge.sql.copy;
+
+import com.invirgance.convirgance.jdbc.StoredConnection;
+import com.invirgance.convirgance.jdbc.StoredConnections;
+import static com.invirgance.virge.Virge.HELP_DESCRIPTION_SPACING;
+import static com.invirgance.virge.Virge.HELP_SPACING;
+import static com.invirgance.virge.sql.VirgeSQL.exit;
+import static com.invirgance.virge.sql.VirgeSQL.printToolHelp;
+import com.invirgance.virge.tool.Tool;
+
+/**
+ * Copies a table from one stored connection to another without an 
+ * intermediate file.
+ * 
+ * @author tadghh
+ */
+public class CopyTable implements Tool
+{
+    public static final String DESCRIPTION = "Copy a table directly from one database connection to another.";
+    
+    private String fromName;
+    private String toName;
+    private String tableName;
+    private String targetName;
+    
+    private boolean createTable;
+    private boolean truncate;
+    private boolean allowNative = true;
+    private int batchSize = 1000;
+    private int queueSize = 4;
+    private int fetchSize = 1000;
+    
+    private StoredConnection from;
+    private StoredConnection to;
+    
+    private boolean error(String message)
+    {
+        System.err.println(message);
+        
+        return false;
+    }
+    
+    @Override
+    public String getName()
+    {
+        return "copy";
+    }
+    
+    @Override
+    public String getShortDescription()
+    {
+        return DESCRIPTION;
+    }
+    
+    @Override
+    public String[] getHelp()
+    {
+        return new String[] {
+            HELP_SPACING + "--from <STORED_CONNECTION>",
+            HELP_SPACING + "-f <STORED_CONNECTION>",
+            HELP_SPACING + HELP_DESCRIPTION_SPACING + "The stored connection to read the table from.",
+            "",
+            HELP_SPACING + "--to <STORED_CONNECTION>",
+            HELP_SPACING + "-t <STORED_CONNECTION>",
+            HELP_SPACING + HELP_DESCRIPTION_SPACING + "The stored connection to write the table to.",
+            "",
+            HELP_SPACING + "--table <NAME>",
+            HELP_SPACING + "-n <NAME>",
+            HELP_SPACING + HELP_DESCRIPTION_SPACING + "The name of the table to copy.",
+            "",
+            HELP_SPACING + "--target-name <NAME>",
+            HELP_SPACING + HELP_DESCRIPTION_SPACING + "The name of the table to write to. Defaults to the source table's name.",
+            "",
+            HELP_SPACING + "--create",
+            HELP_SPACING + "-c",
+            HELP_SPACING + HELP_DESCRIPTION_SPACING + "Create the target table from the source table's columns if its missing.",
+            "",
+            HELP_SPACING + "--truncate",
+            HELP_SPACING + HELP_DESCRIPTION_SPACING + "Truncate the target table prior to loading. All existing DATA will be LOST!",
+            "",
+            HELP_SPACING + "--batch-size <ROWS>",
+            HELP_SPACING + HELP_DESCRIPTION_SPACING + "The number of rows handed from the reader to the writer at a time. Defaults to 1000.",
+            "",
+            HELP_SPACING + "--queue-size <BATCHES>",
+            HELP_SPACING + HELP_DESCRIPTION_SPACING + "The number of batches the reader can get ahead of the writer. Defaults to 4.",
+            "",
+            HELP_SPACING + "--fetch-size <ROWS>",
+            HELP_SPACING + HELP_DESCRIPTION_SPACING + "The number of rows read from the source per round trip. Defaults to 1000.",
+            "",
+            HELP_SPACING + "--no-native",
+            HELP_SPACING + HELP_DESCRIPTION_SPACING + "Disable the database specific load path (e.g. PostgreSQL COPY) and always",
+            HELP_SPACING + HELP_DESCRIPTION_SPACING + "use batched inserts.",
+            "",
+            HELP_SPACING + "--help",
+            HELP_SPACING + "-h",
+            HELP_SPACING + HELP_DESCRIPTION_SPACING  + "Display this menu.",
+        };
+    }
+    
+    private StoredConnection getConnection(String name)
+    {
+        StoredConnection connection = StoredConnections.getConnection(name);
+        
+        if(connection == null) exit(255, "Saved connection " + name + " does not exist!");
+        
+        return connection;
+    }
+    
+    @Override
+    public boolean parse(String[] args, int start) throws Exception
+    {
+        if(start == args.length) return false;
+        
+        for(int i=start; i<args.length; i++)
+        {
+            // Handle single-letter params with no spaces in them
+            if(args[i].length() > 2 && args[i].charAt(0) == '-' && Character.isLetterOrDigit(args[i].charAt(1)))
+            {
+                parse(new String[]{ args[i].substring(0, 2), args[i].substring(2) }, 0);
+                
+                continue;
+            }
+            
+            switch(args[i])
+            {
+                case "--help":
+                case "-h":
+                    printToolHelp(this);
+                    
+                case "--from":
+                case "-f":
+                    fromName = args[++i];
+                    break;
+                    
+                case "--to":
+                case "-t":
+                    toName = args[++i];
+                    break;
+                    
+                case "--table":
+                case "-n":
+                    tableName = args[++i];
+                    break;
+                    
+                case "--target-name":
+                    targetName = args[++i];
+                    break;
+                    
+                case "--create":
+                case "-c":
+                    createTable = true;
+                    break;
+                    
+                case "--truncate":
+                    truncate = true;
+                    break;
+                    
+                case "--batch-size":
+                    batchSize = Integer.parseInt(args[++i]);
+                    break;
+                    
+                case "--queue-size":
+                    queueSize = Integer.parseInt(args[++i]);
+                    break;
+                    
+                case "--fetch-size":
+                    fetchSize = Integer.parseInt(args[++i]);
+                    break;
+                    
+                case "--no-native":
+                    allowNative = false;
+                    break;
+                    
+                default:
+                    System.err.println("Unknown parameter: " + args[i]);
+                    printToolHelp(this);
+            }
+        }
+        
+        if(fromName == null) return error("No source connection specified! Use --from to specify one.");
+        if(toName == null) return error("No target connection specified! Use --to to specify one.");
+        if(tableName == null) return error("No table name specified! Use -n to specify a name.");
+        if(batchSize < 1 || queueSize < 1 || fetchSize < 1) return error("Batch, queue and fetch sizes must be at least 1!");
+        
+        if(targetName == null) targetName = tableName;
+        
+        from = getConnection(fromName);
+        to = getConnection(toName);
+        
+        return true;
+    }
+    
+    @Override
+    public void execute() throws Exception
+    {
+        TableCopier copier = new TableCopier(from, to, tableName, targetName);
+        long start = System.currentTimeMillis();
+        long rows;
+        
+        copier.setCreateTable(createTable);
+        copier.setTruncate(truncate);
+        copier.setAllowNative(allowNative);
+        copier.setBatchSize(batchSize);
+        copier.setQueueSize(queueSize);
+        copier.setFetchSize(fetchSize);
+        
+        rows = copier.copy();
+        
+        System.out.println("Copied " + rows + " rows in " + String.format("%.1f", (System.currentTimeMillis() - start) / 1000.0) + "s");
+        System.out.println("Copy completed");
+    }
+}
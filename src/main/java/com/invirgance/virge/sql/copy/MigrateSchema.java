@@ -0,0 +1,469 @@
+/*
+ * Copyright 2024 INVIRGANCE LLC
+
+Permission is hereby granted, free of charge, to any person obtaining a copy 
+of this software and associated documentation files (the “Software”), to deal 
+in the Software without restriction, including without limitation the rights to 
+use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies 
+of the Software, and to permit persons to whom the Software is furnished to do 
+so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all 
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR 
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, 
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER 
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE 
+SOFTWARE.
+ */
+package com.invirgance.virge.sql.copy;
+
+import com.invirgance.convirgance.jdbc.StoredConnection;
+import com.invirgance.convirgance.jdbc.StoredConnections;
+import static com.invirgance.virge.Virge.HELP_DESCRIPTION_SPACING;
+import static com.invirgance.virge.Virge.HELP_SPACING;
+import com.invirgance.virge.sql.Dialect;
+import static com.invirgance.virge.sql.VirgeSQL.exit;
+import static com.invirgance.virge.sql.VirgeSQL.printToolHelp;
+import com.invirgance.virge.sql.export.TableSizeEstimator;
+import com.invirgance.virge.sql.metadata.SchemaMetadata;
+import com.invirgance.virge.sql.pool.ConnectionPools;
+import com.invirgance.virge.tool.Tool;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Copies every table of a database to another connection. Tables are copied
+ * concurrently, with a table only starting once the tables its foreign keys 
+ * refer to have been copied. Primary keys, indexes and foreign keys are 
+ * created after all of the data has been loaded.
+ * 
+ * @author tadghh
+ */
+public class MigrateSchema implements Tool
+{
+    public static final String DESCRIPTION = "Copy all tables, keys and indexes from one database connection to another.";
+    
+    private String fromName;
+    private String toName;
+    
+    private int maxConnections = 4;
+    private int batchSize = 1000;
+    private boolean truncate;
+    private boolean allowNative = true;
+    private boolean poolStatistics;
+    private boolean constraints = true;
+    
+    private StoredConnection from;
+    private StoredConnection to;
+    
+    private final List<String> include = new ArrayList<>();
+    
+    private boolean error(String message)
+    {
+        System.err.println(message);
+        
+        return false;
+    }
+    
+    @Override
+    public String getName()
+    {
+        return "migrate";
+    }
+    
+    @Override
+    public String getShortDescription()
+    {
+        return DESCRIPTION;
+    }
+    
+    @Override
+    public String[] getHelp()
+    {
+        return new String[] {
+            HELP_SPACING + "--from <STORED_CONNECTION>",
+            HELP_SPACING + "-f <STORED_CONNECTION>",
+            HELP_SPACING + HELP_DESCRIPTION_SPACING + "The stored connection to read the tables from.",
+            "",
+            HELP_SPACING + "--to <STORED_CONNECTION>",
+            HELP_SPACING + "-t <STORED_CONNECTION>",
+            HELP_SPACING + HELP_DESCRIPTION_SPACING + "The stored connection to write the tables to. Missing tables are created.",
+            "",
+            HELP_SPACING + "--table <NAME>",
+            HELP_SPACING + "-n <NAME>",
+            HELP_SPACING + HELP_DESCRIPTION_SPACING + "Only migrate the named table. Can be specified more than once.",
+            "",
+            HELP_SPACING + "--max-connections <COUNT>",
+            HELP_SPACING + "-m <COUNT>",
+            HELP_SPACING + HELP_DESCRIPTION_SPACING + "The number of tables to copy concurrently. Each copy uses one connection",
+            HELP_SPACING + HELP_DESCRIPTION_SPACING + "to each database. Defaults to 4.",
+            "",
+            HELP_SPACING + "--batch-size <ROWS>",
+            HELP_SPACING + HELP_DESCRIPTION_SPACING + "The number of rows handed from the reader to the writer at a time. Defaults to 1000.",
+            "",
+            HELP_SPACING + "--truncate",
+            HELP_SPACING + HELP_DESCRIPTION_SPACING + "Truncate existing target tables prior to loading. All existing DATA will be LOST!",
+            "",
+            HELP_SPACING + "--no-constraints",
+            HELP_SPACING + HELP_DESCRIPTION_SPACING + "Only copy the data, don't create primary keys, indexes or foreign keys.",
+            "",
+            HELP_SPACING + "--pool-stats",
+            HELP_SPACING + HELP_DESCRIPTION_SPACING + "Print how long workers waited for pooled connections when finished.",
+            "",
+            HELP_SPACING + "--no-native",
+            HELP_SPACING + HELP_DESCRIPTION_SPACING + "Disable the database specific load path (e.g. PostgreSQL COPY) and always",
+            HELP_SPACING + HELP_DESCRIPTION_SPACING + "use batched inserts.",
+            "",
+            HELP_SPACING + "--help",
+            HELP_SPACING + "-h",
+            HELP_SPACING + HELP_DESCRIPTION_SPACING  + "Display this menu.",
+        };
+    }
+    
+    private StoredConnection getConnection(String name)
+    {
+        StoredConnection connection = StoredConnections.getConnection(name);
+        
+        if(connection == null) exit(255, "Saved connection " + name + " does not exist!");
+        
+        return connection;
+    }
+    
+    @Override
+    public boolean parse(String[] args, int start) throws Exception
+    {
+        if(start == args.length) return false;
+        
+        for(int i=start; i<args.length; i++)
+        {
+            // Handle single-letter params with no spaces in them
+            if(args[i].length() > 2 && args[i].charAt(0) == '-' && Character.isLetterOrDigit(args[i].charAt(1)))
+            {
+                parse(new String[]{ args[i].substring(0, 2), args[i].substring(2) }, 0);
+                
+                continue;
+            }
+            
+            switch(args[i])
+            {
+                case "--help":
+                case "-h":
+                    printToolHelp(this);
+                    
+                case "--from":
+                case "-f":
+                    fromName = args[++i];
+                    break;
+                    
+                case "--to":
+                case "-t":
+                    toName = args[++i];
+                    break;
+                    
+                case "--table":
+                case "-n":
+                    include.add(args[++i]);
+                    break;
+                    
+                case "--max-connections":
+                case "-m":
+                    maxConnections = Integer.parseInt(args[++i]);
+                    break;
+                    
+                case "--batch-size":
+                    batchSize = Integer.parseInt(args[++i]);
+                    break;
+                    
+                case "--truncate":
+                    truncate = true;
+                    break;
+                    
+                case "--no-constraints":
+                    constraints = false;
+                    break;
+                    
+                case "--pool-stats":
+                    poolStatistics = true;
+                    break;
+                    
+                case "--no-native":
+                    allowNative = false;
+                    break;
+                    
+                default:
+                    System.err.println("Unknown parameter: " + args[i]);
+                    printToolHelp(this);
+            }
+        }
+        
+        if(fromName == null) return error("No source connection specified! Use --from to specify one.");
+        if(toName == null) return error("No target connection specified! Use --to to specify one.");
+        if(maxConnections < 1) return error("At least one connection is required!");
+        if(batchSize < 1) return error("Batch size must be at least 1!");
+        
+        from = getConnection(fromName);
+        to = getConnection(toName);
+        
+        return true;
+    }
+    
+    private Map<String,TableConstraints> getTables() throws Exception
+    {
+        Map<String,TableConstraints> tables = new LinkedHashMap<>();
+        DatabaseMetaData metadata;
+        String catalog;
+        String schema;
+        
+        try(Connection connection = ConnectionPools.getPool(from).getConnection())
+        {
+            metadata = connection.getMetaData();
+            catalog = connection.getCatalog();
+            schema = SchemaMetadata.getSchema(connection);
+            
+            for(String table : SchemaMetadata.getTableNames(from))
+            {
+                if(!include.isEmpty() && include.stream().noneMatch(name -> name.equalsIgnoreCase(table))) continue;
+                
+                tables.put(table.toLowerCase(), TableConstraints.read(metadata, catalog, schema, table));
+            }
+        }
+        
+        return tables;
+    }
+    
+    private List<String> getSizeOrder(Map<String,TableConstraints> tables) throws Exception
+    {
+        List<String> names = new ArrayList<>(tables.keySet());
+        String[] actual = new String[tables.size()];
+        Map<String,Long> sizes;
+        int index = 0;
+        
+        for(TableConstraints table : tables.values()) actual[index++] = table.getTable();
+        
+        try(Connection connection = ConnectionPools.getPool(from).getConnection())
+        {
+            sizes = TableSizeEstimator.estimate(connection, Dialect.getDialect(from.getDriver()), actual);
+        }
+        
+        names.sort(Comparator.comparing((String name) -> sizes.getOrDefault(name, 0L)).reversed());
+        
+        return names;
+    }
+    
+    private boolean isReady(TableConstraints table, Map<String,TableConstraints> tables, Set<String> finished)
+    {
+        for(String parent : table.getParents())
+        {
+            if(tables.containsKey(parent.toLowerCase()) && !finished.contains(parent.toLowerCase())) return false;
+        }
+        
+        return true;
+    }
+    
+    private boolean hasFailedParent(TableConstraints table, Set<String> failed)
+    {
+        for(String parent : table.getParents())
+        {
+            if(failed.contains(parent.toLowerCase())) return true;
+        }
+        
+        return false;
+    }
+    
+    private String copyTable(TableConstraints table) throws Exception
+    {
+        TableCopier copier = new TableCopier(from, to, table.getTable(), table.getTable());
+        long start = System.currentTimeMillis();
+        long rows;
+        
+        copier.setCreateTable(true);
+        copier.setTruncate(truncate);
+        copier.setAllowNative(allowNative);
+        copier.setBatchSize(batchSize);
+        
+        rows = copier.copy();
+        
+        System.out.println("Copied " + table.getTable() + " (" + rows + " rows) in " + String.format("%.1f", (System.currentTimeMillis() - start) / 1000.0) + "s");
+        
+        return table.getTable().toLowerCase();
+    }
+    
+    // Tables are submitted once everything they refer to has been copied, largest first. Tables
+    // referring to a table that failed are skipped and returned with the failures.
+    private Set<String> copyData(Map<String,TableConstraints> tables, ExecutorService pool) throws Exception
+    {
+        CompletionService<String> completion = new ExecutorCompletionService<>(pool);
+        Map<Future<String>,String> running = new LinkedHashMap<>();
+        List<String> pending = getSizeOrder(tables);
+        Set<String> finished = new HashSet<>();
+        Set<String> failed = new HashSet<>();
+        List<String> ready = new ArrayList<>();
+        List<String> skipped = new ArrayList<>();
+        Future<String> result;
+        
+        while(!pending.isEmpty() || !running.isEmpty())
+        {
+            ready.clear();
+            skipped.clear();
+            
+            for(String name : pending)
+            {
+                if(hasFailedParent(tables.get(name), failed)) skipped.add(name);
+                else if(isReady(tables.get(name), tables, finished)) ready.add(name);
+            }
+            
+            for(String name : skipped)
+            {
+                System.err.println("Skipping " + name + ", a table it refers to failed to copy");
+                
+                pending.remove(name);
+                failed.add(name);
+            }
+            
+            // Their own children are skipped on the next pass
+            if(!skipped.isEmpty()) continue;
+            
+            // Foreign key cycles can't be ordered, the keys are only created after all data is loaded anyway
+            if(ready.isEmpty() && running.isEmpty())
+            {
+                System.err.println("Foreign key cycle between " + pending + ", copying them in any order");
+                ready.addAll(pending);
+            }
+            
+            for(String name : ready)
+            {
+                pending.remove(name);
+                running.put(completion.submit(() -> copyTable(tables.get(name))), name);
+            }
+            
+            result = completion.take();
+            
+            try
+            {
+                finished.add(result.get());
+            }
+            catch(ExecutionException e)
+            {
+                System.err.println("Failed to copy " + running.get(result) + ": " + e.getCause().getMessage());
+                
+                failed.add(running.get(result));
+            }
+            
+            running.remove(result);
+        }
+        
+        return failed;
+    }
+    
+    private boolean runStatements(List<String> statements)
+    {
+        try(Connection connection = ConnectionPools.getPool(to).getConnection(); 
+            Statement statement = connection.createStatement())
+        {
+            if(!connection.getAutoCommit()) connection.setAutoCommit(true);
+            
+            for(String sql : statements) statement.execute(sql);
+            
+            return true;
+        }
+        catch(Exception e)
+        {
+            System.err.println("Failed to execute " + statements + ": " + e.getMessage());
+            
+            return false;
+        }
+    }
+    
+    private int createKeys(Map<String,TableConstraints> tables, Set<String> failed, ExecutorService pool) throws Exception
+    {
+        List<Future<Boolean>> results = new ArrayList<>();
+        int errors = 0;
+        
+        for(String name : tables.keySet())
+        {
+            if(failed.contains(name)) continue;
+            
+            results.add(pool.submit(() -> runStatements(tables.get(name).getKeySQL(to.getDriver()))));
+        }
+        
+        for(Future<Boolean> result : results)
+        {
+            if(!result.get()) errors++;
+        }
+        
+        // Foreign keys lock the referenced table as well, so they're added one at a time to avoid deadlocks
+        for(String name : tables.keySet())
+        {
+            if(failed.contains(name)) continue;
+            
+            for(String sql : tables.get(name).getForeignKeySQL(to.getDriver()))
+            {
+                if(!runStatements(List.of(sql))) errors++;
+            }
+        }
+        
+        return errors;
+    }
+    
+    @Override
+    public void execute() throws Exception
+    {
+        ExecutorService pool = Executors.newFixedThreadPool(maxConnections);
+        Map<String,TableConstraints> tables;
+        long start = System.currentTimeMillis();
+        Set<String> failed;
+        int errors = 0;
+        
+        // Each copy holds a connection to both sides, which may share a pool
+        if(from.getName() != null && from.getName().equals(to.getName()))
+        {
+            ConnectionPools.getPool(from, maxConnections * 2 + 1);
+        }
+        else
+        {
+            ConnectionPools.getPool(from, maxConnections + 1);
+            ConnectionPools.getPool(to, maxConnections + 1);
+        }
+        
+        tables = getTables();
+        
+        if(tables.isEmpty()) exit(5, "No tables found to migrate!");
+        
+        try
+        {
+            failed = copyData(tables, pool);
+            
+            if(constraints) errors = createKeys(tables, failed, pool);
+        }
+        finally
+        {
+            pool.shutdown();
+        }
+        
+        if(poolStatistics) ConnectionPools.printStatistics(System.err);
+        
+        System.out.println("Migrated " + (tables.size() - failed.size()) + " of " + tables.size() + " tables in " + String.format("%.1f", (System.currentTimeMillis() - start) / 1000.0) + "s");
+        
+        if(!failed.isEmpty() || errors > 0) exit(1, failed.size() + " table(s) failed to copy or were skipped and " + errors + " key or index statement(s) failed");
+        
+        System.out.println("Migration completed");
+    }
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright 2024 INVIRGANCE LLC
+
+Permission is hereby granted, free of charge, to any person obtaining a copy 
+of this software and associated documentation files (the “Software”), to deal 
+in the Software without restriction, including without limitation the rights to 
+use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies 
+of the Software, and to permit persons to whom the Software is furnished to do 
+so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all 
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR 
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, 
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER 
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE 
+SOFTWARE.
+ */
+package com.invirgance.virge.sql.copy;
+
+import com.invirgance.convirgance.json.JSONObject;
+import java.sql.Connection;
+import java.util.Iterator;
+
+/**
+ * A database specific bulk load path that is faster than batched inserts,
+ * such as PostgreSQL's COPY ... FROM STDIN.
+ * 
+ * @author tadghh
+ */
+public interface NativeLoader
+{
+    /**
+     * Loads the records into an existing table. The caller is responsible for 
+     * committing the connection's transaction.
+     * 
+     * @param connection An open connection to the database
+     * @param table The name of the table to load
+     * @param columns The record keys, which must match the table's column names
+     * @param records The records to load
+     * @return The number of rows loaded
+     * @throws Exception If the load fails
+     */
+    public long load(Connection connection, String table, String[] columns, Iterator<JSONObject> records) throws Exception;
+}
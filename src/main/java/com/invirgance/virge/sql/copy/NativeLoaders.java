@@ -0,0 +1,51 @@
+/*
+ * Copyright 2024 INVIRGANCE LLC
+
+Permission is hereby granted, free of charge, to any person obtaining a copy 
+of this software and associated documentation files (the “Software”), to deal 
+in the Software without restriction, including without limitation the rights to 
+use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies 
+of the Software, and to permit persons to whom the Software is furnished to do 
+so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all 
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR 
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, 
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER 
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE 
+SOFTWARE.
+ */
+package com.invirgance.virge.sql.copy;
+
+import com.invirgance.convirgance.jdbc.AutomaticDriver;
+import com.invirgance.virge.sql.Dialect;
+
+/**
+ * Selects a database specific loader for a driver.
+ * 
+ * @author tadghh
+ */
+public class NativeLoaders
+{
+    /**
+     * Returns the native loader for the driver.
+     * 
+     * @param driver The driver of the connection being loaded into
+     * @return The loader, or null if the database has no native load path
+     */
+    public static NativeLoader getLoader(AutomaticDriver driver)
+    {
+        switch(Dialect.getDialect(driver))
+        {
+            case POSTGRESQL:
+                return new PostgresCopyLoader();
+                
+            default:
+                return null;
+        }
+    }
+}
@@ -0,0 +1,173 @@
+/*
+ * Copyright 2024 INVIRGANCE LLC
+
+Permission is hereby granted, free of charge, to any person obtaining a copy 
+of this software and associated documentation files (the “Software”), to deal 
+in the Software without restriction, including without limitation the rights to 
+use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies 
+of the Software, and to permit persons to whom the Software is furnished to do 
+so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all 
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR 
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, 
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER 
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE 
+SOFTWARE.
+ */
+package com.invirgance.virge.sql.copy;
+
+import com.invirgance.convirgance.json.JSONObject;
+import com.invirgance.virge.sql.export.OutputBuffer;
+import java.io.InputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.util.HexFormat;
+import java.util.Iterator;
+
+/**
+ * Loads records into PostgreSQL using COPY ... FROM STDIN. The records are 
+ * encoded as CSV on demand as the driver reads from the stream, so rows are
+ * sent without per-row statements or round trips.
+ * 
+ * The PostgreSQL driver is loaded dynamically by AutomaticDrivers, so the 
+ * CopyManager API is accessed reflectively.
+ * 
+ * @author tadghh
+ */
+public class PostgresCopyLoader implements NativeLoader
+{
+    private String quote(String identifier)
+    {
+        return "\"" + identifier.replace("\"", "\"\"") + "\"";
+    }
+    
+    @Override
+    public long load(Connection connection, String table, String[] columns, Iterator<JSONObject> records) throws Exception
+    {
+        Class<?> type = Class.forName("org.postgresql.PGConnection", true, connection.getClass().getClassLoader());
+        Object manager = type.getMethod("getCopyAPI").invoke(connection.unwrap(type));
+        StringBuilder sql = new StringBuilder("COPY ");
+        
+        sql.append(table);
+        sql.append(" (");
+        
+        for(int i=0; i<columns.length; i++)
+        {
+            if(i > 0) sql.append(", ");
+            
+            sql.append(quote(columns[i]));
+        }
+        
+        sql.append(") FROM STDIN (FORMAT csv)");
+        
+        try
+        {
+            return (Long)manager.getClass().getMethod("copyIn", String.class, InputStream.class).invoke(manager, sql.toString(), new RecordStream(columns, records));
+        }
+        catch(InvocationTargetException e)
+        {
+            if(e.getCause() instanceof Exception) throw (Exception)e.getCause();
+            
+            throw e;
+        }
+    }
+    
+    private static class RecordStream extends InputStream
+    {
+        private static final int CHUNK_SIZE = 64 * 1024;
+        
+        private final String[] columns;
+        private final Iterator<JSONObject> records;
+        private final OutputBuffer buffer = new OutputBuffer();
+        
+        private byte[] data = new byte[0];
+        private int index;
+        
+        public RecordStream(String[] columns, Iterator<JSONObject> records)
+        {
+            this.columns = columns;
+            this.records = records;
+        }
+        
+        // Unquoted empty values are NULL in PostgreSQL's CSV format, so strings are always quoted
+        private void writeString(String value)
+        {
+            int length = value.length();
+            
+            buffer.append('"');
+            
+            for(int i=0; i<length; )
+            {
+                if(value.charAt(i) == '"') buffer.append('"');
+                
+                i += buffer.appendUTF8(value.charAt(i), (i + 1 < length) ? value.charAt(i + 1) : 0);
+            }
+            
+            buffer.append('"');
+        }
+        
+        private void write(Object value)
+        {
+            if(value == null) return;
+            
+            if(value instanceof BigDecimal) buffer.appendAscii(((BigDecimal)value).toPlainString());
+            else if(value instanceof Number || value instanceof Boolean) buffer.appendAscii(value.toString());
+            else if(value instanceof byte[]) buffer.appendAscii("\\x" + HexFormat.of().formatHex((byte[])value));
+            else writeString(value.toString());
+        }
+        
+        private boolean fill()
+        {
+            JSONObject record;
+            
+            buffer.reset();
+            
+            while(buffer.size() < CHUNK_SIZE && records.hasNext())
+            {
+                record = records.next();
+                
+                for(int i=0; i<columns.length; i++)
+                {
+                    if(i > 0) buffer.append(',');
+                    
+                    write(record.get(columns[i]));
+                }
+                
+                buffer.append('\n');
+            }
+            
+            data = buffer.toByteArray();
+            index = 0;
+            
+            return (data.length > 0);
+        }
+        
+        @Override
+        public int read()
+        {
+            if(index >= data.length && !fill()) return -1;
+            
+            return data[index++] & 0xFF;
+        }
+        
+        @Override
+        public int read(byte[] bytes, int offset, int length)
+        {
+            if(length == 0) return 0;
+            if(index >= data.length && !fill()) return -1;
+            
+            length = Math.min(length, data.length - index);
+            
+            System.arraycopy(data, index, bytes, offset, length);
+            index += length;
+            
+            return length;
+        }
+    }
+}
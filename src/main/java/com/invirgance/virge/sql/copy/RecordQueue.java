@@ -0,0 +1,190 @@
+/*
+ * Copyright 2024 INVIRGANCE LLC
+
+Permission is hereby granted, free of charge, to any person obtaining a copy 
+of this software and associated documentation files (the “Software”), to deal 
+in the Software without restriction, including without limitation the rights to 
+use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies 
+of the Software, and to permit persons to whom the Software is furnished to do 
+so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all 
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR 
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, 
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER 
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE 
+SOFTWARE.
+ */
+package com.invirgance.virge.sql.copy;
+
+import com.invirgance.convirgance.ConvirganceException;
+import com.invirgance.convirgance.json.JSONObject;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A bounded hand off between a thread reading records and a thread writing
+ * them. Records are passed in chunks to keep synchronization out of the per
+ * record path, and the bound keeps memory flat when the reader is faster than
+ * the writer. The queue can be iterated once by the writing thread.
+ * 
+ * @author tadghh
+ */
+public class RecordQueue implements Iterable<JSONObject>
+{
+    private static final List<JSONObject> END = new ArrayList<>();
+    
+    private final BlockingQueue<List<JSONObject>> queue;
+    private final int chunkSize;
+    
+    private List<JSONObject> chunk;
+    private volatile Exception failure;
+    private volatile boolean cancelled;
+    private long count;
+    
+    /**
+     * Creates a new queue.
+     * 
+     * @param chunkSize The number of records passed to the writer at a time
+     * @param capacity The number of chunks that can be waiting before the reader blocks
+     */
+    public RecordQueue(int chunkSize, int capacity)
+    {
+        this.chunkSize = chunkSize;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.chunk = new ArrayList<>(chunkSize);
+    }
+    
+    private void send(List<JSONObject> records, boolean force) throws InterruptedException
+    {
+        while(!queue.offer(records, 100, TimeUnit.MILLISECONDS))
+        {
+            if(cancelled && !force) throw new ConvirganceException("Copy cancelled");
+        }
+    }
+    
+    /**
+     * Adds a record to the queue, blocking while the queue is full.
+     * 
+     * @param record The record read from the source
+     * @throws InterruptedException If the thread is interrupted while waiting
+     */
+    public void put(JSONObject record) throws InterruptedException
+    {
+        if(cancelled) throw new ConvirganceException("Copy cancelled");
+        
+        chunk.add(record);
+        
+        if(chunk.size() >= chunkSize)
+        {
+            send(chunk, false);
+            
+            chunk = new ArrayList<>(chunkSize);
+        }
+    }
+    
+    /**
+     * Signals that the reader has added all of its records.
+     * 
+     * @throws InterruptedException If the thread is interrupted while waiting
+     */
+    public void finish() throws InterruptedException
+    {
+        if(!chunk.isEmpty()) send(chunk, false);
+        
+        send(END, false);
+    }
+    
+    /**
+     * Signals that the reader failed. The writer receives the failure once it
+     * has consumed the records queued before it.
+     * 
+     * @param exception The cause of the failure
+     */
+    public void fail(Exception exception)
+    {
+        failure = exception;
+        
+        if(cancelled) return;
+        
+        try
+        {
+            send(END, true);
+        }
+        catch(InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    /**
+     * Stops the reader after the writer has failed. Pending records are 
+     * discarded and the next call to put() throws an exception.
+     */
+    public void cancel()
+    {
+        cancelled = true;
+        
+        queue.clear();
+    }
+    
+    /**
+     * Returns the number of records the writer has taken from the queue.
+     * 
+     * @return The record count
+     */
+    public long getCount()
+    {
+        return count;
+    }
+    
+    @Override
+    public Iterator<JSONObject> iterator()
+    {
+        return new Iterator<JSONObject>() {
+            
+            private List<JSONObject> records = new ArrayList<>();
+            private int index;
+            
+            @Override
+            public boolean hasNext()
+            {
+                while(records != END && index >= records.size())
+                {
+                    try
+                    {
+                        records = queue.take();
+                        index = 0;
+                    }
+                    catch(InterruptedException e)
+                    {
+                        throw new ConvirganceException(e);
+                    }
+                }
+                
+                if(records == END && failure != null) throw new ConvirganceException("Unable to read from the source", failure);
+                
+                return (records != END);
+            }
+            
+            @Override
+            public JSONObject next()
+            {
+                if(!hasNext()) throw new NoSuchElementException();
+                
+                count++;
+                
+                return records.get(index++);
+            }
+        };
+    }
+}
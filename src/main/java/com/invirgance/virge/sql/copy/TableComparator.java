@@ -0,0 +1,623 @@
+/*
+ * Copyright 2024 INVIRGANCE LLC
+
+Permission is hereby granted, free of charge, to any person obtaining a copy 
+of this software and associated documentation files (the “Software”), to deal 
+in the Software without restriction, including without limitation the rights to 
+use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies 
+of the Software, and to permit persons to whom the Software is furnished to do 
+so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all 
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR 
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, 
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER 
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE 
+SOFTWARE.
+ */
+package com.invirgance.virge.sql.copy;
+
+import com.invirgance.convirgance.ConvirganceException;
+import com.invirgance.convirgance.jdbc.StoredConnection;
+import com.invirgance.virge.sql.Dialect;
+import com.invirgance.virge.sql.metadata.SchemaMetadata;
+import com.invirgance.virge.sql.pool.ConnectionPools;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Compares a table on two connections by splitting it into key ranges and
+ * comparing the row count and a hash of each range. Only ranges that differ
+ * are split further, so matching data is never transferred. When both sides
+ * are the same kind of database the hashes are computed by the database.
+ * Otherwise every row has to be read and hashed on the client, which is only
+ * done when enabled with setClientChecksums().
+ * 
+ * @author tadghh
+ */
+public class TableComparator
+{
+    private final StoredConnection source;
+    private final StoredConnection target;
+    private final String tableName;
+    private final String targetName;
+    
+    private String key;
+    private int chunkSize = 100000;
+    private int minChunkSize = 1000;
+    private boolean clientChecksums;
+    
+    private String[] columns;
+    private boolean integerKey;
+    private long chunks;
+    
+    /**
+     * Creates a new comparator.
+     * 
+     * @param source The connection holding the correct data
+     * @param target The connection holding the copy
+     * @param tableName The table on the source
+     * @param targetName The table on the target
+     */
+    public TableComparator(StoredConnection source, StoredConnection target, String tableName, String targetName)
+    {
+        this.source = source;
+        this.target = target;
+        this.tableName = tableName;
+        this.targetName = targetName;
+    }
+    
+    public String getKey()
+    {
+        return key;
+    }
+    
+    /**
+     * Sets the unique column used to split the table into ranges. Defaults to
+     * the table's primary key, which must be a single column.
+     * 
+     * @param key The column name
+     */
+    public void setKey(String key)
+    {
+        this.key = key;
+    }
+    
+    public int getChunkSize()
+    {
+        return chunkSize;
+    }
+    
+    /**
+     * Sets the approximate number of rows in each range of the first pass.
+     * 
+     * @param chunkSize The number of rows
+     */
+    public void setChunkSize(int chunkSize)
+    {
+        this.chunkSize = chunkSize;
+    }
+    
+    public int getMinChunkSize()
+    {
+        return minChunkSize;
+    }
+    
+    /**
+     * Sets the size at which differing ranges are reported instead of split.
+     * 
+     * @param minChunkSize The number of rows
+     */
+    public void setMinChunkSize(int minChunkSize)
+    {
+        this.minChunkSize = minChunkSize;
+    }
+    
+    public boolean isClientChecksums()
+    {
+        return clientChecksums;
+    }
+    
+    /**
+     * Allows ranges to be hashed on the client when the databases have no 
+     * common checksum, such as when comparing different kinds of database.
+     * This reads every row of both tables, so it's disabled by default.
+     * 
+     * @param clientChecksums true to hash rows on the client
+     */
+    public void setClientChecksums(boolean clientChecksums)
+    {
+        this.clientChecksums = clientChecksums;
+    }
+    
+    /**
+     * Returns the number of ranges checksummed by the last comparison.
+     * 
+     * @return The range count
+     */
+    public long getChunkCount()
+    {
+        return chunks;
+    }
+    
+    private void prepare(Connection connection) throws SQLException
+    {
+        ResultSetMetaData result;
+        List<String> primaryKey;
+        
+        if(key == null)
+        {
+            primaryKey = SchemaMetadata.getPrimaryKey(connection, tableName);
+            
+            if(primaryKey.isEmpty()) throw new ConvirganceException("Table " + tableName + " has no primary key, use --key to choose a unique column");
+            if(primaryKey.size() > 1) throw new ConvirganceException("The primary key of " + tableName + " has multiple columns, use --key to choose a unique column");
+            
+            key = primaryKey.get(0);
+        }
+        
+        try(Statement statement = connection.createStatement(); 
+            ResultSet set = statement.executeQuery("SELECT * FROM " + tableName + " WHERE 1=0"))
+        {
+            result = set.getMetaData();
+            columns = new String[result.getColumnCount()];
+            
+            for(int i=0; i<columns.length; i++)
+            {
+                columns[i] = result.getColumnLabel(i + 1);
+                
+                if(!columns[i].equalsIgnoreCase(key)) continue;
+                
+                switch(result.getColumnType(i + 1))
+                {
+                    case Types.TINYINT:
+                    case Types.SMALLINT:
+                    case Types.INTEGER:
+                    case Types.BIGINT:
+                        integerKey = true;
+                }
+            }
+        }
+    }
+    
+    private String getColumnList(StoredConnection connection, String separator)
+    {
+        StringBuilder list = new StringBuilder();
+        
+        for(String column : columns)
+        {
+            if(list.length() > 0) list.append(separator);
+            
+            list.append(connection.getDriver().quoteIdentifier(column));
+        }
+        
+        return list.toString();
+    }
+    
+    // Each dialect's hash is only comparable with the same database
+    private boolean hasServerChecksum()
+    {
+        Dialect dialect = Dialect.getDialect(source.getDriver());
+        
+        if(dialect != Dialect.getDialect(target.getDriver())) return false;
+        
+        switch(dialect)
+        {
+            case POSTGRESQL:
+            case MYSQL:
+            case SQLSERVER:
+            case ORACLE:
+                return true;
+                
+            default:
+                return false;
+        }
+    }
+    
+    private String getChecksumQuery(StoredConnection connection, String table, KeyRange range)
+    {
+        Dialect dialect = Dialect.getDialect(connection.getDriver());
+        StringBuilder nulls = new StringBuilder();
+        String where = range.getWhere(key);
+        
+        if(!hasServerChecksum()) return null;
+        
+        switch(dialect)
+        {
+            case POSTGRESQL:
+                return "SELECT COUNT(*), COALESCE(SUM(('x' || SUBSTR(MD5(CAST(t.* AS TEXT)), 1, 15))::BIT(60)::BIGINT), 0) FROM " + table + " t" + where;
+                
+            case MYSQL:
+                for(String column : columns) nulls.append(", ISNULL(").append(connection.getDriver().quoteIdentifier(column)).append(")");
+                
+                return "SELECT COUNT(*), COALESCE(SUM(CRC32(CONCAT_WS('#', " + getColumnList(connection, ", ") + nulls + "))), 0) FROM " + table + where;
+                
+            case SQLSERVER:
+                return "SELECT COUNT_BIG(*), COALESCE(SUM(CAST(BINARY_CHECKSUM(*) AS BIGINT)), 0) FROM " + table + where;
+                
+            case ORACLE:
+                return "SELECT COUNT(*), NVL(SUM(ORA_HASH(" + getColumnList(connection, " || '#' || ") + ")), 0) FROM " + table + where;
+                
+            default:
+                return null;
+        }
+    }
+    
+    // Drivers return the same value as different types, e.g. a Timestamp or a LocalDateTime, or 1 for true
+    private String normalize(Object value)
+    {
+        if(value == null) return "\u0000";
+        if(value instanceof Boolean) return ((Boolean)value) ? "1" : "0";
+        if(value instanceof BigDecimal) return ((BigDecimal)value).stripTrailingZeros().toPlainString();
+        if(value instanceof Number) return new BigDecimal(value.toString()).stripTrailingZeros().toPlainString();
+        if(value instanceof byte[]) return HexFormat.of().formatHex((byte[])value);
+        if(value instanceof Timestamp) return normalize(((Timestamp)value).toLocalDateTime());
+        if(value instanceof java.sql.Date) return ((java.sql.Date)value).toLocalDate().toString();
+        if(value instanceof Time) return normalize(((Time)value).toLocalTime());
+        if(value instanceof OffsetDateTime) return normalize(((OffsetDateTime)value).atZoneSameInstant(ZoneId.systemDefault()).toLocalDateTime());
+        if(value instanceof ZonedDateTime) return normalize(((ZonedDateTime)value).withZoneSameInstant(ZoneId.systemDefault()).toLocalDateTime());
+        if(value instanceof Instant) return normalize(LocalDateTime.ofInstant((Instant)value, ZoneId.systemDefault()));
+        if(value instanceof LocalTime) return normalizeTime((LocalTime)value);
+        
+        // Oracle returns DATE columns as timestamps, so midnight compares equal to a date
+        if(value instanceof LocalDateTime && ((LocalDateTime)value).toLocalTime().equals(LocalTime.MIDNIGHT)) return ((LocalDateTime)value).toLocalDate().toString();
+        if(value instanceof LocalDateTime) return ((LocalDateTime)value).toLocalDate() + " " + normalizeTime(((LocalDateTime)value).toLocalTime());
+        
+        return value.toString();
+    }
+    
+    private String normalizeTime(LocalTime time)
+    {
+        String text = time.withNano(0).format(DateTimeFormatter.ISO_LOCAL_TIME);
+        
+        if(time.getNano() == 0) return text;
+        
+        return text + "." + BigDecimal.valueOf(time.getNano(), 9).stripTrailingZeros().toPlainString().substring(2);
+    }
+    
+    private Checksum checksum(Connection connection, StoredConnection stored, String table, KeyRange range) throws Exception
+    {
+        String sql = getChecksumQuery(stored, table, range);
+        MessageDigest digest;
+        long count = 0;
+        
+        if(sql != null)
+        {
+            try(PreparedStatement statement = connection.prepareStatement(sql))
+            {
+                range.bind(statement);
+                
+                try(ResultSet set = statement.executeQuery())
+                {
+                    set.next();
+                    
+                    return new Checksum(set.getLong(1), set.getString(2));
+                }
+            }
+        }
+        
+        digest = MessageDigest.getInstance("SHA-256");
+        
+        try(PreparedStatement statement = connection.prepareStatement("SELECT * FROM " + table + range.getWhere(key) + " ORDER BY " + key))
+        {
+            statement.setFetchSize(1000);
+            range.bind(statement);
+            
+            try(ResultSet set = statement.executeQuery())
+            {
+                while(set.next())
+                {
+                    for(int i=1; i<=columns.length; i++)
+                    {
+                        digest.update(normalize(set.getObject(i)).getBytes(StandardCharsets.UTF_8));
+                        digest.update((byte)0x1F);
+                    }
+                    
+                    count++;
+                }
+            }
+        }
+        
+        return new Checksum(count, HexFormat.of().formatHex(digest.digest()));
+    }
+    
+    private List<KeyRange> splitIntegers(Connection connection, KeyRange range, int step) throws SQLException
+    {
+        List<KeyRange> ranges = new ArrayList<>();
+        long minimum, maximum, count, width;
+        Object lower = range.lower;
+        
+        try(PreparedStatement statement = connection.prepareStatement("SELECT MIN(" + key + "), MAX(" + key + "), COUNT(*) FROM " + tableName + range.getWhere(key)))
+        {
+            range.bind(statement);
+            
+            try(ResultSet set = statement.executeQuery())
+            {
+                set.next();
+                
+                minimum = set.getLong(1);
+                maximum = set.getLong(2);
+                count = set.getLong(3);
+            }
+        }
+        
+        if(count <= step) return List.of(range);
+        
+        width = Math.max(1, (maximum - minimum + 1) / ((count + step - 1) / step));
+        
+        for(long boundary = minimum + width - 1; boundary < maximum; boundary += width)
+        {
+            ranges.add(new KeyRange(lower, boundary));
+            
+            lower = boundary;
+        }
+        
+        ranges.add(new KeyRange(lower, range.upper));
+        
+        return ranges;
+    }
+    
+    private List<KeyRange> splitKeys(Connection connection, KeyRange range, int step) throws SQLException
+    {
+        List<KeyRange> ranges = new ArrayList<>();
+        Object lower = range.lower;
+        long count = 0;
+        
+        try(PreparedStatement statement = connection.prepareStatement("SELECT " + key + " FROM " + tableName + range.getWhere(key) + " ORDER BY " + key))
+        {
+            statement.setFetchSize(10000);
+            range.bind(statement);
+            
+            try(ResultSet set = statement.executeQuery())
+            {
+                while(set.next())
+                {
+                    if(++count % step != 0) continue;
+                    
+                    ranges.add(new KeyRange(lower, set.getObject(1)));
+                    
+                    lower = set.getObject(1);
+                }
+            }
+        }
+        
+        ranges.add(new KeyRange(lower, range.upper));
+        
+        return ranges;
+    }
+    
+    private void compare(Connection sourceConnection, Connection targetConnection, ExecutorService pool, KeyRange range, int step, List<KeyRange> mismatches) throws Exception
+    {
+        List<KeyRange> ranges = integerKey ? splitIntegers(sourceConnection, range, step) : splitKeys(sourceConnection, range, step);
+        Future<Checksum> targetChecksum;
+        Checksum sourceChecksum;
+        
+        for(KeyRange chunk : ranges)
+        {
+            // Both sides are hashed at the same time
+            targetChecksum = pool.submit(() -> checksum(targetConnection, target, targetName, chunk));
+            sourceChecksum = checksum(sourceConnection, source, tableName, chunk);
+            chunks++;
+            
+            chunk.sourceRows = sourceChecksum.count;
+            chunk.targetRows = targetChecksum.get().count;
+            
+            if(sourceChecksum.equals(targetChecksum.get())) continue;
+            
+            if(step <= minChunkSize || sourceChecksum.count <= minChunkSize) mismatches.add(chunk);
+            else compare(sourceConnection, targetConnection, pool, chunk, Math.max(minChunkSize, step / 16), mismatches);
+        }
+    }
+    
+    /**
+     * Compares the tables.
+     * 
+     * @return The key ranges that differ, empty if the tables match
+     * @throws Exception If the tables can't be read, or they need client checksums and those aren't enabled
+     */
+    public List<KeyRange> compare() throws Exception
+    {
+        List<KeyRange> mismatches = new ArrayList<>();
+        ExecutorService pool;
+        
+        if(!hasServerChecksum() && !clientChecksums)
+        {
+            throw new ConvirganceException("There is no checksum common to " + source.getName() + " and " + target.getName() + ", use --client-checksum to read and hash every row on the client");
+        }
+        
+        pool = Executors.newSingleThreadExecutor();
+        chunks = 0;
+        
+        try(Connection sourceConnection = ConnectionPools.getPool(source).getConnection();
+            Connection targetConnection = ConnectionPools.getPool(target).getConnection())
+        {
+            prepare(sourceConnection);
+            compare(sourceConnection, targetConnection, pool, new KeyRange(null, null), chunkSize, mismatches);
+        }
+        finally
+        {
+            pool.shutdown();
+        }
+        
+        return mismatches;
+    }
+    
+    /**
+     * Replaces the target rows in each range with the rows from the source.
+     * Each range is replaced in its own transaction.
+     * 
+     * @param ranges The ranges returned by compare()
+     * @return The number of rows copied
+     * @throws Exception If a range can't be copied
+     */
+    public long sync(List<KeyRange> ranges) throws Exception
+    {
+        StringBuilder insert = new StringBuilder("INSERT INTO " + targetName + " (" + getColumnList(target, ", ") + ") VALUES (");
+        long rows = 0;
+        int batch;
+        
+        for(int i=0; i<columns.length; i++) insert.append(i > 0 ? ", ?" : "?");
+        
+        insert.append(")");
+        
+        try(Connection sourceConnection = ConnectionPools.getPool(source).getConnection();
+            Connection targetConnection = ConnectionPools.getPool(target).getConnection())
+        {
+            targetConnection.setAutoCommit(false);
+            
+            for(KeyRange range : ranges)
+            {
+                try(PreparedStatement delete = targetConnection.prepareStatement("DELETE FROM " + targetName + range.getWhere(key));
+                    PreparedStatement select = sourceConnection.prepareStatement("SELECT * FROM " + tableName + range.getWhere(key));
+                    PreparedStatement statement = targetConnection.prepareStatement(insert.toString()))
+                {
+                    range.bind(delete);
+                    range.bind(select);
+                    delete.executeUpdate();
+                    
+                    batch = 0;
+                    
+                    try(ResultSet set = select.executeQuery())
+                    {
+                        while(set.next())
+                        {
+                            for(int i=1; i<=columns.length; i++) statement.setObject(i, set.getObject(i));
+                            
+                            statement.addBatch();
+                            rows++;
+                            
+                            if(++batch % 1000 == 0) statement.executeBatch();
+                        }
+                    }
+                    
+                    if(batch % 1000 != 0) statement.executeBatch();
+                    
+                    targetConnection.commit();
+                }
+                catch(Exception e)
+                {
+                    targetConnection.rollback();
+                    
+                    throw e;
+                }
+            }
+        }
+        
+        return rows;
+    }
+    
+    /**
+     * A range of key values, exclusive of the lower bound and inclusive of the
+     * upper bound. A null bound is unbounded.
+     */
+    public static class KeyRange
+    {
+        private final Object lower;
+        private final Object upper;
+        
+        private long sourceRows;
+        private long targetRows;
+        
+        private KeyRange(Object lower, Object upper)
+        {
+            this.lower = lower;
+            this.upper = upper;
+        }
+        
+        private String getWhere(String key)
+        {
+            if(lower != null && upper != null) return " WHERE " + key + " > ? AND " + key + " <= ?";
+            if(lower != null) return " WHERE " + key + " > ?";
+            if(upper != null) return " WHERE " + key + " <= ?";
+            
+            return "";
+        }
+        
+        private void bind(PreparedStatement statement) throws SQLException
+        {
+            int index = 1;
+            
+            if(lower != null) statement.setObject(index++, lower);
+            if(upper != null) statement.setObject(index++, upper);
+        }
+        
+        public Object getLower()
+        {
+            return lower;
+        }
+        
+        public Object getUpper()
+        {
+            return upper;
+        }
+        
+        public long getSourceRows()
+        {
+            return sourceRows;
+        }
+        
+        public long getTargetRows()
+        {
+            return targetRows;
+        }
+        
+        @Override
+        public String toString()
+        {
+            return "(" + (lower == null ? "" : lower) + ", " + (upper == null ? "" : upper) + "]";
+        }
+    }
+    
+    private static class Checksum
+    {
+        private final long count;
+        private final String hash;
+        
+        public Checksum(long count, String hash)
+        {
+            this.count = count;
+            this.hash = hash;
+        }
+        
+        @Override
+        public boolean equals(Object object)
+        {
+            if(!(object instanceof Checksum)) return false;
+            
+            return (count == ((Checksum)object).count && Objects.equals(hash, ((Checksum)object).hash));
+        }
+        
+        @Override
+        public int hashCode()
+        {
+            return Objects.hash(count, hash);
+        }
+    }
+}
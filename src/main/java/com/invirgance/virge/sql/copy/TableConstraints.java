@@ -0,0 +1,287 @@
+/*
+ * Copyright 2024 INVIRGANCE LLC
+
+Permission is hereby granted, free of charge, to any person obtaining a copy 
+of this software and associated documentation files (the “Software”), to deal 
+in the Software without restriction, including without limitation the rights to 
+use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies 
+of the Software, and to permit persons to whom the Software is furnished to do 
+so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all 
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR 
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, 
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER 
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE 
+SOFTWARE.
+ */
+package com.invirgance.virge.sql.copy;
+
+import com.invirgance.convirgance.jdbc.AutomaticDriver;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * The primary key, indexes and foreign keys of a table as reported by the
+ * JDBC metadata of the source database. Used to recreate them on a target
+ * after the data has been loaded, which is much faster than maintaining them
+ * while inserting.
+ * 
+ * @author tadghh
+ */
+public class TableConstraints
+{
+    private final String catalog;
+    private final String schema;
+    private final String table;
+    
+    private String primaryKeyName;
+    private final Map<Integer,String> primaryKey = new TreeMap<>();
+    private final Map<String,Index> indexes = new LinkedHashMap<>();
+    private final Map<String,ForeignKey> foreignKeys = new LinkedHashMap<>();
+    
+    private TableConstraints(String catalog, String schema, String table)
+    {
+        this.catalog = catalog;
+        this.schema = schema;
+        this.table = table;
+    }
+    
+    /**
+     * Reads the constraints of a table. The catalog and schema keep tables 
+     * with the same name in other schemas from being mixed in.
+     * 
+     * @param metadata The metadata of the source connection
+     * @param catalog The catalog of the table, or null if there is none
+     * @param schema The schema of the table, or null if there is none
+     * @param table The name of the table
+     * @return The table's constraints
+     * @throws SQLException If the metadata can't be read
+     */
+    public static TableConstraints read(DatabaseMetaData metadata, String catalog, String schema, String table) throws SQLException
+    {
+        TableConstraints constraints = new TableConstraints(catalog, schema, table);
+        
+        constraints.readPrimaryKey(metadata);
+        constraints.readIndexes(metadata);
+        constraints.readForeignKeys(metadata);
+        
+        return constraints;
+    }
+    
+    private void readPrimaryKey(DatabaseMetaData metadata) throws SQLException
+    {
+        try(ResultSet set = metadata.getPrimaryKeys(catalog, schema, table))
+        {
+            while(set.next())
+            {
+                primaryKeyName = set.getString("PK_NAME");
+                
+                primaryKey.put(set.getInt("KEY_SEQ"), set.getString("COLUMN_NAME"));
+            }
+        }
+    }
+    
+    private void readIndexes(DatabaseMetaData metadata) throws SQLException
+    {
+        Set<String> skipped = new HashSet<>();
+        String name;
+        String column;
+        Index index;
+        
+        try(ResultSet set = metadata.getIndexInfo(catalog, schema, table, false, false))
+        {
+            while(set.next())
+            {
+                if(set.getShort("TYPE") == DatabaseMetaData.tableIndexStatistic) continue;
+                
+                name = set.getString("INDEX_NAME");
+                column = set.getString("COLUMN_NAME");
+                
+                if(name == null || skipped.contains(name)) continue;
+                
+                // Expression and function based indexes can't be rebuilt from the metadata
+                if(column == null || column.contains("("))
+                {
+                    skipped.add(name);
+                    indexes.remove(name);
+                    continue;
+                }
+                
+                index = indexes.computeIfAbsent(name, key -> new Index());
+                index.unique = !set.getBoolean("NON_UNIQUE");
+                
+                index.columns.put(set.getInt("ORDINAL_POSITION"), column);
+                
+                if("D".equals(set.getString("ASC_OR_DESC"))) index.descending.add(column);
+            }
+        }
+        
+        // The index backing the primary key is created with the key
+        if(primaryKeyName != null) indexes.remove(primaryKeyName);
+        
+        indexes.values().removeIf(candidate -> new ArrayList<>(candidate.columns.values()).equals(new ArrayList<>(primaryKey.values())));
+    }
+    
+    private void readForeignKeys(DatabaseMetaData metadata) throws SQLException
+    {
+        ForeignKey key;
+        String name;
+        
+        try(ResultSet set = metadata.getImportedKeys(catalog, schema, table))
+        {
+            while(set.next())
+            {
+                name = set.getString("FK_NAME");
+                
+                if(name == null) name = "fk_" + table + "_" + set.getString("PKTABLE_NAME");
+                
+                key = foreignKeys.computeIfAbsent(name, k -> new ForeignKey());
+                
+                key.parent = set.getString("PKTABLE_NAME");
+                key.deleteRule = set.getShort("DELETE_RULE");
+                
+                key.columns.put(set.getInt("KEY_SEQ"), set.getString("FKCOLUMN_NAME"));
+                key.parentColumns.put(set.getInt("KEY_SEQ"), set.getString("PKCOLUMN_NAME"));
+            }
+        }
+    }
+    
+    /**
+     * Returns the name of the table.
+     * 
+     * @return The table name
+     */
+    public String getTable()
+    {
+        return table;
+    }
+    
+    /**
+     * Returns the tables this table's foreign keys refer to, excluding itself.
+     * 
+     * @return The referenced table names
+     */
+    public Set<String> getParents()
+    {
+        Set<String> parents = new HashSet<>();
+        
+        for(ForeignKey key : foreignKeys.values())
+        {
+            if(!key.parent.equalsIgnoreCase(table)) parents.add(key.parent);
+        }
+        
+        return parents;
+    }
+    
+    private String getColumnList(AutomaticDriver driver, Iterable<String> columns, Set<String> descending)
+    {
+        StringBuilder list = new StringBuilder();
+        
+        for(String column : columns)
+        {
+            if(list.length() > 0) list.append(", ");
+            
+            list.append(driver.quoteIdentifier(column));
+            
+            if(descending.contains(column)) list.append(" DESC");
+        }
+        
+        return list.toString();
+    }
+    
+    /**
+     * Returns the statements that create the primary key and indexes.
+     * 
+     * @param driver The driver of the database the statements will run on
+     * @return The SQL statements
+     */
+    public List<String> getKeySQL(AutomaticDriver driver)
+    {
+        List<String> statements = new ArrayList<>();
+        Index index;
+        
+        if(!primaryKey.isEmpty())
+        {
+            statements.add("ALTER TABLE " + table + " ADD " 
+                    + (primaryKeyName != null ? "CONSTRAINT " + driver.quoteIdentifier(primaryKeyName) + " " : "")
+                    + "PRIMARY KEY (" + getColumnList(driver, primaryKey.values(), Set.of()) + ")");
+        }
+        
+        for(String name : indexes.keySet())
+        {
+            index = indexes.get(name);
+            
+            statements.add("CREATE " + (index.unique ? "UNIQUE " : "") + "INDEX " + driver.quoteIdentifier(name) 
+                    + " ON " + table + " (" + getColumnList(driver, index.columns.values(), index.descending) + ")");
+        }
+        
+        return statements;
+    }
+    
+    /**
+     * Returns the statements that create the foreign keys. These must run 
+     * after the keys of the referenced tables exist.
+     * 
+     * @param driver The driver of the database the statements will run on
+     * @return The SQL statements
+     */
+    public List<String> getForeignKeySQL(AutomaticDriver driver)
+    {
+        List<String> statements = new ArrayList<>();
+        ForeignKey key;
+        String rule;
+        
+        for(String name : foreignKeys.keySet())
+        {
+            key = foreignKeys.get(name);
+            
+            switch(key.deleteRule)
+            {
+                case DatabaseMetaData.importedKeyCascade:
+                    rule = " ON DELETE CASCADE";
+                    break;
+                    
+                case DatabaseMetaData.importedKeySetNull:
+                    rule = " ON DELETE SET NULL";
+                    break;
+                    
+                default:
+                    rule = "";
+            }
+            
+            statements.add("ALTER TABLE " + table + " ADD CONSTRAINT " + driver.quoteIdentifier(name) 
+                    + " FOREIGN KEY (" + getColumnList(driver, key.columns.values(), Set.of()) + ")"
+                    + " REFERENCES " + key.parent + " (" + getColumnList(driver, key.parentColumns.values(), Set.of()) + ")" + rule);
+        }
+        
+        return statements;
+    }
+    
+    private static class Index
+    {
+        private boolean unique;
+        private final Map<Integer,String> columns = new TreeMap<>();
+        private final Set<String> descending = new HashSet<>();
+    }
+    
+    private static class ForeignKey
+    {
+        private String parent;
+        private short deleteRule;
+        private final Map<Integer,String> columns = new TreeMap<>();
+        private final Map<Integer,String> parentColumns = new TreeMap<>();
+    }
+}
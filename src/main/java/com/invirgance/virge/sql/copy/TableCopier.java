@@ -0,0 +1,344 @@
+/*
+ * Copyright 2024 INVIRGANCE LLC
+
+Permission is hereby granted, free of charge, to any person obtaining a copy 
+of this software and associated documentation files (the “Software”), to deal 
+in the Software without restriction, including without limitation the rights to 
+use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies 
+of the Software, and to permit persons to whom the Software is furnished to do 
+so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all 
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR 
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, 
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER 
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE 
+SOFTWARE.
+ */
+package com.invirgance.virge.sql.copy;
+
+import com.invirgance.convirgance.dbms.AtomicOperation;
+import com.invirgance.convirgance.dbms.BatchOperation;
+import com.invirgance.convirgance.dbms.Query;
+import com.invirgance.convirgance.dbms.QueryOperation;
+import com.invirgance.convirgance.dbms.TransactionOperation;
+import com.invirgance.convirgance.jdbc.StoredConnection;
+import com.invirgance.convirgance.json.JSONObject;
+import com.invirgance.virge.sql.export.TableExporter.RecordIterator;
+import com.invirgance.virge.sql.generate.GenerateTable;
+import com.invirgance.virge.sql.metadata.SchemaMetadata;
+import com.invirgance.virge.sql.pool.ConnectionPools;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Copies the rows of one table between two connections. The source is read 
+ * on a separate thread and handed to the target through a bounded queue, so
+ * reading and inserting overlap.
+ * 
+ * @author tadghh
+ */
+public class TableCopier
+{
+    private final StoredConnection from;
+    private final StoredConnection to;
+    private final String tableName;
+    private final String targetName;
+    
+    private boolean createTable;
+    private boolean truncate;
+    private boolean allowNative = true;
+    private int batchSize = 1000;
+    private int queueSize = 4;
+    private int fetchSize = 1000;
+    
+    /**
+     * Creates a new copier.
+     * 
+     * @param from The connection to read from
+     * @param to The connection to write to
+     * @param tableName The table to read
+     * @param targetName The table to write to
+     */
+    public TableCopier(StoredConnection from, StoredConnection to, String tableName, String targetName)
+    {
+        this.from = from;
+        this.to = to;
+        this.tableName = tableName;
+        this.targetName = targetName;
+    }
+    
+    public boolean isCreateTable()
+    {
+        return createTable;
+    }
+    
+    /**
+     * Creates the target table from the source's columns when it doesn't exist.
+     * Only column types and NOT NULL are carried over, keys and indexes are not.
+     * 
+     * @param createTable true to create a missing table
+     */
+    public void setCreateTable(boolean createTable)
+    {
+        this.createTable = createTable;
+    }
+    
+    public boolean isTruncate()
+    {
+        return truncate;
+    }
+    
+    public void setTruncate(boolean truncate)
+    {
+        this.truncate = truncate;
+    }
+    
+    public boolean isAllowNative()
+    {
+        return allowNative;
+    }
+    
+    public void setAllowNative(boolean allowNative)
+    {
+        this.allowNative = allowNative;
+    }
+    
+    public int getBatchSize()
+    {
+        return batchSize;
+    }
+    
+    /**
+     * Sets the number of rows handed from the reader to the writer at a time.
+     * 
+     * @param batchSize The number of rows
+     */
+    public void setBatchSize(int batchSize)
+    {
+        this.batchSize = batchSize;
+    }
+    
+    public int getQueueSize()
+    {
+        return queueSize;
+    }
+    
+    /**
+     * Sets the number of batches the reader can get ahead of the writer.
+     * 
+     * @param queueSize The number of batches
+     */
+    public void setQueueSize(int queueSize)
+    {
+        this.queueSize = queueSize;
+    }
+    
+    public int getFetchSize()
+    {
+        return fetchSize;
+    }
+    
+    /**
+     * Sets the number of rows requested from the source per round trip.
+     * 
+     * @param fetchSize The JDBC fetch size
+     */
+    public void setFetchSize(int fetchSize)
+    {
+        this.fetchSize = fetchSize;
+    }
+    
+    private String getQuery()
+    {
+        return "SELECT * FROM " + tableName;
+    }
+    
+    private boolean checkIfTableExists() throws SQLException 
+    {
+        return SchemaMetadata.tableExists(to, targetName);
+    }
+    
+    // The columns, and the DDL when creating the table, come from the source's result metadata
+    private String[] getColumns(List<String> statements) throws Exception
+    {
+        ResultSetMetaData metadata;
+        String[] columns;
+        
+        try(Connection connection = ConnectionPools.getPool(from).getConnection(); 
+            Statement statement = connection.createStatement();
+            ResultSet set = statement.executeQuery(getQuery() + " WHERE 1=0"))
+        {
+            metadata = set.getMetaData();
+            columns = new String[metadata.getColumnCount()];
+            
+            for(int i=0; i<columns.length; i++) columns[i] = metadata.getColumnLabel(i + 1);
+            
+            if(createTable && !checkIfTableExists())
+            {
+                statements.add(new GenerateTable().generateTableSQL(to.getDriver(), metadata, targetName));
+            }
+        }
+        
+        if(truncate) statements.add("truncate table " + targetName);
+        
+        return columns;
+    }
+    
+    private Query getInsertQuery(String[] columns)
+    {
+        StringBuffer sql = new StringBuffer("insert into ");
+        
+        sql.append(targetName);
+        sql.append("(\n");
+        
+        for(int i=0; i<columns.length; i++)
+        {
+            if(i > 0) sql.append(",\n");
+            
+            sql.append("    ");
+            sql.append(to.getDriver().quoteIdentifier(columns[i]));
+        }
+        
+        sql.append("\n) VALUES (");
+        
+        for(int i=0; i<columns.length; i++)
+        {
+            if(i > 0) sql.append(",\n");
+            
+            sql.append("    :");
+            sql.append(columns[i]);
+        }
+        
+        sql.append(")");
+        
+        return new Query(sql.toString());
+    }
+    
+    private Thread startReader(RecordQueue queue)
+    {
+        Thread reader = new Thread(() -> {
+            
+            Iterator<JSONObject> records;
+            
+            try(Connection connection = ConnectionPools.getPool(from).getConnection())
+            {
+                // Some drivers (e.g. PostgreSQL) only stream results inside a transaction
+                connection.setAutoCommit(false);
+                
+                try(Statement statement = connection.createStatement())
+                {
+                    statement.setFetchSize(fetchSize);
+                    
+                    try(ResultSet set = statement.executeQuery(getQuery()))
+                    {
+                        records = new RecordIterator(set);
+                        
+                        while(records.hasNext()) queue.put(records.next());
+                    }
+                }
+                
+                connection.commit();
+                queue.finish();
+            }
+            catch(Exception e)
+            {
+                queue.fail(e);
+            }
+            
+        }, "copy-reader-" + tableName);
+        
+        reader.setDaemon(true);
+        reader.start();
+        
+        return reader;
+    }
+    
+    private void loadNative(NativeLoader loader, List<String> statements, String[] columns, RecordQueue queue) throws Exception
+    {
+        try(Connection connection = ConnectionPools.getPool(to).getConnection())
+        {
+            connection.setAutoCommit(false);
+            
+            try
+            {
+                try(Statement statement = connection.createStatement())
+                {
+                    for(String sql : statements) statement.execute(sql);
+                }
+                
+                loader.load(connection, targetName, columns, queue.iterator());
+                connection.commit();
+            }
+            catch(Exception e)
+            {
+                connection.rollback();
+                
+                throw e;
+            }
+        }
+    }
+    
+    private void loadBatch(List<String> statements, String[] columns, RecordQueue queue) throws SQLException
+    {
+        List<AtomicOperation> operations = new ArrayList<>();
+        TransactionOperation transaction;
+        
+        for(String sql : statements) operations.add(new QueryOperation(new Query(sql)));
+        
+        operations.add(new BatchOperation(getInsertQuery(columns), queue));
+        
+        transaction = new TransactionOperation(operations.toArray(new AtomicOperation[operations.size()]));
+        
+        try(Connection connection = ConnectionPools.getPool(to).getConnection())
+        {
+            transaction.execute(connection);
+        }
+    }
+    
+    /**
+     * Copies the table. Any table creation, truncation and the inserted rows 
+     * are committed together, or rolled back if the copy fails.
+     * 
+     * @return The number of rows copied
+     * @throws Exception If the copy fails
+     */
+    public long copy() throws Exception
+    {
+        List<String> statements = new ArrayList<>();
+        String[] columns = getColumns(statements);
+        NativeLoader loader = allowNative ? NativeLoaders.getLoader(to.getDriver()) : null;
+        RecordQueue queue = new RecordQueue(batchSize, queueSize);
+        Thread reader = startReader(queue);
+        
+        try
+        {
+            if(loader != null) loadNative(loader, statements, columns, queue);
+            else loadBatch(statements, columns, queue);
+        }
+        catch(Exception e)
+        {
+            queue.cancel();
+            
+            throw e;
+        }
+        finally
+        {
+            reader.join();
+            
+            if(createTable) SchemaMetadata.invalidate(to);
+        }
+        
+        return queue.getCount();
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2024 INVIRGANCE LLC
+
+Permission is hereby granted, free of charge, to any person obtaining a copy 
+of this software and associated documentation files (the “Software”), to deal 
+in the Software without restriction, including without limitation the rights to 
+use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies 
+of the Software, and to permit persons to whom the Software is furnished to do 
+so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all 
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR 
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, 
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER 
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE 
+SOFTWARE.
+ */
+package com.invirgance.virge.sql.daemon;
+
+import java.net.URL;
+import java.net.URLClassLoader;
+
+/**
+ * Loads a fresh copy of the Virge tool classes for each command run by the
+ * daemon, so that static state and the tool instances held by VirgeSQL never
+ * leak from one command into the next. Everything else, including the 
+ * convirgance library with its loaded JDBC drivers, the connection pools and 
+ * the daemon itself, comes from the parent so that it stays warm between 
+ * commands.
+ * 
+ * @author tadghh
+ */
+public class CommandClassLoader extends URLClassLoader
+{
+    private static final String[] SHARED = {
+        "com.invirgance.virge.sql.pool.",
+        "com.invirgance.virge.sql.daemon.",
+        "com.invirgance.virge.tool."
+    };
+    
+    public CommandClassLoader(URL[] urls, ClassLoader parent)
+    {
+        super(urls, parent);
+    }
+    
+    private boolean isIsolated(String name)
+    {
+        if(!name.startsWith("com.invirgance.virge.")) return false;
+        
+        for(String prefix : SHARED)
+        {
+            if(name.startsWith(prefix)) return false;
+        }
+        
+        return true;
+    }
+    
+    @Override
+    protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException
+    {
+        Class<?> type;
+        
+        if(!isIsolated(name)) return super.loadClass(name, resolve);
+        
+        synchronized(getClassLoadingLock(name))
+        {
+            type = findLoadedClass(name);
+            
+            if(type == null)
+            {
+                try
+                {
+                    type = findClass(name);
+                }
+                catch(ClassNotFoundException e)
+                {
+                    type = super.loadClass(name, false);
+                }
+            }
+            
+            if(resolve) resolveClass(type);
+            
+            return type;
+        }
+    }
+}
@@ -0,0 +1,181 @@
+/*
+ * Copyright 2024 INVIRGANCE LLC
+
+Permission is hereby granted, free of charge, to any person obtaining a copy 
+of this software and associated documentation files (the “Software”), to deal 
+in the Software without restriction, including without limitation the rights to 
+use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies 
+of the Software, and to permit persons to whom the Software is furnished to do 
+so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all 
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR 
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, 
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER 
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE 
+SOFTWARE.
+ */
+package com.invirgance.virge.sql.daemon;
+
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A thin client that forwards a 'sql' command to a running daemon and relays
+ * its output and exit code. Only this class and DaemonProtocol are loaded, so
+ * the client starts quickly. When no daemon is running the command is run in
+ * this JVM instead.
+ * 
+ * Usage: java -cp virge.jar com.invirgance.virge.sql.daemon.DaemonClient export table ...
+ * 
+ * @author tadghh
+ */
+public class DaemonClient
+{
+    private final Path socket;
+    
+    public DaemonClient(Path socket)
+    {
+        this.socket = socket;
+    }
+    
+    private static void pump(InputStream in, DataOutputStream out)
+    {
+        byte[] buffer = new byte[64 * 1024];
+        int count;
+        
+        try
+        {
+            while((count = in.read(buffer)) > 0)
+            {
+                DaemonProtocol.writeFrame(out, DaemonProtocol.STDIN, buffer, 0, count);
+            }
+            
+            DaemonProtocol.writeFrame(out, DaemonProtocol.STDIN, buffer, 0, 0);
+        }
+        catch(IOException e)
+        {
+            // The daemon closed the connection
+        }
+    }
+    
+    /**
+     * Sends a request to the daemon and relays the reply to this process's
+     * standard streams.
+     * 
+     * @param type The request type (see DaemonProtocol)
+     * @param args The command arguments for RUN requests
+     * @param stdin The input to forward for RUN requests, or null
+     * @return The exit code of the command
+     * @throws IOException If the daemon can't be reached
+     */
+    public int send(int type, String[] args, InputStream stdin) throws IOException
+    {
+        Map<String,String> environment = new HashMap<>();
+        DataOutputStream out;
+        DataInputStream in;
+        Thread input;
+        byte frame;
+        byte[] data;
+        
+        try(SocketChannel channel = SocketChannel.open(UnixDomainSocketAddress.of(socket)))
+        {
+            out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+            in = new DataInputStream(Channels.newInputStream(channel));
+            
+            out.writeInt(type);
+            
+            if(type == DaemonProtocol.RUN)
+            {
+                for(Map.Entry<String,String> entry : System.getenv().entrySet())
+                {
+                    if(entry.getKey().startsWith(DaemonProtocol.ENVIRONMENT_PREFIX)) environment.put(entry.getKey(), entry.getValue());
+                }
+                
+                out.writeUTF(Path.of("").toAbsolutePath().toString());
+                out.writeInt(environment.size());
+                
+                for(Map.Entry<String,String> entry : environment.entrySet())
+                {
+                    out.writeUTF(entry.getKey());
+                    out.writeUTF(entry.getValue());
+                }
+                
+                out.writeInt(args.length);
+                
+                for(String arg : args) out.writeUTF(arg);
+            }
+            
+            out.flush();
+            
+            if(stdin != null)
+            {
+                input = new Thread(() -> pump(stdin, out), "virge-client-stdin");
+                
+                input.setDaemon(true);
+                input.start();
+            }
+            
+            while(true)
+            {
+                frame = in.readByte();
+                
+                if(frame == DaemonProtocol.EXIT) break;
+                
+                data = DaemonProtocol.readPayload(in);
+                
+                if(frame == DaemonProtocol.STDOUT) System.out.write(data);
+                else System.err.write(data);
+            }
+            
+            System.out.flush();
+            System.err.flush();
+            
+            return in.readInt();
+        }
+    }
+    
+    /**
+     * Checks if a daemon is listening on the socket.
+     * 
+     * @return true if the daemon accepted a connection
+     */
+    public boolean isAvailable()
+    {
+        try(SocketChannel channel = SocketChannel.open(UnixDomainSocketAddress.of(socket)))
+        {
+            return true;
+        }
+        catch(IOException e)
+        {
+            return false;
+        }
+    }
+    
+    public static void main(String[] args) throws Exception
+    {
+        DaemonClient client = new DaemonClient(DaemonProtocol.getDefaultSocket());
+        
+        // Falling back keeps scripts working when the daemon isn't running
+        if(!client.isAvailable())
+        {
+            Class.forName("com.invirgance.virge.sql.VirgeSQL").getMethod("main", String[].class).invoke(null, (Object)args);
+            return;
+        }
+        
+        System.exit(client.send(DaemonProtocol.RUN, args, System.in));
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright 2024 INVIRGANCE LLC
+
+Permission is hereby granted, free of charge, to any person obtaining a copy 
+of this software and associated documentation files (the “Software”), to deal 
+in the Software without restriction, including without limitation the rights to 
+use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies 
+of the Software, and to permit persons to whom the Software is furnished to do 
+so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all 
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR 
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, 
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER 
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE 
+SOFTWARE.
+ */
+package com.invirgance.virge.sql.daemon;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Path;
+
+/**
+ * The framing used between the daemon and its clients over a Unix domain
+ * socket. A client sends a request type, and for RUN its working directory,
+ * the environment variables starting with ENVIRONMENT_PREFIX and the 
+ * command's arguments, followed by STDIN frames. The daemon replies with STDOUT and STDERR frames
+ * and finishes with an EXIT frame carrying the exit code.
+ * 
+ * Each frame is a type byte, an int length and that many bytes. A STDIN 
+ * frame with a length of 0 marks the end of the input.
+ * 
+ * @author tadghh
+ */
+public class DaemonProtocol
+{
+    public static final int RUN = 1;
+    public static final int STOP = 2;
+    public static final int STATUS = 3;
+    
+    public static final byte STDIN = 'I';
+    public static final byte STDOUT = 'O';
+    public static final byte STDERR = 'E';
+    public static final byte EXIT = 'X';
+    
+    public static final String ENVIRONMENT_PREFIX = "VIRGE_";
+    
+    /**
+     * Returns the socket used when none is specified.
+     * 
+     * @return The path of the daemon's socket
+     */
+    public static Path getDefaultSocket()
+    {
+        String path = System.getenv("VIRGE_SQL_SOCKET");
+        
+        if(path != null) return Path.of(path);
+        
+        return Path.of(System.getProperty("user.home"), ".virge", "daemon", "sql.sock");
+    }
+    
+    /**
+     * Writes a frame. Frames from different threads are never interleaved.
+     * 
+     * @param out The stream to write to
+     * @param type The frame type
+     * @param data The frame's payload
+     * @param offset The start of the payload in data
+     * @param length The length of the payload
+     * @throws IOException If the other side has gone away
+     */
+    public static void writeFrame(DataOutputStream out, byte type, byte[] data, int offset, int length) throws IOException
+    {
+        synchronized(out)
+        {
+            out.writeByte(type);
+            out.writeInt(length);
+            out.write(data, offset, length);
+            out.flush();
+        }
+    }
+    
+    /**
+     * Writes the final frame of a reply.
+     * 
+     * @param out The stream to write to
+     * @param code The exit code of the command
+     * @throws IOException If the other side has gone away
+     */
+    public static void writeExit(DataOutputStream out, int code) throws IOException
+    {
+        synchronized(out)
+        {
+            out.writeByte(EXIT);
+            out.writeInt(code);
+            out.flush();
+        }
+    }
+    
+    /**
+     * Reads the payload of a frame whose type has already been read.
+     * 
+     * @param in The stream to read from
+     * @return The payload
+     * @throws IOException If the frame can't be read
+     */
+    public static byte[] readPayload(DataInputStream in) throws IOException
+    {
+        byte[] data = new byte[in.readInt()];
+        
+        in.readFully(data);
+        
+        return data;
+    }
+    
+    /**
+     * An OutputStream that sends everything written to it as frames of one type.
+     */
+    public static class FrameOutputStream extends OutputStream
+    {
+        private final DataOutputStream out;
+        private final byte type;
+        
+        public FrameOutputStream(DataOutputStream out, byte type)
+        {
+            this.out = out;
+            this.type = type;
+        }
+        
+        @Override
+        public void write(int b) throws IOException
+        {
+            writeFrame(out, type, new byte[]{ (byte)b }, 0, 1);
+        }
+        
+        @Override
+        public void write(byte[] data, int offset, int length) throws IOException
+        {
+            if(length > 0) writeFrame(out, type, data, offset, length);
+        }
+    }
+}
@@ -0,0 +1,362 @@
+/*
+ * Copyright 2024 INVIRGANCE LLC
+
+Permission is hereby granted, free of charge, to any person obtaining a copy 
+of this software and associated documentation files (the “Software”), to deal 
+in the Software without restriction, including without limitation the rights to 
+use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies 
+of the Software, and to permit persons to whom the Software is furnished to do 
+so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all 
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR 
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, 
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER 
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE 
+SOFTWARE.
+ */
+package com.invirgance.virge.sql.daemon;
+
+import com.invirgance.virge.sql.pool.ConnectionPools;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.io.PrintStream;
+import java.lang.reflect.InvocationTargetException;
+import java.net.StandardProtocolFamily;
+import java.net.URL;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps a warm JVM that runs 'sql' commands on behalf of DaemonClient. Each
+ * command runs on its own thread with a fresh copy of the tool classes (see 
+ * CommandClassLoader) and its standard streams routed to the client (see 
+ * Session). Loaded JDBC drivers and pooled connections are shared between 
+ * commands, while the pool sizes a command asks for end with it (see 
+ * ConnectionPools).
+ * 
+ * Tools end commands with VirgeSQL.exit(), which throws an ExitException 
+ * instead of exiting the JVM when it's called from a command's thread.
+ * 
+ * @author tadghh
+ */
+public class DaemonServer
+{
+    private final Path socket;
+    private final URL[] classpath;
+    private final long started = System.currentTimeMillis();
+    
+    private final AtomicLong connections = new AtomicLong();
+    private final AtomicLong commands = new AtomicLong();
+    private final AtomicInteger active = new AtomicInteger();
+    
+    private ServerSocketChannel server;
+    private volatile boolean running = true;
+    
+    public DaemonServer(Path socket)
+    {
+        this.socket = socket;
+        this.classpath = new URL[]{ DaemonServer.class.getProtectionDomain().getCodeSource().getLocation() };
+    }
+    
+    /**
+     * Anyone who can connect can run commands with this user's stored 
+     * connections. The socket is only restricted after it is bound, so it has
+     * to be created in a directory that no one else can enter in the meantime.
+     */
+    private static void createPrivateDirectory(Path directory) throws IOException
+    {
+        Set<PosixFilePermission> permissions;
+        
+        if(!Files.exists(directory))
+        {
+            Files.createDirectories(directory.getParent());
+            Files.createDirectory(directory, PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rwx------")));
+        }
+        
+        permissions = Files.getPosixFilePermissions(directory);
+        
+        if(!Files.getOwner(directory).getName().equals(System.getProperty("user.name")))
+        {
+            throw new IOException("The socket directory " + directory + " must be owned by " + System.getProperty("user.name"));
+        }
+        
+        for(PosixFilePermission permission : permissions)
+        {
+            if(!permission.name().startsWith("OWNER_"))
+            {
+                throw new IOException("The socket directory " + directory + " must only be accessible by its owner (chmod 700)");
+            }
+        }
+    }
+    
+    private boolean isRunning()
+    {
+        try(SocketChannel channel = SocketChannel.open(UnixDomainSocketAddress.of(socket)))
+        {
+            return true;
+        }
+        catch(IOException e)
+        {
+            return false;
+        }
+    }
+    
+    /**
+     * Listens for commands until a client asks the daemon to stop.
+     * 
+     * @throws IOException If the socket can't be created
+     */
+    public void run() throws IOException
+    {
+        SocketChannel channel;
+        
+        if(isRunning()) throw new IOException("A daemon is already listening on " + socket);
+        
+        createPrivateDirectory(socket.toAbsolutePath().getParent());
+        Files.deleteIfExists(socket);
+        
+        server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+        server.bind(UnixDomainSocketAddress.of(socket));
+        
+        Files.setPosixFilePermissions(socket, PosixFilePermissions.fromString("rw-------"));
+        
+        Session.install();
+        
+        System.out.println("Listening on " + socket);
+        
+        try
+        {
+            while(running)
+            {
+                try
+                {
+                    channel = server.accept();
+                }
+                catch(IOException e)
+                {
+                    if(!running) break;
+                    
+                    throw e;
+                }
+                
+                startHandler(channel);
+            }
+        }
+        finally
+        {
+            Files.deleteIfExists(socket);
+        }
+    }
+    
+    private void startHandler(SocketChannel channel)
+    {
+        new Thread(() -> handle(channel), "virge-daemon-" + connections.incrementAndGet()).start();
+    }
+    
+    private void handle(SocketChannel channel)
+    {
+        DataInputStream in;
+        DataOutputStream out;
+        Path directory;
+        Map<String,String> environment;
+        String[] args;
+        
+        try(channel)
+        {
+            in = new DataInputStream(Channels.newInputStream(channel));
+            out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+            
+            switch(in.readInt())
+            {
+                case DaemonProtocol.RUN:
+                    directory = Path.of(in.readUTF());
+                    environment = new HashMap<>();
+                    
+                    for(int i=in.readInt(); i>0; i--) environment.put(in.readUTF(), in.readUTF());
+                    
+                    args = new String[in.readInt()];
+                    
+                    for(int i=0; i<args.length; i++) args[i] = in.readUTF();
+                    
+                    DaemonProtocol.writeExit(out, run(args, directory, environment, in, out));
+                    break;
+                    
+                case DaemonProtocol.STATUS:
+                    byte[] status = getStatus().getBytes(StandardCharsets.UTF_8);
+                    
+                    DaemonProtocol.writeFrame(out, DaemonProtocol.STDOUT, status, 0, status.length);
+                    DaemonProtocol.writeExit(out, 0);
+                    break;
+                    
+                case DaemonProtocol.STOP:
+                    DaemonProtocol.writeExit(out, 0);
+                    stop();
+                    break;
+            }
+        }
+        catch(IOException e)
+        {
+            // The client went away, there is no one left to report to
+        }
+    }
+    
+    private String getStatus()
+    {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        PrintStream out = new PrintStream(buffer, true, StandardCharsets.UTF_8);
+        
+        out.println("Daemon listening on " + socket);
+        out.println("Uptime: " + ((System.currentTimeMillis() - started) / 1000) + "s");
+        out.println("Commands served: " + commands.get() + ", running: " + active.get());
+        
+        ConnectionPools.printStatistics(out);
+        
+        return buffer.toString(StandardCharsets.UTF_8);
+    }
+    
+    private void stop() throws IOException
+    {
+        running = false;
+        
+        server.close();
+    }
+    
+    private int run(String[] args, Path directory, Map<String,String> environment, DataInputStream in, DataOutputStream out) throws IOException
+    {
+        PipedInputStream stdin = new PipedInputStream(64 * 1024);
+        PipedOutputStream feed = new PipedOutputStream(stdin);
+        Session session = new Session(
+                new PrintStream(new BufferedOutputStream(new DaemonProtocol.FrameOutputStream(out, DaemonProtocol.STDOUT), 64 * 1024), false, StandardCharsets.UTF_8),
+                new PrintStream(new DaemonProtocol.FrameOutputStream(out, DaemonProtocol.STDERR), true, StandardCharsets.UTF_8),
+                stdin,
+                directory,
+                environment);
+        int[] code = new int[1];
+        Thread reader = new Thread(() -> pump(in, feed), Thread.currentThread().getName() + "-stdin");
+        Thread command = new Thread(() -> {
+            
+            session.attach();
+            
+            try(ConnectionPools.Command scope = ConnectionPools.startCommand())
+            {
+                code[0] = execute(args);
+            }
+            
+            session.flush();
+            
+        }, Thread.currentThread().getName() + "-command");
+        
+        reader.setDaemon(true);
+        reader.start();
+        
+        commands.incrementAndGet();
+        active.incrementAndGet();
+        
+        try
+        {
+            command.start();
+            command.join();
+        }
+        catch(InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            
+            return 130;
+        }
+        finally
+        {
+            active.decrementAndGet();
+        }
+        
+        return code[0];
+    }
+    
+    private void pump(DataInputStream in, PipedOutputStream feed)
+    {
+        byte[] data;
+        
+        try(feed)
+        {
+            while(in.readByte() == DaemonProtocol.STDIN)
+            {
+                data = DaemonProtocol.readPayload(in);
+                
+                if(data.length == 0) break;
+                
+                feed.write(data);
+            }
+        }
+        catch(IOException e)
+        {
+            // End of input, either the client closed it or the command stopped reading
+        }
+    }
+    
+    private int execute(String[] args)
+    {
+        Thread thread = Thread.currentThread();
+        Throwable cause;
+        
+        try(CommandClassLoader loader = new CommandClassLoader(classpath, DaemonServer.class.getClassLoader()))
+        {
+            thread.setContextClassLoader(loader);
+            
+            loader.loadClass("com.invirgance.virge.sql.VirgeSQL").getMethod("main", String[].class).invoke(null, (Object)args);
+            
+            return 0;
+        }
+        catch(InvocationTargetException e)
+        {
+            cause = e.getCause();
+            
+            if(cause instanceof ExitException) return ((ExitException)cause).getStatus();
+            
+            cause.printStackTrace();
+            
+            return 1;
+        }
+        catch(ExitException e)
+        {
+            return e.getStatus();
+        }
+        catch(Exception e)
+        {
+            e.printStackTrace();
+            
+            return 1;
+        }
+    }
+    
+    /**
+     * Runs the daemon in this JVM.
+     * 
+     * @param args The socket path, or none for the default
+     * @throws Exception If the daemon can't start
+     */
+    public static void main(String[] args) throws Exception
+    {
+        new DaemonServer(args.length > 0 ? Path.of(args[0]) : DaemonProtocol.getDefaultSocket()).run();
+    }
+}
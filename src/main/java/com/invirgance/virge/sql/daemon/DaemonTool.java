@@ -0,0 +1,142 @@
+/*
+ * Copyright 2024 INVIRGANCE LLC
+
+Permission is hereby granted, free of charge, to any person obtaining a copy 
+of this software and associated documentation files (the “Software”), to deal 
+in the Software without restriction, including without limitation the rights to 
+use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies 
+of the Software, and to permit persons to whom the Software is furnished to do 
+so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all 
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR 
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, 
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER 
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE 
+SOFTWARE.
+ */
+package com.invirgance.virge.sql.daemon;
+
+import static com.invirgance.virge.Virge.HELP_DESCRIPTION_SPACING;
+import static com.invirgance.virge.Virge.HELP_SPACING;
+import static com.invirgance.virge.sql.VirgeSQL.exit;
+import static com.invirgance.virge.sql.VirgeSQL.printToolHelp;
+import com.invirgance.virge.tool.Tool;
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Starts, stops or queries the resident daemon that runs 'sql' commands for
+ * DaemonClient without paying for JVM startup and driver loading each time.
+ * 
+ * @author tadghh
+ */
+public class DaemonTool implements Tool
+{
+    public static final String DESCRIPTION = "Run a resident process that executes sql commands sent by the daemon client.";
+    
+    private Path socket = DaemonProtocol.getDefaultSocket();
+    private int request;
+    
+    @Override
+    public String getName()
+    {
+        return "daemon";
+    }
+    
+    @Override
+    public String getShortDescription()
+    {
+        return DESCRIPTION;
+    }
+    
+    @Override
+    public String[] getHelp()
+    {
+        return new String[] {
+            HELP_SPACING + "--socket <PATH>",
+            HELP_SPACING + "-s <PATH>",
+            HELP_SPACING + HELP_DESCRIPTION_SPACING + "The Unix socket to listen on. Defaults to $VIRGE_SQL_SOCKET or ~/.virge/daemon/sql.sock.",
+            HELP_SPACING + HELP_DESCRIPTION_SPACING + "The socket's directory is created with mode 700 and must not be accessible to other users.",
+            "",
+            HELP_SPACING + "--status",
+            HELP_SPACING + HELP_DESCRIPTION_SPACING + "Print the uptime, command count and connection pool statistics of a running daemon.",
+            "",
+            HELP_SPACING + "--stop",
+            HELP_SPACING + HELP_DESCRIPTION_SPACING + "Stop a running daemon.",
+            "",
+            HELP_SPACING + "--help",
+            HELP_SPACING + "-h",
+            HELP_SPACING + HELP_DESCRIPTION_SPACING  + "Display this menu.",
+            "",
+            HELP_SPACING + "Commands are sent to the daemon with:",
+            HELP_SPACING + HELP_DESCRIPTION_SPACING + "java -cp virge.jar com.invirgance.virge.sql.daemon.DaemonClient <TOOL> <OPTIONS>",
+            HELP_SPACING + HELP_DESCRIPTION_SPACING + "Relative paths are resolved against the client's working directory, and the client's",
+            HELP_SPACING + HELP_DESCRIPTION_SPACING + "VIRGE_* environment variables are passed to the command.",
+        };
+    }
+    
+    @Override
+    public boolean parse(String[] args, int start) throws Exception
+    {
+        for(int i=start; i<args.length; i++)
+        {
+            // Handle single-letter params with no spaces in them
+            if(args[i].length() > 2 && args[i].charAt(0) == '-' && Character.isLetterOrDigit(args[i].charAt(1)))
+            {
+                parse(new String[]{ args[i].substring(0, 2), args[i].substring(2) }, 0);
+                
+                continue;
+            }
+            
+            switch(args[i])
+            {
+                case "--help":
+                case "-h":
+                    printToolHelp(this);
+                    
+                case "--socket":
+                case "-s":
+                    socket = Path.of(args[++i]);
+                    break;
+                    
+                case "--status":
+                    request = DaemonProtocol.STATUS;
+                    break;
+                    
+                case "--stop":
+                    request = DaemonProtocol.STOP;
+                    break;
+                    
+                default:
+                    System.err.println("Unknown parameter: " + args[i]);
+                    printToolHelp(this);
+            }
+        }
+        
+        return true;
+    }
+    
+    @Override
+    public void execute() throws Exception
+    {
+        if(request == 0)
+        {
+            new DaemonServer(socket).run();
+            return;
+        }
+        
+        try
+        {
+            exit(new DaemonClient(socket).send(request, null, null), null);
+        }
+        catch(IOException e)
+        {
+            exit(1, "No daemon is listening on " + socket);
+        }
+    }
+}
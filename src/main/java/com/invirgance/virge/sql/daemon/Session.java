@@ -0,0 +1,200 @@
+/*
+ * Copyright 2024 INVIRGANCE LLC
+
+Permission is hereby granted, free of charge, to any person obtaining a copy 
+of this software and associated documentation files (the “Software”), to deal 
+in the Software without restriction, including without limitation the rights to 
+use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies 
+of the Software, and to permit persons to whom the Software is furnished to do 
+so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all 
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR 
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, 
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER 
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE 
+SOFTWARE.
+ */
+package com.invirgance.virge.sql.daemon;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.util.Map;
+
+/**
+ * The standard streams of a command running in the daemon. System.out, 
+ * System.err and System.in are replaced once with streams that forward to the
+ * session of the calling thread, so concurrent commands each talk to their
+ * own client. Threads started by a command inherit its session.
+ * 
+ * The daemon's working directory and environment are not the client's, so 
+ * tools resolve relative paths and read environment variables through the 
+ * session (see VirgeSQL.getFile() and VirgeSQL.getenv()).
+ * 
+ * @author tadghh
+ */
+public class Session
+{
+    private static final InheritableThreadLocal<Session> CURRENT = new InheritableThreadLocal<>();
+    
+    private final PrintStream out;
+    private final PrintStream err;
+    private final InputStream in;
+    private final Path directory;
+    private final Map<String,String> environment;
+    
+    public Session(PrintStream out, PrintStream err, InputStream in, Path directory, Map<String,String> environment)
+    {
+        this.out = out;
+        this.err = err;
+        this.in = in;
+        this.directory = directory;
+        this.environment = environment;
+    }
+    
+    /**
+     * Returns the session of the calling thread.
+     * 
+     * @return The session, or null if the thread isn't running a command
+     */
+    public static Session current()
+    {
+        return CURRENT.get();
+    }
+    
+    /**
+     * Resolves a path given by the client against the client's working 
+     * directory.
+     * 
+     * @param path A relative or absolute path
+     * @return The absolute path
+     */
+    public Path resolve(String path)
+    {
+        return directory.resolve(path);
+    }
+    
+    /**
+     * Returns one of the environment variables the client forwarded.
+     * 
+     * @param name The name of the variable
+     * @return The value, or null if the client didn't have it
+     */
+    public String getenv(String name)
+    {
+        return environment.get(name);
+    }
+    
+    /**
+     * Attaches this session to the calling thread and any threads it starts.
+     */
+    public void attach()
+    {
+        CURRENT.set(this);
+    }
+    
+    /**
+     * Flushes the session's output streams.
+     */
+    public void flush()
+    {
+        out.flush();
+        err.flush();
+    }
+    
+    /**
+     * Replaces System.out, System.err and System.in with streams that route to
+     * the calling thread's session, or to the original streams otherwise.
+     */
+    public static void install()
+    {
+        PrintStream out = System.out;
+        PrintStream err = System.err;
+        InputStream in = System.in;
+        
+        System.setOut(new PrintStream(new RoutingOutputStream(out, false), true));
+        System.setErr(new PrintStream(new RoutingOutputStream(err, true), true));
+        System.setIn(new RoutingInputStream(in));
+    }
+    
+    private static class RoutingOutputStream extends OutputStream
+    {
+        private final PrintStream fallback;
+        private final boolean error;
+        
+        public RoutingOutputStream(PrintStream fallback, boolean error)
+        {
+            this.fallback = fallback;
+            this.error = error;
+        }
+        
+        private PrintStream getStream()
+        {
+            Session session = CURRENT.get();
+            
+            if(session == null) return fallback;
+            
+            return error ? session.err : session.out;
+        }
+        
+        @Override
+        public void write(int b) throws IOException
+        {
+            getStream().write(b);
+        }
+        
+        @Override
+        public void write(byte[] data, int offset, int length) throws IOException
+        {
+            getStream().write(data, offset, length);
+        }
+        
+        @Override
+        public void flush() throws IOException
+        {
+            getStream().flush();
+        }
+    }
+    
+    private static class RoutingInputStream extends InputStream
+    {
+        private final InputStream fallback;
+        
+        public RoutingInputStream(InputStream fallback)
+        {
+            this.fallback = fallback;
+        }
+        
+        private InputStream getStream()
+        {
+            Session session = CURRENT.get();
+            
+            return (session == null) ? fallback : session.in;
+        }
+        
+        @Override
+        public int read() throws IOException
+        {
+            return getStream().read();
+        }
+        
+        @Override
+        public int read(byte[] data, int offset, int length) throws IOException
+        {
+            return getStream().read(data, offset, length);
+        }
+        
+        @Override
+        public int available() throws IOException
+        {
+            return getStream().available();
+        }
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright 2024 INVIRGANCE LLC
+
+Permission is hereby granted, free of charge, to any person obtaining a copy 
+of this software and associated documentation files (the “Software”), to deal 
+in the Software without restriction, including without limitation the rights to 
+use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies 
+of the Software, and to permit persons to whom the Software is furnished to do 
+so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all 
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR 
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, 
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER 
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE 
+SOFTWARE.
+ */
+package com.invirgance.virge.sql.drivers;
+
+import com.invirgance.convirgance.ConvirganceException;
+
+/**
+ * Maven coordinates of a driver artifact in the form 
+ * groupId:artifactId[:type[:classifier]]:version
+ * 
+ * @author tadghh
+ */
+public class Artifact
+{
+    private final String groupId;
+    private final String artifactId;
+    private final String version;
+    private final String type;
+    private final String classifier;
+    
+    public Artifact(String groupId, String artifactId, String version, String type, String classifier)
+    {
+        this.groupId = groupId;
+        this.artifactId = artifactId;
+        this.version = version;
+        this.type = (type == null) ? "jar" : type;
+        this.classifier = classifier;
+    }
+    
+    /**
+     * Parses Maven coordinates as used by RegisterDriver's --artifact option.
+     * 
+     * @param coordinates The coordinates (e.g. org.postgresql:postgresql:42.7.3)
+     * @return The parsed artifact
+     */
+    public static Artifact parse(String coordinates)
+    {
+        String[] parts = coordinates.trim().split(":");
+        
+        switch(parts.length)
+        {
+            case 3:
+                return new Artifact(parts[0], parts[1], parts[2], null, null);
+                
+            case 4:
+                return new Artifact(parts[0], parts[1], parts[3], parts[2], null);
+                
+            case 5:
+                return new Artifact(parts[0], parts[1], parts[4], parts[2], parts[3]);
+                
+            default:
+                throw new ConvirganceException("Invalid Maven coordinates: " + coordinates);
+        }
+    }
+    
+    public String getGroupId()
+    {
+        return groupId;
+    }
+    
+    public String getArtifactId()
+    {
+        return artifactId;
+    }
+    
+    public String getVersion()
+    {
+        return version;
+    }
+    
+    public String getType()
+    {
+        return type;
+    }
+    
+    public String getClassifier()
+    {
+        return classifier;
+    }
+    
+    /**
+     * Returns the POM describing this artifact.
+     * 
+     * @return The artifact's POM
+     */
+    public Artifact getPom()
+    {
+        return new Artifact(groupId, artifactId, version, "pom", null);
+    }
+    
+    /**
+     * Returns the path of the artifact relative to the root of a Maven 
+     * repository.
+     * 
+     * @return The repository path
+     */
+    public String getPath()
+    {
+        String name = artifactId + "-" + version + (classifier != null ? "-" + classifier : "") + "." + type;
+        
+        return groupId.replace('.', '/') + "/" + artifactId + "/" + version + "/" + name;
+    }
+    
+    @Override
+    public boolean equals(Object object)
+    {
+        return (object instanceof Artifact) && toString().equals(object.toString());
+    }
+    
+    @Override
+    public int hashCode()
+    {
+        return toString().hashCode();
+    }
+    
+    @Override
+    public String toString()
+    {
+        if(classifier != null) return groupId + ":" + artifactId + ":" + type + ":" + classifier + ":" + version;
+        if(!type.equals("jar")) return groupId + ":" + artifactId + ":" + type + ":" + version;
+        
+        return groupId + ":" + artifactId + ":" + version;
+    }
+}
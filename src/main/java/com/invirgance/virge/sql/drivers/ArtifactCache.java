@@ -0,0 +1,545 @@
+/*
+ * Copyright 2024 INVIRGANCE LLC
+
+Permission is hereby granted, free of charge, to any person obtaining a copy 
+of this software and associated documentation files (the “Software”), to deal 
+in the Software without restriction, including without limitation the rights to 
+use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies 
+of the Software, and to permit persons to whom the Software is furnished to do 
+so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all 
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR 
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, 
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER 
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE 
+SOFTWARE.
+ */
+package com.invirgance.virge.sql.drivers;
+
+import com.invirgance.convirgance.ConvirganceException;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.URLConnection;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.xml.XMLConstants;
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.xml.sax.helpers.DefaultHandler;
+
+/**
+ * A content-addressed cache of driver artifacts. Files are stored once under
+ * objects/ by their SHA-256 hash and artifacts/ maps each artifact's 
+ * repository path to the hash of its content. Downloads are verified against
+ * the checksum published by the repository before they enter the cache, and
+ * cached files are verified again before they are used.
+ * 
+ * Cached artifacts can be installed into a local Maven repository so drivers
+ * are resolved without touching the network.
+ * 
+ * @author tadghh
+ */
+public class ArtifactCache
+{
+    private static final int TIMEOUT = 30000;
+    
+    private final File directory;
+    private final URI repository;
+    
+    private final AtomicLong downloads = new AtomicLong();
+    private final AtomicLong bytes = new AtomicLong();
+    
+    /**
+     * Creates a cache backed by a remote repository.
+     * 
+     * @param directory The directory holding the cache
+     * @param repository The Maven repository to download from, either http(s):
+     * or file: for a local stand-in
+     */
+    public ArtifactCache(File directory, URI repository)
+    {
+        String root = repository.toString();
+        
+        this.directory = directory;
+        this.repository = URI.create(root.endsWith("/") ? root : root + "/");
+    }
+    
+    public static File getDefaultDirectory()
+    {
+        return new File(System.getProperty("user.home"), ".virge" + File.separator + "drivers");
+    }
+    
+    public static URI getDefaultRepository()
+    {
+        return URI.create("https://repo1.maven.org/maven2/");
+    }
+    
+    public static File getDefaultLocalRepository()
+    {
+        return new File(System.getProperty("user.home"), ".m2" + File.separator + "repository");
+    }
+    
+    public File getDirectory()
+    {
+        return directory;
+    }
+    
+    /**
+     * Returns the number of files downloaded by this cache instance.
+     * 
+     * @return The download count
+     */
+    public long getDownloads()
+    {
+        return downloads.get();
+    }
+    
+    /**
+     * Returns the number of bytes downloaded by this cache instance.
+     * 
+     * @return The downloaded bytes
+     */
+    public long getBytes()
+    {
+        return bytes.get();
+    }
+    
+    private static MessageDigest getDigest(String algorithm)
+    {
+        try
+        {
+            return MessageDigest.getInstance(algorithm);
+        }
+        catch(NoSuchAlgorithmException e)
+        {
+            throw new ConvirganceException(e);
+        }
+    }
+    
+    private static String hash(File file) throws IOException
+    {
+        MessageDigest digest = getDigest("SHA-256");
+        byte[] buffer = new byte[64 * 1024];
+        int count;
+        
+        try(InputStream in = Files.newInputStream(file.toPath()))
+        {
+            while((count = in.read(buffer)) > 0) digest.update(buffer, 0, count);
+        }
+        
+        return HexFormat.of().formatHex(digest.digest());
+    }
+    
+    private File getPointer(Artifact artifact)
+    {
+        return new File(directory, "artifacts" + File.separator + artifact.getPath() + ".sha256");
+    }
+    
+    private File getObject(String hash)
+    {
+        return new File(directory, "objects" + File.separator + hash.substring(0, 2) + File.separator + hash);
+    }
+    
+    // Written to a temporary file first so readers never see a partial file
+    private void write(File file, String contents) throws IOException
+    {
+        File temp = new File(file.getPath() + ".tmp" + Thread.currentThread().threadId());
+        
+        file.getParentFile().mkdirs();
+        Files.writeString(temp.toPath(), contents, StandardCharsets.UTF_8);
+        Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+    
+    /**
+     * Returns the cached file of an artifact without touching the network.
+     * The content is verified against its hash before it is returned.
+     * 
+     * @param artifact The artifact to look up
+     * @return The cached file, or null if the artifact isn't cached or the 
+     * cached copy is damaged
+     * @throws IOException If the cache can't be read
+     */
+    public File get(Artifact artifact) throws IOException
+    {
+        File pointer = getPointer(artifact);
+        File object;
+        String hash;
+        
+        if(!pointer.isFile()) return null;
+        
+        hash = Files.readString(pointer.toPath(), StandardCharsets.UTF_8).trim();
+        object = getObject(hash);
+        
+        if(!object.isFile() || !hash.equals(hash(object))) return null;
+        
+        return object;
+    }
+    
+    /**
+     * Returns the cached file of an artifact, downloading it first if needed.
+     * 
+     * @param artifact The artifact to fetch
+     * @return The cached file
+     * @throws IOException If the artifact can't be downloaded or fails its
+     * checksum
+     */
+    public File fetch(Artifact artifact) throws IOException
+    {
+        File object = get(artifact);
+        
+        if(object != null) return object;
+        
+        return download(artifact);
+    }
+    
+    private InputStream open(URI uri) throws IOException
+    {
+        URLConnection connection = uri.toURL().openConnection();
+        
+        connection.setConnectTimeout(TIMEOUT);
+        connection.setReadTimeout(TIMEOUT);
+        
+        return connection.getInputStream();
+    }
+    
+    // Returns the algorithm and value of the checksum published with the file
+    private String[] getChecksum(URI source) throws IOException
+    {
+        String[][] algorithms = new String[][] {
+            { ".sha512", "SHA-512" },
+            { ".sha256", "SHA-256" },
+            { ".sha1", "SHA-1" }
+        };
+        
+        String value;
+        
+        for(String[] algorithm : algorithms)
+        {
+            try(InputStream in = open(URI.create(source + algorithm[0])))
+            {
+                value = new String(in.readAllBytes(), StandardCharsets.US_ASCII).trim();
+                
+                // Some repositories append the file name after the hash
+                if(value.indexOf(' ') > 0) value = value.substring(0, value.indexOf(' '));
+                
+                return new String[]{ algorithm[1], value.toLowerCase() };
+            }
+            catch(FileNotFoundException e)
+            {
+                // Try the next algorithm
+            }
+        }
+        
+        throw new ConvirganceException("No checksum published for " + source);
+    }
+    
+    private File download(Artifact artifact) throws IOException
+    {
+        URI source = repository.resolve(artifact.getPath());
+        String[] checksum = getChecksum(source);
+        MessageDigest verify = getDigest(checksum[0]);
+        MessageDigest digest = getDigest("SHA-256");
+        File objects = new File(directory, "objects");
+        File temp;
+        File object;
+        String hash;
+        byte[] buffer = new byte[64 * 1024];
+        long total = 0;
+        int count;
+        
+        objects.mkdirs();
+        
+        temp = File.createTempFile("download", ".tmp", objects);
+        
+        try
+        {
+            try(InputStream in = open(source); OutputStream out = new FileOutputStream(temp))
+            {
+                while((count = in.read(buffer)) > 0)
+                {
+                    out.write(buffer, 0, count);
+                    verify.update(buffer, 0, count);
+                    digest.update(buffer, 0, count);
+                    
+                    total += count;
+                }
+            }
+            
+            if(!HexFormat.of().formatHex(verify.digest()).equals(checksum[1]))
+            {
+                throw new ConvirganceException(artifact + " does not match its " + checksum[0] + " checksum from " + repository);
+            }
+            
+            hash = HexFormat.of().formatHex(digest.digest());
+            object = getObject(hash);
+            
+            object.getParentFile().mkdirs();
+            Files.move(temp.toPath(), object.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            write(getPointer(artifact), hash);
+            
+            downloads.incrementAndGet();
+            bytes.addAndGet(total);
+            
+            return object;
+        }
+        finally
+        {
+            temp.delete();
+        }
+    }
+    
+    /**
+     * Copies a cached artifact into a local Maven repository, unless an 
+     * identical file is already there.
+     * 
+     * @param artifact The cached artifact
+     * @param localRepository The root of the local repository
+     * @return true if the file was copied
+     * @throws IOException If the artifact isn't cached or can't be copied
+     */
+    public boolean install(Artifact artifact, File localRepository) throws IOException
+    {
+        File object = get(artifact);
+        File target = new File(localRepository, artifact.getPath());
+        File temp = new File(target.getPath() + ".tmp" + Thread.currentThread().threadId());
+        
+        if(object == null) throw new ConvirganceException(artifact + " is not in the cache");
+        if(target.isFile() && object.getName().equals(hash(target))) return false;
+        
+        target.getParentFile().mkdirs();
+        Files.copy(object.toPath(), temp.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        Files.move(temp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        
+        return true;
+    }
+    
+    private static String getText(Element parent, String name)
+    {
+        for(Node node = parent.getFirstChild(); node != null; node = node.getNextSibling())
+        {
+            if(node instanceof Element && node.getNodeName().equals(name)) return node.getTextContent().trim();
+        }
+        
+        return null;
+    }
+    
+    private static Element getChild(Element parent, String name)
+    {
+        for(Node node = parent.getFirstChild(); node != null; node = node.getNextSibling())
+        {
+            if(node instanceof Element && node.getNodeName().equals(name)) return (Element)node;
+        }
+        
+        return null;
+    }
+    
+    private static List<Element> getChildren(Element parent, String name, String child)
+    {
+        List<Element> children = new ArrayList<>();
+        Element element = (parent != null) ? getChild(parent, name) : null;
+        
+        if(element == null) return children;
+        
+        for(Node node = element.getFirstChild(); node != null; node = node.getNextSibling())
+        {
+            if(node instanceof Element && node.getNodeName().equals(child)) children.add((Element)node);
+        }
+        
+        return children;
+    }
+    
+    private static String interpolate(String value, Map<String,String> properties)
+    {
+        int start;
+        int end;
+        String replacement;
+        
+        if(value == null) return null;
+        
+        for(int i=0; i<10 && (start = value.indexOf("${")) >= 0; i++)
+        {
+            end = value.indexOf('}', start);
+            
+            if(end < 0) break;
+            
+            replacement = properties.get(value.substring(start + 2, end));
+            
+            if(replacement == null) break;
+            
+            value = value.substring(0, start) + replacement + value.substring(end + 1);
+        }
+        
+        return value;
+    }
+    
+    // POMs come from remote repositories, so DOCTYPEs and external entities are refused to prevent XXE
+    private static Document parse(File file) throws Exception
+    {
+        DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+        DocumentBuilder builder;
+        
+        factory.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
+        factory.setFeature("http://xml.org/sax/features/external-general-entities", false);
+        factory.setFeature("http://xml.org/sax/features/external-parameter-entities", false);
+        factory.setFeature("http://apache.org/xml/features/nonvalidating/load-external-dtd", false);
+        factory.setAttribute(XMLConstants.ACCESS_EXTERNAL_DTD, "");
+        factory.setAttribute(XMLConstants.ACCESS_EXTERNAL_SCHEMA, "");
+        factory.setXIncludeAware(false);
+        factory.setExpandEntityReferences(false);
+        
+        // Errors are reported through the exception rather than printed
+        builder = factory.newDocumentBuilder();
+        builder.setErrorHandler(new DefaultHandler());
+        
+        return builder.parse(file);
+    }
+    
+    private Pom readPom(Artifact artifact, int depth) throws Exception
+    {
+        Document document;
+        Element project;
+        Element parent;
+        Element properties;
+        Artifact parentPom;
+        Pom pom;
+        String groupId;
+        String version;
+        
+        if(depth > 10) throw new ConvirganceException("Parent POMs of " + artifact + " are nested too deeply");
+        
+        document = parse(fetch(artifact.getPom()));
+        project = document.getDocumentElement();
+        parent = getChild(project, "parent");
+        pom = new Pom();
+        
+        if(parent != null)
+        {
+            parentPom = new Artifact(getText(parent, "groupId"), getText(parent, "artifactId"), getText(parent, "version"), "pom", null);
+            pom = readPom(parentPom, depth + 1);
+            
+            pom.parents.add(0, parentPom);
+            
+            pom.properties.put("project.parent.groupId", getText(parent, "groupId"));
+            pom.properties.put("project.parent.version", getText(parent, "version"));
+        }
+        
+        groupId = getText(project, "groupId");
+        version = getText(project, "version");
+        
+        if(groupId != null) pom.properties.put("project.groupId", groupId);
+        if(version != null) pom.properties.put("project.version", version);
+        
+        pom.properties.put("project.artifactId", getText(project, "artifactId"));
+        
+        properties = getChild(project, "properties");
+        
+        for(Node node = (properties != null) ? properties.getFirstChild() : null; node != null; node = node.getNextSibling())
+        {
+            if(node instanceof Element) pom.properties.put(node.getNodeName(), node.getTextContent().trim());
+        }
+        
+        pom.managed.addAll(getChildren(getChild(project, "dependencyManagement"), "dependencies", "dependency"));
+        pom.dependencies.addAll(getChildren(project, "dependencies", "dependency"));
+        
+        return pom;
+    }
+    
+    /**
+     * Returns the chain of parent POMs of an artifact, nearest first. Maven
+     * needs all of them to read the artifact's POM. They are fetched into the
+     * cache as they are read.
+     * 
+     * @param artifact The artifact to read the parents of
+     * @return The parent POMs, empty if the POM has no parent
+     * @throws Exception If a POM can't be fetched or parsed
+     */
+    public List<Artifact> getParents(Artifact artifact) throws Exception
+    {
+        return readPom(artifact, 0).parents;
+    }
+    
+    /**
+     * Reads the runtime dependencies of an artifact from its POM and the POMs
+     * of its parents. Optional, test and provided dependencies are skipped, as
+     * are exclusions and imported BOMs.
+     * 
+     * @param artifact The artifact to read the dependencies of
+     * @return The dependencies
+     * @throws Exception If a POM can't be fetched or parsed
+     */
+    public List<Artifact> getDependencies(Artifact artifact) throws Exception
+    {
+        List<Artifact> dependencies = new ArrayList<>();
+        Map<String,String> versions = new HashMap<>();
+        Pom pom = readPom(artifact, 0);
+        String groupId;
+        String artifactId;
+        String version;
+        String scope;
+        String type;
+        
+        for(Element managed : pom.managed)
+        {
+            groupId = interpolate(getText(managed, "groupId"), pom.properties);
+            artifactId = interpolate(getText(managed, "artifactId"), pom.properties);
+            
+            versions.put(groupId + ":" + artifactId, interpolate(getText(managed, "version"), pom.properties));
+        }
+        
+        for(Element dependency : pom.dependencies)
+        {
+            groupId = interpolate(getText(dependency, "groupId"), pom.properties);
+            artifactId = interpolate(getText(dependency, "artifactId"), pom.properties);
+            version = interpolate(getText(dependency, "version"), pom.properties);
+            scope = getText(dependency, "scope");
+            type = getText(dependency, "type");
+            
+            if(scope != null && !scope.equals("compile") && !scope.equals("runtime")) continue;
+            if("true".equals(getText(dependency, "optional"))) continue;
+            if(type != null && !type.equals("jar")) continue;
+            
+            if(version == null) version = versions.get(groupId + ":" + artifactId);
+            
+            // Version ranges and properties from outside the POM hierarchy can't be resolved here
+            if(version == null || version.contains("${") || version.startsWith("[") || version.startsWith("("))
+            {
+                System.err.println("Skipping " + groupId + ":" + artifactId + " required by " + artifact + ", unable to determine its version");
+                continue;
+            }
+            
+            dependencies.add(new Artifact(groupId, artifactId, version, null, interpolate(getText(dependency, "classifier"), pom.properties)));
+        }
+        
+        return dependencies;
+    }
+    
+    private static class Pom
+    {
+        private final Map<String,String> properties = new HashMap<>();
+        private final List<Artifact> parents = new ArrayList<>();
+        private final List<Element> managed = new ArrayList<>();
+        private final List<Element> dependencies = new ArrayList<>();
+    }
+}
@@ -42,6 +42,8 @@ import java.util.List;
  */
 public class ListDataSource implements Tool
 {
+    public static final String DESCRIPTION = "List the available DataSources and their properties.";
+    
     private String sourceName;
     
     @Override
@@ -53,7 +55,7 @@ public class ListDataSource implements Tool
     @Override 
     public String getShortDescription()
     {
-        return "List the available DataSources and their properties.";
+        return DESCRIPTION;
     }
     
     @Override
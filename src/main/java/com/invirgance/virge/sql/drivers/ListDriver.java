@@ -24,10 +24,10 @@ package com.invirgance.virge.sql.drivers;
 
 import com.invirgance.convirgance.jdbc.AutomaticDriver;
 import com.invirgance.convirgance.jdbc.AutomaticDrivers;
-import com.invirgance.virge.Virge;
 import static com.invirgance.virge.Virge.HELP_DESCRIPTION_SPACING;
 import static com.invirgance.virge.Virge.HELP_SPACING;
 import com.invirgance.virge.sql.ConsoleOutputFormatter;
+import static com.invirgance.virge.sql.VirgeSQL.exit;
 import static com.invirgance.virge.sql.VirgeSQL.printToolHelp;
 import com.invirgance.virge.tool.Tool;
 import java.util.ArrayList;
@@ -40,6 +40,8 @@ import java.util.List;
  */
 public class ListDriver implements Tool
 {
+    public static final String DESCRIPTION = "List the available drivers for connecting to databases.";
+    
     private String name;
     
     @Override
@@ -68,7 +70,7 @@ public class ListDriver implements Tool
     @Override 
     public String getShortDescription()
     {
-        return "List the available drivers for connecting to databases.";
+        return DESCRIPTION;
     }
     
     @Override
@@ -131,7 +133,7 @@ public class ListDriver implements Tool
             System.out.println("View the current driver names below:");
             printAll();
             System.out.println();
-            Virge.exit(254, "Unknown driver name: " + name);
+            exit(254, "Unknown driver name: " + name);
         }
         
         System.out.println(selected.toString());
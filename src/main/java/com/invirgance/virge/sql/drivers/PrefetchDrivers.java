@@ -0,0 +1,282 @@
+/*
+ * Copyright 2024 INVIRGANCE LLC
+
+Permission is hereby granted, free of charge, to any person obtaining a copy 
+of this software and associated documentation files (the “Software”), to deal 
+in the Software without restriction, including without limitation the rights to 
+use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies 
+of the Software, and to permit persons to whom the Software is furnished to do 
+so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all 
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR 
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, 
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER 
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE 
+SOFTWARE.
+ */
+package com.invirgance.virge.sql.drivers;
+
+import com.invirgance.convirgance.jdbc.AutomaticDriver;
+import com.invirgance.convirgance.jdbc.AutomaticDrivers;
+import static com.invirgance.virge.Virge.HELP_DESCRIPTION_SPACING;
+import static com.invirgance.virge.Virge.HELP_SPACING;
+import static com.invirgance.virge.sql.VirgeSQL.exit;
+import static com.invirgance.virge.sql.VirgeSQL.getFile;
+import static com.invirgance.virge.sql.VirgeSQL.printToolHelp;
+import com.invirgance.virge.tool.Tool;
+import java.io.File;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Downloads the artifacts of the registered drivers, and their dependencies,
+ * in parallel into the driver cache and installs them into the local Maven
+ * repository. Useful for preparing CI runners and machines without network
+ * access before drivers are first used.
+ * 
+ * @author tadghh
+ */
+public class PrefetchDrivers implements Tool
+{
+    public static final String DESCRIPTION = "Download the artifacts of the registered drivers into a verified local cache.";
+    
+    private final List<String> names = new ArrayList<>();
+    
+    private URI repository = ArtifactCache.getDefaultRepository();
+    private File cache = ArtifactCache.getDefaultDirectory();
+    private File localRepository = ArtifactCache.getDefaultLocalRepository();
+    private int threads = 8;
+    private boolean dependencies = true;
+    
+    private boolean error(String message)
+    {
+        System.err.println(message);
+        
+        return false;
+    }
+    
+    @Override
+    public String getName()
+    {
+        return "prefetch";
+    }
+    
+    @Override 
+    public String getShortDescription()
+    {
+        return DESCRIPTION;
+    }
+    
+    @Override
+    public String[] getHelp()
+    {
+        return new String[]{
+            HELP_SPACING + "--name <NAME>",
+            HELP_SPACING + "-n <NAME>",
+            HELP_SPACING + HELP_DESCRIPTION_SPACING + "Only prefetch the named driver. This option can be specified more",
+            HELP_SPACING + HELP_DESCRIPTION_SPACING + "than once. Defaults to every registered driver.",
+            "",
+            HELP_SPACING + "--repository <URL|PATH>",
+            HELP_SPACING + "-r <URL|PATH>",
+            HELP_SPACING + HELP_DESCRIPTION_SPACING + "The Maven repository to download from. Accepts file: URLs or a directory",
+            HELP_SPACING + HELP_DESCRIPTION_SPACING + "for a local mirror. Defaults to " + ArtifactCache.getDefaultRepository() + ".",
+            "",
+            HELP_SPACING + "--cache <DIRECTORY>",
+            HELP_SPACING + HELP_DESCRIPTION_SPACING + "The cache directory. Defaults to " + ArtifactCache.getDefaultDirectory() + ".",
+            "",
+            HELP_SPACING + "--local-repository <DIRECTORY>",
+            HELP_SPACING + HELP_DESCRIPTION_SPACING + "The local Maven repository the drivers are installed into. Defaults",
+            HELP_SPACING + HELP_DESCRIPTION_SPACING + "to " + ArtifactCache.getDefaultLocalRepository() + ".",
+            "",
+            HELP_SPACING + "--no-install",
+            HELP_SPACING + HELP_DESCRIPTION_SPACING + "Only fill the cache, don't install into the local Maven repository.",
+            "",
+            HELP_SPACING + "--no-dependencies",
+            HELP_SPACING + HELP_DESCRIPTION_SPACING + "Only fetch the registered artifacts, not their dependencies.",
+            "",
+            HELP_SPACING + "--threads <COUNT>",
+            HELP_SPACING + "-t <COUNT>",
+            HELP_SPACING + HELP_DESCRIPTION_SPACING + "The number of parallel downloads. Defaults to 8.",
+            "",
+            HELP_SPACING + "--help",
+            HELP_SPACING + "-h",
+            HELP_SPACING + HELP_DESCRIPTION_SPACING + "Display this menu.",         
+        };
+    }
+    
+    @Override
+    public String getExample()
+    {
+        return "virge.jar sql drivers prefetch -r file:///mnt/mirror/maven2";
+    }
+    
+    @Override
+    public boolean parse(String[] args, int start) throws Exception
+    {
+        String value;
+        
+        for(int i=start; i<args.length; i++)
+        {
+            switch(args[i])
+            {
+                case "--name":
+                case "-n":
+                    names.add(args[++i]);
+                    break;
+                    
+                case "--repository":
+                case "-r":
+                    value = args[++i];
+                    repository = value.contains(":/") ? URI.create(value) : getFile(value).getAbsoluteFile().toURI();
+                    break;
+                    
+                case "--cache":
+                    cache = getFile(args[++i]);
+                    break;
+                    
+                case "--local-repository":
+                    localRepository = getFile(args[++i]);
+                    break;
+                    
+                case "--no-install":
+                    localRepository = null;
+                    break;
+                    
+                case "--no-dependencies":
+                    dependencies = false;
+                    break;
+                    
+                case "--threads":
+                case "-t":
+                    threads = Integer.parseInt(args[++i]);
+                    break;
+                    
+                case "--help":
+                case "-h":
+                    printToolHelp(this);    
+                    
+                default:
+                    System.err.println("Unknown option: " + args[i]);
+                    return false;
+            }
+        }
+        
+        if(threads < 1) return error("Threads must be at least 1!");
+        
+        return true;
+    }
+    
+    private List<Artifact> getArtifacts()
+    {
+        List<Artifact> artifacts = new ArrayList<>();
+        Set<String> found = new HashSet<>();
+        
+        for(AutomaticDriver driver : new AutomaticDrivers())
+        {
+            if(!names.isEmpty() && names.stream().noneMatch(name -> name.equalsIgnoreCase(driver.getName()))) continue;
+            
+            found.add(driver.getName().toLowerCase());
+            
+            for(String coordinates : driver.getArtifacts()) artifacts.add(Artifact.parse(coordinates));
+        }
+        
+        for(String name : names)
+        {
+            if(!found.contains(name.toLowerCase())) exit(254, "Unknown driver name: " + name);
+        }
+        
+        return artifacts;
+    }
+    
+    private List<Artifact> prefetch(ArtifactCache cache, Artifact artifact) throws Exception
+    {
+        boolean cached = (cache.get(artifact) != null);
+        
+        cache.fetch(artifact);
+        
+        // Resolvers need the POM and all of its parents as well to work offline
+        if(localRepository != null)
+        {
+            cache.fetch(artifact.getPom());
+            cache.install(artifact, localRepository);
+            cache.install(artifact.getPom(), localRepository);
+            
+            for(Artifact parent : cache.getParents(artifact)) cache.install(parent, localRepository);
+        }
+        
+        System.out.println((cached ? "Cached      " : "Downloaded  ") + artifact);
+        
+        if(!dependencies) return new ArrayList<>();
+        
+        return cache.getDependencies(artifact);
+    }
+    
+    @Override
+    public void execute() throws Exception
+    {
+        ArtifactCache artifacts = new ArtifactCache(cache, repository);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<List<Artifact>>> results = new ArrayList<>();
+        Set<Artifact> seen = new HashSet<>();
+        List<Artifact> level = new ArrayList<>();
+        List<Artifact> next;
+        int failures = 0;
+        
+        for(Artifact artifact : getArtifacts())
+        {
+            if(seen.add(artifact)) level.add(artifact);
+        }
+        
+        try
+        {
+            // Each round fetches the dependencies discovered by the previous one
+            while(!level.isEmpty())
+            {
+                next = new ArrayList<>();
+                
+                results.clear();
+                
+                for(Artifact artifact : level) results.add(executor.submit(() -> prefetch(artifacts, artifact)));
+                
+                for(int i=0; i<level.size(); i++)
+                {
+                    try
+                    {
+                        for(Artifact dependency : results.get(i).get())
+                        {
+                            if(seen.add(dependency)) next.add(dependency);
+                        }
+                    }
+                    catch(ExecutionException e)
+                    {
+                        System.err.println("Failed  " + level.get(i) + ": " + e.getCause().getMessage());
+                        failures++;
+                    }
+                }
+                
+                level = next;
+            }
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+        
+        System.out.println();
+        System.out.println("Prefetched " + (seen.size() - failures) + " artifacts into " + cache + " (" + artifacts.getDownloads() + " files, " + artifacts.getBytes() + " bytes downloaded)");
+        
+        if(failures > 0) exit(1, failures + " artifacts could not be fetched");
+    }
+}
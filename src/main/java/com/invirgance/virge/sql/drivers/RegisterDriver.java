@@ -26,10 +26,13 @@ import com.invirgance.convirgance.jdbc.AutomaticDriver;
 import com.invirgance.convirgance.jdbc.AutomaticDrivers;
 import static com.invirgance.virge.Virge.HELP_DESCRIPTION_SPACING;
 import static com.invirgance.virge.Virge.HELP_SPACING;
+import static com.invirgance.virge.sql.VirgeSQL.exit;
 import static com.invirgance.virge.sql.VirgeSQL.printToolHelp;
 import com.invirgance.virge.tool.Tool;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Virge CLI tool, registers a custom driver to use with stored connections or with other Virge SQL tools.
@@ -38,6 +41,8 @@ import java.util.List;
  */
 public class RegisterDriver implements Tool
 {
+    public static final String DESCRIPTION = "Add a new database driver for creating connections.";
+    
     private String driver;
     private String name;
     private String datasource;
@@ -45,6 +50,8 @@ public class RegisterDriver implements Tool
     private final List<String> artifacts = new ArrayList<>();
     private final List<String> prefixes = new ArrayList<>();
     private final List<String> examples = new ArrayList<>();
+    private final Map<String,String> bulkLoad = new LinkedHashMap<>();
+    private final Map<String,String> bulkExtract = new LinkedHashMap<>();
     
     @Override
     public String getName()
@@ -88,6 +95,14 @@ public class RegisterDriver implements Tool
             HELP_SPACING + HELP_DESCRIPTION_SPACING + "An example connection string to display when viewing information about the driver.",
             HELP_SPACING + HELP_DESCRIPTION_SPACING + "This option can be specified more than once.",
             "",           
+            HELP_SPACING + "--bulk-load <KEY=VALUE>",
+            HELP_SPACING + HELP_DESCRIPTION_SPACING + "A driver property applied by imports, e.g. reWriteBatchedInserts=true. An empty",
+            HELP_SPACING + HELP_DESCRIPTION_SPACING + "value removes a built in default. This option can be specified more than once.",
+            "",           
+            HELP_SPACING + "--bulk-extract <KEY=VALUE>",
+            HELP_SPACING + HELP_DESCRIPTION_SPACING + "A driver property applied by exports, e.g. defaultRowFetchSize=10000. An empty",
+            HELP_SPACING + HELP_DESCRIPTION_SPACING + "value removes a built in default. This option can be specified more than once.",
+            "",           
             HELP_SPACING + "--help",
             HELP_SPACING + "-h",
             HELP_SPACING + HELP_DESCRIPTION_SPACING  + "Display this menu.",     
@@ -97,7 +112,7 @@ public class RegisterDriver implements Tool
     @Override 
     public String getShortDescription()
     {
-        return "Add a new database driver for creating connections.";
+        return DESCRIPTION;
     }
     
     @Override
@@ -140,6 +155,14 @@ public class RegisterDriver implements Tool
                     this.prefixes.add(args[++i]);
                     break;
                 
+                case "--bulk-load":
+                    if(!addProperty(bulkLoad, args[++i])) return false;
+                    break;
+                    
+                case "--bulk-extract":
+                    if(!addProperty(bulkExtract, args[++i])) return false;
+                    break;
+                
                 case "--help":
                 case "-h":
                     printToolHelp(this);      
@@ -154,6 +177,21 @@ public class RegisterDriver implements Tool
         return true;
     }
 
+    private boolean addProperty(Map<String,String> properties, String property)
+    {
+        int index = property.indexOf('=');
+        
+        if(index < 1)
+        {
+            System.err.println("Expected KEY=VALUE but found: " + property);
+            return false;
+        }
+        
+        properties.put(property.substring(0, index), property.substring(index + 1));
+        
+        return true;
+    }
+
     @Override
     public void execute() throws Exception
     {
@@ -215,7 +253,7 @@ public class RegisterDriver implements Tool
             System.err.println("Unique name is required!");
             System.out.println("Hint: use -n to specify a simple name to use when working with the driver.");
 
-            System.exit(1);
+            exit(1, null);
         }
         
         if(descriptor.getDriver() == null)
@@ -223,7 +261,7 @@ public class RegisterDriver implements Tool
             System.err.println("Driver class is required!");
             System.out.println("Hint: use -d to specify the driver class, double check that the 'd' is lowercase.");
 
-            System.exit(1);
+            exit(1, null);
         }
         
         if(descriptor.getArtifacts().length < 1)
@@ -231,7 +269,7 @@ public class RegisterDriver implements Tool
             System.err.println("Maven artifact is required!");
             System.out.println("Hint: use -a to specify the artifact.");
  
-            System.exit(1);
+            exit(1, null);
         }
         
         if(descriptor.getPrefixes().length < 1)
@@ -239,10 +277,13 @@ public class RegisterDriver implements Tool
             System.err.println("JDBC URL prefix is required to identify driver URLs!");
             System.out.println("Hint: use -p to specify the prefix.");
  
-            System.exit(1);
+            exit(1, null);
         }
         
         descriptor.save();
+        
+        TuningProfile.save(descriptor.getName(), TuningProfile.BULK_LOAD, bulkLoad);
+        TuningProfile.save(descriptor.getName(), TuningProfile.BULK_EXTRACT, bulkExtract);
 
         System.out.println("Saved!");
         System.out.println(descriptor.toString());
@@ -0,0 +1,374 @@
+/*
+ * Copyright 2024 INVIRGANCE LLC
+
+Permission is hereby granted, free of charge, to any person obtaining a copy 
+of this software and associated documentation files (the “Software”), to deal 
+in the Software without restriction, including without limitation the rights to 
+use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies 
+of the Software, and to permit persons to whom the Software is furnished to do 
+so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all 
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR 
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, 
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER 
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE 
+SOFTWARE.
+ */
+package com.invirgance.virge.sql.drivers;
+
+import com.invirgance.convirgance.ConvirganceException;
+import com.invirgance.convirgance.jdbc.AutomaticDriver;
+import com.invirgance.convirgance.jdbc.StoredConnection;
+import com.invirgance.convirgance.json.JSONObject;
+import com.invirgance.virge.sql.Dialect;
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import javax.sql.DataSource;
+
+/**
+ * Driver properties that speed up bulk workloads, such as PostgreSQL's 
+ * reWriteBatchedInserts. Each driver has a "bulk-load" profile, applied by 
+ * imports, and a "bulk-extract" profile, applied by exports. Built in defaults
+ * exist for common databases and can be overridden per driver with 
+ * 'sql drivers add --bulk-load KEY=VALUE'. An empty value removes a default.
+ * 
+ * Profiles are applied to the connection in memory only, so the stored 
+ * connection itself is never changed.
+ * 
+ * @author tadghh
+ */
+public class TuningProfile
+{
+    public static final String BULK_LOAD = "bulk-load";
+    public static final String BULK_EXTRACT = "bulk-extract";
+    
+    private static File getFile()
+    {
+        return new File(System.getProperty("user.home"), ".virge" + File.separator + "tuning-profiles.json");
+    }
+    
+    private static JSONObject load()
+    {
+        File file = getFile();
+        
+        try
+        {
+            if(!file.exists()) return new JSONObject(true);
+            
+            return new JSONObject(Files.readString(file.toPath(), StandardCharsets.UTF_8));
+        }
+        catch(IOException e)
+        {
+            throw new ConvirganceException("Unable to read tuning profiles from " + file, e);
+        }
+    }
+    
+    /**
+     * Returns the built in properties of a profile.
+     * 
+     * @param dialect The database type
+     * @param profile BULK_LOAD or BULK_EXTRACT
+     * @return The default properties, possibly empty
+     */
+    public static Map<String,String> getDefaults(Dialect dialect, String profile)
+    {
+        Map<String,String> properties = new LinkedHashMap<>();
+        boolean load = profile.equals(BULK_LOAD);
+        
+        switch(dialect)
+        {
+            case POSTGRESQL:
+                if(load) properties.put("reWriteBatchedInserts", "true");
+                else properties.put("defaultRowFetchSize", "10000");
+                break;
+                
+            case MYSQL:
+                if(load)
+                {
+                    properties.put("rewriteBatchedStatements", "true");
+                    properties.put("useServerPrepStmts", "false");
+                }
+                else
+                {
+                    properties.put("useCursorFetch", "true");
+                    properties.put("defaultFetchSize", "10000");
+                }
+                break;
+                
+            case SQLSERVER:
+                // sendStringParametersAsUnicode=false is left out, it would mangle nvarchar parameters such as paged export keys
+                if(load) properties.put("useBulkCopyForBatchInsert", "true");
+                break;
+        }
+        
+        return properties;
+    }
+    
+    /**
+     * Returns the effective properties of a profile for a driver, the defaults
+     * combined with any overrides saved for the driver.
+     * 
+     * @param driver The driver
+     * @param profile BULK_LOAD or BULK_EXTRACT
+     * @return The properties to apply
+     */
+    public static Map<String,String> getProperties(AutomaticDriver driver, String profile)
+    {
+        Map<String,String> properties = getDefaults(Dialect.getDialect(driver), profile);
+        JSONObject profiles = load().getJSONObject(driver.getName().toLowerCase());
+        JSONObject overrides = (profiles != null) ? profiles.getJSONObject(profile) : null;
+        
+        if(overrides == null) return properties;
+        
+        for(String key : overrides.keySet())
+        {
+            if(overrides.getString(key).isEmpty()) properties.remove(key);
+            else properties.put(key, overrides.getString(key));
+        }
+        
+        return properties;
+    }
+    
+    /**
+     * Saves overrides for a driver's profile. Overrides are merged with any
+     * previously saved for the profile.
+     * 
+     * @param driver The name of the driver
+     * @param profile BULK_LOAD or BULK_EXTRACT
+     * @param properties The properties to set, with empty values removing defaults
+     */
+    public static void save(String driver, String profile, Map<String,String> properties)
+    {
+        JSONObject profiles = load();
+        JSONObject driverProfiles = profiles.getJSONObject(driver.toLowerCase());
+        JSONObject overrides;
+        File file = getFile();
+        
+        if(properties.isEmpty()) return;
+        if(driverProfiles == null) profiles.put(driver.toLowerCase(), driverProfiles = new JSONObject(true));
+        
+        overrides = driverProfiles.getJSONObject(profile);
+        
+        if(overrides == null) driverProfiles.put(profile, overrides = new JSONObject(true));
+        
+        overrides.putAll(properties);
+        
+        try
+        {
+            file.getParentFile().mkdirs();
+            Files.writeString(file.toPath(), profiles.toString(4), StandardCharsets.UTF_8);
+        }
+        catch(IOException e)
+        {
+            throw new ConvirganceException("Unable to save tuning profiles to " + file, e);
+        }
+    }
+    
+    /**
+     * Formats properties for display, e.g. "reWriteBatchedInserts=true"
+     * 
+     * @param properties The properties
+     * @return The properties separated by commas
+     */
+    public static String format(Map<String,String> properties)
+    {
+        StringBuilder text = new StringBuilder();
+        
+        for(Map.Entry<String,String> entry : properties.entrySet())
+        {
+            if(text.length() > 0) text.append(", ");
+            
+            text.append(entry.getKey()).append('=').append(entry.getValue());
+        }
+        
+        return text.toString();
+    }
+    
+    /**
+     * Adds a profile's properties to a JDBC URL. Properties already present in
+     * the URL are left as they are.
+     * 
+     * @param url The JDBC URL
+     * @param driver The driver for the URL
+     * @param profile BULK_LOAD or BULK_EXTRACT
+     * @return The URL with the properties added
+     */
+    public static String apply(String url, AutomaticDriver driver, String profile)
+    {
+        return append(url, Dialect.getDialect(driver), getProperties(driver, profile));
+    }
+    
+    private static String append(String url, Dialect dialect, Map<String,String> properties)
+    {
+        boolean semicolons = (dialect == Dialect.SQLSERVER || dialect == Dialect.H2 || dialect == Dialect.HSQLDB || dialect == Dialect.DERBY);
+        StringBuilder result = new StringBuilder(url);
+        String separator;
+        
+        for(Map.Entry<String,String> entry : properties.entrySet())
+        {
+            if(url.toLowerCase().contains(entry.getKey().toLowerCase() + "=")) continue;
+            
+            if(semicolons) separator = ";";
+            else separator = (result.indexOf("?") < 0) ? "?" : "&";
+            
+            result.append(separator).append(entry.getKey()).append('=').append(entry.getValue());
+        }
+        
+        return result.toString();
+    }
+    
+    private static Object convert(String value, Class<?> type)
+    {
+        if(type == String.class) return value;
+        if(type == boolean.class || type == Boolean.class) return Boolean.valueOf(value);
+        if(type == int.class || type == Integer.class) return Integer.valueOf(value);
+        if(type == long.class || type == Long.class) return Long.valueOf(value);
+        
+        return null;
+    }
+    
+    private static Method getSetter(Class<?> type, String property)
+    {
+        String name = "set" + Character.toUpperCase(property.charAt(0)) + property.substring(1);
+        
+        for(Method method : type.getMethods())
+        {
+            if(method.getName().equalsIgnoreCase(name) && method.getParameterCount() == 1) return method;
+        }
+        
+        return null;
+    }
+    
+    private static Method getGetter(Class<?> type, String property)
+    {
+        for(Method method : type.getMethods())
+        {
+            if(method.getParameterCount() > 0) continue;
+            if(method.getName().equalsIgnoreCase("get" + property) || method.getName().equalsIgnoreCase("is" + property)) return method;
+        }
+        
+        return null;
+    }
+    
+    // A fresh instance holds the driver's defaults, so anything different was configured on the stored connection
+    private static Object createDefaults(DataSource source)
+    {
+        try
+        {
+            return source.getClass().getConstructor().newInstance();
+        }
+        catch(ReflectiveOperationException | RuntimeException e)
+        {
+            return null;
+        }
+    }
+    
+    private static boolean isConfigured(DataSource source, Object defaults, String property) throws ReflectiveOperationException
+    {
+        Method getter = getGetter(source.getClass(), property);
+        
+        if(getter == null || defaults == null) return false;
+        
+        return !Objects.equals(getter.invoke(source), getter.invoke(defaults));
+    }
+    
+    private static Method getMethod(Class<?> type, String name, Class<?>... parameters)
+    {
+        try
+        {
+            return type.getMethod(name, parameters);
+        }
+        catch(NoSuchMethodException e)
+        {
+            return null;
+        }
+    }
+    
+    /**
+     * Applies a profile to the data source of a stored connection for the rest
+     * of this process. Properties are set through the data source's bean 
+     * setters, or added to its URL when it wraps a driver. Properties already
+     * set on the stored connection keep their saved values. Properties the 
+     * data source doesn't support are reported and skipped.
+     * 
+     * @param connection The stored connection
+     * @param profile BULK_LOAD or BULK_EXTRACT
+     * @return The properties that were applied
+     */
+    public static Map<String,String> apply(StoredConnection connection, String profile)
+    {
+        DataSource source = connection.getDataSource();
+        Map<String,String> properties = getProperties(connection.getDriver(), profile);
+        Map<String,String> applied = new LinkedHashMap<>();
+        Set<String> configured = new HashSet<>();
+        Object defaults = createDefaults(source);
+        Method getURL = getMethod(source.getClass(), "getUrl");
+        Method setURL = getMethod(source.getClass(), "setUrl", String.class);
+        Method setter;
+        Object value;
+        String url;
+        
+        if(getURL == null || setURL == null)
+        {
+            getURL = getMethod(source.getClass(), "getURL");
+            setURL = getMethod(source.getClass(), "setURL", String.class);
+        }
+        
+        try
+        {
+            for(Map.Entry<String,String> entry : properties.entrySet())
+            {
+                setter = getSetter(source.getClass(), entry.getKey());
+                value = (setter != null) ? convert(entry.getValue(), setter.getParameterTypes()[0]) : null;
+                
+                if(value == null) continue;
+                
+                if(isConfigured(source, defaults, entry.getKey()))
+                {
+                    configured.add(entry.getKey());
+                    continue;
+                }
+                
+                setter.invoke(source, value);
+                applied.put(entry.getKey(), entry.getValue());
+            }
+            
+            properties.keySet().removeAll(applied.keySet());
+            properties.keySet().removeAll(configured);
+            
+            // Driver based connections only have the URL to carry driver properties
+            if(!properties.isEmpty() && getURL != null && setURL != null && getURL.invoke(source) != null)
+            {
+                url = (String)getURL.invoke(source);
+                
+                setURL.invoke(source, append(url, Dialect.getDialect(connection.getDriver()), properties));
+                applied.putAll(properties);
+                properties.clear();
+            }
+        }
+        catch(ReflectiveOperationException e)
+        {
+            throw new ConvirganceException("Unable to apply the " + profile + " profile to " + connection.getName(), e);
+        }
+        
+        if(!properties.isEmpty())
+        {
+            System.err.println("The " + profile + " properties " + format(properties) + " are not supported by " + source.getClass().getName());
+        }
+        
+        return applied;
+    }
+}
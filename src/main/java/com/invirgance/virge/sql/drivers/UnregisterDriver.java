@@ -24,9 +24,9 @@ package com.invirgance.virge.sql.drivers;
 
 import com.invirgance.convirgance.jdbc.AutomaticDriver;
 import com.invirgance.convirgance.jdbc.AutomaticDrivers;
-import com.invirgance.virge.Virge;
 import static com.invirgance.virge.Virge.HELP_DESCRIPTION_SPACING;
 import static com.invirgance.virge.Virge.HELP_SPACING;
+import static com.invirgance.virge.sql.VirgeSQL.exit;
 import static com.invirgance.virge.sql.VirgeSQL.printToolHelp;
 import com.invirgance.virge.tool.Tool;
 
@@ -38,6 +38,8 @@ import com.invirgance.virge.tool.Tool;
  */
 public class UnregisterDriver implements Tool
 {
+    public static final String DESCRIPTION = "Remove a driver so it can no longer be used within Virge.";
+    
     private String name;
     
     @Override
@@ -64,7 +66,7 @@ public class UnregisterDriver implements Tool
     @Override 
     public String getShortDescription()
     {
-        return "Remove a driver so it can no longer be used within Virge.";
+        return DESCRIPTION;
     }
     
     @Override
@@ -93,7 +95,7 @@ public class UnregisterDriver implements Tool
             }
         }
         
-        if(name == null) Virge.exit(255, "Error: You must provide the name of the driver to unregister...");
+        if(name == null) exit(255, "Error: You must provide the name of the driver to unregister...");
         
         return true;
     }
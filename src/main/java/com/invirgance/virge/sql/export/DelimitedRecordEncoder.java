@@ -0,0 +1,148 @@
+/*
+ * Copyright 2024 INVIRGANCE LLC
+
+Permission is hereby granted, free of charge, to any person obtaining a copy 
+of this software and associated documentation files (the “Software”), to deal 
+in the Software without restriction, including without limitation the rights to 
+use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies 
+of the Software, and to permit persons to whom the Software is furnished to do 
+so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all 
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR 
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, 
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER 
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE 
+SOFTWARE.
+ */
+package com.invirgance.virge.sql.export;
+
+import java.math.BigDecimal;
+
+/**
+ * Encodes rows as delimited text with a header row. Values are quoted only 
+ * when they contain the delimiter, a quote or a line break.
+ * 
+ * @author tadghh
+ */
+public class DelimitedRecordEncoder extends RecordEncoder
+{
+    private final char delimiter;
+    
+    public DelimitedRecordEncoder(ExportColumn[] columns, char delimiter)
+    {
+        super(columns);
+        
+        this.delimiter = delimiter;
+    }
+    
+    private boolean needsQuotes(String value)
+    {
+        char c;
+        
+        for(int i=0; i<value.length(); i++)
+        {
+            c = value.charAt(i);
+            
+            if(c == delimiter || c == '"' || c == '\n' || c == '\r') return true;
+        }
+        
+        return false;
+    }
+    
+    @Override
+    public void begin(OutputBuffer buffer)
+    {
+        for(int i=0; i<columns.length; i++)
+        {
+            startValue(i, buffer);
+            writeString(columns[i].getName(), buffer);
+        }
+        
+        endRecord(buffer);
+    }
+    
+    @Override
+    public void end(OutputBuffer buffer)
+    {
+        // No trailer for delimited files
+    }
+    
+    @Override
+    protected void startRecord(OutputBuffer buffer)
+    {
+        // Nothing to write
+    }
+    
+    @Override
+    protected void endRecord(OutputBuffer buffer)
+    {
+        buffer.append('\n');
+    }
+    
+    @Override
+    protected void startValue(int column, OutputBuffer buffer)
+    {
+        if(column > 0) buffer.append(delimiter);
+    }
+    
+    @Override
+    protected void writeNull(OutputBuffer buffer)
+    {
+        // Nulls are empty fields
+    }
+    
+    @Override
+    protected void writeLong(long value, OutputBuffer buffer)
+    {
+        buffer.append(value);
+    }
+    
+    @Override
+    protected void writeDouble(double value, OutputBuffer buffer)
+    {
+        buffer.append(value);
+    }
+    
+    @Override
+    protected void writeDecimal(BigDecimal value, OutputBuffer buffer)
+    {
+        buffer.appendAscii(value.toPlainString());
+    }
+    
+    @Override
+    protected void writeBoolean(boolean value, OutputBuffer buffer)
+    {
+        buffer.appendAscii(value ? "true" : "false");
+    }
+    
+    @Override
+    protected void writeString(String value, OutputBuffer buffer)
+    {
+        int length = value.length();
+        char c;
+        
+        if(!needsQuotes(value))
+        {
+            buffer.append(value);
+            return;
+        }
+        
+        buffer.append('"');
+        
+        for(int i=0; i<length; )
+        {
+            c = value.charAt(i);
+            
+            if(c == '"') buffer.append('"');
+            
+            i += buffer.appendUTF8(c, (i + 1 < length) ? value.charAt(i + 1) : 0);
+        }
+        
+        buffer.append('"');
+    }
+}
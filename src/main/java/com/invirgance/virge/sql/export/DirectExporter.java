@@ -0,0 +1,124 @@
+/*
+ * Copyright 2024 INVIRGANCE LLC
+
+Permission is hereby granted, free of charge, to any person obtaining a copy 
+of this software and associated documentation files (the “Software”), to deal 
+in the Software without restriction, including without limitation the rights to 
+use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies 
+of the Software, and to permit persons to whom the Software is furnished to do 
+so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all 
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR 
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, 
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER 
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE 
+SOFTWARE.
+ */
+package com.invirgance.virge.sql.export;
+
+import java.io.OutputStream;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+
+/**
+ * Exports a query by encoding each row of the ResultSet straight into a 
+ * reusable OutputBuffer, skipping the intermediate JSONObject per row.
+ * 
+ * @author tadghh
+ */
+public class DirectExporter
+{
+    private static final int FLUSH_SIZE = 64 * 1024;
+    
+    private int fetchSize = 1000;
+    
+    public int getFetchSize()
+    {
+        return fetchSize;
+    }
+    
+    /**
+     * Sets the number of rows requested from the database per round trip.
+     * 
+     * @param fetchSize The JDBC fetch size
+     */
+    public void setFetchSize(int fetchSize)
+    {
+        this.fetchSize = fetchSize;
+    }
+    
+    /**
+     * Runs the query and writes the encoded rows to the stream.
+     * 
+     * @param connection An open connection to the database
+     * @param sql The query to export
+     * @param format The output type (see RecordEncoder.isSupported())
+     * @param delimiter The column delimiter for delimited formats
+     * @param out The stream to write to
+     * @return The number of rows exported
+     * @throws Exception If the export fails
+     */
+    public long export(Connection connection, String sql, String format, char delimiter, OutputStream out) throws Exception
+    {
+        boolean autoCommit = connection.getAutoCommit();
+        
+        // Some drivers (e.g. PostgreSQL) only honor the fetch size inside a transaction
+        if(autoCommit) connection.setAutoCommit(false);
+        
+        try(Statement statement = connection.createStatement())
+        {
+            statement.setFetchSize(fetchSize);
+            
+            try(ResultSet set = statement.executeQuery(sql))
+            {
+                return export(set, format, delimiter, out);
+            }
+        }
+        finally
+        {
+            if(autoCommit)
+            {
+                connection.rollback();
+                connection.setAutoCommit(true);
+            }
+        }
+    }
+    
+    /**
+     * Writes the encoded rows of an open result set to the stream.
+     * 
+     * @param set The result set to export
+     * @param format The output type (see RecordEncoder.isSupported())
+     * @param delimiter The column delimiter for delimited formats
+     * @param out The stream to write to
+     * @return The number of rows exported
+     * @throws Exception If the export fails
+     */
+    public long export(ResultSet set, String format, char delimiter, OutputStream out) throws Exception
+    {
+        OutputBuffer buffer = new OutputBuffer();
+        RecordEncoder encoder = RecordEncoder.getEncoder(format, delimiter, ExportColumn.getColumns(set.getMetaData()));
+        long rows = 0;
+        
+        encoder.begin(buffer);
+        
+        while(set.next())
+        {
+            encoder.encode(set, buffer);
+            rows++;
+            
+            if(buffer.size() >= FLUSH_SIZE) buffer.drainTo(out);
+        }
+        
+        encoder.end(buffer);
+        buffer.drainTo(out);
+        
+        return rows;
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright 2024 INVIRGANCE LLC
+
+Permission is hereby granted, free of charge, to any person obtaining a copy 
+of this software and associated documentation files (the “Software”), to deal 
+in the Software without restriction, including without limitation the rights to 
+use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies 
+of the Software, and to permit persons to whom the Software is furnished to do 
+so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all 
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR 
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, 
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER 
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE 
+SOFTWARE.
+ */
+package com.invirgance.virge.sql.export;
+
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+
+/**
+ * Describes a column of an exported result set and how its values are read 
+ * from JDBC without boxing.
+ * 
+ * @author tadghh
+ */
+public class ExportColumn
+{
+    /**
+     * The accessor used to read a column's values.
+     */
+    public static enum Kind 
+    {
+        LONG,
+        DOUBLE,
+        DECIMAL,
+        BOOLEAN,
+        STRING
+    }
+    
+    private final String name;
+    private final Kind kind;
+    
+    public ExportColumn(String name, Kind kind)
+    {
+        this.name = name;
+        this.kind = kind;
+    }
+    
+    public String getName()
+    {
+        return name;
+    }
+    
+    public Kind getKind()
+    {
+        return kind;
+    }
+    
+    public static Kind getKind(int type)
+    {
+        switch(type)
+        {
+            case Types.TINYINT:
+            case Types.SMALLINT:
+            case Types.INTEGER:
+            case Types.BIGINT:
+                return Kind.LONG;
+                
+            case Types.REAL:
+            case Types.FLOAT:
+            case Types.DOUBLE:
+                return Kind.DOUBLE;
+                
+            case Types.NUMERIC:
+            case Types.DECIMAL:
+                return Kind.DECIMAL;
+                
+            case Types.BIT:
+            case Types.BOOLEAN:
+                return Kind.BOOLEAN;
+                
+            default:
+                return Kind.STRING;
+        }
+    }
+    
+    /**
+     * Creates the column descriptions for a result set.
+     * 
+     * @param metadata The result set's metadata
+     * @return The columns in result set order
+     * @throws SQLException If the metadata can't be read
+     */
+    public static ExportColumn[] getColumns(ResultSetMetaData metadata) throws SQLException
+    {
+        ExportColumn[] columns = new ExportColumn[metadata.getColumnCount()];
+        
+        for(int i=0; i<columns.length; i++)
+        {
+            columns[i] = new ExportColumn(metadata.getColumnLabel(i + 1), getKind(metadata.getColumnType(i + 1)));
+        }
+        
+        return columns;
+    }
+}
@@ -0,0 +1,328 @@
+/*
+ * Copyright 2024 INVIRGANCE LLC
+
+Permission is hereby granted, free of charge, to any person obtaining a copy 
+of this software and associated documentation files (the “Software”), to deal 
+in the Software without restriction, including without limitation the rights to 
+use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies 
+of the Software, and to permit persons to whom the Software is furnished to do 
+so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all 
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR 
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, 
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER 
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE 
+SOFTWARE.
+ */
+package com.invirgance.virge.sql.export;
+
+import java.io.OutputStream;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Exports a query with the JDBC fetch, the format encoding and the file I/O 
+ * running on separate threads. Two RowBatches and two OutputBuffers are 
+ * swapped between the stages, so the database can deliver the next block of 
+ * rows while the previous one is encoded and written.
+ * 
+ * The time each stage spends working versus waiting on its neighbors is 
+ * reported at the end to show whether the database, the CPU or the disk is 
+ * the limiting factor.
+ * 
+ * @author tadghh
+ */
+public class ExportPipeline
+{
+    private static final int FLUSH_SIZE = 256 * 1024;
+    
+    private int fetchSize = 1000;
+    private int batchSize = 4096;
+    
+    private final Stage fetch = new Stage("fetch", "the database");
+    private final Stage encode = new Stage("encode", "the CPU");
+    private final Stage write = new Stage("write", "the disk");
+    
+    private volatile Throwable failure;
+    
+    public int getFetchSize()
+    {
+        return fetchSize;
+    }
+    
+    /**
+     * Sets the number of rows requested from the database per round trip.
+     * 
+     * @param fetchSize The JDBC fetch size
+     */
+    public void setFetchSize(int fetchSize)
+    {
+        this.fetchSize = fetchSize;
+    }
+    
+    public int getBatchSize()
+    {
+        return batchSize;
+    }
+    
+    /**
+     * Sets the number of rows handed from the fetch stage to the encode stage at a time.
+     * 
+     * @param batchSize The number of rows per RowBatch
+     */
+    public void setBatchSize(int batchSize)
+    {
+        this.batchSize = batchSize;
+    }
+    
+    private <T> T take(BlockingQueue<T> queue, Stage stage) throws Exception
+    {
+        long start = System.nanoTime();
+        T item;
+        
+        try
+        {
+            while((item = queue.poll(100, TimeUnit.MILLISECONDS)) == null)
+            {
+                if(failure != null) throw new InterruptedException("Pipeline stage failed");
+            }
+            
+            return item;
+        }
+        finally
+        {
+            stage.waiting += System.nanoTime() - start;
+        }
+    }
+    
+    private <T> void put(BlockingQueue<T> queue, T item, Stage stage) throws Exception
+    {
+        long start = System.nanoTime();
+        
+        try
+        {
+            while(!queue.offer(item, 100, TimeUnit.MILLISECONDS))
+            {
+                if(failure != null) throw new InterruptedException("Pipeline stage failed");
+            }
+        }
+        finally
+        {
+            stage.waiting += System.nanoTime() - start;
+        }
+    }
+    
+    private Thread start(String name, StageTask task)
+    {
+        Thread thread = new Thread(() -> {
+            try
+            {
+                task.run();
+            }
+            catch(Throwable t)
+            {
+                if(failure == null) failure = t;
+            }
+        }, "export-" + name);
+        
+        thread.setDaemon(true);
+        thread.start();
+        
+        return thread;
+    }
+    
+    /**
+     * Runs the query and writes the encoded rows to the stream.
+     * 
+     * @param connection An open connection to the database
+     * @param sql The query to export
+     * @param format The output type (see RecordEncoder.isSupported())
+     * @param delimiter The column delimiter for delimited formats
+     * @param out The stream to write to
+     * @return The number of rows exported
+     * @throws Exception If any stage of the export fails
+     */
+    public long export(Connection connection, String sql, String format, char delimiter, OutputStream out) throws Exception
+    {
+        BlockingQueue<RowBatch> freeBatches = new ArrayBlockingQueue<>(2);
+        BlockingQueue<RowBatch> fullBatches = new ArrayBlockingQueue<>(2);
+        BlockingQueue<OutputBuffer> freeBuffers = new ArrayBlockingQueue<>(2);
+        BlockingQueue<OutputBuffer> fullBuffers = new ArrayBlockingQueue<>(2);
+        
+        boolean autoCommit = connection.getAutoCommit();
+        long started = System.nanoTime();
+        long rows = 0;
+        long time;
+        
+        ExportColumn[] columns;
+        RecordEncoder encoder;
+        RowBatch batch;
+        RowBatch end;
+        OutputBuffer done;
+        
+        Thread encoding;
+        Thread writing;
+        
+        if(autoCommit) connection.setAutoCommit(false);
+        
+        try(Statement statement = connection.createStatement())
+        {
+            statement.setFetchSize(fetchSize);
+            
+            try(ResultSet set = statement.executeQuery(sql))
+            {
+                columns = ExportColumn.getColumns(set.getMetaData());
+                encoder = RecordEncoder.getEncoder(format, delimiter, columns);
+                end = new RowBatch(columns, 0);
+                done = new OutputBuffer(0);
+                
+                for(int i=0; i<2; i++)
+                {
+                    freeBatches.add(new RowBatch(columns, batchSize));
+                    freeBuffers.add(new OutputBuffer(FLUSH_SIZE + 64 * 1024));
+                }
+                
+                encoding = start("encode", () -> {
+                    OutputBuffer buffer = take(freeBuffers, encode);
+                    RowBatch current;
+                    long begin;
+                    
+                    encoder.begin(buffer);
+                    
+                    while((current = take(fullBatches, encode)) != end)
+                    {
+                        begin = System.nanoTime();
+                        
+                        for(int i=0; i<current.size(); i++) encoder.encode(current, i, buffer);
+                        
+                        encode.working += System.nanoTime() - begin;
+                        
+                        put(freeBatches, current, encode);
+                        
+                        if(buffer.size() >= FLUSH_SIZE)
+                        {
+                            put(fullBuffers, buffer, encode);
+                            
+                            buffer = take(freeBuffers, encode);
+                        }
+                    }
+                    
+                    encoder.end(buffer);
+                    
+                    put(fullBuffers, buffer, encode);
+                    put(fullBuffers, done, encode);
+                });
+                
+                writing = start("write", () -> {
+                    OutputBuffer buffer;
+                    long begin;
+                    
+                    while((buffer = take(fullBuffers, write)) != done)
+                    {
+                        begin = System.nanoTime();
+                        
+                        buffer.drainTo(out);
+                        
+                        write.working += System.nanoTime() - begin;
+                        
+                        put(freeBuffers, buffer, write);
+                    }
+                    
+                    begin = System.nanoTime();
+                    
+                    out.flush();
+                    
+                    write.working += System.nanoTime() - begin;
+                });
+                
+                try
+                {
+                    do
+                    {
+                        batch = take(freeBatches, fetch);
+                        time = System.nanoTime();
+                        
+                        rows += batch.fill(set);
+                        
+                        fetch.working += System.nanoTime() - time;
+                        
+                        put(fullBatches, batch, fetch);
+                    }
+                    while(batch.size() == batch.getCapacity());
+                    
+                    put(fullBatches, end, fetch);
+                }
+                catch(Exception e)
+                {
+                    if(failure == null) failure = e;
+                }
+                
+                encoding.join();
+                writing.join();
+            }
+        }
+        finally
+        {
+            if(autoCommit)
+            {
+                connection.rollback();
+                connection.setAutoCommit(true);
+            }
+        }
+        
+        if(failure instanceof Exception) throw (Exception)failure;
+        if(failure instanceof Error) throw (Error)failure;
+        
+        report(System.nanoTime() - started);
+        
+        return rows;
+    }
+    
+    private void report(long elapsed)
+    {
+        Stage limit = fetch;
+        
+        if(encode.working > limit.working) limit = encode;
+        if(write.working > limit.working) limit = write;
+        
+        System.err.println("Pipeline utilization over " + (elapsed / 1000000) + "ms:");
+        System.err.println(fetch.describe(elapsed));
+        System.err.println(encode.describe(elapsed));
+        System.err.println(write.describe(elapsed));
+        System.err.println("The export is limited by " + limit.resource + ".");
+    }
+    
+    private static interface StageTask
+    {
+        public void run() throws Exception;
+    }
+    
+    private static class Stage
+    {
+        private final String name;
+        private final String resource;
+        
+        private volatile long working;
+        private volatile long waiting;
+        
+        public Stage(String name, String resource)
+        {
+            this.name = name;
+            this.resource = resource;
+        }
+        
+        public String describe(long elapsed)
+        {
+            return String.format("    %-7s %5.1f%% busy, %5.1f%% waiting", name, (working * 100.0) / elapsed, (waiting * 100.0) / elapsed);
+        }
+    }
+}
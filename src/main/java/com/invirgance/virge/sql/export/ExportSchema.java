@@ -0,0 +1,499 @@
+/*
+ * Copyright 2024 INVIRGANCE LLC
+
+Permission is hereby granted, free of charge, to any person obtaining a copy 
+of this software and associated documentation files (the “Software”), to deal 
+in the Software without restriction, including without limitation the rights to 
+use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies 
+of the Software, and to permit persons to whom the Software is furnished to do 
+so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all 
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR 
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, 
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER 
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE 
+SOFTWARE.
+ */
+package com.invirgance.virge.sql.export;
+
+import com.invirgance.convirgance.jdbc.AutomaticDrivers;
+import com.invirgance.convirgance.jdbc.StoredConnection;
+import com.invirgance.convirgance.jdbc.StoredConnections;
+import com.invirgance.convirgance.json.JSONObject;
+import com.invirgance.convirgance.output.CSVOutput;
+import com.invirgance.convirgance.output.DelimitedOutput;
+import com.invirgance.convirgance.output.JBINOutput;
+import com.invirgance.convirgance.output.JSONOutput;
+import com.invirgance.convirgance.output.Output;
+import com.invirgance.convirgance.output.OutputCursor;
+import com.invirgance.convirgance.target.FileTarget;
+import static com.invirgance.virge.Virge.HELP_DESCRIPTION_SPACING;
+import static com.invirgance.virge.Virge.HELP_SPACING;
+import com.invirgance.virge.sql.Dialect;
+import static com.invirgance.virge.sql.VirgeSQL.exit;
+import static com.invirgance.virge.sql.VirgeSQL.getFile;
+import static com.invirgance.virge.sql.VirgeSQL.printToolHelp;
+import com.invirgance.virge.sql.metadata.SchemaMetadata;
+import com.invirgance.virge.sql.pool.ConnectionPools;
+import com.invirgance.virge.tool.Tool;
+import java.io.File;
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Exports every table of a database to a directory, one file per table, using
+ * a bounded number of concurrent connections. The largest tables are started
+ * first so that they don't end up running alone at the end of the export.
+ * Tables are named by schema and table (e.g. sales.orders.csv) so tables with
+ * the same name in different schemas don't overwrite each other.
+ * 
+ * @author tadghh
+ */
+public class ExportSchema implements Tool
+{
+    public static final String DESCRIPTION = "Export every table of a database to a directory, one file per table.";
+    
+    private File directory;
+    private String outputType;
+    private char outputDelimiter;
+    private int maxConnections = 4;
+    
+    private boolean allowNative = true;
+    private boolean poolStatistics;
+    private boolean allowDirect = true;
+    private boolean snapshot;
+    
+    private final List<String> include = new ArrayList<>();
+    
+    private String jdbcURL;
+    private String username;
+    private String password;
+    
+    private StoredConnection connection;
+    private String connectionName;
+    
+    private boolean error(String message)
+    {
+        System.err.println(message);
+        
+        return false;
+    }
+    
+    @Override
+    public String getName()
+    {
+        return "schema";
+    }
+    
+    @Override
+    public String getShortDescription()
+    {
+        return DESCRIPTION;
+    }
+    
+    @Override
+    public String[] getHelp()
+    {
+        return new String[] {
+            HELP_SPACING + "--output <DIRECTORY>",
+            HELP_SPACING + "-o <DIRECTORY>",
+            HELP_SPACING + HELP_DESCRIPTION_SPACING + "The directory to write the table files and manifest.json to.",
+            "",
+            HELP_SPACING + "--output-type [FORMAT]",
+            HELP_SPACING + "-i [FORMAT]",
+            HELP_SPACING + HELP_DESCRIPTION_SPACING + "Specify the format of the output files. Defaults to csv.",
+            "",
+            HELP_SPACING + "--output-delimiter [DELIMITER]",
+            HELP_SPACING + "-S [DELIMITER]",
+            HELP_SPACING + HELP_DESCRIPTION_SPACING + "Set the column delimiter to use for delimited files.",
+            "",
+            HELP_SPACING + "--max-connections <COUNT>",
+            HELP_SPACING + "-m <COUNT>",
+            HELP_SPACING + HELP_DESCRIPTION_SPACING + "The number of tables to export concurrently. Each uses its own connection. Defaults to 4.",
+            "",
+            HELP_SPACING + "--table <NAME>",
+            HELP_SPACING + "-t <NAME>",
+            HELP_SPACING + HELP_DESCRIPTION_SPACING + "Only export the named table, e.g. orders or sales.orders. Can be specified more than once.",
+            "",
+            HELP_SPACING + "--snapshot",
+            HELP_SPACING + HELP_DESCRIPTION_SPACING + "Read all tables from one consistent point in time using a single read-only",
+            HELP_SPACING + HELP_DESCRIPTION_SPACING + "transaction. PostgreSQL shares the snapshot with parallel connections, other",
+            HELP_SPACING + HELP_DESCRIPTION_SPACING + "databases export the tables one at a time on the snapshot's connection.",
+            HELP_SPACING + HELP_DESCRIPTION_SPACING + "SQL Server databases must have ALLOW_SNAPSHOT_ISOLATION turned on.",
+            "",
+            HELP_SPACING + "--pool-stats",
+            HELP_SPACING + HELP_DESCRIPTION_SPACING + "Print how long workers waited for pooled connections when finished.",
+            "",
+            HELP_SPACING + "--no-native",
+            HELP_SPACING + HELP_DESCRIPTION_SPACING + "Disable the database specific export path (e.g. PostgreSQL COPY).",
+            "",
+            HELP_SPACING + "--generic-encoding",
+            HELP_SPACING + HELP_DESCRIPTION_SPACING + "Convert every row to a JSON object before writing it.",
+            "",           
+            HELP_SPACING + "--help",
+            HELP_SPACING + "-h",
+            HELP_SPACING + HELP_DESCRIPTION_SPACING  + "Display this menu.",                 
+            "",
+            "Connection Options: ",
+            "",
+            HELP_SPACING + "Stored Connection:",
+            "",
+            HELP_SPACING + "--connection-name <STORED_CONNECTION>",
+            HELP_SPACING + HELP_DESCRIPTION_SPACING + "The name of the stored connection to use.",
+            "",
+            HELP_SPACING + "Manual:",
+            "",
+            HELP_SPACING + "--username <USERNAME>",
+            HELP_SPACING + "-u <USERNAME>",
+            HELP_SPACING + HELP_DESCRIPTION_SPACING + "The username to use when logging into the database",
+            "",
+            HELP_SPACING + "--password <PASSWORD>",
+            HELP_SPACING + "-p <PASSWORD>",
+            HELP_SPACING + HELP_DESCRIPTION_SPACING + "The password to use when logging into the database",
+            "",
+            HELP_SPACING + "--jdbc-url <URL>",
+            HELP_SPACING + "-j <URL>",
+            HELP_SPACING + HELP_DESCRIPTION_SPACING + "Alternate method of specifying the JDBC connection url ",
+        };
+    }
+    
+    @Override
+    public boolean parse(String[] args, int start) throws Exception
+    {
+        if(start == args.length) return false;
+        
+        for(int i=start; i<args.length; i++)
+        {
+            // Handle single-letter params with no spaces in them
+            if(args[i].length() > 2 && args[i].charAt(0) == '-' && Character.isLetterOrDigit(args[i].charAt(1)))
+            {
+                parse(new String[]{ args[i].substring(0, 2), args[i].substring(2) }, 0);
+                
+                continue;
+            }
+            
+            switch(args[i])
+            {                
+                case "--output-delimiter":
+                case "-S":
+                    outputDelimiter = args[++i].charAt(0);
+                    break;
+                    
+                case "--output-type":
+                case "-i":
+                    outputType = args[++i];
+                    break;
+                    
+                case "--output":
+                case "-o":
+                    directory = getFile(args[++i]);
+                    break;
+                    
+                case "--max-connections":
+                case "-m":
+                    maxConnections = Integer.parseInt(args[++i]);
+                    break;
+                    
+                case "--table":
+                case "-t":
+                    include.add(args[++i]);
+                    break;
+                    
+                case "--snapshot":
+                    snapshot = true;
+                    break;
+                    
+                case "--pool-stats":
+                    poolStatistics = true;
+                    break;
+                    
+                case "--no-native":
+                    allowNative = false;
+                    break;
+                    
+                case "--generic-encoding":
+                    allowDirect = false;
+                    break;
+                    
+                case "--connection-name":
+                    connectionName = args[++i];
+                    break;
+                    
+                case "--jdbc-url":
+                case "-j":
+                    jdbcURL = args[++i];
+                    break;                  
+                    
+                case "--username":
+                case "-u":
+                    username = args[++i];
+                    break;
+                    
+                case "--password":
+                case "-p":
+                    password = args[++i];
+                    break;
+                    
+                case "--help":
+                case "-h":
+                    printToolHelp(this);                    
+                
+                default:
+                    System.err.println("Unknown parameter: " + args[i]);
+                    printToolHelp(this);
+            }
+        }
+        
+        if(directory == null) return error("No output directory specified!");
+        if(outputType == null) outputType = "csv";
+        if(getOutputType(outputType) == null) return error("Unknown output type: " + outputType);
+        if(maxConnections < 1) return error("At least one connection is required!");
+        
+        if(!directory.isDirectory() && !directory.mkdirs()) return error("Unable to create directory: " + directory);
+        
+        if(connectionName != null)
+        {
+            connection = StoredConnections.getConnection(connectionName);
+            
+            if(connection == null)
+            {
+                exit(255, "Saved connection " + connectionName + " does not exist!");
+            }
+        }
+        else
+        {
+            if(jdbcURL == null) return error("JDBC URL not specified!");
+            if(username == null) return error("Username not specified!");
+            
+            connection = AutomaticDrivers.getDriverByURL(jdbcURL)
+                    .createConnection(null)
+                    .driver()
+                    .url(jdbcURL)
+                    .password(password)
+                    .username(username)
+                    .build();
+        }
+        
+        return true;
+    }
+    
+    private Output getOutputType(String type)
+    {
+        switch(type)
+        {
+            case "csv": 
+                return new CSVOutput();
+            
+            case "tsv":
+                return new DelimitedOutput('\t');
+            
+            case "pipe":
+                return new DelimitedOutput('|');
+            
+            case "delimited":
+                
+                if(outputDelimiter != 0) return new DelimitedOutput(outputDelimiter);
+                
+                return new DelimitedOutput();
+            
+            case "jbin":
+                return new JBINOutput();
+                
+            case "json":
+                return new JSONOutput();
+                
+            default:
+                return null;
+        }
+    }
+    
+    private char getDelimiter()
+    {
+        switch(outputType)
+        {
+            case "csv":
+                return ',';
+                
+            case "tsv":
+                return '\t';
+                
+            case "pipe":
+                return '|';
+                
+            case "delimited":
+                return outputDelimiter;
+                
+            default:
+                return 0;
+        }
+    }
+    
+    private String getExtension()
+    {
+        switch(outputType)
+        {
+            case "pipe":
+            case "delimited":
+                return "txt";
+                
+            default:
+                return outputType;
+        }
+    }
+    
+    private List<String> getTables() throws Exception
+    {
+        List<String> names = new ArrayList<>();
+        Map<String,Long> sizes;
+        
+        // Tables can be included by their qualified name or just their name
+        for(String table : SchemaMetadata.getQualifiedTableNames(connection)) 
+        {
+            if(include.isEmpty() || include.stream().anyMatch(name -> name.equalsIgnoreCase(table) || name.equalsIgnoreCase(table.substring(table.lastIndexOf('.') + 1)))) names.add(table);
+        }
+        
+        if(names.size() < include.size()) System.err.println("Warning: " + (include.size() - names.size()) + " requested table(s) were not found");
+        
+        try(Connection jdbc = ConnectionPools.getPool(connection).getConnection())
+        {
+            sizes = TableSizeEstimator.estimate(jdbc, Dialect.getDialect(connection.getDriver()), names.toArray(new String[names.size()]));
+        }
+        
+        // Largest first, so the long running tables overlap with the rest of the work
+        names.sort((left, right) -> Long.compare(sizes.getOrDefault(right.toLowerCase(), 0L), sizes.getOrDefault(left.toLowerCase(), 0L)));
+        
+        return names;
+    }
+    
+    private long export(TableExporter exporter, Snapshot snapshot) throws Exception
+    {
+        Connection worker;
+        
+        if(snapshot == null) return exporter.export();
+        if(!snapshot.isShareable()) return exporter.export(snapshot.getConnection());
+        
+        worker = snapshot.join();
+        
+        try
+        {
+            return exporter.export(worker);
+        }
+        finally
+        {
+            snapshot.leave(worker);
+        }
+    }
+    
+    private JSONObject exportTable(String table, Snapshot snapshot)
+    {
+        File file = new File(directory, table + "." + getExtension());
+        JSONObject result = new JSONObject(true);
+        TableExporter exporter = new TableExporter(connection, table, getOutputType(outputType), outputType, getDelimiter(), new FileTarget(file));
+        long start = System.currentTimeMillis();
+        
+        exporter.setAllowNative(allowNative);
+        exporter.setAllowDirect(allowDirect);
+        
+        result.put("table", table);
+        result.put("file", file.getName());
+        
+        try
+        {
+            result.put("rows", export(exporter, snapshot));
+            result.put("bytes", file.length());
+            result.put("status", "complete");
+            
+            System.out.println("Exported " + table);
+        }
+        catch(Exception e)
+        {
+            result.put("status", "failed");
+            result.put("error", String.valueOf(e.getMessage()));
+            
+            System.err.println("Failed to export " + table + ": " + e.getMessage());
+        }
+        
+        result.put("seconds", (System.currentTimeMillis() - start) / 1000.0);
+        
+        return result;
+    }
+   
+    @Override
+    public void execute() throws Exception
+    {
+        List<String> tables;
+        
+        // One connection per worker, plus the snapshot's coordinator
+        ConnectionPools.getPool(connection, maxConnections + 1);
+        
+        tables = getTables();
+        
+        if(!snapshot)
+        {
+            export(tables, null, maxConnections);
+            return;
+        }
+        
+        try(Snapshot image = new Snapshot(connection))
+        {
+            if(image.isShareable())
+            {
+                export(tables, image, maxConnections);
+            }
+            else
+            {
+                System.err.println("Snapshots can't be shared between connections on this database, exporting tables one at a time.");
+                
+                export(tables, image, 1);
+            }
+        }
+    }
+    
+    private void export(List<String> tables, Snapshot snapshot, int threads) throws Exception
+    {           
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Future<JSONObject>> results = new ArrayList<>();
+        JSONObject result;
+        int failed = 0;
+        
+        try
+        {
+            for(String table : tables)
+            {
+                results.add(pool.submit(() -> exportTable(table, snapshot)));
+            }
+            
+            try(OutputCursor cursor = new JSONOutput().write(new FileTarget(new File(directory, "manifest.json"))))
+            {
+                for(Future<JSONObject> future : results)
+                {
+                    result = future.get();
+                    
+                    if(!"complete".equals(result.get("status"))) failed++;
+                    
+                    cursor.write(result);
+                }
+            }
+        }
+        finally
+        {
+            pool.shutdownNow();
+        }
+        
+        if(poolStatistics) ConnectionPools.printStatistics(System.err);
+        
+        if(failed > 0) exit(1, failed + " of " + results.size() + " table(s) failed to export. See " + new File(directory, "manifest.json"));
+        
+        System.out.println("Exported " + results.size() + " table(s) to " + directory);
+    }
+}
@@ -22,9 +22,8 @@ SOFTWARE.
 package com.invirgance.virge.sql.export;
 
 import com.invirgance.convirgance.ConvirganceException;
-import com.invirgance.convirgance.dbms.DBMS;
-import com.invirgance.convirgance.dbms.Query;
 import com.invirgance.convirgance.input.DelimitedInput;
+import com.invirgance.convirgance.jdbc.AutomaticDriver;
 import com.invirgance.convirgance.jdbc.AutomaticDrivers;
 import com.invirgance.convirgance.jdbc.StoredConnection;
 import com.invirgance.convirgance.jdbc.StoredConnections;
@@ -33,18 +32,25 @@ import com.invirgance.convirgance.output.DelimitedOutput;
 import com.invirgance.convirgance.output.JBINOutput;
 import com.invirgance.convirgance.output.JSONOutput;
 import com.invirgance.convirgance.output.Output;
-import com.invirgance.convirgance.output.OutputCursor;
 import com.invirgance.convirgance.target.FileTarget;
 import com.invirgance.convirgance.target.OutputStreamTarget;
 import com.invirgance.convirgance.target.Target;
 import static com.invirgance.virge.Virge.HELP_DESCRIPTION_SPACING;
 import static com.invirgance.virge.Virge.HELP_SPACING;
-import static com.invirgance.virge.Virge.exit;
+import com.invirgance.virge.sql.Dialect;
+import static com.invirgance.virge.sql.VirgeSQL.exit;
+import static com.invirgance.virge.sql.VirgeSQL.getFile;
+import static com.invirgance.virge.sql.VirgeSQL.parseBytes;
 import static com.invirgance.virge.sql.VirgeSQL.printToolHelp;
+import com.invirgance.virge.sql.drivers.TuningProfile;
+import com.invirgance.virge.sql.jfr.FlightRecording;
+import com.invirgance.virge.sql.jfr.Instrumentation;
+import com.invirgance.virge.sql.pool.ConnectionPools;
 import com.invirgance.virge.tool.Tool;
 import java.io.File;
 import java.io.IOException;
 import java.net.MalformedURLException;
+import java.sql.Connection;
 
 /**
  * Exports table data to a target file.
@@ -52,8 +58,25 @@ import java.net.MalformedURLException;
  */
 public class ExportTable implements Tool
 {
+    public static final String DESCRIPTION = "Export a tables data to a target file.";
+    
     private Target target;
     private Output output;
+    private String outputPath;
+    private String outputType;
+    
+    private long maxRowsPerFile;
+    private long maxBytesPerFile;
+    private boolean allowNative = true;
+    private boolean allowDirect = true;
+    private boolean pipeline;
+    private boolean tuning = true;
+    private File jfr;
+    
+    private String pageBy;
+    private int pageSize = 10000;
+    private String checkpoint;
+    private boolean resume;
 
     private char outputDelimiter;
     private String tableName;
@@ -81,7 +104,7 @@ public class ExportTable implements Tool
     @Override
     public String getShortDescription()
     {
-        return "Export a tables data to a target file.";
+        return DESCRIPTION;
     }
     
     @Override
@@ -103,6 +126,47 @@ public class ExportTable implements Tool
             HELP_SPACING + "--name <NAME>",
             HELP_SPACING + "-n <NAME>",
             HELP_SPACING + HELP_DESCRIPTION_SPACING + "Specifies the name of the table to export from.",
+            "",
+            HELP_SPACING + "--max-rows-per-file <ROWS>",
+            HELP_SPACING + HELP_DESCRIPTION_SPACING + "Roll over to a new numbered part file after this many rows.",
+            HELP_SPACING + HELP_DESCRIPTION_SPACING + "A manifest listing the parts and their checksums is written at the end.",
+            "",
+            HELP_SPACING + "--max-bytes-per-file <BYTES>",
+            HELP_SPACING + HELP_DESCRIPTION_SPACING + "Roll over to a new numbered part file once a part reaches this size.",
+            HELP_SPACING + HELP_DESCRIPTION_SPACING + "Accepts k, m and g suffixes (e.g. 512m). Parts may slightly exceed the limit.",
+            "",
+            HELP_SPACING + "--no-native",
+            HELP_SPACING + HELP_DESCRIPTION_SPACING + "Disable the database specific export path (e.g. PostgreSQL COPY) for delimited",
+            HELP_SPACING + HELP_DESCRIPTION_SPACING + "formats and always read the data through JDBC.",
+            "",           
+            HELP_SPACING + "--no-tuning",
+            HELP_SPACING + HELP_DESCRIPTION_SPACING + "Don't apply the driver's bulk-extract properties (see 'sql connection list').",
+            "",           
+            HELP_SPACING + "--jfr <FILE>",
+            HELP_SPACING + HELP_DESCRIPTION_SPACING + "Write a Java Flight Recording of the export, including fetch round trip events.",
+            "",           
+            HELP_SPACING + "--generic-encoding",
+            HELP_SPACING + HELP_DESCRIPTION_SPACING + "Convert every row to a JSON object before writing it instead of encoding",
+            HELP_SPACING + HELP_DESCRIPTION_SPACING + "csv, delimited and json output directly from the JDBC result set.",
+            "",           
+            HELP_SPACING + "--pipeline",
+            HELP_SPACING + HELP_DESCRIPTION_SPACING + "Fetch, encode and write on separate threads when encoding directly, and",
+            HELP_SPACING + HELP_DESCRIPTION_SPACING + "report how busy each stage was to show which one limits the export.",
+            "",           
+            HELP_SPACING + "--page-by <COLUMN>",
+            HELP_SPACING + HELP_DESCRIPTION_SPACING + "Export in pages ordered by a unique, non-null column instead of one long",
+            HELP_SPACING + HELP_DESCRIPTION_SPACING + "running query. Progress is saved to a checkpoint file after each page.",
+            HELP_SPACING + HELP_DESCRIPTION_SPACING + "Supports csv, tsv, pipe, delimited and json output to a file.",
+            "",           
+            HELP_SPACING + "--page-size <ROWS>",
+            HELP_SPACING + HELP_DESCRIPTION_SPACING + "The number of rows fetched per page. Defaults to 10000.",
+            "",           
+            HELP_SPACING + "--checkpoint <PATH>",
+            HELP_SPACING + HELP_DESCRIPTION_SPACING + "The file paged exports save their progress to. Defaults to the output",
+            HELP_SPACING + HELP_DESCRIPTION_SPACING + "path with .checkpoint appended. Removed when the export completes.",
+            "",           
+            HELP_SPACING + "--resume",
+            HELP_SPACING + HELP_DESCRIPTION_SPACING + "Continue a paged export from its checkpoint instead of starting over.",
             "",           
             HELP_SPACING + "--help",
             HELP_SPACING + "-h",
@@ -134,6 +198,8 @@ public class ExportTable implements Tool
     @Override
     public boolean parse(String[] args, int start) throws Exception
     {
+        AutomaticDriver driver;
+        
         if(start == args.length) return false;
 
         for(int i=start; i<args.length; i++)
@@ -166,11 +232,47 @@ public class ExportTable implements Tool
                     
                 case "--output":
                 case "-s":
-                    target = getTarget(args[++i]);
+                    outputPath = args[++i];
                     
                     if(output == null) output = detectTarget(args[i]);
                         
                     break;
+                    
+                case "--max-rows-per-file":
+                    maxRowsPerFile = Long.parseLong(args[++i]);
+                    break;
+                    
+                case "--max-bytes-per-file":
+                    maxBytesPerFile = parseBytes(args[++i]);
+                    break;
+                    
+                case "--no-native":
+                    allowNative = false;
+                    break;
+                    
+                case "--generic-encoding":
+                    allowDirect = false;
+                    break;
+                    
+                case "--pipeline":
+                    pipeline = true;
+                    break;
+                    
+                case "--page-by":
+                    pageBy = args[++i];
+                    break;
+                    
+                case "--page-size":
+                    pageSize = Integer.parseInt(args[++i]);
+                    break;
+                    
+                case "--checkpoint":
+                    checkpoint = args[++i];
+                    break;
+                    
+                case "--resume":
+                    resume = true;
+                    break;
                                         
                 case "--name":
                 case "-n":
@@ -196,6 +298,14 @@ public class ExportTable implements Tool
                     password = args[++i];
                     break;
                     
+                case "--jfr":
+                    jfr = getFile(args[++i]);
+                    break;
+                    
+                case "--no-tuning":
+                    tuning = false;
+                    break;
+                    
                 case "--help":
                 case "-h":
                     printToolHelp(this);                    
@@ -207,8 +317,31 @@ public class ExportTable implements Tool
             }
         }
         
+        if(outputPath == null) return error("No source specified!");
+        
+        if(pageBy != null)
+        {
+            if(outputPath.equals("-")) return error("Paged export requires a file path, not piped output!");
+            if(maxRowsPerFile > 0 || maxBytesPerFile > 0) return error("Paged export can't be combined with rolling output!");
+            if(pageSize < 1) return error("Page size must be at least 1!");
+        }
+        else if(resume)
+        {
+            return error("--resume requires --page-by!");
+        }
+        
+        if(maxRowsPerFile > 0 || maxBytesPerFile > 0)
+        {
+            if(outputPath.equals("-")) return error("Rolling output requires a file path, not piped output!");
+            
+            target = new RollingTarget(getFile(outputPath), maxRowsPerFile, maxBytesPerFile);
+        }
+        else
+        {
+            target = getTarget(outputPath);
+        }
+        
         if(tableName == null) return error("No table name specified, and cannot be inferred from source! Use -n to specify a name.");       
-        if(target == null) return error("No source specified!");
         if(output == null) return error("No input type specified and unable to autodetect");
         
         if(connectionName != null)
@@ -219,16 +352,20 @@ public class ExportTable implements Tool
             {
                 exit(255, "Saved connection " + connectionName + " does not exist!");
             }
+            
+            if(tuning) TuningProfile.apply(connection, TuningProfile.BULK_EXTRACT);
         }
         else
         {
             if(jdbcURL == null) return error("JDBC URL not specified!");
             if(username == null) return error("Username not specified!");
             
-            connection = AutomaticDrivers.getDriverByURL(jdbcURL)
+            driver = AutomaticDrivers.getDriverByURL(jdbcURL);
+            
+            connection = driver
                     .createConnection(null)
                     .driver()
-                    .url(jdbcURL)
+                    .url(tuning ? TuningProfile.apply(jdbcURL, driver, TuningProfile.BULK_EXTRACT) : jdbcURL)
                     .password(password)
                     .username(username)
                     .build();
@@ -243,7 +380,7 @@ public class ExportTable implements Tool
         
         if(path.equals("-")) return new OutputStreamTarget(System.out);
 
-        file = new File(path);
+        file = getFile(path);
         
         if(!file.isFile())
         {
@@ -261,6 +398,10 @@ public class ExportTable implements Tool
     {
         path = path.toLowerCase();
         
+        if(path.endsWith(".json")) outputType = "json";
+        if(path.endsWith(".csv")) outputType = "csv";
+        if(path.endsWith(".jbin")) outputType = "jbin";
+        
         if(path.endsWith(".json")) return new JSONOutput();
         if(path.endsWith(".csv")) return new CSVOutput(); 
         if(path.endsWith(".jbin")) return new JBINOutput(true);
@@ -268,25 +409,86 @@ public class ExportTable implements Tool
         return null;
     }
    
+    private char getDelimiter()
+    {
+        if(outputType == null) return 0;
+        
+        switch(outputType)
+        {
+            case "csv":
+                return ',';
+                
+            case "tsv":
+                return '\t';
+                
+            case "pipe":
+                return '|';
+                
+            case "delimited":
+                return outputDelimiter;
+                
+            default:
+                return 0;
+        }
+    }
+    
+    private void executePaged() throws Exception
+    {
+        File file = getFile(outputPath);
+        File progress = (checkpoint != null) ? getFile(checkpoint) : PagedExporter.getDefaultCheckpoint(file);
+        PagedExporter exporter = new PagedExporter(tableName, pageBy, Dialect.getDialect(connection.getDriver()));
+        long rows;
+        
+        if(!RecordEncoder.isSupported(outputType, getDelimiter())) exit(255, "Paged export does not support " + outputType + " output");
+        if(!resume && progress.exists()) exit(255, "Checkpoint " + progress + " exists, use --resume to continue the previous export");
+        
+        exporter.setPageSize(pageSize);
+        
+        try(Connection jdbc = Instrumentation.wrap(ConnectionPools.getPool(connection).getConnection(), connection.getName(), tableName))
+        {
+            rows = exporter.export(jdbc, outputType, getDelimiter(), file, progress, resume);
+        }
+        
+        System.out.println("Exported " + rows + " rows");
+        System.out.println("Export completed");
+    }
+    
     @Override
     public void execute() throws Exception
+    {
+        try(FlightRecording recording = FlightRecording.start(jfr))
+        {
+            export();
+        }
+    }
+    
+    private void export() throws Exception
     {           
-        DBMS dbms; 
-
-        dbms = connection.getDBMS();
+        TableExporter exporter = new TableExporter(connection, tableName, output, outputType, getDelimiter(), target);
         
-        var sourceIterable = dbms.query(new Query("SELECT * FROM " + tableName)).iterator();
+        if(pageBy != null)
+        {
+            executePaged();
+            return;
+        }
+        
+        exporter.setAllowNative(allowNative);
+        exporter.setAllowDirect(allowDirect);
+        exporter.setPipeline(pipeline);
+        exporter.export();
         
-        try(OutputCursor cursor = output.write(target))
+        if(target instanceof RollingTarget)
         {
-            while(sourceIterable.hasNext()) cursor.write(sourceIterable.next());
-        } 
+            System.out.println("Wrote " + ((RollingTarget)target).getPartCount() + " part(s), manifest: " + ((RollingTarget)target).getManifestFile());
+        }
         
         System.out.println("Export completed");
     }    
     
     private Output getOutputType(String type)
     {
+        outputType = type;
+        
         switch(type)
         {
             case "csv": 
@@ -0,0 +1,192 @@
+/*
+ * Copyright 2024 INVIRGANCE LLC
+
+Permission is hereby granted, free of charge, to any person obtaining a copy 
+of this software and associated documentation files (the “Software”), to deal 
+in the Software without restriction, including without limitation the rights to 
+use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies 
+of the Software, and to permit persons to whom the Software is furnished to do 
+so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all 
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR 
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, 
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER 
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE 
+SOFTWARE.
+ */
+package com.invirgance.virge.sql.export;
+
+import java.math.BigDecimal;
+
+/**
+ * Encodes rows as a JSON array of objects.
+ * 
+ * @author tadghh
+ */
+public class JSONRecordEncoder extends RecordEncoder
+{
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+    
+    private final byte[][] keys;
+    private boolean first = true;
+    
+    public JSONRecordEncoder(ExportColumn[] columns)
+    {
+        super(columns);
+        
+        OutputBuffer buffer = new OutputBuffer(256);
+        
+        this.keys = new byte[columns.length][];
+        
+        // Column names are escaped once up front rather than per row
+        for(int i=0; i<columns.length; i++)
+        {
+            buffer.reset();
+            
+            if(i > 0) buffer.append(',');
+            
+            writeString(columns[i].getName(), buffer);
+            buffer.append(':');
+            
+            keys[i] = buffer.toByteArray();
+        }
+    }
+    
+    @Override
+    public void begin(OutputBuffer buffer)
+    {
+        buffer.append('[');
+    }
+    
+    @Override
+    public void resume(long records)
+    {
+        first = (records < 1);
+    }
+    
+    @Override
+    public void end(OutputBuffer buffer)
+    {
+        if(!first) buffer.append('\n');
+        
+        buffer.append(']');
+        buffer.append('\n');
+    }
+    
+    @Override
+    protected void startRecord(OutputBuffer buffer)
+    {
+        if(!first) buffer.append(',');
+        
+        buffer.append('\n');
+        buffer.append('{');
+        
+        first = false;
+    }
+    
+    @Override
+    protected void endRecord(OutputBuffer buffer)
+    {
+        buffer.append('}');
+    }
+    
+    @Override
+    protected void startValue(int column, OutputBuffer buffer)
+    {
+        buffer.append(keys[column]);
+    }
+    
+    @Override
+    protected void writeNull(OutputBuffer buffer)
+    {
+        buffer.appendAscii("null");
+    }
+    
+    @Override
+    protected void writeLong(long value, OutputBuffer buffer)
+    {
+        buffer.append(value);
+    }
+    
+    @Override
+    protected void writeDouble(double value, OutputBuffer buffer)
+    {
+        // JSON has no representation for NaN or infinity
+        if(Double.isNaN(value) || Double.isInfinite(value)) writeNull(buffer);
+        else buffer.append(value);
+    }
+    
+    @Override
+    protected void writeDecimal(BigDecimal value, OutputBuffer buffer)
+    {
+        buffer.appendAscii(value.toPlainString());
+    }
+    
+    @Override
+    protected void writeBoolean(boolean value, OutputBuffer buffer)
+    {
+        buffer.appendAscii(value ? "true" : "false");
+    }
+    
+    @Override
+    protected void writeString(String value, OutputBuffer buffer)
+    {
+        int length = value.length();
+        char c;
+        
+        buffer.append('"');
+        
+        for(int i=0; i<length; )
+        {
+            c = value.charAt(i);
+            
+            switch(c)
+            {
+                case '"':
+                    buffer.appendAscii("\\\"");
+                    i++;
+                    break;
+                    
+                case '\\':
+                    buffer.appendAscii("\\\\");
+                    i++;
+                    break;
+                    
+                case '\n':
+                    buffer.appendAscii("\\n");
+                    i++;
+                    break;
+                    
+                case '\r':
+                    buffer.appendAscii("\\r");
+                    i++;
+                    break;
+                    
+                case '\t':
+                    buffer.appendAscii("\\t");
+                    i++;
+                    break;
+                    
+                default:
+                    if(c < 0x20)
+                    {
+                        buffer.appendAscii("\\u00");
+                        buffer.append(HEX[c >> 4]);
+                        buffer.append(HEX[c & 0xF]);
+                        i++;
+                    }
+                    else
+                    {
+                        i += buffer.appendUTF8(c, (i + 1 < length) ? value.charAt(i + 1) : 0);
+                    }
+            }
+        }
+        
+        buffer.append('"');
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright 2024 INVIRGANCE LLC
+
+Permission is hereby granted, free of charge, to any person obtaining a copy 
+of this software and associated documentation files (the “Software”), to deal 
+in the Software without restriction, including without limitation the rights to 
+use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies 
+of the Software, and to permit persons to whom the Software is furnished to do 
+so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all 
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR 
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, 
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER 
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE 
+SOFTWARE.
+ */
+package com.invirgance.virge.sql.export;
+
+import java.io.OutputStream;
+import java.sql.Connection;
+
+/**
+ * A database specific export path that streams delimited data straight from 
+ * the database server, bypassing the ResultSet to JSONObject conversion.
+ * 
+ * @author tadghh
+ */
+public interface NativeExporter
+{
+    /**
+     * Checks if this exporter can produce the requested delimited format.
+     * 
+     * @param format The output type (csv, tsv, pipe or delimited)
+     * @param delimiter The column delimiter
+     * @return true if the native path can write the format
+     */
+    public boolean supports(String format, char delimiter);
+    
+    /**
+     * Streams the contents of the table, including a header row, to the output stream.
+     * 
+     * @param connection An open connection to the database
+     * @param table The name of the table to export
+     * @param format The output type (csv, tsv, pipe or delimited)
+     * @param delimiter The column delimiter
+     * @param out The stream to write the data to
+     * @return The number of rows exported
+     * @throws Exception If the export fails
+     */
+    public long export(Connection connection, String table, String format, char delimiter, OutputStream out) throws Exception;
+}
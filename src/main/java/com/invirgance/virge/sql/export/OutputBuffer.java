@@ -0,0 +1,274 @@
+/*
+ * Copyright 2024 INVIRGANCE LLC
+
+Permission is hereby granted, free of charge, to any person obtaining a copy 
+of this software and associated documentation files (the “Software”), to deal 
+in the Software without restriction, including without limitation the rights to 
+use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies 
+of the Software, and to permit persons to whom the Software is furnished to do 
+so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all 
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR 
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, 
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER 
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE 
+SOFTWARE.
+ */
+package com.invirgance.virge.sql.export;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * A reusable, growable byte buffer that encoders write UTF-8 text into. The 
+ * buffer is drained to an output stream and reset, so a single instance is 
+ * used for the lifetime of an export.
+ * 
+ * @author tadghh
+ */
+public class OutputBuffer
+{
+    private byte[] buffer;
+    private int size;
+    
+    public OutputBuffer()
+    {
+        this(64 * 1024);
+    }
+    
+    public OutputBuffer(int capacity)
+    {
+        this.buffer = new byte[capacity];
+    }
+    
+    private void ensure(int additional)
+    {
+        if(size + additional <= buffer.length) return;
+        
+        buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, size + additional));
+    }
+    
+    /**
+     * Returns the number of bytes currently held in the buffer.
+     * 
+     * @return The size in bytes
+     */
+    public int size()
+    {
+        return size;
+    }
+    
+    /**
+     * Returns the capacity of the underlying array.
+     * 
+     * @return The capacity in bytes
+     */
+    public int capacity()
+    {
+        return buffer.length;
+    }
+    
+    /**
+     * Empties the buffer without releasing its memory.
+     */
+    public void reset()
+    {
+        size = 0;
+    }
+    
+    /**
+     * Writes the buffered bytes to the stream and resets the buffer.
+     * 
+     * @param out The stream to write to
+     * @throws IOException If the stream can't be written to
+     */
+    public void drainTo(OutputStream out) throws IOException
+    {
+        out.write(buffer, 0, size);
+        
+        size = 0;
+    }
+    
+    /**
+     * Returns a copy of the buffered bytes.
+     * 
+     * @return The buffer's contents
+     */
+    public byte[] toByteArray()
+    {
+        return Arrays.copyOf(buffer, size);
+    }
+    
+    public OutputBuffer append(byte[] data)
+    {
+        ensure(data.length);
+        
+        System.arraycopy(data, 0, buffer, size, data.length);
+        
+        size += data.length;
+        
+        return this;
+    }
+    
+    public OutputBuffer append(byte b)
+    {
+        ensure(1);
+        
+        buffer[size++] = b;
+        
+        return this;
+    }
+    
+    /**
+     * Appends a character encoded as UTF-8, such as a delimiter like §. 
+     * Use append(String) for text that may contain surrogate pairs.
+     * 
+     * @param c The character
+     * @return This buffer
+     */
+    public OutputBuffer append(char c)
+    {
+        if(c < 0x80) return append((byte)c);
+        
+        appendUTF8(c, (char)0);
+        
+        return this;
+    }
+    
+    public OutputBuffer append(long value)
+    {
+        long remaining = value;
+        int digits = 1;
+        int index;
+        
+        if(value == Long.MIN_VALUE) return appendAscii(Long.toString(value));
+        
+        if(value < 0)
+        {
+            append('-');
+            remaining = -value;
+        }
+        
+        for(long scan = remaining; scan >= 10; scan /= 10) digits++;
+        
+        ensure(digits);
+        
+        index = size + digits - 1;
+        
+        do
+        {
+            buffer[index--] = (byte)('0' + (remaining % 10));
+            remaining /= 10;
+        }
+        while(remaining > 0);
+        
+        size += digits;
+        
+        return this;
+    }
+    
+    public OutputBuffer append(double value)
+    {
+        if(value == (long)value && Math.abs(value) < 1e15) return append((long)value).appendAscii(".0");
+        
+        return appendAscii(Double.toString(value));
+    }
+    
+    /**
+     * Appends text that is known to be ASCII (numbers, keywords, etc.)
+     * 
+     * @param value ASCII text
+     * @return This buffer
+     */
+    public OutputBuffer appendAscii(String value)
+    {
+        int length = value.length();
+        
+        ensure(length);
+        
+        for(int i=0; i<length; i++) buffer[size++] = (byte)value.charAt(i);
+        
+        return this;
+    }
+    
+    /**
+     * Appends a single character of text encoded as UTF-8.
+     * 
+     * @param c The character
+     * @param next The following character, used to complete surrogate pairs
+     * @return The number of chars consumed (2 for a surrogate pair, otherwise 1)
+     */
+    public int appendUTF8(char c, char next)
+    {
+        int code;
+        
+        if(c < 0x80)
+        {
+            append((byte)c);
+            return 1;
+        }
+        
+        if(c < 0x800)
+        {
+            ensure(2);
+            
+            buffer[size++] = (byte)(0xC0 | (c >> 6));
+            buffer[size++] = (byte)(0x80 | (c & 0x3F));
+            
+            return 1;
+        }
+        
+        if(Character.isHighSurrogate(c) && Character.isLowSurrogate(next))
+        {
+            code = Character.toCodePoint(c, next);
+            
+            ensure(4);
+            
+            buffer[size++] = (byte)(0xF0 | (code >> 18));
+            buffer[size++] = (byte)(0x80 | ((code >> 12) & 0x3F));
+            buffer[size++] = (byte)(0x80 | ((code >> 6) & 0x3F));
+            buffer[size++] = (byte)(0x80 | (code & 0x3F));
+            
+            return 2;
+        }
+        
+        // An unpaired surrogate can't be encoded
+        if(Character.isSurrogate(c))
+        {
+            append((byte)'?');
+            return 1;
+        }
+        
+        ensure(3);
+        
+        buffer[size++] = (byte)(0xE0 | (c >> 12));
+        buffer[size++] = (byte)(0x80 | ((c >> 6) & 0x3F));
+        buffer[size++] = (byte)(0x80 | (c & 0x3F));
+        
+        return 1;
+    }
+    
+    /**
+     * Appends text encoded as UTF-8.
+     * 
+     * @param value The text
+     * @return This buffer
+     */
+    public OutputBuffer append(String value)
+    {
+        int length = value.length();
+        
+        for(int i=0; i<length; ) 
+        {
+            i += appendUTF8(value.charAt(i), (i + 1 < length) ? value.charAt(i + 1) : 0);
+        }
+        
+        return this;
+    }
+}
@@ -0,0 +1,355 @@
+/*
+ * Copyright 2024 INVIRGANCE LLC
+
+Permission is hereby granted, free of charge, to any person obtaining a copy 
+of this software and associated documentation files (the “Software”), to deal 
+in the Software without restriction, including without limitation the rights to 
+use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies 
+of the Software, and to permit persons to whom the Software is furnished to do 
+so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all 
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR 
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, 
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER 
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE 
+SOFTWARE.
+ */
+package com.invirgance.virge.sql.export;
+
+import com.invirgance.convirgance.ConvirganceException;
+import com.invirgance.convirgance.json.JSONObject;
+import com.invirgance.virge.sql.Dialect;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.OffsetDateTime;
+import java.util.UUID;
+
+/**
+ * Exports a table in pages ordered by a unique key, using 
+ * WHERE key &gt; ? ORDER BY key with a row limit instead of one long running
+ * cursor. After each page the output is synced to disk and the last key is
+ * saved to a checkpoint file, allowing an interrupted export to be resumed
+ * from the last completed page.
+ * 
+ * @author tadghh
+ */
+public class PagedExporter
+{
+    private final String tableName;
+    private final String key;
+    private final Dialect dialect;
+    
+    private int pageSize = 10000;
+    
+    /**
+     * Creates a new paged exporter.
+     * 
+     * @param tableName The table to export
+     * @param key A unique, non-null column to page by
+     * @param dialect The database dialect used to limit the page size
+     */
+    public PagedExporter(String tableName, String key, Dialect dialect)
+    {
+        this.tableName = tableName;
+        this.key = key;
+        this.dialect = dialect;
+    }
+    
+    public int getPageSize()
+    {
+        return pageSize;
+    }
+    
+    /**
+     * Sets the maximum number of rows fetched by each query.
+     * 
+     * @param pageSize The number of rows per page
+     */
+    public void setPageSize(int pageSize)
+    {
+        this.pageSize = pageSize;
+    }
+    
+    /**
+     * Returns the checkpoint file used for an output file when one isn't
+     * specified.
+     * 
+     * @param output The export file
+     * @return The default checkpoint file
+     */
+    public static File getDefaultCheckpoint(File output)
+    {
+        return new File(output.getAbsoluteFile().getParentFile(), output.getName() + ".checkpoint");
+    }
+    
+    private String getQuery(boolean first)
+    {
+        String where = first ? "" : " WHERE " + key + " > ?";
+        String order = " ORDER BY " + key;
+        
+        switch(dialect)
+        {
+            case POSTGRESQL:
+            case MYSQL:
+            case H2:
+            case HSQLDB:
+            case SQLITE:
+                return "SELECT * FROM " + tableName + where + order + " LIMIT " + pageSize;
+                
+            case SQLSERVER:
+                return "SELECT TOP " + pageSize + " * FROM " + tableName + where + order;
+                
+            case ORACLE:
+            case DB2:
+            case DERBY:
+                return "SELECT * FROM " + tableName + where + order + " FETCH FIRST " + pageSize + " ROWS ONLY";
+                
+            default:
+                // The page size is enforced with setMaxRows() instead
+                return "SELECT * FROM " + tableName + where + order;
+        }
+    }
+    
+    private JSONObject readCheckpoint(File checkpoint, String format) throws IOException
+    {
+        JSONObject record;
+        
+        if(!checkpoint.exists()) throw new ConvirganceException("No checkpoint found to resume from: " + checkpoint);
+        
+        record = new JSONObject(Files.readString(checkpoint.toPath(), StandardCharsets.UTF_8));
+        
+        if(!tableName.equalsIgnoreCase(record.getString("table")) || !key.equalsIgnoreCase(record.getString("key")))
+        {
+            throw new ConvirganceException("Checkpoint " + checkpoint + " was created for " + record.getString("table") + " paged by " + record.getString("key"));
+        }
+        
+        if(!format.equals(record.getString("format")))
+        {
+            throw new ConvirganceException("Checkpoint " + checkpoint + " was created for " + record.getString("format") + " output");
+        }
+        
+        return record;
+    }
+    
+    // Written to a temporary file first so a crash never leaves a partial checkpoint behind
+    private void writeCheckpoint(File checkpoint, JSONObject record) throws IOException
+    {
+        File temp = new File(checkpoint.getPath() + ".tmp");
+        
+        Files.writeString(temp.toPath(), record.toString(4), StandardCharsets.UTF_8);
+        Files.move(temp.toPath(), checkpoint.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+    
+    private Object getKey(ResultSet set, int column, int type) throws SQLException
+    {
+        switch(type)
+        {
+            case Types.TINYINT:
+            case Types.SMALLINT:
+            case Types.INTEGER:
+            case Types.BIGINT:
+                return set.getLong(column);
+                
+            case Types.REAL:
+            case Types.FLOAT:
+            case Types.DOUBLE:
+                return set.getDouble(column);
+                
+            case Types.NUMERIC:
+            case Types.DECIMAL:
+                return set.getBigDecimal(column);
+                
+            case Types.DATE:
+                return set.getDate(column);
+                
+            case Types.TIME:
+                return set.getTime(column);
+                
+            case Types.TIMESTAMP:
+                return set.getTimestamp(column);
+                
+            default:
+                return set.getObject(column);
+        }
+    }
+    
+    // Keys read back from a checkpoint are strings
+    private Object parseKey(String value, String keyClass, int type)
+    {
+        if(UUID.class.getName().equals(keyClass)) return UUID.fromString(value);
+        if(OffsetDateTime.class.getName().equals(keyClass)) return OffsetDateTime.parse(value);
+        
+        switch(type)
+        {
+            case Types.TINYINT:
+            case Types.SMALLINT:
+            case Types.INTEGER:
+            case Types.BIGINT:
+                return Long.valueOf(value);
+                
+            case Types.REAL:
+            case Types.FLOAT:
+            case Types.DOUBLE:
+                return Double.valueOf(value);
+                
+            case Types.NUMERIC:
+            case Types.DECIMAL:
+                return new BigDecimal(value);
+                
+            case Types.DATE:
+                return Date.valueOf(value);
+                
+            case Types.TIME:
+                return Time.valueOf(value);
+                
+            case Types.TIMESTAMP:
+                return Timestamp.valueOf(value);
+                
+            default:
+                return value;
+        }
+    }
+    
+    // Bound with the column's type so keys such as uuid or timestamptz compare as their own type rather than text
+    private void setKey(PreparedStatement statement, Object value, String keyClass, int type) throws SQLException
+    {
+        if(value instanceof String) value = parseKey((String)value, keyClass, type);
+        
+        statement.setObject(1, value, type);
+    }
+    
+    private int getKeyColumn(ResultSetMetaData metadata) throws SQLException
+    {
+        for(int i=1; i<=metadata.getColumnCount(); i++)
+        {
+            if(metadata.getColumnLabel(i).equalsIgnoreCase(key)) return i;
+        }
+        
+        throw new ConvirganceException("Column " + key + " not found in " + tableName);
+    }
+    
+    /**
+     * Exports the table to a file. When resuming, the file is truncated to the
+     * size recorded in the checkpoint so that any partially written page is 
+     * discarded before the export continues. The checkpoint is deleted once 
+     * the export completes.
+     * 
+     * @param connection An open connection to the database
+     * @param format The output type (see RecordEncoder.isSupported())
+     * @param delimiter The column delimiter for delimited formats
+     * @param output The file to write to
+     * @param checkpoint The file the progress is saved to
+     * @param resume true to continue from the checkpoint
+     * @return The total number of rows in the file
+     * @throws Exception If the export fails
+     */
+    public long export(Connection connection, String format, char delimiter, File output, File checkpoint, boolean resume) throws Exception
+    {
+        OutputBuffer buffer = new OutputBuffer();
+        JSONObject progress = resume ? readCheckpoint(checkpoint, format) : null;
+        Object last = (progress != null) ? progress.getString("last") : null;
+        String keyClass = (progress != null) ? progress.getString("class") : null;
+        int type = (progress != null) ? progress.getInt("type") : Types.OTHER;
+        long rows = (progress != null) ? progress.getLong("rows") : 0;
+        
+        RecordEncoder encoder = null;
+        ResultSetMetaData metadata;
+        Object value;
+        int column;
+        int count;
+        
+        if(!RecordEncoder.isSupported(format, delimiter)) throw new ConvirganceException("Paged export does not support " + format + " output");
+        
+        try(FileOutputStream out = new FileOutputStream(output, resume))
+        {
+            if(resume) out.getChannel().truncate(progress.getLong("bytes"));
+            
+            do
+            {
+                count = 0;
+                
+                try(PreparedStatement statement = connection.prepareStatement(getQuery(last == null)))
+                {
+                    statement.setMaxRows(pageSize);
+                    statement.setFetchSize(Math.min(pageSize, 1000));
+                    
+                    if(last != null) setKey(statement, last, keyClass, type);
+                    
+                    try(ResultSet set = statement.executeQuery())
+                    {
+                        metadata = set.getMetaData();
+                        column = getKeyColumn(metadata);
+                        type = metadata.getColumnType(column);
+                        
+                        if(encoder == null)
+                        {
+                            encoder = RecordEncoder.getEncoder(format, delimiter, ExportColumn.getColumns(metadata));
+                            
+                            if(resume) encoder.resume(rows);
+                            else encoder.begin(buffer);
+                        }
+                        
+                        while(set.next())
+                        {
+                            encoder.encode(set, buffer);
+                            
+                            value = getKey(set, column, type);
+                            
+                            if(set.wasNull()) throw new ConvirganceException("Column " + key + " contains null values and can't be used to page " + tableName);
+                            
+                            last = value;
+                            count++;
+                        }
+                    }
+                }
+                
+                if(count < 1) break;
+                
+                buffer.drainTo(out);
+                out.flush();
+                out.getFD().sync();
+                
+                rows += count;
+                progress = new JSONObject(true);
+                
+                progress.put("table", tableName);
+                progress.put("key", key);
+                progress.put("format", format);
+                progress.put("last", last.toString());
+                progress.put("class", last.getClass().getName());
+                progress.put("type", type);
+                progress.put("rows", rows);
+                progress.put("bytes", out.getChannel().position());
+                
+                writeCheckpoint(checkpoint, progress);
+            }
+            while(count >= pageSize);
+            
+            encoder.end(buffer);
+            buffer.drainTo(out);
+        }
+        
+        checkpoint.delete();
+        
+        return rows;
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright 2024 INVIRGANCE LLC
+
+Permission is hereby granted, free of charge, to any person obtaining a copy 
+of this software and associated documentation files (the “Software”), to deal 
+in the Software without restriction, including without limitation the rights to 
+use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies 
+of the Software, and to permit persons to whom the Software is furnished to do 
+so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all 
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR 
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, 
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER 
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE 
+SOFTWARE.
+ */
+package com.invirgance.virge.sql.export;
+
+import java.io.OutputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.sql.Connection;
+
+/**
+ * Exports delimited data from PostgreSQL using COPY ... TO STDOUT. The server
+ * renders the CSV itself, so no rows are materialized on the client. Values 
+ * are written in PostgreSQL's text representation (e.g. booleans as t/f).
+ * 
+ * The PostgreSQL driver is loaded dynamically by AutomaticDrivers, so the 
+ * CopyManager API is accessed reflectively.
+ * 
+ * @author tadghh
+ */
+public class PostgresCopyExporter implements NativeExporter
+{
+    @Override
+    public boolean supports(String format, char delimiter)
+    {
+        if(format == null || delimiter == 0) return false;
+        
+        switch(format)
+        {
+            case "csv":
+            case "tsv":
+            case "pipe":
+            case "delimited":
+                return (delimiter != '\'' && delimiter != '"' && delimiter != '\n' && delimiter != '\r');
+                
+            default:
+                return false;
+        }
+    }
+    
+    @Override
+    public long export(Connection connection, String table, String format, char delimiter, OutputStream out) throws Exception
+    {
+        Class<?> type = Class.forName("org.postgresql.PGConnection", true, connection.getClass().getClassLoader());
+        Object manager = type.getMethod("getCopyAPI").invoke(connection.unwrap(type));
+        
+        String sql = "COPY (SELECT * FROM " + table + ") TO STDOUT (FORMAT csv, HEADER true, DELIMITER '" + delimiter + "')";
+        
+        try
+        {
+            return (Long)manager.getClass().getMethod("copyOut", String.class, OutputStream.class).invoke(manager, sql, out);
+        }
+        catch(InvocationTargetException e)
+        {
+            if(e.getCause() instanceof Exception) throw (Exception)e.getCause();
+            
+            throw e;
+        }
+    }
+}
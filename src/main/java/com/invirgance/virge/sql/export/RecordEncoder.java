@@ -0,0 +1,232 @@
+/*
+ * Copyright 2024 INVIRGANCE LLC
+
+Permission is hereby granted, free of charge, to any person obtaining a copy 
+of this software and associated documentation files (the “Software”), to deal 
+in the Software without restriction, including without limitation the rights to 
+use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies 
+of the Software, and to permit persons to whom the Software is furnished to do 
+so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all 
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR 
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, 
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER 
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE 
+SOFTWARE.
+ */
+package com.invirgance.virge.sql.export;
+
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Encodes result set rows directly into an OutputBuffer. Columns are read by
+ * index with the typed JDBC getters so that no JSONObject or boxed values are
+ * created per row.
+ * 
+ * @author tadghh
+ */
+public abstract class RecordEncoder
+{
+    protected final ExportColumn[] columns;
+    
+    public RecordEncoder(ExportColumn[] columns)
+    {
+        this.columns = columns;
+    }
+    
+    /**
+     * Writes anything that precedes the first record (headers, opening brackets, etc.)
+     * 
+     * @param buffer The buffer to write to
+     */
+    public abstract void begin(OutputBuffer buffer);
+    
+    /**
+     * Writes anything that follows the last record.
+     * 
+     * @param buffer The buffer to write to
+     */
+    public abstract void end(OutputBuffer buffer);
+    
+    /**
+     * Prepares the encoder to append records to output that was written by an
+     * earlier run, in place of calling begin().
+     * 
+     * @param records The number of records already written
+     */
+    public void resume(long records)
+    {
+    }
+    
+    protected abstract void startRecord(OutputBuffer buffer);
+    protected abstract void endRecord(OutputBuffer buffer);
+    protected abstract void startValue(int column, OutputBuffer buffer);
+    
+    protected abstract void writeNull(OutputBuffer buffer);
+    protected abstract void writeLong(long value, OutputBuffer buffer);
+    protected abstract void writeDouble(double value, OutputBuffer buffer);
+    protected abstract void writeDecimal(BigDecimal value, OutputBuffer buffer);
+    protected abstract void writeBoolean(boolean value, OutputBuffer buffer);
+    protected abstract void writeString(String value, OutputBuffer buffer);
+    
+    /**
+     * Encodes the current row of the result set.
+     * 
+     * @param set A result set positioned on a row
+     * @param buffer The buffer to write to
+     * @throws SQLException If a value can't be read
+     */
+    public void encode(ResultSet set, OutputBuffer buffer) throws SQLException
+    {
+        long longValue;
+        double doubleValue;
+        boolean booleanValue;
+        Object value;
+        
+        startRecord(buffer);
+        
+        for(int i=0; i<columns.length; i++)
+        {
+            startValue(i, buffer);
+            
+            switch(columns[i].getKind())
+            {
+                case LONG:
+                    longValue = set.getLong(i + 1);
+                    
+                    if(set.wasNull()) writeNull(buffer);
+                    else writeLong(longValue, buffer);
+                    
+                    break;
+                    
+                case DOUBLE:
+                    doubleValue = set.getDouble(i + 1);
+                    
+                    if(set.wasNull()) writeNull(buffer);
+                    else writeDouble(doubleValue, buffer);
+                    
+                    break;
+                    
+                case BOOLEAN:
+                    booleanValue = set.getBoolean(i + 1);
+                    
+                    if(set.wasNull()) writeNull(buffer);
+                    else writeBoolean(booleanValue, buffer);
+                    
+                    break;
+                    
+                case DECIMAL:
+                    value = set.getBigDecimal(i + 1);
+                    
+                    if(value == null) writeNull(buffer);
+                    else writeDecimal((BigDecimal)value, buffer);
+                    
+                    break;
+                    
+                default:
+                    value = set.getString(i + 1);
+                    
+                    if(value == null) writeNull(buffer);
+                    else writeString((String)value, buffer);
+            }
+        }
+        
+        endRecord(buffer);
+    }
+    
+    /**
+     * Encodes a row previously read into a RowBatch.
+     * 
+     * @param batch The batch holding the row
+     * @param row The index of the row in the batch
+     * @param buffer The buffer to write to
+     */
+    public void encode(RowBatch batch, int row, OutputBuffer buffer)
+    {
+        startRecord(buffer);
+        
+        for(int i=0; i<columns.length; i++)
+        {
+            startValue(i, buffer);
+            
+            if(batch.isNull(row, i))
+            {
+                writeNull(buffer);
+                continue;
+            }
+            
+            switch(columns[i].getKind())
+            {
+                case LONG:
+                    writeLong(batch.getLong(row, i), buffer);
+                    break;
+                    
+                case DOUBLE:
+                    writeDouble(batch.getDouble(row, i), buffer);
+                    break;
+                    
+                case BOOLEAN:
+                    writeBoolean(batch.getBoolean(row, i), buffer);
+                    break;
+                    
+                case DECIMAL:
+                    writeDecimal((BigDecimal)batch.getObject(row, i), buffer);
+                    break;
+                    
+                default:
+                    writeString((String)batch.getObject(row, i), buffer);
+            }
+        }
+        
+        endRecord(buffer);
+    }
+    
+    /**
+     * Checks if the output type can be encoded directly from a result set.
+     * 
+     * @param format The output type
+     * @param delimiter The column delimiter for delimited formats
+     * @return true if getEncoder() will return an encoder for the format
+     */
+    public static boolean isSupported(String format, char delimiter)
+    {
+        return (getEncoder(format, delimiter, new ExportColumn[0]) != null);
+    }
+    
+    /**
+     * Creates an encoder for the output type.
+     * 
+     * @param format The output type (csv, tsv, pipe, delimited or json)
+     * @param delimiter The column delimiter for delimited formats
+     * @param columns The columns being exported
+     * @return The encoder or null if the format can't be encoded directly
+     */
+    public static RecordEncoder getEncoder(String format, char delimiter, ExportColumn[] columns)
+    {
+        if(format == null) return null;
+        
+        switch(format)
+        {
+            case "csv":
+            case "tsv":
+            case "pipe":
+            case "delimited":
+                if(delimiter == 0) return null;
+                
+                return new DelimitedRecordEncoder(columns, delimiter);
+                
+            case "json":
+                return new JSONRecordEncoder(columns);
+                
+            default:
+                return null;
+        }
+    }
+}
@@ -0,0 +1,248 @@
+/*
+ * Copyright 2024 INVIRGANCE LLC
+
+Permission is hereby granted, free of charge, to any person obtaining a copy 
+of this software and associated documentation files (the “Software”), to deal 
+in the Software without restriction, including without limitation the rights to 
+use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies 
+of the Software, and to permit persons to whom the Software is furnished to do 
+so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all 
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR 
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, 
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER 
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE 
+SOFTWARE.
+ */
+package com.invirgance.virge.sql.export;
+
+import com.invirgance.convirgance.ConvirganceException;
+import com.invirgance.convirgance.json.JSONObject;
+import com.invirgance.convirgance.output.JSONOutput;
+import com.invirgance.convirgance.output.OutputCursor;
+import com.invirgance.convirgance.target.FileTarget;
+import com.invirgance.convirgance.target.Target;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+
+/**
+ * A target that splits its output into numbered part files. Each call to
+ * getOutputStream() starts a new part, so every part written through its own
+ * OutputCursor is a complete file in the output format (header, array, etc.)
+ *
+ * Example: orders.csv is written as orders.00001.csv, orders.00002.csv, ...
+ * followed by an orders.manifest.json listing the parts, their row counts and
+ * SHA-256 checksums.
+ *
+ * @author tadghh
+ */
+public class RollingTarget implements Target
+{
+    private final File base;
+    private final long maxRows;
+    private final long maxBytes;
+    
+    private final List<Part> parts = new ArrayList<>();
+    private Part current;
+    
+    /**
+     * Creates a new rolling target.
+     *
+     * @param base The file name the part names are derived from
+     * @param maxRows The maximum number of rows per part, or 0 for no limit
+     * @param maxBytes The maximum number of bytes per part, or 0 for no limit
+     */
+    public RollingTarget(File base, long maxRows, long maxBytes)
+    {
+        this.base = base;
+        this.maxRows = maxRows;
+        this.maxBytes = maxBytes;
+    }
+    
+    private File getPartFile(int number)
+    {
+        String name = base.getName();
+        int index = name.lastIndexOf('.');
+        String part = String.format("%05d", number);
+        
+        if(index > 0) name = name.substring(0, index) + "." + part + name.substring(index);
+        else name = name + "." + part;
+        
+        return new File(base.getAbsoluteFile().getParentFile(), name);
+    }
+    
+    /**
+     * Returns the file the manifest will be written to.
+     *
+     * @return The manifest file
+     */
+    public File getManifestFile()
+    {
+        String name = base.getName();
+        int index = name.lastIndexOf('.');
+        
+        if(index > 0) name = name.substring(0, index);
+        
+        return new File(base.getAbsoluteFile().getParentFile(), name + ".manifest.json");
+    }
+    
+    /**
+     * Opens the next part file. The previous part should be closed by the
+     * caller before requesting the next one.
+     *
+     * @return The stream for the new part
+     */
+    @Override
+    public OutputStream getOutputStream()
+    {
+        current = new Part(getPartFile(parts.size() + 1));
+        
+        parts.add(current);
+        
+        return current.open();
+    }
+    
+    /**
+     * Notifies the target that a record was written to the current part.
+     */
+    public void recordWritten()
+    {
+        current.rows++;
+    }
+    
+    /**
+     * Checks if the current part has reached the configured row or byte limit.
+     * The byte count only includes data that has been flushed by the output,
+     * so parts may exceed the byte limit by the size of the output's buffer.
+     *
+     * @return true if the next record should go to a new part
+     */
+    public boolean isFull()
+    {
+        if(current == null) return false;
+        if(maxRows > 0 && current.rows >= maxRows) return true;
+        if(maxBytes > 0 && current.bytes >= maxBytes) return true;
+        
+        return false;
+    }
+    
+    /**
+     * Returns the number of parts written so far.
+     *
+     * @return The part count
+     */
+    public int getPartCount()
+    {
+        return parts.size();
+    }
+    
+    /**
+     * Writes a JSON manifest listing each part with its row count, size and
+     * SHA-256 checksum. All parts must be closed before calling this method.
+     *
+     * @throws Exception if the manifest cannot be written
+     */
+    public void writeManifest() throws Exception
+    {
+        JSONObject record;
+        
+        try(OutputCursor cursor = new JSONOutput().write(new FileTarget(getManifestFile())))
+        {
+            for(int i=0; i<parts.size(); i++)
+            {
+                record = new JSONObject(true);
+                
+                record.put("part", i + 1);
+                record.put("file", parts.get(i).file.getName());
+                record.put("rows", parts.get(i).rows);
+                record.put("bytes", parts.get(i).bytes);
+                record.put("sha256", parts.get(i).checksum);
+                
+                cursor.write(record);
+            }
+        }
+    }
+    
+    private class Part
+    {
+        private final File file;
+        
+        private long rows;
+        private long bytes;
+        private String checksum;
+        
+        public Part(File file)
+        {
+            this.file = file;
+        }
+        
+        public OutputStream open()
+        {
+            MessageDigest digest;
+            
+            try
+            {
+                digest = MessageDigest.getInstance("SHA-256");
+                
+                return new PartOutputStream(new BufferedOutputStream(new FileOutputStream(file)), digest);
+            }
+            catch(FileNotFoundException | NoSuchAlgorithmException e)
+            {
+                throw new ConvirganceException("Unable to create part file: " + file, e);
+            }
+        }
+        
+        private class PartOutputStream extends FilterOutputStream
+        {
+            private final MessageDigest digest;
+            
+            public PartOutputStream(OutputStream out, MessageDigest digest)
+            {
+                super(out);
+                
+                this.digest = digest;
+            }
+            
+            @Override
+            public void write(int b) throws IOException
+            {
+                out.write(b);
+                digest.update((byte)b);
+                bytes++;
+            }
+            
+            @Override
+            public void write(byte[] buffer, int offset, int length) throws IOException
+            {
+                out.write(buffer, offset, length);
+                digest.update(buffer, offset, length);
+                bytes += length;
+            }
+            
+            @Override
+            public void close() throws IOException
+            {
+                if(checksum != null) return;
+                
+                super.close();
+                
+                checksum = HexFormat.of().formatHex(digest.digest());
+            }
+        }
+    }
+}
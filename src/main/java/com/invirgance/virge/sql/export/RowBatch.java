@@ -0,0 +1,227 @@
+/*
+ * Copyright 2024 INVIRGANCE LLC
+
+Permission is hereby granted, free of charge, to any person obtaining a copy 
+of this software and associated documentation files (the “Software”), to deal 
+in the Software without restriction, including without limitation the rights to 
+use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies 
+of the Software, and to permit persons to whom the Software is furnished to do 
+so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all 
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR 
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, 
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER 
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE 
+SOFTWARE.
+ */
+package com.invirgance.virge.sql.export;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * A reusable, column oriented block of rows. Primitive columns are stored in
+ * primitive arrays so rows can be handed between threads without boxing.
+ * 
+ * @author tadghh
+ */
+public class RowBatch
+{
+    private final ExportColumn[] columns;
+    private final int capacity;
+    
+    private final long[][] longs;
+    private final double[][] doubles;
+    private final boolean[][] booleans;
+    private final Object[][] objects;
+    private final boolean[][] nulls;
+    
+    private int size;
+    
+    public RowBatch(ExportColumn[] columns, int capacity)
+    {
+        this.columns = columns;
+        this.capacity = capacity;
+        
+        this.longs = new long[columns.length][];
+        this.doubles = new double[columns.length][];
+        this.booleans = new boolean[columns.length][];
+        this.objects = new Object[columns.length][];
+        this.nulls = new boolean[columns.length][capacity];
+        
+        for(int i=0; i<columns.length; i++)
+        {
+            switch(columns[i].getKind())
+            {
+                case LONG:
+                    longs[i] = new long[capacity];
+                    break;
+                    
+                case DOUBLE:
+                    doubles[i] = new double[capacity];
+                    break;
+                    
+                case BOOLEAN:
+                    booleans[i] = new boolean[capacity];
+                    break;
+                    
+                default:
+                    objects[i] = new Object[capacity];
+            }
+        }
+    }
+    
+    public ExportColumn[] getColumns()
+    {
+        return columns;
+    }
+    
+    public int getCapacity()
+    {
+        return capacity;
+    }
+    
+    /**
+     * Returns the number of rows currently held in the batch.
+     * 
+     * @return The row count
+     */
+    public int size()
+    {
+        return size;
+    }
+    
+    /**
+     * Empties the batch so it can be filled again.
+     */
+    public void clear()
+    {
+        for(int i=0; i<columns.length; i++)
+        {
+            if(objects[i] != null) java.util.Arrays.fill(objects[i], 0, size, null);
+        }
+        
+        size = 0;
+    }
+    
+    /**
+     * Clears the batch and reads up to getCapacity() rows from the result set.
+     * 
+     * @param set The result set to read from
+     * @return The number of rows read. Less than the capacity once the result set is exhausted.
+     * @throws SQLException If the rows can't be read
+     */
+    public int fill(ResultSet set) throws SQLException
+    {
+        clear();
+        
+        while(size < capacity && set.next())
+        {
+            for(int i=0; i<columns.length; i++)
+            {
+                switch(columns[i].getKind())
+                {
+                    case LONG:
+                        longs[i][size] = set.getLong(i + 1);
+                        nulls[i][size] = set.wasNull();
+                        break;
+                        
+                    case DOUBLE:
+                        doubles[i][size] = set.getDouble(i + 1);
+                        nulls[i][size] = set.wasNull();
+                        break;
+                        
+                    case BOOLEAN:
+                        booleans[i][size] = set.getBoolean(i + 1);
+                        nulls[i][size] = set.wasNull();
+                        break;
+                        
+                    case DECIMAL:
+                        objects[i][size] = set.getBigDecimal(i + 1);
+                        nulls[i][size] = (objects[i][size] == null);
+                        break;
+                        
+                    default:
+                        objects[i][size] = set.getString(i + 1);
+                        nulls[i][size] = (objects[i][size] == null);
+                }
+            }
+            
+            size++;
+        }
+        
+        return size;
+    }
+    
+    public boolean isNull(int row, int column)
+    {
+        return nulls[column][row];
+    }
+    
+    public long getLong(int row, int column)
+    {
+        return longs[column][row];
+    }
+    
+    public double getDouble(int row, int column)
+    {
+        return doubles[column][row];
+    }
+    
+    public boolean getBoolean(int row, int column)
+    {
+        return booleans[column][row];
+    }
+    
+    public Object getObject(int row, int column)
+    {
+        return objects[column][row];
+    }
+    
+    /**
+     * Sets the number of rows held by the batch when it has been filled with
+     * the setters rather than fill().
+     * 
+     * @param size The row count, at most getCapacity()
+     */
+    public void setSize(int size)
+    {
+        if(size > capacity) throw new IllegalArgumentException("Size " + size + " exceeds the capacity of " + capacity);
+        
+        this.size = size;
+    }
+    
+    public void setNull(int row, int column)
+    {
+        nulls[column][row] = true;
+    }
+    
+    public void setLong(int row, int column, long value)
+    {
+        longs[column][row] = value;
+        nulls[column][row] = false;
+    }
+    
+    public void setDouble(int row, int column, double value)
+    {
+        doubles[column][row] = value;
+        nulls[column][row] = false;
+    }
+    
+    public void setBoolean(int row, int column, boolean value)
+    {
+        booleans[column][row] = value;
+        nulls[column][row] = false;
+    }
+    
+    public void setObject(int row, int column, Object value)
+    {
+        objects[column][row] = value;
+        nulls[column][row] = (value == null);
+    }
+}
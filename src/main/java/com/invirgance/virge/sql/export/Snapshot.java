@@ -0,0 +1,237 @@
+/*
+ * Copyright 2024 INVIRGANCE LLC
+
+Permission is hereby granted, free of charge, to any person obtaining a copy 
+of this software and associated documentation files (the “Software”), to deal 
+in the Software without restriction, including without limitation the rights to 
+use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies 
+of the Software, and to permit persons to whom the Software is furnished to do 
+so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all 
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR 
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, 
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER 
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE 
+SOFTWARE.
+ */
+package com.invirgance.virge.sql.export;
+
+import com.invirgance.convirgance.jdbc.StoredConnection;
+import com.invirgance.virge.sql.Dialect;
+import com.invirgance.virge.sql.pool.ConnectionPools;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * A read-only transaction that pins a single, consistent image of the database
+ * for the duration of a multi-table export.
+ * 
+ * On PostgreSQL the snapshot is exported with pg_export_snapshot() and shared 
+ * with additional worker connections through SET TRANSACTION SNAPSHOT, so tables 
+ * can still be read in parallel. Other databases can't share a snapshot between
+ * connections; all reads must go through getConnection(). SQL Server uses its
+ * SNAPSHOT isolation level rather than serializable, which would lock every
+ * table read until the export ends, so the database must allow it.
+ * 
+ * @author tadghh
+ */
+public class Snapshot implements AutoCloseable
+{
+    // SQLServerConnection.TRANSACTION_SNAPSHOT
+    private static final int SQLSERVER_SNAPSHOT = 4096;
+    
+    private final StoredConnection connection;
+    private final Dialect dialect;
+    private final Connection coordinator;
+    
+    private String id;
+    
+    /**
+     * Opens the coordinating transaction and establishes the snapshot.
+     * 
+     * @param connection The database to snapshot
+     * @throws SQLException If the transaction can't be started
+     */
+    public Snapshot(StoredConnection connection) throws SQLException
+    {
+        this.connection = connection;
+        this.dialect = Dialect.getDialect(connection.getDriver());
+        this.coordinator = ConnectionPools.getPool(connection).getConnection();
+        
+        try
+        {
+            if(dialect == Dialect.SQLSERVER) checkSnapshotIsolation();
+            
+            begin(coordinator);
+            
+            switch(dialect)
+            {
+                case POSTGRESQL:
+                    id = queryString("SELECT pg_export_snapshot()");
+                    break;
+                    
+                case MYSQL:
+                    execute(coordinator, "START TRANSACTION WITH CONSISTENT SNAPSHOT, READ ONLY");
+                    break;
+                    
+                default:
+                    // The snapshot is taken by the first read of the transaction
+            }
+        }
+        catch(SQLException e)
+        {
+            coordinator.close();
+            
+            throw e;
+        }
+    }
+    
+    // Read committed snapshot isn't enough, it only holds a snapshot per statement
+    private void checkSnapshotIsolation() throws SQLException
+    {
+        String database = "the current database";
+        
+        try(Statement statement = coordinator.createStatement();
+            ResultSet set = statement.executeQuery("SELECT name, snapshot_isolation_state FROM sys.databases WHERE name = DB_NAME()"))
+        {
+            if(set.next())
+            {
+                if(set.getInt(2) == 1) return;
+                
+                database = set.getString(1);
+            }
+        }
+        
+        throw new SQLException("Snapshot isolation is not enabled on " + database + ". Enable it with "
+                             + "ALTER DATABASE CURRENT SET ALLOW_SNAPSHOT_ISOLATION ON, or export without --snapshot");
+    }
+    
+    private int getIsolation()
+    {
+        switch(dialect)
+        {
+            // Repeatable read is snapshot isolation on these databases
+            case POSTGRESQL:
+            case MYSQL:
+                return Connection.TRANSACTION_REPEATABLE_READ;
+                
+            case SQLSERVER:
+                return SQLSERVER_SNAPSHOT;
+                
+            default:
+                return Connection.TRANSACTION_SERIALIZABLE;
+        }
+    }
+    
+    private void begin(Connection jdbc) throws SQLException
+    {
+        jdbc.setAutoCommit(false);
+        jdbc.setReadOnly(true);
+        jdbc.setTransactionIsolation(getIsolation());
+    }
+    
+    private void execute(Connection jdbc, String sql) throws SQLException
+    {
+        try(Statement statement = jdbc.createStatement())
+        {
+            statement.execute(sql);
+        }
+    }
+    
+    private String queryString(String sql) throws SQLException
+    {
+        try(Statement statement = coordinator.createStatement();
+            ResultSet set = statement.executeQuery(sql))
+        {
+            set.next();
+            
+            return set.getString(1);
+        }
+    }
+    
+    /**
+     * Checks if additional connections can join the snapshot.
+     * 
+     * @return true if join() is supported by the database
+     */
+    public boolean isShareable()
+    {
+        return (id != null);
+    }
+    
+    /**
+     * Returns the connection holding the snapshot transaction.
+     * 
+     * @return The coordinating connection
+     */
+    public Connection getConnection()
+    {
+        return coordinator;
+    }
+    
+    /**
+     * Opens a new connection that reads from the same snapshot as the 
+     * coordinating connection. Release it with leave() once the work is done.
+     * 
+     * @return A connection attached to the snapshot
+     * @throws SQLException If the database can't share the snapshot
+     */
+    public Connection join() throws SQLException
+    {
+        Connection worker;
+        
+        if(!isShareable()) throw new SQLException("Snapshots can't be shared between connections on " + dialect);
+        
+        worker = ConnectionPools.getPool(connection).getConnection();
+        
+        try
+        {
+            begin(worker);
+            execute(worker, "SET TRANSACTION SNAPSHOT '" + id.replace("'", "''") + "'");
+        }
+        catch(SQLException e)
+        {
+            worker.close();
+            
+            throw e;
+        }
+        
+        return worker;
+    }
+    
+    /**
+     * Ends the worker's transaction and closes it.
+     * 
+     * @param worker A connection returned by join()
+     * @throws SQLException If the connection can't be closed
+     */
+    public void leave(Connection worker) throws SQLException
+    {
+        try
+        {
+            worker.rollback();
+        }
+        finally
+        {
+            worker.close();
+        }
+    }
+    
+    /**
+     * Ends the snapshot. Workers must have left before the snapshot is closed.
+     * 
+     * @throws SQLException If the connection can't be closed
+     */
+    @Override
+    public void close() throws SQLException
+    {
+        leave(coordinator);
+    }
+}
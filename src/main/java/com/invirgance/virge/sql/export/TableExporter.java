@@ -0,0 +1,297 @@
+/*
+ * Copyright 2024 INVIRGANCE LLC
+
+Permission is hereby granted, free of charge, to any person obtaining a copy 
+of this software and associated documentation files (the “Software”), to deal 
+in the Software without restriction, including without limitation the rights to 
+use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies 
+of the Software, and to permit persons to whom the Software is furnished to do 
+so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all 
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR 
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, 
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER 
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE 
+SOFTWARE.
+ */
+package com.invirgance.virge.sql.export;
+
+import com.invirgance.convirgance.ConvirganceException;
+import com.invirgance.convirgance.dbms.DBMS;
+import com.invirgance.convirgance.dbms.Query;
+import com.invirgance.convirgance.jdbc.StoredConnection;
+import com.invirgance.convirgance.json.JSONObject;
+import com.invirgance.convirgance.output.Output;
+import com.invirgance.convirgance.output.OutputCursor;
+import com.invirgance.convirgance.target.Target;
+import com.invirgance.virge.sql.jfr.Instrumentation;
+import com.invirgance.virge.sql.pool.ConnectionPools;
+import java.io.OutputStream;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Exports the contents of a single table to a target. The fastest available
+ * path is chosen in order: the database's native export (e.g. PostgreSQL COPY),
+ * direct encoding from the ResultSet, and finally the JSONObject based Output.
+ * 
+ * @author tadghh
+ */
+public class TableExporter
+{
+    private final StoredConnection connection;
+    private final String tableName;
+    private final Output output;
+    private final String outputType;
+    private final char delimiter;
+    private final Target target;
+    
+    private boolean allowNative = true;
+    private boolean allowDirect = true;
+    private boolean pipeline;
+    
+    /**
+     * Creates a new exporter for a table.
+     * 
+     * @param connection The connection to export from
+     * @param tableName The table to export
+     * @param output The Output used when the data can't be encoded directly
+     * @param outputType The name of the output format (csv, tsv, pipe, delimited, json or jbin)
+     * @param delimiter The column delimiter for delimited formats, or 0 if not known
+     * @param target The target to write to
+     */
+    public TableExporter(StoredConnection connection, String tableName, Output output, String outputType, char delimiter, Target target)
+    {
+        this.connection = connection;
+        this.tableName = tableName;
+        this.output = output;
+        this.outputType = outputType;
+        this.delimiter = delimiter;
+        this.target = target;
+    }
+    
+    public boolean isAllowNative()
+    {
+        return allowNative;
+    }
+    
+    public void setAllowNative(boolean allowNative)
+    {
+        this.allowNative = allowNative;
+    }
+    
+    public boolean isAllowDirect()
+    {
+        return allowDirect;
+    }
+    
+    public void setAllowDirect(boolean allowDirect)
+    {
+        this.allowDirect = allowDirect;
+    }
+    
+    public boolean isPipeline()
+    {
+        return pipeline;
+    }
+    
+    public void setPipeline(boolean pipeline)
+    {
+        this.pipeline = pipeline;
+    }
+    
+    private String getQuery()
+    {
+        return "SELECT * FROM " + tableName;
+    }
+    
+    private boolean isNative(NativeExporter exporter)
+    {
+        return (allowNative && exporter != null && !(target instanceof RollingTarget) && exporter.supports(outputType, delimiter));
+    }
+    
+    private boolean isDirect()
+    {
+        return (allowDirect && !(target instanceof RollingTarget) && RecordEncoder.isSupported(outputType, delimiter));
+    }
+    
+    /**
+     * Exports the table on a new connection.
+     * 
+     * @return The number of rows exported
+     * @throws Exception If the export fails
+     */
+    public long export() throws Exception
+    {
+        if(isNative(NativeExporters.getExporter(connection.getDriver())) || isDirect())
+        {
+            try(Connection jdbc = Instrumentation.wrap(ConnectionPools.getPool(connection).getConnection(), connection.getName(), tableName))
+            {
+                return export(jdbc);
+            }
+        }
+        
+        return write(new DBMS(Instrumentation.wrap(ConnectionPools.getPool(connection), connection.getName(), tableName)).query(new Query(getQuery())).iterator());
+    }
+    
+    /**
+     * Exports the table using a connection supplied by the caller, such as one 
+     * taking part in a snapshot transaction. The connection is left open and
+     * its transaction state is not changed.
+     * 
+     * @param jdbc An open connection to the database
+     * @return The number of rows exported
+     * @throws Exception If the export fails
+     */
+    public long export(Connection jdbc) throws Exception
+    {
+        NativeExporter exporter = NativeExporters.getExporter(connection.getDriver());
+        
+        if(isNative(exporter))
+        {
+            try(OutputStream out = target.getOutputStream())
+            {
+                return exporter.export(jdbc, tableName, outputType, delimiter, out);
+            }
+        }
+        
+        if(isDirect())
+        {
+            try(OutputStream out = target.getOutputStream())
+            {
+                if(pipeline) return new ExportPipeline().export(jdbc, getQuery(), outputType, delimiter, out);
+                
+                return new DirectExporter().export(jdbc, getQuery(), outputType, delimiter, out);
+            }
+        }
+        
+        try(Statement statement = jdbc.createStatement())
+        {
+            statement.setFetchSize(1000);
+            
+            try(ResultSet set = statement.executeQuery(getQuery()))
+            {
+                return write(new RecordIterator(set));
+            }
+        }
+    }
+    
+    private long write(Iterator<JSONObject> records) throws Exception
+    {
+        long rows = 0;
+        
+        if(target instanceof RollingTarget) return writeRolling(records, (RollingTarget)target);
+        
+        try(OutputCursor cursor = output.write(target))
+        {
+            while(records.hasNext()) 
+            {
+                cursor.write(records.next());
+                rows++;
+            }
+        }
+        
+        return rows;
+    }
+    
+    // Each part gets its own cursor so that headers, array brackets, etc. are written per file
+    private long writeRolling(Iterator<JSONObject> records, RollingTarget rolling) throws Exception
+    {
+        OutputCursor cursor = output.write(rolling);
+        long rows = 0;
+        
+        try
+        {
+            while(records.hasNext())
+            {
+                if(rolling.isFull())
+                {
+                    cursor.close();
+                    cursor = output.write(rolling);
+                }
+                
+                cursor.write(records.next());
+                rolling.recordWritten();
+                rows++;
+            }
+        }
+        finally
+        {
+            cursor.close();
+        }
+        
+        rolling.writeManifest();
+        
+        return rows;
+    }
+    
+    /**
+     * Iterates the rows of a result set as JSONObjects, for outputs that 
+     * can't be encoded directly.
+     */
+    public static class RecordIterator implements Iterator<JSONObject>
+    {
+        private final ResultSet set;
+        private final String[] labels;
+        private boolean fetched;
+        private boolean available;
+
+        public RecordIterator(ResultSet set) throws SQLException
+        {
+            ResultSetMetaData metadata = set.getMetaData();
+            
+            this.set = set;
+            this.labels = new String[metadata.getColumnCount()];
+            
+            for(int i=0; i<labels.length; i++) labels[i] = metadata.getColumnLabel(i + 1);
+        }
+        
+        @Override
+        public boolean hasNext()
+        {
+            try
+            {
+                if(!fetched) available = set.next();
+                
+                fetched = true;
+                
+                return available;
+            }
+            catch(SQLException e)
+            {
+                throw new ConvirganceException(e);
+            }
+        }
+
+        @Override
+        public JSONObject next()
+        {
+            JSONObject record = new JSONObject(true);
+            
+            if(!hasNext()) throw new NoSuchElementException();
+            
+            try
+            {
+                for(int i=0; i<labels.length; i++) record.put(labels[i], set.getObject(i + 1));
+            }
+            catch(SQLException e)
+            {
+                throw new ConvirganceException(e);
+            }
+            
+            fetched = false;
+            
+            return record;
+        }
+    }
+}
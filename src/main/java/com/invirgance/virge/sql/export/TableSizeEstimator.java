@@ -0,0 +1,133 @@
+/*
+ * Copyright 2024 INVIRGANCE LLC
+
+Permission is hereby granted, free of charge, to any person obtaining a copy 
+of this software and associated documentation files (the “Software”), to deal 
+in the Software without restriction, including without limitation the rights to 
+use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies 
+of the Software, and to permit persons to whom the Software is furnished to do 
+so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all 
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR 
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, 
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER 
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE 
+SOFTWARE.
+ */
+package com.invirgance.virge.sql.export;
+
+import com.invirgance.virge.sql.Dialect;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Estimates the relative size of tables from the database's catalog statistics
+ * so that large tables can be scheduled first. The estimates are only used for
+ * ordering; the unit (rows or bytes) depends on the database.
+ * 
+ * @author tadghh
+ */
+public class TableSizeEstimator
+{
+    private static String getQuery(Dialect dialect)
+    {
+        switch(dialect)
+        {
+            case POSTGRESQL:
+                return "SELECT n.nspname, c.relname, pg_relation_size(c.oid) FROM pg_class c JOIN pg_namespace n ON n.oid = c.relnamespace WHERE c.relkind IN ('r', 'p')";
+                
+            case MYSQL:
+                return "SELECT table_schema, table_name, data_length FROM information_schema.tables WHERE table_schema = DATABASE()";
+                
+            case SQLSERVER:
+                return "SELECT SCHEMA_NAME(t.schema_id), t.name, SUM(p.rows) FROM sys.tables t JOIN sys.partitions p ON p.object_id = t.object_id AND p.index_id IN (0, 1) GROUP BY t.schema_id, t.name";
+                
+            case ORACLE:
+                return "SELECT USER, table_name, num_rows FROM user_tables";
+                
+            default:
+                return null;
+        }
+    }
+    
+    private static void put(Map<String,Long> sizes, String table, long size)
+    {
+        String key = table.toLowerCase();
+        
+        if(!sizes.containsKey(key) || sizes.get(key) < size) sizes.put(key, size);
+    }
+    
+    private static void estimateFromCatalog(Connection connection, String query, Map<String,Long> sizes) throws SQLException
+    {
+        try(Statement statement = connection.createStatement();
+            ResultSet set = statement.executeQuery(query))
+        {
+            while(set.next())
+            {
+                put(sizes, set.getString(2), set.getLong(3));
+                put(sizes, set.getString(1) + "." + set.getString(2), set.getLong(3));
+            }
+        }
+    }
+    
+    // JDBC exposes table statistics as a special row in the index information
+    private static void estimateFromMetadata(Connection connection, String[] tables, Map<String,Long> sizes) throws SQLException
+    {
+        DatabaseMetaData metadata = connection.getMetaData();
+        String schema;
+        
+        for(String table : tables)
+        {
+            schema = table.contains(".") ? table.substring(0, table.lastIndexOf('.')) : null;
+            
+            try(ResultSet set = metadata.getIndexInfo(connection.getCatalog(), schema, table.substring(table.lastIndexOf('.') + 1), false, true))
+            {
+                while(set.next())
+                {
+                    if(set.getShort("TYPE") == DatabaseMetaData.tableIndexStatistic) put(sizes, table, set.getLong("CARDINALITY"));
+                }
+            }
+            catch(SQLException e)
+            {
+                // Statistics are optional
+            }
+        }
+    }
+    
+    /**
+     * Looks up size estimates for the tables. Tables without statistics are 
+     * missing from the returned map.
+     * 
+     * @param connection An open connection to the database
+     * @param dialect The database's dialect
+     * @param tables The tables to estimate, optionally qualified with their schema
+     * @return A map of lower case table name, with and without the schema, to estimated size
+     */
+    public static Map<String,Long> estimate(Connection connection, Dialect dialect, String[] tables)
+    {
+        Map<String,Long> sizes = new HashMap<>();
+        String query = getQuery(dialect);
+        
+        try
+        {
+            if(query != null) estimateFromCatalog(connection, query, sizes);
+            else estimateFromMetadata(connection, tables, sizes);
+        }
+        catch(SQLException e)
+        {
+            System.err.println("Unable to read table statistics, tables will be exported in catalog order: " + e.getMessage());
+        }
+        
+        return sizes;
+    }
+}
@@ -0,0 +1,701 @@
+/*
+ * Copyright 2024 INVIRGANCE LLC
+
+Permission is hereby granted, free of charge, to any person obtaining a copy 
+of this software and associated documentation files (the “Software”), to deal 
+in the Software without restriction, including without limitation the rights to 
+use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies 
+of the Software, and to permit persons to whom the Software is furnished to do 
+so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all 
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR 
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, 
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER 
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE 
+SOFTWARE.
+ */
+package com.invirgance.virge.sql.generate;
+
+import com.invirgance.convirgance.ConvirganceException;
+import com.invirgance.virge.sql.export.ExportColumn;
+import com.invirgance.virge.sql.export.ExportColumn.Kind;
+import com.invirgance.virge.sql.export.RowBatch;
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.HexFormat;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Generates the values of one column of synthetic data. The distribution is
+ * given as a name with optional arguments:
+ * 
+ * <ul>
+ * <li>uniform(min, max) - values spread evenly over the range. For strings 
+ * and binary values the range is the length.</li>
+ * <li>sequential(start) - start, start + 1, ... for unique keys</li>
+ * <li>zipf(n, exponent) - n distinct values where a few are very common, as 
+ * with customers or products in real order data</li>
+ * <li>cardinality(n) - n distinct values picked evenly</li>
+ * </ul>
+ * 
+ * The values follow the column's JDBC type. Without arguments, uniform values
+ * stay within the range of the type (e.g. 0 to 32767 for SMALLINT) and the 
+ * precision of decimals. Dates, times and timestamps are generated between 
+ * 2000 and 2030, and their ranges and starting points can be given as 
+ * literals such as uniform(2024-01-01, 2024-12-31). Temporal, UUID and binary
+ * values are held as strings for output files and converted to their JDBC 
+ * types with toJDBC() when loading.
+ * 
+ * @author tadghh
+ */
+public class ColumnGenerator
+{
+    private static final Pattern SPEC = Pattern.compile("(\\w+)\\s*(?:\\((.*)\\))?");
+    private static final int DICTIONARY_LIMIT = 65536;
+    private static final char[] LETTERS = "abcdefghijklmnopqrstuvwxyz".toCharArray();
+    private static final DateTimeFormatter TIMESTAMP = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final DateTimeFormatter TIME = DateTimeFormatter.ofPattern("HH:mm:ss");
+    private static final long FIRST_DAY = LocalDate.of(2000, 1, 1).toEpochDay();
+    private static final long LAST_DAY = LocalDate.of(2030, 12, 31).toEpochDay();
+    private static final long SECONDS_PER_DAY = 86400;
+    
+    private static enum Distribution 
+    {
+        UNIFORM,
+        SEQUENTIAL,
+        ZIPF,
+        CARDINALITY
+    }
+    
+    private static enum Value
+    {
+        NUMBER,
+        TEXT,
+        DATE,
+        TIME,
+        TIMESTAMP,
+        UUID,
+        BINARY
+    }
+    
+    private final String name;
+    private final int type;
+    private final Kind kind;
+    private final Value value;
+    
+    private Distribution distribution = Distribution.UNIFORM;
+    private double[] arguments = new double[0];
+    private int precision;
+    private int scale = 2;
+    private int maxLength = 16;
+    private double nullRatio;
+    
+    private ZipfSampler zipf;
+    private String[] dictionary;
+    
+    /**
+     * Creates a generator for a column.
+     * 
+     * @param name The column name
+     * @param type The JDBC type from java.sql.Types
+     * @param typeName The database's name for the type, used to recognize UUID columns
+     */
+    public ColumnGenerator(String name, int type, String typeName)
+    {
+        this.name = name;
+        this.type = type;
+        this.kind = ExportColumn.getKind(type);
+        this.value = getValue(type, typeName);
+    }
+    
+    private static Value getValue(int type, String typeName)
+    {
+        // Reported as BINARY, OTHER or CHAR depending on the driver
+        if(typeName != null && typeName.toLowerCase().contains("uuid")) return Value.UUID;
+        
+        switch(type)
+        {
+            case Types.TINYINT:
+            case Types.SMALLINT:
+            case Types.INTEGER:
+            case Types.BIGINT:
+            case Types.REAL:
+            case Types.FLOAT:
+            case Types.DOUBLE:
+            case Types.NUMERIC:
+            case Types.DECIMAL:
+            case Types.BIT:
+            case Types.BOOLEAN:
+                return Value.NUMBER;
+                
+            case Types.CHAR:
+            case Types.VARCHAR:
+            case Types.LONGVARCHAR:
+            case Types.NCHAR:
+            case Types.NVARCHAR:
+            case Types.LONGNVARCHAR:
+            case Types.CLOB:
+            case Types.NCLOB:
+                return Value.TEXT;
+                
+            case Types.DATE:
+                return Value.DATE;
+                
+            case Types.TIME:
+            case Types.TIME_WITH_TIMEZONE:
+                return Value.TIME;
+                
+            case Types.TIMESTAMP:
+            case Types.TIMESTAMP_WITH_TIMEZONE:
+                return Value.TIMESTAMP;
+                
+            case Types.BINARY:
+            case Types.VARBINARY:
+            case Types.LONGVARBINARY:
+            case Types.BLOB:
+                return Value.BINARY;
+                
+            default:
+                return null;
+        }
+    }
+    
+    /**
+     * Parses a column type name such as long, varchar or timestamp.
+     * 
+     * @param type The type name
+     * @return The JDBC type from java.sql.Types, or null if the name isn't known
+     */
+    public static Integer getType(String type)
+    {
+        switch(type.toLowerCase())
+        {
+            case "long":
+            case "bigint":
+                return Types.BIGINT;
+                
+            case "int":
+            case "integer":
+                return Types.INTEGER;
+                
+            case "smallint":
+                return Types.SMALLINT;
+                
+            case "tinyint":
+                return Types.TINYINT;
+                
+            case "double":
+            case "float":
+                return Types.DOUBLE;
+                
+            case "real":
+                return Types.REAL;
+                
+            case "decimal":
+            case "numeric":
+                return Types.DECIMAL;
+                
+            case "boolean":
+            case "bit":
+                return Types.BOOLEAN;
+                
+            case "string":
+            case "varchar":
+            case "text":
+                return Types.VARCHAR;
+                
+            case "char":
+                return Types.CHAR;
+                
+            case "date":
+                return Types.DATE;
+                
+            case "time":
+                return Types.TIME;
+                
+            case "timestamp":
+            case "datetime":
+                return Types.TIMESTAMP;
+                
+            case "uuid":
+                return Types.OTHER;
+                
+            case "binary":
+            case "varbinary":
+            case "blob":
+                return Types.VARBINARY;
+                
+            default:
+                return null;
+        }
+    }
+    
+    public String getName()
+    {
+        return name;
+    }
+    
+    public Kind getKind()
+    {
+        return kind;
+    }
+    
+    /**
+     * Checks if values can be generated for the column's type. Columns of 
+     * other types (e.g. arrays, intervals or JSON) are always null.
+     * 
+     * @return true if the type is supported
+     */
+    public boolean isSupported()
+    {
+        return (value != null);
+    }
+    
+    public ExportColumn getColumn()
+    {
+        return new ExportColumn(name, kind);
+    }
+    
+    /**
+     * Sets the size of the column: the total digits of a decimal, or the 
+     * length of a string or binary column. Lengths are capped at 4000.
+     * 
+     * @param precision The precision reported by JDBC
+     */
+    public void setPrecision(int precision)
+    {
+        if(precision <= 0) return;
+        
+        this.precision = precision;
+        
+        if(value == Value.TEXT || value == Value.BINARY) setMaxLength(Math.min(precision, 4000));
+    }
+    
+    /**
+     * Sets the number of digits after the decimal point of decimal values.
+     * 
+     * @param scale The scale, 2 by default
+     */
+    public void setScale(int scale)
+    {
+        this.scale = scale;
+    }
+    
+    /**
+     * Sets the longest string that will be generated, such as the size of a 
+     * VARCHAR column, or the longest binary value in bytes.
+     * 
+     * @param maxLength The length, 16 by default
+     */
+    public void setMaxLength(int maxLength)
+    {
+        this.maxLength = Math.max(1, maxLength);
+        
+        if(dictionary != null) prepare();
+    }
+    
+    /**
+     * Sets the fraction of values that are null. Sequential columns are
+     * never null since they're normally keys.
+     * 
+     * @param nullRatio A value from 0 to 1
+     */
+    public void setNullRatio(double nullRatio)
+    {
+        this.nullRatio = nullRatio;
+    }
+    
+    // Temporal arguments may be written as literals and are held as days or seconds
+    private double parseArgument(String argument)
+    {
+        argument = argument.trim().replace("'", "");
+        
+        try
+        {
+            return Double.parseDouble(argument);
+        }
+        catch(NumberFormatException e)
+        {
+            // Not a number, try the temporal formats below
+        }
+        
+        try
+        {
+            switch(value)
+            {
+                case DATE:
+                    return LocalDate.parse(argument).toEpochDay();
+                    
+                case TIME:
+                    return LocalTime.parse(argument).toSecondOfDay();
+                    
+                case TIMESTAMP:
+                    if(argument.length() <= 10) return LocalDate.parse(argument).toEpochDay() * SECONDS_PER_DAY;
+                    
+                    return LocalDateTime.parse(argument.replace(' ', 'T')).toEpochSecond(ZoneOffset.UTC);
+            }
+        }
+        catch(DateTimeParseException e)
+        {
+            // Reported below
+        }
+        
+        throw new ConvirganceException("Invalid argument for " + name + ": " + argument);
+    }
+    
+    /**
+     * Sets the distribution from a specification such as zipf(1000, 1.2)
+     * 
+     * @param spec The distribution name and its arguments
+     */
+    public void setDistribution(String spec)
+    {
+        Matcher matcher = SPEC.matcher(spec.trim());
+        String[] values;
+        
+        if(!matcher.matches()) throw new ConvirganceException("Invalid distribution for " + name + ": " + spec);
+        
+        try
+        {
+            distribution = Distribution.valueOf(matcher.group(1).toUpperCase());
+        }
+        catch(IllegalArgumentException e)
+        {
+            throw new ConvirganceException("Unknown distribution for " + name + ": " + matcher.group(1));
+        }
+        
+        values = (matcher.group(2) == null || matcher.group(2).isBlank()) ? new String[0] : matcher.group(2).split(",");
+        arguments = new double[values.length];
+        
+        for(int i=0; i<values.length; i++) arguments[i] = parseArgument(values[i]);
+        
+        if((distribution == Distribution.ZIPF || distribution == Distribution.CARDINALITY) && arguments.length < 1)
+        {
+            throw new ConvirganceException(matcher.group(1) + " requires the number of distinct values for " + name);
+        }
+        
+        prepare();
+    }
+    
+    private double getArgument(int index, double defaultValue)
+    {
+        return (arguments.length > index) ? arguments[index] : defaultValue;
+    }
+    
+    private void prepare()
+    {
+        long distinct;
+        
+        zipf = null;
+        dictionary = null;
+        
+        if(distribution == Distribution.ZIPF) zipf = new ZipfSampler((long)arguments[0], getArgument(1, 1.0));
+        
+        if(value == Value.TEXT && (distribution == Distribution.ZIPF || distribution == Distribution.CARDINALITY))
+        {
+            distinct = (long)arguments[0];
+            
+            if(distinct > DICTIONARY_LIMIT) return;
+            
+            dictionary = new String[(int)distinct];
+            
+            for(int i=0; i<dictionary.length; i++) dictionary[i] = getWord(i + 1);
+        }
+    }
+    
+    // The same number always gives the same word, whether or not it's cached
+    private String getWord(long value)
+    {
+        String word = name + "_" + Long.toString((value * 0x9E3779B97F4A7C15L) >>> 24, 36);
+        
+        return (word.length() > maxLength) ? word.substring(word.length() - maxLength) : word;
+    }
+    
+    // The largest integer the column can hold, kept small for the default range
+    private long getDefaultMaximum()
+    {
+        switch(type)
+        {
+            case Types.TINYINT:
+                return 127;
+                
+            case Types.SMALLINT:
+                return 32767;
+                
+            default:
+                return 1000000;
+        }
+    }
+    
+    private long getDefaultMinimum()
+    {
+        switch(value)
+        {
+            case DATE:
+                return FIRST_DAY;
+                
+            case TIMESTAMP:
+                return FIRST_DAY * SECONDS_PER_DAY;
+                
+            case TIME:
+                return 0;
+                
+            default:
+                return (distribution == Distribution.SEQUENTIAL) ? 1 : 0;
+        }
+    }
+    
+    private long nextLong(long row, SplittableRandom random)
+    {
+        long minimum = (long)getArgument(0, getDefaultMinimum());
+        
+        switch(distribution)
+        {
+            case SEQUENTIAL:
+                return minimum + row;
+                
+            case ZIPF:
+                return zipf.sample(random);
+                
+            case CARDINALITY:
+                return 1 + random.nextLong((long)arguments[0]);
+                
+            default:
+                return random.nextLong(minimum, (long)getArgument(1, getDefaultMaximum()) + 1);
+        }
+    }
+    
+    // Sequential and skewed values wrap around rather than overflow small types
+    private long nextInteger(long row, SplittableRandom random)
+    {
+        long value = nextLong(row, random);
+        
+        if(type == Types.TINYINT || type == Types.SMALLINT) return Math.floorMod(value, getDefaultMaximum() + 1);
+        
+        return value;
+    }
+    
+    private double nextDouble(long row, SplittableRandom random)
+    {
+        double minimum;
+        
+        if(distribution != Distribution.UNIFORM) return nextLong(row, random);
+        
+        minimum = getArgument(0, 0);
+        
+        return minimum + random.nextDouble() * (getArgument(1, 1000) - minimum);
+    }
+    
+    private BigDecimal nextDecimal(long row, SplittableRandom random)
+    {
+        long factor = (long)Math.pow(10, scale);
+        long maximum = 1000 * factor;
+        boolean limited = (precision > 0 && precision < 18);
+        
+        // Stay within the digits of DECIMAL(precision, scale)
+        if(distribution != Distribution.UNIFORM && limited) return BigDecimal.valueOf(Math.floorMod(nextLong(row, random), (long)Math.pow(10, Math.max(0, precision - scale))) * factor, scale);
+        if(distribution != Distribution.UNIFORM) return BigDecimal.valueOf(nextLong(row, random) * factor, scale);
+        
+        if(limited) maximum = Math.min(maximum, (long)Math.pow(10, precision) - 1);
+        if(arguments.length > 1) maximum = (long)(getArgument(1, 0) * factor);
+        
+        return BigDecimal.valueOf(random.nextLong((long)(getArgument(0, 0) * factor), maximum + 1), scale);
+    }
+    
+    private String nextText(long row, SplittableRandom random)
+    {
+        char[] text;
+        int minimum;
+        
+        switch(distribution)
+        {
+            case SEQUENTIAL:
+                return Long.toString((long)getArgument(0, 1) + row);
+                
+            case ZIPF:
+            case CARDINALITY:
+                row = nextLong(row, random);
+                
+                return (dictionary != null) ? dictionary[(int)row - 1] : getWord(row);
+                
+            default:
+                minimum = Math.min((int)getArgument(0, Math.min(8, maxLength)), maxLength);
+                text = new char[random.nextInt(minimum, Math.min((int)getArgument(1, maxLength), maxLength) + 1)];
+                
+                for(int i=0; i<text.length; i++) text[i] = LETTERS[random.nextInt(LETTERS.length)];
+                
+                return new String(text);
+        }
+    }
+    
+    // Zipf and cardinality values count up from the start of the range
+    private long nextTemporal(long row, SplittableRandom random, long first, long last)
+    {
+        switch(distribution)
+        {
+            case ZIPF:
+            case CARDINALITY:
+                return first + nextLong(row, random) - 1;
+                
+            case SEQUENTIAL:
+                return nextLong(row, random);
+                
+            default:
+                return random.nextLong((long)getArgument(0, first), (long)getArgument(1, last) + 1);
+        }
+    }
+    
+    private String nextUUID(long row, SplittableRandom random)
+    {
+        long number;
+        
+        if(distribution == Distribution.UNIFORM)
+        {
+            // Version 4 random UUID
+            return new UUID((random.nextLong() & ~0xF000L) | 0x4000L, (random.nextLong() & 0x3FFFFFFFFFFFFFFFL) | 0x8000000000000000L).toString();
+        }
+        
+        number = nextLong(row, random);
+        
+        return new UUID(number * 0x9E3779B97F4A7C15L, number).toString();
+    }
+    
+    private String nextBinary(long row, SplittableRandom random)
+    {
+        byte[] data;
+        long number;
+        
+        if(distribution == Distribution.UNIFORM)
+        {
+            data = new byte[random.nextInt(Math.min((int)getArgument(0, Math.min(16, maxLength)), maxLength), Math.min((int)getArgument(1, Math.min(16, maxLength)), maxLength) + 1)];
+            
+            for(int i=0; i<data.length; i++) data[i] = (byte)random.nextInt(256);
+        }
+        else
+        {
+            number = nextLong(row, random);
+            data = new byte[Math.min(8, maxLength)];
+            
+            for(int i=0; i<data.length; i++) data[data.length - i - 1] = (byte)(number >>> (i * 8));
+        }
+        
+        return HexFormat.of().formatHex(data);
+    }
+    
+    private String nextString(long row, SplittableRandom random)
+    {
+        switch(value)
+        {
+            case DATE:
+                return LocalDate.ofEpochDay(nextTemporal(row, random, FIRST_DAY, LAST_DAY)).toString();
+                
+            case TIME:
+                return LocalTime.ofSecondOfDay(Math.floorMod(nextTemporal(row, random, 0, SECONDS_PER_DAY - 1), SECONDS_PER_DAY)).format(TIME);
+                
+            case TIMESTAMP:
+                return LocalDateTime.ofEpochSecond(nextTemporal(row, random, FIRST_DAY * SECONDS_PER_DAY, (LAST_DAY + 1) * SECONDS_PER_DAY - 1), 0, ZoneOffset.UTC).format(TIMESTAMP);
+                
+            case UUID:
+                return nextUUID(row, random);
+                
+            case BINARY:
+                return nextBinary(row, random);
+                
+            default:
+                return nextText(row, random);
+        }
+    }
+    
+    /**
+     * Converts a generated value to the Java type JDBC expects for the column,
+     * e.g. a java.sql.Timestamp rather than its text for TIMESTAMP columns.
+     * 
+     * @param generated A value from a RowBatch filled by this generator
+     * @return The value to bind when inserting
+     */
+    public Object toJDBC(Object generated)
+    {
+        if(generated == null || value == null) return generated;
+        
+        switch(value)
+        {
+            case DATE:
+                return Date.valueOf((String)generated);
+                
+            case TIME:
+                return Time.valueOf((String)generated);
+                
+            case TIMESTAMP:
+                return Timestamp.valueOf((String)generated);
+                
+            case UUID:
+                return UUID.fromString((String)generated);
+                
+            case BINARY:
+                return HexFormat.of().parseHex((String)generated);
+                
+            default:
+                return generated;
+        }
+    }
+    
+    /**
+     * Fills this column's values for a block of rows.
+     * 
+     * @param batch The batch to fill
+     * @param column The index of this column in the batch
+     * @param first The number of the first row in the block, used by sequential values
+     * @param count The number of rows to fill
+     * @param random The source of randomness for this block
+     */
+    public void fill(RowBatch batch, int column, long first, int count, SplittableRandom random)
+    {
+        for(int row=0; row<count; row++)
+        {
+            if(value == null || (nullRatio > 0 && distribution != Distribution.SEQUENTIAL && random.nextDouble() < nullRatio))
+            {
+                batch.setNull(row, column);
+                continue;
+            }
+            
+            switch(kind)
+            {
+                case LONG:
+                    batch.setLong(row, column, nextInteger(first + row, random));
+                    break;
+                    
+                case DOUBLE:
+                    batch.setDouble(row, column, nextDouble(first + row, random));
+                    break;
+                    
+                case DECIMAL:
+                    batch.setObject(row, column, nextDecimal(first + row, random));
+                    break;
+                    
+                case BOOLEAN:
+                    batch.setBoolean(row, column, (distribution == Distribution.UNIFORM) ? random.nextDouble() < getArgument(0, 0.5) : (nextLong(first + row, random) & 1) == 0);
+                    break;
+                    
+                default:
+                    batch.setObject(row, column, nextString(first + row, random));
+            }
+        }
+    }
+}
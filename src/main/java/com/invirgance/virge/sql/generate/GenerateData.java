@@ -0,0 +1,716 @@
+/*
+ * Copyright 2024 INVIRGANCE LLC
+
+Permission is hereby granted, free of charge, to any person obtaining a copy 
+of this software and associated documentation files (the “Software”), to deal 
+in the Software without restriction, including without limitation the rights to 
+use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies 
+of the Software, and to permit persons to whom the Software is furnished to do 
+so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all 
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR 
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, 
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER 
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE 
+SOFTWARE.
+ */
+package com.invirgance.virge.sql.generate;
+
+import com.invirgance.convirgance.ConvirganceException;
+import com.invirgance.convirgance.dbms.BatchOperation;
+import com.invirgance.convirgance.dbms.Query;
+import com.invirgance.convirgance.dbms.TransactionOperation;
+import com.invirgance.convirgance.jdbc.StoredConnection;
+import com.invirgance.convirgance.jdbc.StoredConnections;
+import com.invirgance.convirgance.json.JSONObject;
+import com.invirgance.convirgance.output.JBINOutput;
+import com.invirgance.convirgance.output.OutputCursor;
+import com.invirgance.convirgance.target.OutputStreamTarget;
+import static com.invirgance.virge.Virge.HELP_DESCRIPTION_SPACING;
+import static com.invirgance.virge.Virge.HELP_SPACING;
+import static com.invirgance.virge.sql.VirgeSQL.exit;
+import static com.invirgance.virge.sql.VirgeSQL.getFile;
+import static com.invirgance.virge.sql.VirgeSQL.printToolHelp;
+import com.invirgance.virge.sql.copy.NativeLoader;
+import com.invirgance.virge.sql.copy.NativeLoaders;
+import com.invirgance.virge.sql.copy.RecordQueue;
+import com.invirgance.virge.sql.export.ExportColumn;
+import com.invirgance.virge.sql.export.OutputBuffer;
+import com.invirgance.virge.sql.export.RecordEncoder;
+import com.invirgance.virge.sql.export.RowBatch;
+import com.invirgance.virge.sql.metadata.SchemaMetadata;
+import com.invirgance.virge.sql.pool.ConnectionPools;
+import com.invirgance.virge.tool.Tool;
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Generates synthetic rows for load testing, either to a file or straight 
+ * into a table. The columns come from an existing table or from column specs
+ * on the command line. Rows are generated and encoded in blocks on all cores,
+ * and written in order. Each block has its own seed, so the same --seed gives
+ * the same data regardless of the number of threads.
+ * 
+ * @author tadghh
+ */
+public class GenerateData implements Tool
+{
+    public static final String DESCRIPTION = "Generate synthetic rows for load testing into a file or table.";
+    
+    private String connectionName;
+    private String tableName;
+    private List<String> specs = new ArrayList<>();
+    private long rows;
+    private String outputPath;
+    private String format;
+    private boolean load;
+    private boolean allowNative = true;
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private int blockSize = 8192;
+    private long seed = System.nanoTime();
+    private double nullRatio;
+    
+    private StoredConnection connection;
+    
+    private boolean error(String message)
+    {
+        System.err.println(message);
+        
+        return false;
+    }
+    
+    @Override
+    public String getName()
+    {
+        return "data";
+    }
+    
+    @Override
+    public String getShortDescription()
+    {
+        return DESCRIPTION;
+    }
+    
+    @Override
+    public String getExample()
+    {
+        return "virge.jar sql generate data -c warehouse -t orders -n 10000000 --column \"customer_id:zipf(100000, 1.1)\" --load";
+    }
+    
+    @Override
+    public String[] getHelp()
+    {
+        return new String[] {
+            HELP_SPACING + "--rows <COUNT>",
+            HELP_SPACING + "-n <COUNT>",
+            HELP_SPACING + HELP_DESCRIPTION_SPACING + "The number of rows to generate.",
+            "",
+            HELP_SPACING + "--connection-name <STORED_CONNECTION>",
+            HELP_SPACING + "-c <STORED_CONNECTION>",
+            HELP_SPACING + HELP_DESCRIPTION_SPACING + "The stored connection of the table to take the columns from, or load into.",
+            "",
+            HELP_SPACING + "--table <TABLE>",
+            HELP_SPACING + "-t <TABLE>",
+            HELP_SPACING + HELP_DESCRIPTION_SPACING + "The table to take the columns from, or load into.",
+            "",
+            HELP_SPACING + "--column <NAME>:<TYPE>[:<DISTRIBUTION>]",
+            HELP_SPACING + "-C <NAME>:<TYPE>[:<DISTRIBUTION>]",
+            HELP_SPACING + HELP_DESCRIPTION_SPACING + "Adds a column, or sets the distribution of a table column with <NAME>:<DISTRIBUTION>.",
+            HELP_SPACING + HELP_DESCRIPTION_SPACING + "Types: long, int, smallint, tinyint, double, decimal(p,s), boolean, varchar(n),",
+            HELP_SPACING + HELP_DESCRIPTION_SPACING + "       date, time, timestamp, uuid, binary(n)",
+            HELP_SPACING + HELP_DESCRIPTION_SPACING + "Distributions: uniform(min,max), sequential(start), zipf(n,exponent), cardinality(n)",
+            HELP_SPACING + HELP_DESCRIPTION_SPACING + "For strings and binary uniform sets the length. Dates and times take literals,",
+            HELP_SPACING + HELP_DESCRIPTION_SPACING + "e.g. uniform(2024-01-01,2024-12-31). Primary keys default to sequential.",
+            "",
+            HELP_SPACING + "--null-ratio <FRACTION>",
+            HELP_SPACING + HELP_DESCRIPTION_SPACING + "The fraction of null values in nullable columns (e.g. 0.05).",
+            "",
+            HELP_SPACING + "--output <FILE> or -",
+            HELP_SPACING + "-o <FILE> or -",
+            HELP_SPACING + HELP_DESCRIPTION_SPACING + "The file to write to. Use - for standard out.",
+            "",
+            HELP_SPACING + "--format [csv|tsv|pipe|json|jbin]",
+            HELP_SPACING + "-f [csv|tsv|pipe|json|jbin]",
+            HELP_SPACING + HELP_DESCRIPTION_SPACING + "The output format. Defaults to the file extension, or csv.",
+            "",
+            HELP_SPACING + "--load",
+            HELP_SPACING + HELP_DESCRIPTION_SPACING + "Insert the rows into the table instead of writing a file.",
+            "",
+            HELP_SPACING + "--no-native",
+            HELP_SPACING + HELP_DESCRIPTION_SPACING + "Use batched inserts even when the database has a native bulk load path.",
+            "",
+            HELP_SPACING + "--threads <COUNT>",
+            HELP_SPACING + HELP_DESCRIPTION_SPACING + "The number of generator threads. Defaults to the number of cores.",
+            "",
+            HELP_SPACING + "--seed <NUMBER>",
+            HELP_SPACING + HELP_DESCRIPTION_SPACING + "Generate the same data on every run.",
+            "",
+            HELP_SPACING + "--help",
+            HELP_SPACING + "-h",
+            HELP_SPACING + HELP_DESCRIPTION_SPACING  + "Display this menu.",
+        };
+    }
+    
+    @Override
+    public boolean parse(String[] args, int start) throws Exception
+    {
+        if(start == args.length) return false;
+        
+        for(int i=start; i<args.length; i++)
+        {
+            // Handle single-letter params with no spaces in them
+            if(args[i].length() > 2 && args[i].charAt(0) == '-' && Character.isLetter(args[i].charAt(1)))
+            {
+                parse(new String[]{ args[i].substring(0, 2), args[i].substring(2) }, 0);
+                
+                continue;
+            }
+            
+            switch(args[i])
+            {
+                case "--help":
+                case "-h":
+                    printToolHelp(this);
+                    
+                case "--rows":
+                case "-n":
+                    rows = Long.parseLong(args[++i]);
+                    break;
+                    
+                case "--connection-name":
+                case "-c":
+                    connectionName = args[++i];
+                    break;
+                    
+                case "--table":
+                case "-t":
+                    tableName = args[++i];
+                    break;
+                    
+                case "--column":
+                case "-C":
+                    specs.add(args[++i]);
+                    break;
+                    
+                case "--null-ratio":
+                    nullRatio = Double.parseDouble(args[++i]);
+                    break;
+                    
+                case "--output":
+                case "-o":
+                    outputPath = args[++i];
+                    break;
+                    
+                case "--format":
+                case "-f":
+                    format = args[++i].toLowerCase();
+                    break;
+                    
+                case "--load":
+                    load = true;
+                    break;
+                    
+                case "--no-native":
+                    allowNative = false;
+                    break;
+                    
+                case "--threads":
+                    threads = Integer.parseInt(args[++i]);
+                    break;
+                    
+                case "--seed":
+                    seed = Long.parseLong(args[++i]);
+                    break;
+                    
+                default:
+                    System.err.println("Unknown parameter: " + args[i]);
+                    printToolHelp(this);
+            }
+        }
+        
+        if(rows < 1) return error("No row count specified! Use -n to specify the number of rows.");
+        if(threads < 1) return error("At least one thread is required!");
+        if(nullRatio < 0 || nullRatio > 1) return error("The null ratio must be between 0 and 1!");
+        if((connectionName == null) != (tableName == null)) return error("A table requires a connection and a connection requires a table!");
+        if(tableName == null && specs.isEmpty()) return error("No columns specified! Use -t to copy a table's columns or --column to add columns.");
+        if(load && tableName == null) return error("Loading requires a connection and table!");
+        if(!load && outputPath == null) return error("No output specified! Use -o to write a file or --load to insert into the table.");
+        
+        if(format == null && outputPath != null && outputPath.contains(".")) format = outputPath.substring(outputPath.lastIndexOf('.') + 1).toLowerCase();
+        if(format == null || load) format = "csv";
+        
+        if(!format.equals("jbin") && getDelimiter() == 0 && !format.equals("json")) return error("Unsupported format: " + format);
+        
+        if(connectionName != null)
+        {
+            connection = StoredConnections.getConnection(connectionName);
+            
+            if(connection == null) exit(255, "Saved connection " + connectionName + " does not exist!");
+        }
+        
+        return true;
+    }
+    
+    private char getDelimiter()
+    {
+        switch(format)
+        {
+            case "csv":
+                return ',';
+                
+            case "tsv":
+                return '\t';
+                
+            case "pipe":
+                return '|';
+                
+            default:
+                return 0;
+        }
+    }
+    
+    private ColumnGenerator createColumn(String name, String type)
+    {
+        String base = type.contains("(") ? type.substring(0, type.indexOf('(')).trim() : type.trim();
+        String[] size = type.contains("(") ? type.substring(type.indexOf('(') + 1, type.lastIndexOf(')')).split(",") : new String[0];
+        Integer sqlType = ColumnGenerator.getType(base);
+        ColumnGenerator column;
+        
+        if(sqlType == null) throw new ConvirganceException("Unknown type for column " + name + ": " + type);
+        
+        column = new ColumnGenerator(name, sqlType, base);
+        
+        if(size.length > 0) column.setPrecision(Integer.parseInt(size[0].trim()));
+        if(size.length > 1) column.setScale(Integer.parseInt(size[1].trim()));
+        
+        column.setNullRatio(nullRatio);
+        
+        return column;
+    }
+    
+    private List<ColumnGenerator> getTableColumns() throws SQLException
+    {
+        List<ColumnGenerator> columns = new ArrayList<>();
+        Set<String> keys = new HashSet<>();
+        DatabaseMetaData database;
+        ResultSetMetaData metadata;
+        ExportColumn[] exported;
+        ColumnGenerator column;
+        
+        try(Connection jdbc = ConnectionPools.getPool(connection).getConnection())
+        {
+            database = jdbc.getMetaData();
+            
+            try(ResultSet set = database.getPrimaryKeys(null, null, SchemaMetadata.normalize(database, tableName)))
+            {
+                while(set.next()) keys.add(set.getString("COLUMN_NAME").toLowerCase());
+            }
+            
+            try(Statement statement = jdbc.createStatement(); 
+                ResultSet set = statement.executeQuery("SELECT * FROM " + tableName + " WHERE 1=0"))
+            {
+                metadata = set.getMetaData();
+                exported = ExportColumn.getColumns(metadata);
+                
+                for(int i=0; i<exported.length; i++)
+                {
+                    column = new ColumnGenerator(exported[i].getName(), metadata.getColumnType(i + 1), metadata.getColumnTypeName(i + 1));
+                    
+                    column.setPrecision(metadata.getPrecision(i + 1));
+                    
+                    if(metadata.getScale(i + 1) >= 0) column.setScale(metadata.getScale(i + 1));
+                    if(metadata.isNullable(i + 1) != ResultSetMetaData.columnNoNulls) column.setNullRatio(nullRatio);
+                    
+                    if(!column.isSupported())
+                    {
+                        if(metadata.isNullable(i + 1) == ResultSetMetaData.columnNoNulls)
+                        {
+                            throw new ConvirganceException("Column " + exported[i].getName() + " has type " + metadata.getColumnTypeName(i + 1) + " which can't be generated");
+                        }
+                        
+                        System.err.println("Warning: column " + exported[i].getName() + " has type " + metadata.getColumnTypeName(i + 1) + " which can't be generated and will be null");
+                    }
+                    
+                    if(keys.contains(exported[i].getName().toLowerCase())) column.setDistribution("sequential");
+                    
+                    columns.add(column);
+                }
+            }
+        }
+        
+        return columns;
+    }
+    
+    private ColumnGenerator[] getColumns() throws SQLException
+    {
+        List<ColumnGenerator> columns = (tableName != null) ? getTableColumns() : new ArrayList<>();
+        ColumnGenerator column;
+        String[] parts;
+        
+        for(String spec : specs)
+        {
+            parts = spec.split(":", 3);
+            column = null;
+            
+            for(ColumnGenerator existing : columns)
+            {
+                if(existing.getName().equalsIgnoreCase(parts[0].trim())) column = existing;
+            }
+            
+            if(column != null)
+            {
+                // Table columns keep their type, so only the distribution is given
+                column.setDistribution(parts[parts.length - 1]);
+                continue;
+            }
+            
+            if(tableName != null) throw new ConvirganceException("Column " + parts[0] + " does not exist in " + tableName);
+            if(parts.length < 2) throw new ConvirganceException("No type specified for column " + parts[0]);
+            
+            column = createColumn(parts[0].trim(), parts[1]);
+            
+            if(parts.length > 2) column.setDistribution(parts[2]);
+            
+            columns.add(column);
+        }
+        
+        return columns.toArray(ColumnGenerator[]::new);
+    }
+    
+    private RowBatch fill(ColumnGenerator[] generators, RowBatch batch, long block, int count)
+    {
+        // Seeded per block so the data doesn't depend on which thread generated it
+        SplittableRandom random = new SplittableRandom(seed ^ (block * 0x9E3779B97F4A7C15L));
+        
+        batch.clear();
+        
+        for(int i=0; i<generators.length; i++) generators[i].fill(batch, i, block * blockSize, count, random);
+        
+        batch.setSize(count);
+        
+        return batch;
+    }
+    
+    // Load records hold the JDBC types, e.g. a Timestamp rather than its text
+    private static JSONObject toRecord(ColumnGenerator[] generators, RowBatch batch, int row, boolean load)
+    {
+        ExportColumn[] columns = batch.getColumns();
+        JSONObject record = new JSONObject(true);
+        
+        for(int i=0; i<columns.length; i++)
+        {
+            if(batch.isNull(row, i))
+            {
+                record.put(columns[i].getName(), null);
+                continue;
+            }
+            
+            switch(columns[i].getKind())
+            {
+                case LONG:
+                    record.put(columns[i].getName(), batch.getLong(row, i));
+                    break;
+                    
+                case DOUBLE:
+                    record.put(columns[i].getName(), batch.getDouble(row, i));
+                    break;
+                    
+                case BOOLEAN:
+                    record.put(columns[i].getName(), batch.getBoolean(row, i));
+                    break;
+                    
+                default:
+                    record.put(columns[i].getName(), load ? generators[i].toJDBC(batch.getObject(row, i)) : batch.getObject(row, i));
+            }
+        }
+        
+        return record;
+    }
+    
+    /**
+     * Generates the blocks on the worker threads and hands the results to the
+     * sink in block order. At most two blocks per thread are in flight, which
+     * bounds memory when the sink is slower than the generators.
+     */
+    private <T> void generate(BlockTask<T> task, BlockSink<T> sink) throws Exception
+    {
+        ExecutorService workers = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "generate-data");
+            
+            thread.setDaemon(true);
+            
+            return thread;
+        });
+        
+        ArrayDeque<Future<T>> pending = new ArrayDeque<>();
+        long blocks = (rows + blockSize - 1) / blockSize;
+        
+        try
+        {
+            for(long block=0; block<blocks; block++)
+            {
+                final long index = block;
+                final int count = (int)Math.min(blockSize, rows - block * blockSize);
+                
+                while(pending.size() >= threads * 2) sink.accept(pending.poll().get());
+                
+                pending.add(workers.submit(() -> task.run(index, count)));
+            }
+            
+            while(!pending.isEmpty()) sink.accept(pending.poll().get());
+        }
+        catch(ExecutionException e)
+        {
+            if(e.getCause() instanceof Exception) throw (Exception)e.getCause();
+            
+            throw e;
+        }
+        finally
+        {
+            workers.shutdownNow();
+        }
+    }
+    
+    private long writeEncoded(ColumnGenerator[] generators, ExportColumn[] columns, OutputStream out) throws Exception
+    {
+        ConcurrentLinkedQueue<OutputBuffer> free = new ConcurrentLinkedQueue<>();
+        ThreadLocal<RowBatch> batches = ThreadLocal.withInitial(() -> new RowBatch(columns, blockSize));
+        ThreadLocal<RecordEncoder> encoders = ThreadLocal.withInitial(() -> RecordEncoder.getEncoder(format, getDelimiter(), columns));
+        RecordEncoder encoder = RecordEncoder.getEncoder(format, getDelimiter(), columns);
+        OutputBuffer buffer = new OutputBuffer();
+        
+        encoder.begin(buffer);
+        buffer.drainTo(out);
+        
+        generate((block, count) -> {
+            
+            RowBatch batch = fill(generators, batches.get(), block, count);
+            RecordEncoder local = encoders.get();
+            OutputBuffer encoded = free.poll();
+            
+            if(encoded == null) encoded = new OutputBuffer(256 * 1024);
+            
+            local.resume(block * blockSize);
+            
+            for(int i=0; i<count; i++) local.encode(batch, i, encoded);
+            
+            return encoded;
+            
+        }, encoded -> {
+            
+            encoded.drainTo(out);
+            free.offer(encoded);
+        });
+        
+        encoder.resume(rows);
+        encoder.end(buffer);
+        buffer.drainTo(out);
+        
+        return rows;
+    }
+    
+    private long writeRecords(ColumnGenerator[] generators, ExportColumn[] columns, OutputStream out) throws Exception
+    {
+        try(OutputCursor cursor = new JBINOutput().write(new OutputStreamTarget(out)))
+        {
+            generate((block, count) -> fill(generators, new RowBatch(columns, count), block, count), batch -> {
+                for(int i=0; i<batch.size(); i++) cursor.write(toRecord(generators, batch, i, false));
+            });
+        }
+        
+        return rows;
+    }
+    
+    private Query getInsertQuery(ExportColumn[] columns)
+    {
+        StringBuffer sql = new StringBuffer("insert into ");
+        
+        sql.append(tableName);
+        sql.append("(\n");
+        
+        for(int i=0; i<columns.length; i++)
+        {
+            if(i > 0) sql.append(",\n");
+            
+            sql.append("    ");
+            sql.append(connection.getDriver().quoteIdentifier(columns[i].getName()));
+        }
+        
+        sql.append("\n) VALUES (");
+        
+        for(int i=0; i<columns.length; i++)
+        {
+            if(i > 0) sql.append(",\n");
+            
+            sql.append("    :");
+            sql.append(columns[i].getName());
+        }
+        
+        sql.append(")");
+        
+        return new Query(sql.toString());
+    }
+    
+    private Thread startGenerator(ColumnGenerator[] generators, ExportColumn[] columns, RecordQueue queue)
+    {
+        Thread thread = new Thread(() -> {
+            try
+            {
+                generate((block, count) -> fill(generators, new RowBatch(columns, count), block, count), batch -> {
+                    for(int i=0; i<batch.size(); i++) queue.put(toRecord(generators, batch, i, true));
+                });
+                
+                queue.finish();
+            }
+            catch(Exception e)
+            {
+                queue.fail(e);
+            }
+        }, "generate-data-" + tableName);
+        
+        thread.setDaemon(true);
+        thread.start();
+        
+        return thread;
+    }
+    
+    // Uses the same bulk load paths as 'sql copy'
+    private long loadTable(ColumnGenerator[] generators, ExportColumn[] columns) throws Exception
+    {
+        NativeLoader loader = allowNative ? NativeLoaders.getLoader(connection.getDriver()) : null;
+        RecordQueue queue = new RecordQueue(1000, 16);
+        Thread generator = startGenerator(generators, columns, queue);
+        String[] names = new String[columns.length];
+        
+        for(int i=0; i<names.length; i++) names[i] = columns[i].getName();
+        
+        try(Connection jdbc = ConnectionPools.getPool(connection).getConnection())
+        {
+            if(loader != null)
+            {
+                jdbc.setAutoCommit(false);
+                
+                try
+                {
+                    loader.load(jdbc, tableName, names, queue.iterator());
+                    jdbc.commit();
+                }
+                catch(Exception e)
+                {
+                    jdbc.rollback();
+                    
+                    throw e;
+                }
+            }
+            else
+            {
+                new TransactionOperation(new BatchOperation(getInsertQuery(columns), queue)).execute(jdbc);
+            }
+        }
+        catch(Exception e)
+        {
+            queue.cancel();
+            
+            throw e;
+        }
+        finally
+        {
+            generator.join();
+        }
+        
+        return queue.getCount();
+    }
+    
+    @Override
+    public void execute() throws Exception
+    {
+        ColumnGenerator[] generators = getColumns();
+        ExportColumn[] columns = new ExportColumn[generators.length];
+        long started = System.nanoTime();
+        CountingOutputStream out;
+        double seconds;
+        long count;
+        
+        for(int i=0; i<columns.length; i++) columns[i] = generators[i].getColumn();
+        
+        if(load)
+        {
+            count = loadTable(generators, columns);
+            seconds = (System.nanoTime() - started) / 1e9;
+            
+            System.err.println(String.format("Loaded %d rows in %.1fs (%.0f rows/s)", count, seconds, count / seconds));
+            return;
+        }
+        
+        out = new CountingOutputStream(outputPath.equals("-") ? System.out : new FileOutputStream(getFile(outputPath)));
+        
+        try(OutputStream stream = new BufferedOutputStream(out, 1024 * 1024))
+        {
+            if(format.equals("jbin")) count = writeRecords(generators, columns, stream);
+            else count = writeEncoded(generators, columns, stream);
+        }
+        
+        seconds = (System.nanoTime() - started) / 1e9;
+        
+        System.err.println(String.format("Generated %d rows, %.1f MB in %.1fs (%.0f rows/s, %.1f MB/s)", count, out.bytes / 1e6, seconds, count / seconds, out.bytes / 1e6 / seconds));
+    }
+    
+    private static interface BlockTask<T>
+    {
+        public T run(long block, int count) throws Exception;
+    }
+    
+    private static interface BlockSink<T>
+    {
+        public void accept(T result) throws Exception;
+    }
+    
+    private static class CountingOutputStream extends FilterOutputStream
+    {
+        private long bytes;
+        
+        public CountingOutputStream(OutputStream out)
+        {
+            super(out);
+        }
+        
+        @Override
+        public void write(int b) throws IOException
+        {
+            out.write(b);
+            bytes++;
+        }
+        
+        @Override
+        public void write(byte[] buffer, int offset, int length) throws IOException
+        {
+            out.write(buffer, offset, length);
+            bytes += length;
+        }
+    }
+}
@@ -35,11 +35,14 @@ import com.invirgance.convirgance.source.InputStreamSource;
 import com.invirgance.convirgance.source.Source;
 import com.invirgance.convirgance.source.URLSource;
 import com.invirgance.convirgance.transform.CoerceStringsTransformer;
-import com.invirgance.virge.Virge;
 import static com.invirgance.virge.Virge.HELP_DESCRIPTION_SPACING;
 import static com.invirgance.virge.Virge.HELP_SPACING;
-import static com.invirgance.virge.Virge.exit;
+import com.invirgance.virge.sql.Dialect;
+import static com.invirgance.virge.sql.VirgeSQL.exit;
+import static com.invirgance.virge.sql.VirgeSQL.getFile;
 import static com.invirgance.virge.sql.VirgeSQL.printToolHelp;
+import com.invirgance.virge.sql.importtools.JSONLinesInput;
+import com.invirgance.virge.sql.jfr.InferencePassEvent;
 import com.invirgance.virge.tool.Tool;
 import java.io.File;
 import java.io.IOException;
@@ -47,6 +50,9 @@ import java.math.BigDecimal;
 import java.net.MalformedURLException;
 import java.net.URI;
 import java.net.URL;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
 import java.text.DecimalFormatSymbols;
 
 /**
@@ -55,6 +61,8 @@ import java.text.DecimalFormatSymbols;
  */
 public class GenerateTable implements Tool
 {
+    public static final String DESCRIPTION = "Generate a SQL query to create a table based on the source's data.";
+    
     private char inputDelimiter;
     private boolean detectTypes = false;
     private String tableName;
@@ -97,7 +105,7 @@ public class GenerateTable implements Tool
             return new URLSource(url);
         }
         
-        file = new File(path);
+        file = getFile(path);
         
         if(!file.isFile())
         {
@@ -132,6 +140,7 @@ public class GenerateTable implements Tool
         path = path.toLowerCase();
         
         if(path.endsWith(".json")) return new JSONInput();
+        if(path.endsWith(".jsonl") || path.endsWith(".ndjson")) return new JSONLinesInput();
         if(path.endsWith(".csv")) return new CSVInput(); 
         if(path.endsWith(".jbin")) return new JBINInput();
         
@@ -147,7 +156,7 @@ public class GenerateTable implements Tool
     @Override 
     public String getShortDescription()
     {
-        return "Generate a SQL query to create a table based on the source's data.";
+        return DESCRIPTION;
     }
     
     @Override
@@ -166,7 +175,7 @@ public class GenerateTable implements Tool
             "",
             HELP_SPACING + "--source-type [FORMAT]",
             HELP_SPACING + "-i [FORMAT]",
-            HELP_SPACING + HELP_DESCRIPTION_SPACING + "Specify the format of the input file. Currently supported options are json, csv, tsv, pipe, delimited, and jbin",
+            HELP_SPACING + HELP_DESCRIPTION_SPACING + "Specify the format of the input file. Currently supported options are json, jsonl, csv, tsv, pipe, delimited, and jbin",
             "",
             HELP_SPACING + "--source-delimiter [DELIMITER]",
             HELP_SPACING + "-S [DELIMITER]",
@@ -222,6 +231,9 @@ public class GenerateTable implements Tool
             case "json":
                 return new JSONInput();
                 
+            case "jsonl":
+                return new JSONLinesInput();
+                
             default:
                 exit(255, "Unknown input type: " + type);
                 return null; // Keep the compiler happy
@@ -340,14 +352,18 @@ public class GenerateTable implements Tool
        Iterable<JSONObject> iterable;
        StringBuffer sql = new StringBuffer();
        StringBuffer comments = new StringBuffer();
+       InferencePassEvent event = new InferencePassEvent();
 
        Column[] columns = null;
+       long rows = 0;
        int index;
 
-       if(name == null) Virge.exit(254, "No table name specified! Use -n to specify a name.");
-       if(source == null) Virge.exit(254, "No source specified!");
-       if(input == null) Virge.exit(254, "No input type specified and unable to autodetect");
+       if(name == null) exit(254, "No table name specified! Use -n to specify a name.");
+       if(source == null) exit(254, "No source specified!");
+       if(input == null) exit(254, "No input type specified and unable to autodetect");
 
+       event.begin();
+       
        iterable = input.read(source);
 
        if(detect) iterable = new CoerceStringsTransformer().transform(iterable);
@@ -369,6 +385,20 @@ public class GenerateTable implements Tool
            {
                column.analyze(record.get(column.name));
            }   
+           
+           rows++;
+       }
+       
+       event.end();
+       
+       if(event.shouldCommit())
+       {
+           event.table = name;
+           event.rows = rows;
+           event.columns = (columns != null) ? columns.length : 0;
+           event.detect = detect;
+           
+           event.commit();
        }
 
        sql.append("CREATE TABLE ");
@@ -398,6 +428,150 @@ public class GenerateTable implements Tool
        return comments.toString() + sql.toString();
     }   
     
+    /**
+     * Returns a string that can be used to create a table with the same columns
+     * as the results of a query, such as when copying a table between databases.
+     * 
+     * @param driver The driver of the database the table will be created in
+     * @param metadata The metadata of the source query
+     * @param name The table name
+     * @return A String representing a SQL create statement.
+     * @throws SQLException If the metadata can't be read
+     */
+    public String generateTableSQL(AutomaticDriver driver, ResultSetMetaData metadata, String name) throws SQLException
+    {
+        Dialect dialect = Dialect.getDialect(driver);
+        StringBuffer sql = new StringBuffer();
+        
+        sql.append("CREATE TABLE ");
+        sql.append(name);
+        sql.append(" (\n");
+        
+        for(int i=1; i<=metadata.getColumnCount(); i++)
+        {
+            if(i > 1) sql.append(",\n");
+            
+            sql.append("    ");
+            sql.append(driver.quoteIdentifier(metadata.getColumnLabel(i)));
+            sql.append(" ");
+            sql.append(getSQLType(dialect, metadata, i));
+            
+            if(metadata.isNullable(i) == ResultSetMetaData.columnNoNulls) sql.append(" NOT NULL");
+        }
+        
+        sql.append("\n)");
+        
+        return sql.toString();
+    }
+    
+    private String getSQLType(Dialect dialect, ResultSetMetaData metadata, int column) throws SQLException
+    {
+        int precision = metadata.getPrecision(column);
+        int scale = metadata.getScale(column);
+        
+        switch(metadata.getColumnType(column))
+        {
+            case Types.BIT:
+            case Types.BOOLEAN:
+                if(dialect == Dialect.SQLSERVER) return "BIT";
+                if(dialect == Dialect.ORACLE) return "NUMBER(1)";
+                
+                return "BOOLEAN";
+                
+            case Types.TINYINT:
+            case Types.SMALLINT:
+                return "SMALLINT";
+                
+            case Types.INTEGER:
+                return "INT";
+                
+            case Types.BIGINT:
+                return "BIGINT";
+                
+            case Types.REAL:
+            case Types.FLOAT:
+            case Types.DOUBLE:
+                if(dialect == Dialect.SQLSERVER) return "FLOAT";
+                
+                return "DOUBLE PRECISION";
+                
+            case Types.NUMERIC:
+            case Types.DECIMAL:
+                if(precision < 1 || precision > 38) return "NUMERIC";
+                
+                return "NUMERIC(" + precision + "," + Math.max(scale, 0) + ")";
+                
+            case Types.DATE:
+                return "DATE";
+                
+            case Types.TIME:
+                return "TIME";
+                
+            case Types.TIMESTAMP:
+                if(dialect == Dialect.SQLSERVER) return "DATETIME2";
+                
+                return "TIMESTAMP";
+                
+            case Types.TIMESTAMP_WITH_TIMEZONE:
+                if(dialect == Dialect.SQLSERVER) return "DATETIMEOFFSET";
+                
+                return "TIMESTAMP WITH TIME ZONE";
+                
+            case Types.BINARY:
+            case Types.VARBINARY:
+            case Types.LONGVARBINARY:
+            case Types.BLOB:
+                return getBinary(dialect);
+                
+            case Types.CHAR:
+            case Types.NCHAR:
+                if(precision > 0 && precision <= 2000) return "CHAR(" + precision + ")";
+                
+                return getVarchar(dialect, precision);
+                
+            default:
+                return getVarchar(dialect, precision);
+        }
+    }
+    
+    private String getVarchar(Dialect dialect, int length)
+    {
+        if(length > 0 && length <= 4000) return "VARCHAR(" + length + ")";
+        
+        switch(dialect)
+        {
+            case POSTGRESQL:
+                return "TEXT";
+                
+            case MYSQL:
+                return "LONGTEXT";
+                
+            case SQLSERVER:
+                return "NVARCHAR(MAX)";
+                
+            default:
+                return "CLOB";
+        }
+    }
+    
+    private String getBinary(Dialect dialect)
+    {
+        switch(dialect)
+        {
+            case POSTGRESQL:
+                return "BYTEA";
+                
+            case MYSQL:
+                return "LONGBLOB";
+                
+            case SQLSERVER:
+                return "VARBINARY(MAX)";
+                
+            default:
+                return "BLOB";
+        }
+    }
+    
     @Override
     public void execute() throws Exception
     {
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2024 INVIRGANCE LLC
+
+Permission is hereby granted, free of charge, to any person obtaining a copy 
+of this software and associated documentation files (the “Software”), to deal 
+in the Software without restriction, including without limitation the rights to 
+use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies 
+of the Software, and to permit persons to whom the Software is furnished to do 
+so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all 
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR 
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, 
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER 
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE 
+SOFTWARE.
+ */
+package com.invirgance.virge.sql.generate;
+
+import java.util.SplittableRandom;
+
+/**
+ * Draws values from 1 to n following Zipf's law, where value k is picked with
+ * a probability proportional to 1/k^exponent. Uses rejection-inversion 
+ * sampling (Hörmann and Derflinger, 1996), which takes constant time per 
+ * value and needs no table, so n can be as large as a long.
+ * 
+ * @author tadghh
+ */
+public class ZipfSampler
+{
+    private final long elements;
+    private final double exponent;
+    private final double hIntegralX1;
+    private final double hIntegralElements;
+    private final double s;
+    
+    /**
+     * Creates a new sampler.
+     * 
+     * @param elements The number of distinct values
+     * @param exponent How skewed the distribution is. 1.0 is classic Zipf, 0 is uniform.
+     */
+    public ZipfSampler(long elements, double exponent)
+    {
+        if(elements < 1) throw new IllegalArgumentException("Zipf requires at least one element");
+        if(exponent < 0) throw new IllegalArgumentException("Zipf exponent must not be negative");
+        
+        this.elements = elements;
+        this.exponent = exponent;
+        this.hIntegralX1 = hIntegral(1.5) - 1.0;
+        this.hIntegralElements = hIntegral(elements + 0.5);
+        this.s = 2.0 - hIntegralInverse(hIntegral(2.5) - h(2.0));
+    }
+    
+    /**
+     * Returns the next value.
+     * 
+     * @param random The source of randomness
+     * @return A value from 1 to the number of elements
+     */
+    public long sample(SplittableRandom random)
+    {
+        double u;
+        double x;
+        long k;
+        
+        while(true)
+        {
+            u = hIntegralElements + random.nextDouble() * (hIntegralX1 - hIntegralElements);
+            x = hIntegralInverse(u);
+            k = (long)(x + 0.5);
+            
+            if(k < 1) k = 1;
+            else if(k > elements) k = elements;
+            
+            if(k - x <= s || u >= hIntegral(k + 0.5) - h(k)) return k;
+        }
+    }
+    
+    private double hIntegral(double x)
+    {
+        double log = Math.log(x);
+        
+        return helper2((1.0 - exponent) * log) * log;
+    }
+    
+    private double h(double x)
+    {
+        return Math.exp(-exponent * Math.log(x));
+    }
+    
+    private double hIntegralInverse(double x)
+    {
+        double t = Math.max(-1.0, x * (1.0 - exponent));
+        
+        return Math.exp(helper1(t) * x);
+    }
+    
+    // log(1 + x) / x, accurate near 0
+    private static double helper1(double x)
+    {
+        if(Math.abs(x) > 1e-8) return Math.log1p(x) / x;
+        
+        return 1.0 - x * (0.5 - x * (1.0 / 3.0 - 0.25 * x));
+    }
+    
+    // (exp(x) - 1) / x, accurate near 0
+    private static double helper2(double x)
+    {
+        if(Math.abs(x) > 1e-8) return Math.expm1(x) / x;
+        
+        return 1.0 + x * 0.5 * (1.0 + x * 1.0 / 3.0 * (1.0 + 0.25 * x));
+    }
+}
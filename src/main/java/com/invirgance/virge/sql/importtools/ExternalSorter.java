@@ -0,0 +1,500 @@
+/*
+ * Copyright 2024 INVIRGANCE LLC
+
+Permission is hereby granted, free of charge, to any person obtaining a copy 
+of this software and associated documentation files (the “Software”), to deal 
+in the Software without restriction, including without limitation the rights to 
+use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies 
+of the Software, and to permit persons to whom the Software is furnished to do 
+so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all 
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR 
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, 
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER 
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE 
+SOFTWARE.
+ */
+package com.invirgance.virge.sql.importtools;
+
+import com.invirgance.convirgance.CloseableIterator;
+import com.invirgance.convirgance.ConvirganceException;
+import com.invirgance.convirgance.input.JBINInput;
+import com.invirgance.convirgance.json.JSONObject;
+import com.invirgance.convirgance.output.JBINOutput;
+import com.invirgance.convirgance.output.OutputCursor;
+import com.invirgance.convirgance.source.FileSource;
+import com.invirgance.convirgance.target.FileTarget;
+import com.invirgance.virge.sql.export.ExportColumn.Kind;
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Sorts records by one or more keys with a bounded amount of memory. Records
+ * are collected until they reach half of the memory limit, then sorted in 
+ * parallel and spilled to a temporary JBIN file while the next run is read.
+ * When there are more runs than can be merged at once, groups of runs are 
+ * merged in parallel into larger runs. The final merge is streamed to the
+ * caller, and input that fits in memory is never written to disk.
+ * 
+ * @author tadghh
+ */
+public class ExternalSorter
+{
+    private static final int MERGE_WIDTH = 16;
+    
+    private final List<String> keys;
+    private final long memory;
+    private final List<File> runs = new ArrayList<>();
+    
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private Map<String, Kind> kinds = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+    private String[] fields;
+    private Kind[] fieldKinds;
+    
+    /**
+     * Creates a new sorter.
+     * 
+     * @param keys The fields to sort by, in order of precedence
+     * @param memory The approximate number of bytes of records to hold in memory
+     */
+    public ExternalSorter(List<String> keys, long memory)
+    {
+        this.keys = keys;
+        this.memory = memory;
+    }
+    
+    public int getThreads()
+    {
+        return threads;
+    }
+    
+    /**
+     * Sets the number of runs that are merged at the same time when there are
+     * too many runs for a single merge.
+     * 
+     * @param threads The number of merge threads
+     */
+    public void setThreads(int threads)
+    {
+        this.threads = Math.max(1, threads);
+    }
+    
+    /**
+     * Sets the types of the sort keys, such as the column types of the table
+     * being loaded. String values of numeric keys are converted to numbers so
+     * they don't sort as text, e.g. when a CSV file is loaded without type 
+     * detection.
+     * 
+     * @param kinds The kind of each column by name
+     */
+    public void setKeyKinds(Map<String, Kind> kinds)
+    {
+        this.kinds = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        
+        this.kinds.putAll(kinds);
+    }
+    
+    /**
+     * Returns the number of runs that were spilled to disk by the last sort.
+     * 
+     * @return The number of runs, or 0 if the records were sorted in memory
+     */
+    public int getRunCount()
+    {
+        return runs.size();
+    }
+    
+    // Record keys may not have the same case as the keys given on the command line
+    private void resolveFields(JSONObject record)
+    {
+        fields = new String[keys.size()];
+        fieldKinds = new Kind[keys.size()];
+        
+        for(int i=0; i<fields.length; i++)
+        {
+            fields[i] = keys.get(i);
+            fieldKinds[i] = kinds.get(keys.get(i));
+            
+            for(String key : record.keySet())
+            {
+                if(key.equalsIgnoreCase(fields[i])) fields[i] = key;
+            }
+            
+            if(!record.containsKey(fields[i])) throw new ConvirganceException("Sort field " + keys.get(i) + " not found in the source");
+        }
+    }
+    
+    private Object coerce(String field, Kind kind, String value)
+    {
+        String text = value.trim();
+        
+        if(text.isEmpty()) return null;
+        
+        try
+        {
+            switch(kind)
+            {
+                case LONG:
+                    return Long.valueOf(text);
+                    
+                case DOUBLE:
+                    return Double.valueOf(text);
+                    
+                case DECIMAL:
+                    return new BigDecimal(text);
+                    
+                default:
+                    return value;
+            }
+        }
+        catch(NumberFormatException e)
+        {
+            throw new ConvirganceException("Sort field " + field + " has the non-numeric value '" + value + "'");
+        }
+    }
+    
+    // Converts the string values of numeric keys in place, so they're also loaded as numbers
+    private void coerce(JSONObject record)
+    {
+        Object value;
+        
+        for(int i=0; i<fields.length; i++)
+        {
+            value = record.get(fields[i]);
+            
+            if(fieldKinds[i] == null || !(value instanceof String)) continue;
+            
+            record.put(fields[i], coerce(fields[i], fieldKinds[i], (String)value));
+        }
+    }
+    
+    private static boolean isIntegral(Object value)
+    {
+        return (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte);
+    }
+    
+    @SuppressWarnings("unchecked")
+    private static int compareValues(Object left, Object right)
+    {
+        if(left == right) return 0;
+        if(left == null) return -1;
+        if(right == null) return 1;
+        
+        if(left instanceof Number && right instanceof Number)
+        {
+            if(isIntegral(left) && isIntegral(right)) return Long.compare(((Number)left).longValue(), ((Number)right).longValue());
+            if(left instanceof BigDecimal || right instanceof BigDecimal) return new BigDecimal(left.toString()).compareTo(new BigDecimal(right.toString()));
+            
+            return Double.compare(((Number)left).doubleValue(), ((Number)right).doubleValue());
+        }
+        
+        if(left instanceof Comparable && left.getClass() == right.getClass()) return ((Comparable<Object>)left).compareTo(right);
+        
+        return left.toString().compareTo(right.toString());
+    }
+    
+    private int compare(JSONObject left, JSONObject right)
+    {
+        int result;
+        
+        for(String field : fields)
+        {
+            result = compareValues(left.get(field), right.get(field));
+            
+            if(result != 0) return result;
+        }
+        
+        return 0;
+    }
+    
+    // A rough estimate of the heap used by a record, only needs to be good enough to bound memory
+    private static long estimate(Object value)
+    {
+        long size;
+        
+        if(value == null) return 0;
+        if(value instanceof String) return 40 + ((String)value).length();
+        if(value instanceof Number || value instanceof Boolean) return 24;
+        
+        if(value instanceof Map)
+        {
+            size = 64;
+            
+            for(Map.Entry<?,?> entry : ((Map<?,?>)value).entrySet())
+            {
+                size += 48 + estimate(entry.getKey()) + estimate(entry.getValue());
+            }
+            
+            return size;
+        }
+        
+        if(value instanceof List)
+        {
+            size = 40;
+            
+            for(Object item : (List<?>)value) size += 8 + estimate(item);
+            
+            return size;
+        }
+        
+        return 40 + 2 * value.toString().length();
+    }
+    
+    private File createRun() throws IOException
+    {
+        File file = File.createTempFile("virge-sort-", ".jbin");
+        
+        file.deleteOnExit();
+        
+        return file;
+    }
+    
+    private File spill(List<JSONObject> records) throws Exception
+    {
+        JSONObject[] sorted = records.toArray(JSONObject[]::new);
+        File file = createRun();
+        
+        Arrays.parallelSort(sorted, this::compare);
+        
+        try(OutputCursor cursor = new JBINOutput().write(new FileTarget(file)))
+        {
+            for(JSONObject record : sorted) cursor.write(record);
+        }
+        
+        return file;
+    }
+    
+    private File merge(List<File> group) throws Exception
+    {
+        File file = createRun();
+        
+        try(OutputCursor cursor = new JBINOutput().write(new FileTarget(file));
+            RunMerger merger = new RunMerger(group))
+        {
+            while(merger.hasNext()) cursor.write(merger.next());
+        }
+        
+        for(File run : group) run.delete();
+        
+        return file;
+    }
+    
+    // Merges groups of runs in parallel until they can all be merged at once
+    private void reduce(ExecutorService workers) throws Exception
+    {
+        List<Future<File>> merged = new ArrayList<>();
+        
+        while(runs.size() > MERGE_WIDTH)
+        {
+            merged.clear();
+            
+            for(int i=0; i<runs.size(); i+=MERGE_WIDTH)
+            {
+                final List<File> group = new ArrayList<>(runs.subList(i, Math.min(i + MERGE_WIDTH, runs.size())));
+                
+                if(group.size() == 1) merged.add(CompletableFuture.completedFuture(group.get(0)));
+                else merged.add(workers.submit(() -> merge(group)));
+            }
+            
+            runs.clear();
+            
+            for(Future<File> future : merged) runs.add(future.get());
+        }
+    }
+    
+    /**
+     * Sorts the records. The input is read completely before this method 
+     * returns. The result can be iterated once, and the temporary files are
+     * deleted when the iteration completes.
+     * 
+     * @param records The records to sort
+     * @return The records in sorted order
+     * @throws Exception If the records can't be read or the runs can't be written
+     */
+    public Iterable<JSONObject> sort(Iterable<JSONObject> records) throws Exception
+    {
+        ExecutorService workers = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "external-sort");
+            
+            thread.setDaemon(true);
+            
+            return thread;
+        });
+        
+        List<JSONObject> buffer = new ArrayList<>();
+        Future<File> pending = null;
+        long size = 0;
+        
+        runs.clear();
+        fields = null;
+        
+        try
+        {
+            for(JSONObject record : records)
+            {
+                if(fields == null) resolveFields(record);
+                
+                coerce(record);
+                
+                buffer.add(record);
+                size += estimate(record);
+                
+                // Half the memory is for the run being read, the other half for the run being spilled
+                if(size < memory / 2) continue;
+                
+                if(pending != null) runs.add(pending.get());
+                
+                final List<JSONObject> run = buffer;
+                
+                pending = workers.submit(() -> spill(run));
+                buffer = new ArrayList<>();
+                size = 0;
+            }
+            
+            if(pending == null)
+            {
+                buffer.sort(this::compare);
+                
+                return buffer;
+            }
+            
+            runs.add(pending.get());
+            
+            if(!buffer.isEmpty()) runs.add(spill(buffer));
+            
+            reduce(workers);
+        }
+        catch(ExecutionException e)
+        {
+            for(File run : runs) run.delete();
+            
+            if(e.getCause() instanceof Exception) throw (Exception)e.getCause();
+            
+            throw e;
+        }
+        catch(Exception e)
+        {
+            for(File run : runs) run.delete();
+            
+            throw e;
+        }
+        finally
+        {
+            workers.shutdownNow();
+        }
+        
+        return new Iterable<JSONObject>() {
+            
+            @Override
+            public Iterator<JSONObject> iterator()
+            {
+                return new RunMerger(new ArrayList<>(runs));
+            }
+        };
+    }
+    
+    private class RunMerger implements Iterator<JSONObject>, AutoCloseable
+    {
+        private final List<File> files;
+        private final List<CloseableIterator<JSONObject>> iterators = new ArrayList<>();
+        private final PriorityQueue<Head> heads;
+        
+        public RunMerger(List<File> files)
+        {
+            CloseableIterator<JSONObject> iterator;
+            
+            this.files = files;
+            
+            // Ties are broken by run order, which keeps the sort stable
+            this.heads = new PriorityQueue<>(Comparator.<Head, JSONObject>comparing(head -> head.record, ExternalSorter.this::compare).thenComparingInt(head -> head.run));
+            
+            for(int i=0; i<files.size(); i++)
+            {
+                iterator = new JBINInput().read(new FileSource(files.get(i))).iterator();
+                
+                iterators.add(iterator);
+                
+                if(iterator.hasNext()) heads.add(new Head(iterator.next(), i));
+            }
+        }
+        
+        @Override
+        public boolean hasNext()
+        {
+            if(heads.isEmpty()) close();
+            
+            return !heads.isEmpty();
+        }
+        
+        @Override
+        public JSONObject next()
+        {
+            Head head = heads.poll();
+            JSONObject record;
+            
+            if(head == null) throw new NoSuchElementException();
+            
+            record = head.record;
+            
+            if(iterators.get(head.run).hasNext())
+            {
+                head.record = iterators.get(head.run).next();
+                heads.add(head);
+            }
+            
+            return record;
+        }
+        
+        @Override
+        public void close()
+        {
+            for(CloseableIterator<JSONObject> iterator : iterators)
+            {
+                try
+                {
+                    iterator.close();
+                }
+                catch(Exception e)
+                {
+                    throw new ConvirganceException(e);
+                }
+            }
+            
+            iterators.clear();
+            
+            for(File file : files) file.delete();
+        }
+    }
+    
+    private static class Head
+    {
+        private JSONObject record;
+        private final int run;
+        
+        public Head(JSONObject record, int run)
+        {
+            this.record = record;
+            this.run = run;
+        }
+    }
+}
@@ -34,31 +34,49 @@ import com.invirgance.convirgance.input.Input;
 import com.invirgance.convirgance.input.InputCursor;
 import com.invirgance.convirgance.input.JBINInput;
 import com.invirgance.convirgance.input.JSONInput;
+import com.invirgance.convirgance.jdbc.AutomaticDriver;
 import com.invirgance.convirgance.jdbc.AutomaticDrivers;
 import com.invirgance.convirgance.jdbc.StoredConnection;
 import com.invirgance.convirgance.jdbc.StoredConnections;
-import com.invirgance.convirgance.jdbc.schema.Table;
 import com.invirgance.convirgance.json.JSONObject;
 import com.invirgance.convirgance.source.FileSource;
 import com.invirgance.convirgance.source.InputStreamSource;
 import com.invirgance.convirgance.source.Source;
 import com.invirgance.convirgance.source.URLSource;
 import com.invirgance.convirgance.transform.CoerceStringsTransformer;
-import com.invirgance.virge.Virge;
 import static com.invirgance.virge.Virge.HELP_DESCRIPTION_SPACING;
 import static com.invirgance.virge.Virge.HELP_SPACING;
-import static com.invirgance.virge.Virge.exit;
+import static com.invirgance.virge.sql.VirgeSQL.exit;
+import static com.invirgance.virge.sql.VirgeSQL.getFile;
+import static com.invirgance.virge.sql.VirgeSQL.parseBytes;
 import static com.invirgance.virge.sql.VirgeSQL.printToolHelp;
+import com.invirgance.virge.sql.drivers.TuningProfile;
+import com.invirgance.virge.sql.export.ExportColumn;
+import com.invirgance.virge.sql.export.ExportColumn.Kind;
 import com.invirgance.virge.sql.generate.GenerateTable;
+import com.invirgance.virge.sql.jfr.FlightRecording;
+import com.invirgance.virge.sql.jfr.Instrumentation;
+import com.invirgance.virge.sql.metadata.SchemaMetadata;
+import com.invirgance.virge.sql.pool.ConnectionPools;
 import com.invirgance.virge.tool.Tool;
 import java.io.File;
 import java.io.IOException;
 import java.net.MalformedURLException;
 import java.net.URI;
 import java.net.URL;
+import java.sql.Connection;
+import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  *
@@ -66,6 +84,8 @@ import java.util.List;
  */
 public class ImportTable implements Tool
 {
+    public static final String DESCRIPTION = "Load a table from an input source.";
+    
     private Source source;
     private Input<JSONObject> input;
 
@@ -73,7 +93,14 @@ public class ImportTable implements Tool
     private boolean truncate;
     private boolean detectTypes;
     private boolean createTable = false;
+    private boolean tuning = true;
+    private boolean unordered;
+    private List<String> columns;
+    private Map<String,LongAdder> skipped;
+    private List<String> sortBy;
+    private long sortMemory = Runtime.getRuntime().maxMemory() / 4;
     private String tableName;
+    private File jfr;
     
     private String jdbcURL;
     private String username;
@@ -121,7 +148,7 @@ public class ImportTable implements Tool
             return new URLSource(url);
         }
         
-        file = new File(path);
+        file = getFile(path);
         
         if(!file.isFile())
         {
@@ -151,6 +178,7 @@ public class ImportTable implements Tool
         path = path.toLowerCase();
         
         if(path.endsWith(".json")) return new JSONInput();
+        if(path.endsWith(".jsonl") || path.endsWith(".ndjson")) return new JSONLinesInput();
         if(path.endsWith(".csv")) return new DelimitedInput(','); // TODO: need to support proper CSV format
         if(path.endsWith(".jbin")) return new JBINInput();
         
@@ -173,7 +201,7 @@ public class ImportTable implements Tool
     @Override
     public String getShortDescription()
     {
-        return "Load a table from an input source.";
+        return DESCRIPTION;
     }
     
     @Override
@@ -186,12 +214,27 @@ public class ImportTable implements Tool
             "",
             HELP_SPACING + "--source-type [FORMAT]",
             HELP_SPACING + "-i [FORMAT]",
-            HELP_SPACING + HELP_DESCRIPTION_SPACING + "Specify the format of the input file. Currently supported options are json, csv, tsv, pipe, delimited, and jbin",
+            HELP_SPACING + HELP_DESCRIPTION_SPACING + "Specify the format of the input file. Currently supported options are json, jsonl, csv, tsv, pipe, delimited, and jbin",
             "",
             HELP_SPACING + "--source-delimiter [DELIMITER]",
             HELP_SPACING + "-S [DELIMITER]",
             HELP_SPACING + HELP_DESCRIPTION_SPACING + "Set the column delimiter if the source is a delimited file (e.g. , or |)",
             "",
+            HELP_SPACING + "--columns <COLUMN,...>",
+            HELP_SPACING + HELP_DESCRIPTION_SPACING + "Only load these fields from json and jsonl sources. Defaults to the columns of the table if it exists,",
+            HELP_SPACING + HELP_DESCRIPTION_SPACING + "in which case fields with no matching column are counted and reported as a warning.",
+            "",
+            HELP_SPACING + "--sort-by <COLUMN,...>",
+            HELP_SPACING + HELP_DESCRIPTION_SPACING + "Sort the source before loading, e.g. by the clustered index of the table.",
+            HELP_SPACING + HELP_DESCRIPTION_SPACING + "Sources larger than the sort memory are sorted in runs on disk and merged.",
+            HELP_SPACING + HELP_DESCRIPTION_SPACING + "Keys in numeric columns of an existing table are sorted as numbers.",
+            "",
+            HELP_SPACING + "--sort-memory <BYTES>",
+            HELP_SPACING + HELP_DESCRIPTION_SPACING + "The memory used for sorting. Accepts k, m and g suffixes (e.g. 512m). Defaults to a quarter of the heap.",
+            "",
+            HELP_SPACING + "--unordered",
+            HELP_SPACING + HELP_DESCRIPTION_SPACING + "Load jsonl records in the order they are parsed rather than the order of the file.",
+            "",
             HELP_SPACING + "--detect-input-types",
             HELP_SPACING + "-a",
             HELP_SPACING + HELP_DESCRIPTION_SPACING + "Detect the actual datatypes from the source file ex \"5\" would turn into an intergar",
@@ -207,6 +250,12 @@ public class ImportTable implements Tool
             HELP_SPACING + "--truncate",
             HELP_SPACING + HELP_DESCRIPTION_SPACING + "Truncate the table prior to loading. All existing DATA will be LOST!",
             "",           
+            HELP_SPACING + "--no-tuning",
+            HELP_SPACING + HELP_DESCRIPTION_SPACING + "Don't apply the driver's bulk-load properties (see 'sql connection list').",
+            "",           
+            HELP_SPACING + "--jfr <FILE>",
+            HELP_SPACING + HELP_DESCRIPTION_SPACING + "Write a Java Flight Recording of the import, including batch, commit and source read events.",
+            "",           
             HELP_SPACING + "--help",
             HELP_SPACING + "-h",
             HELP_SPACING + HELP_DESCRIPTION_SPACING  + "Display this menu.",                 
@@ -237,6 +286,8 @@ public class ImportTable implements Tool
     @Override
     public boolean parse(String[] args, int start) throws Exception
     {
+        AutomaticDriver driver;
+        
         if(start == args.length) return false;
 
         for(int i=start; i<args.length; i++)
@@ -251,6 +302,30 @@ public class ImportTable implements Tool
             
             switch(args[i])
             {
+                case "--no-tuning":
+                    tuning = false;
+                    break;
+                    
+                case "--columns":
+                    columns = Arrays.asList(args[++i].split("\\s*,\\s*"));
+                    break;
+                    
+                case "--sort-by":
+                    sortBy = Arrays.asList(args[++i].split("\\s*,\\s*"));
+                    break;
+                    
+                case "--sort-memory":
+                    sortMemory = parseBytes(args[++i]);
+                    break;
+                    
+                case "--unordered":
+                    unordered = true;
+                    break;
+                    
+                case "--jfr":
+                    jfr = getFile(args[++i]);
+                    break;
+                    
                 case "--help":
                 case "-h":
                     printToolHelp(this);
@@ -335,6 +410,9 @@ public class ImportTable implements Tool
         if(source == null) return error("No source specified!");
         if(input == null) return error("No input type specified and unable to autodetect");
         
+        if(unordered && input instanceof JSONLinesInput) ((JSONLinesInput)input).setOrdered(false);
+        if(columns != null && !(input instanceof JSONInput) && !(input instanceof JSONLinesInput)) return error("--columns is only supported for json and jsonl sources");
+        
         if(connectionName != null)
         {
             storedConnection = StoredConnections.getConnection(connectionName);
@@ -343,16 +421,20 @@ public class ImportTable implements Tool
             {
                 exit(255, "Saved connection " + connectionName + " does not exist!");
             }
+            
+            if(tuning) TuningProfile.apply(storedConnection, TuningProfile.BULK_LOAD);
         }
         else
         {
             if(jdbcURL == null) return error("JDBC URL not specified!");
             if(username == null) return error("Username not specified!");
             
-            storedConnection = AutomaticDrivers.getDriverByURL(jdbcURL)
+            driver = AutomaticDrivers.getDriverByURL(jdbcURL);
+            
+            storedConnection = driver
                     .createConnection(null)
                     .driver()
-                    .url(jdbcURL)
+                    .url(tuning ? TuningProfile.apply(jdbcURL, driver, TuningProfile.BULK_LOAD) : jdbcURL)
                     .password(password)
                     .username(username)
                     .build();
@@ -435,6 +517,14 @@ public class ImportTable implements Tool
     
     @Override
     public void execute() throws Exception
+    {
+        try(FlightRecording recording = FlightRecording.start(jfr))
+        {
+            load();
+        }
+    }
+    
+    private void load() throws Exception
     {
         List<AtomicOperation> operations = new ArrayList<>();
         Iterable<JSONObject> sourceIterable;
@@ -443,15 +533,33 @@ public class ImportTable implements Tool
         
         TransactionOperation transaction;
         BatchOperation batch; 
+        ExternalSorter sorter;
+        
+        Query query;
         
-        Query query = getInsertQuery();
+        source = Instrumentation.wrap(source, tableName);
+        input = project(input);
+        query = getInsertQuery();
         
-        if(query == null) Virge.exit(5, "Source provided no records to load!");
+        if(query == null) exit(5, "Source provided no records to load!");
+        
+        // Started after the insert query is built so the first record isn't counted twice
+        if(skipped != null) countSkipped();
 
   
         sourceIterable = input.read(source);
         
         if(detectTypes) sourceIterable = new CoerceStringsTransformer().transform(sourceIterable);
+        
+        if(sortBy != null)
+        {
+            sorter = new ExternalSorter(sortBy, sortMemory);
+            
+            // Delimited values are strings unless types are detected, so numeric keys would sort as text
+            if(checkIfTableExists()) sorter.setKeyKinds(getColumnKinds());
+            
+            sourceIterable = sorter.sort(sourceIterable);
+        }
 
         batch = new BatchOperation(query, sourceIterable);
 
@@ -470,22 +578,86 @@ public class ImportTable implements Tool
         transaction = new TransactionOperation(operations.toArray(new AtomicOperation[operations.size()]));
    
         storedConnection.execute(connection -> {
-            transaction.execute(connection);
+            transaction.execute(Instrumentation.wrap(connection, storedConnection.getName(), tableName));
         });
         
+        if(this.createTable) SchemaMetadata.invalidate(storedConnection);
+        
+        if(skipped != null && !skipped.isEmpty()) printSkipped();
+        
         System.out.println("Import completed");
     }    
     
+    private void countSkipped()
+    {
+        if(input instanceof JSONLinesInput) ((JSONLinesInput)input).setSkipped(skipped);
+        else ((ProjectingJSONInput)input).setSkipped(skipped);
+    }
+    
+    // A misspelled or renamed key would otherwise load as nulls without notice
+    private void printSkipped()
+    {
+        StringBuilder fields = new StringBuilder();
+        
+        for(Map.Entry<String,LongAdder> entry : skipped.entrySet())
+        {
+            if(fields.length() > 0) fields.append(", ");
+            
+            fields.append(entry.getKey()).append(" (").append(entry.getValue().sum()).append(" records)");
+        }
+        
+        System.err.println("Warning: " + skipped.size() + " field(s) have no matching column in " + tableName + " and were not loaded: " + fields);
+        System.err.println("Use --columns to choose the fields to load.");
+    }
+    
+    // Fields that won't be loaded are skipped by the parser rather than built and discarded
+    private Input<JSONObject> project(Input<JSONObject> input) throws SQLException
+    {
+        Set<String> fields = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+        
+        if(!(input instanceof JSONInput) && !(input instanceof JSONLinesInput)) return input;
+        
+        if(columns != null)
+        {
+            fields.addAll(columns);
+        }
+        else if(checkIfTableExists())
+        {
+            fields.addAll(SchemaMetadata.getColumnNames(storedConnection, tableName));
+            skipped = new ConcurrentSkipListMap<>();
+        }
+        else
+        {
+            return input;
+        }
+        
+        if(input instanceof JSONLinesInput)
+        {
+            ((JSONLinesInput)input).setFields(fields);
+            
+            return input;
+        }
+        
+        return new ProjectingJSONInput(fields);
+    }
+    
     private boolean checkIfTableExists() throws SQLException 
     {
-        Table[] tables = storedConnection.getSchemaLayout().getAllTables();
+        return SchemaMetadata.tableExists(storedConnection, tableName);
+    }
+    
+    private Map<String, Kind> getColumnKinds() throws SQLException
+    {
+        Map<String, Kind> kinds = new HashMap<>();
         
-        for(Table table : tables)
+        try(Connection jdbc = ConnectionPools.getPool(storedConnection).getConnection();
+            Statement statement = jdbc.createStatement();
+            ResultSet set = statement.executeQuery("SELECT * FROM " + tableName + " WHERE 1=0"))
         {
-            if(table.getName().equals(tableName)) return true;
+            for(ExportColumn column : ExportColumn.getColumns(set.getMetaData())) kinds.put(column.getName(), column.getKind());
         }
         
-        return false;
+        return kinds;
     }
     
     private Input<JSONObject> getInputType(String type)
@@ -513,6 +685,9 @@ public class ImportTable implements Tool
             case "json":
                 return new JSONInput();
                 
+            case "jsonl":
+                return new JSONLinesInput();
+                
             default:
                 exit(255, "Unknown input type: " + type);
                 return null; // Keep the compiler happy
@@ -0,0 +1,399 @@
+/*
+ * Copyright 2024 INVIRGANCE LLC
+
+Permission is hereby granted, free of charge, to any person obtaining a copy 
+of this software and associated documentation files (the “Software”), to deal 
+in the Software without restriction, including without limitation the rights to 
+use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies 
+of the Software, and to permit persons to whom the Software is furnished to do 
+so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all 
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR 
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, 
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER 
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE 
+SOFTWARE.
+ */
+package com.invirgance.virge.sql.importtools;
+
+import com.invirgance.convirgance.CloseableIterator;
+import com.invirgance.convirgance.ConvirganceException;
+import com.invirgance.convirgance.input.Input;
+import com.invirgance.convirgance.input.InputCursor;
+import com.invirgance.convirgance.json.JSONObject;
+import com.invirgance.convirgance.source.Source;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Reads newline delimited JSON (JSON lines) with the parsing spread across
+ * multiple threads. Since every line is a complete record, the source is 
+ * read in large chunks that are cut at the last newline, and each chunk is 
+ * parsed independently by a worker. Records are returned in the order of the
+ * source unless ordering is turned off, in which case chunks are returned as 
+ * soon as they are parsed.
+ * 
+ * @author tadghh
+ */
+public class JSONLinesInput implements Input<JSONObject>
+{
+    private static final Future<List<JSONObject>> END = CompletableFuture.completedFuture(null);
+    
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private int chunkSize = 1024 * 1024;
+    private boolean ordered = true;
+    private Set<String> fields;
+    private Map<String,LongAdder> skipped;
+    
+    public int getThreads()
+    {
+        return threads;
+    }
+    
+    /**
+     * Sets the number of threads parsing records. Defaults to the number of 
+     * processors.
+     * 
+     * @param threads The number of parsing threads
+     */
+    public void setThreads(int threads)
+    {
+        this.threads = Math.max(1, threads);
+    }
+    
+    public int getChunkSize()
+    {
+        return chunkSize;
+    }
+    
+    /**
+     * Sets the number of bytes read for each chunk. Chunks grow when a single
+     * line is longer than the chunk size.
+     * 
+     * @param chunkSize The chunk size in bytes
+     */
+    public void setChunkSize(int chunkSize)
+    {
+        this.chunkSize = Math.max(1024, chunkSize);
+    }
+    
+    public boolean isOrdered()
+    {
+        return ordered;
+    }
+    
+    /**
+     * Sets if records are returned in the same order as the source. Turning
+     * this off prevents one slow chunk from holding up the rest.
+     * 
+     * @param ordered false to return records in the order they are parsed
+     */
+    public void setOrdered(boolean ordered)
+    {
+        this.ordered = ordered;
+    }
+    
+    public Set<String> getFields()
+    {
+        return fields;
+    }
+    
+    /**
+     * Limits the records to a set of fields. The values of other fields are 
+     * skipped without being parsed (see ProjectingJSONParser).
+     * 
+     * @param fields The keys to keep, or null to keep all of them
+     */
+    public void setFields(Set<String> fields)
+    {
+        this.fields = fields;
+    }
+    
+    public Map<String,LongAdder> getSkipped()
+    {
+        return skipped;
+    }
+    
+    /**
+     * Counts the records each skipped key appeared in for cursors read after
+     * this is set. The map is shared by the parsing threads.
+     * 
+     * @param skipped A concurrent map to count skipped keys in, or null to not count them
+     */
+    public void setSkipped(Map<String,LongAdder> skipped)
+    {
+        this.skipped = skipped;
+    }
+    
+    @Override
+    public InputCursor<JSONObject> read(Source source)
+    {
+        return new InputCursor<JSONObject>() {
+            
+            @Override
+            public CloseableIterator<JSONObject> iterator()
+            {
+                return new LineIterator(source.getInputStream());
+            }
+        };
+    }
+    
+    private static JSONObject parseLine(String line, Set<String> fields, Map<String,LongAdder> skipped)
+    {
+        ProjectingJSONParser parser;
+        
+        try
+        {
+            if(fields != null)
+            {
+                parser = new ProjectingJSONParser(line, fields);
+                
+                parser.setSkipped(skipped);
+                
+                return parser.next();
+            }
+            
+            return new JSONObject(line);
+        }
+        catch(Exception e)
+        {
+            if(line.length() > 100) line = line.substring(0, 100) + "...";
+            
+            throw new ConvirganceException("Invalid JSON line: " + line, e);
+        }
+    }
+    
+    private static List<JSONObject> parse(byte[] chunk, int length, Set<String> fields, Map<String,LongAdder> skipped)
+    {
+        List<JSONObject> records = new ArrayList<>();
+        String line;
+        int start = 0;
+        int end;
+        
+        for(int i=0; i<=length; i++)
+        {
+            if(i < length && chunk[i] != '\n') continue;
+            
+            end = i;
+            
+            if(end > start && chunk[end - 1] == '\r') end--;
+            
+            line = new String(chunk, start, end - start, StandardCharsets.UTF_8);
+            start = i + 1;
+            
+            if(!line.isBlank()) records.add(parseLine(line, fields, skipped));
+        }
+        
+        return records;
+    }
+    
+    private static int lastNewline(byte[] buffer, int length)
+    {
+        for(int i=length-1; i>=0; i--)
+        {
+            if(buffer[i] == '\n') return i;
+        }
+        
+        return -1;
+    }
+    
+    private class LineIterator implements CloseableIterator<JSONObject>
+    {
+        private final InputStream in;
+        private final int limit = threads * 2;
+        private final Semaphore permits = new Semaphore(limit);
+        private final BlockingQueue<Future<List<JSONObject>>> results = new ArrayBlockingQueue<>(limit + 1);
+        private final boolean ordered = JSONLinesInput.this.ordered;
+        private final int chunkSize = JSONLinesInput.this.chunkSize;
+        private final Set<String> fields = JSONLinesInput.this.fields;
+        private final Map<String,LongAdder> skipped = JSONLinesInput.this.skipped;
+        private final ExecutorService workers;
+        private final Thread reader;
+        
+        private List<JSONObject> records;
+        private int index;
+        private boolean done;
+        private volatile boolean closed;
+        
+        public LineIterator(InputStream in)
+        {
+            this.in = in;
+            this.workers = Executors.newFixedThreadPool(threads, runnable -> {
+                Thread thread = new Thread(runnable, "jsonl-parser");
+                
+                thread.setDaemon(true);
+                
+                return thread;
+            });
+            
+            this.reader = new Thread(this::read, "jsonl-reader");
+            
+            reader.setDaemon(true);
+            reader.start();
+        }
+        
+        private void submit(byte[] chunk, int length) throws InterruptedException
+        {
+            FutureTask<List<JSONObject>> task;
+            
+            permits.acquire();
+            
+            if(ordered)
+            {
+                results.add(workers.submit(() -> parse(chunk, length, fields, skipped)));
+                return;
+            }
+            
+            task = new FutureTask<>(() -> parse(chunk, length, fields, skipped));
+            
+            workers.execute(() -> {
+                task.run();
+                results.add(task);
+            });
+        }
+        
+        private void read()
+        {
+            byte[] buffer = new byte[chunkSize];
+            byte[] chunk;
+            int length = 0;
+            int read;
+            int end;
+            
+            try
+            {
+                while((read = in.read(buffer, length, buffer.length - length)) >= 0)
+                {
+                    length += read;
+                    
+                    if(length < buffer.length) continue;
+                    
+                    end = lastNewline(buffer, length);
+                    
+                    // A single line longer than the buffer
+                    if(end < 0)
+                    {
+                        buffer = Arrays.copyOf(buffer, buffer.length * 2);
+                        continue;
+                    }
+                    
+                    chunk = buffer;
+                    buffer = new byte[chunk.length];
+                    length = length - end - 1;
+                    
+                    System.arraycopy(chunk, end + 1, buffer, 0, length);
+                    submit(chunk, end + 1);
+                }
+                
+                if(length > 0) submit(buffer, length);
+                
+                // Wait for the remaining chunks to be taken so the end can't overtake them
+                if(!ordered) permits.acquire(limit);
+                
+                results.add(END);
+            }
+            catch(InterruptedException e)
+            {
+                // Closed by the consumer
+            }
+            catch(IOException | RuntimeException e)
+            {
+                if(!closed) results.offer(CompletableFuture.failedFuture(e));
+            }
+        }
+        
+        @Override
+        public boolean hasNext()
+        {
+            Future<List<JSONObject>> future;
+            
+            while(records == null || index >= records.size())
+            {
+                if(done) return false;
+                
+                try
+                {
+                    future = results.take();
+                    
+                    if(future == END)
+                    {
+                        close();
+                        return false;
+                    }
+                    
+                    permits.release();
+                    
+                    records = future.get();
+                    index = 0;
+                }
+                catch(InterruptedException e)
+                {
+                    close();
+                    
+                    throw new ConvirganceException(e);
+                }
+                catch(ExecutionException e)
+                {
+                    close();
+                    
+                    if(e.getCause() instanceof ConvirganceException) throw (ConvirganceException)e.getCause();
+                    
+                    throw new ConvirganceException("Unable to read JSON lines", e.getCause());
+                }
+            }
+            
+            return true;
+        }
+        
+        @Override
+        public JSONObject next()
+        {
+            if(!hasNext()) throw new NoSuchElementException();
+            
+            return records.get(index++);
+        }
+        
+        @Override
+        public void close()
+        {
+            if(done) return;
+            
+            done = true;
+            closed = true;
+            
+            reader.interrupt();
+            workers.shutdownNow();
+            
+            try
+            {
+                in.close();
+            }
+            catch(IOException e)
+            {
+                throw new ConvirganceException(e);
+            }
+        }
+    }
+}
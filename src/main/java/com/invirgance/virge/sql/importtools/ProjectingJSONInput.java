@@ -0,0 +1,134 @@
+/*
+ * Copyright 2024 INVIRGANCE LLC
+
+Permission is hereby granted, free of charge, to any person obtaining a copy 
+of this software and associated documentation files (the “Software”), to deal 
+in the Software without restriction, including without limitation the rights to 
+use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies 
+of the Software, and to permit persons to whom the Software is furnished to do 
+so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all 
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR 
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, 
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER 
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE 
+SOFTWARE.
+ */
+package com.invirgance.virge.sql.importtools;
+
+import com.invirgance.convirgance.CloseableIterator;
+import com.invirgance.convirgance.ConvirganceException;
+import com.invirgance.convirgance.input.Input;
+import com.invirgance.convirgance.input.InputCursor;
+import com.invirgance.convirgance.json.JSONObject;
+import com.invirgance.convirgance.source.Source;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Reads JSON records keeping only a set of fields. Used in place of JSONInput
+ * when loading a subset of the fields of wide documents, since the values of
+ * the other fields are skipped without being parsed into objects.
+ * 
+ * @author tadghh
+ */
+public class ProjectingJSONInput implements Input<JSONObject>
+{
+    private final Set<String> fields;
+    
+    private Map<String,LongAdder> skipped;
+    
+    /**
+     * Creates a new projecting input.
+     * 
+     * @param fields The keys to keep. Use a case insensitive set to match keys regardless of case.
+     */
+    public ProjectingJSONInput(Set<String> fields)
+    {
+        this.fields = fields;
+    }
+    
+    public Set<String> getFields()
+    {
+        return fields;
+    }
+    
+    public Map<String,LongAdder> getSkipped()
+    {
+        return skipped;
+    }
+    
+    /**
+     * Counts the records each skipped key appeared in for cursors read after
+     * this is set (see ProjectingJSONParser).
+     * 
+     * @param skipped A concurrent map to count skipped keys in, or null to not count them
+     */
+    public void setSkipped(Map<String,LongAdder> skipped)
+    {
+        this.skipped = skipped;
+    }
+    
+    @Override
+    public InputCursor<JSONObject> read(Source source)
+    {
+        return new InputCursor<JSONObject>() {
+            
+            @Override
+            public CloseableIterator<JSONObject> iterator()
+            {
+                Reader reader = new InputStreamReader(source.getInputStream(), StandardCharsets.UTF_8);
+                ProjectingJSONParser parser = new ProjectingJSONParser(reader, fields);
+                
+                parser.setSkipped(skipped);
+                
+                return new CloseableIterator<JSONObject>() {
+                    
+                    private JSONObject record = parser.next();
+                    
+                    @Override
+                    public boolean hasNext()
+                    {
+                        return (record != null);
+                    }
+                    
+                    @Override
+                    public JSONObject next()
+                    {
+                        JSONObject current = record;
+                        
+                        if(current == null) throw new NoSuchElementException();
+                        
+                        record = parser.next();
+                        
+                        return current;
+                    }
+                    
+                    @Override
+                    public void close()
+                    {
+                        try
+                        {
+                            reader.close();
+                        }
+                        catch(IOException e)
+                        {
+                            throw new ConvirganceException(e);
+                        }
+                    }
+                };
+            }
+        };
+    }
+}
@@ -0,0 +1,466 @@
+/*
+ * Copyright 2024 INVIRGANCE LLC
+
+Permission is hereby granted, free of charge, to any person obtaining a copy 
+of this software and associated documentation files (the “Software”), to deal 
+in the Software without restriction, including without limitation the rights to 
+use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies 
+of the Software, and to permit persons to whom the Software is furnished to do 
+so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all 
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR 
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, 
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER 
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE 
+SOFTWARE.
+ */
+package com.invirgance.virge.sql.importtools;
+
+import com.invirgance.convirgance.ConvirganceException;
+import com.invirgance.convirgance.json.JSONArray;
+import com.invirgance.convirgance.json.JSONObject;
+import java.io.IOException;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A JSON parser that only builds the fields it was asked for. Records are 
+ * read from a top level array or from a sequence of objects (e.g. JSON lines),
+ * and the values of keys that aren't in the field set are skipped at the 
+ * character level without creating any strings, objects or arrays. Values of
+ * the selected fields are parsed in full, including nested objects.
+ * 
+ * @author tadghh
+ */
+public class ProjectingJSONParser
+{
+    private final Reader reader;
+    private final Set<String> fields;
+    private final StringBuilder text = new StringBuilder();
+    
+    private Map<String,LongAdder> skipped;
+    private char[] buffer;
+    private int length;
+    private int position;
+    private long offset;
+    
+    /**
+     * Creates a parser reading from a stream of characters.
+     * 
+     * @param reader The JSON to parse
+     * @param fields The keys to keep. Use a case insensitive set to match keys regardless of case.
+     */
+    public ProjectingJSONParser(Reader reader, Set<String> fields)
+    {
+        this.reader = reader;
+        this.fields = fields;
+        this.buffer = new char[8192];
+    }
+    
+    /**
+     * Creates a parser for a single string, such as one line of JSON lines.
+     * 
+     * @param json The JSON to parse
+     * @param fields The keys to keep
+     */
+    public ProjectingJSONParser(String json, Set<String> fields)
+    {
+        this.reader = null;
+        this.fields = fields;
+        this.buffer = json.toCharArray();
+        this.length = buffer.length;
+    }
+    
+    /**
+     * Counts the records each skipped key appeared in, so that fields which
+     * were dropped can be reported. The map may be shared between parsers on
+     * different threads.
+     * 
+     * @param skipped A concurrent map to count skipped keys in, or null to not count them
+     */
+    public void setSkipped(Map<String,LongAdder> skipped)
+    {
+        this.skipped = skipped;
+    }
+    
+    private boolean fill()
+    {
+        if(position < length) return true;
+        if(reader == null) return false;
+        
+        try
+        {
+            offset += length;
+            position = 0;
+            length = Math.max(0, reader.read(buffer));
+            
+            return (length > 0);
+        }
+        catch(IOException e)
+        {
+            throw new ConvirganceException(e);
+        }
+    }
+    
+    private ConvirganceException error(String message)
+    {
+        return new ConvirganceException(message + " at character " + (offset + position));
+    }
+    
+    private char peek()
+    {
+        if(!fill()) throw error("Unexpected end of JSON");
+        
+        return buffer[position];
+    }
+    
+    private char read()
+    {
+        char c = peek();
+        
+        position++;
+        
+        return c;
+    }
+    
+    private char skipWhitespace()
+    {
+        char c;
+        
+        while(fill())
+        {
+            c = buffer[position];
+            
+            if(c != ' ' && c != '\n' && c != '\r' && c != '\t') return c;
+            
+            position++;
+        }
+        
+        return 0;
+    }
+    
+    private void expect(char expected)
+    {
+        char c = skipWhitespace();
+        
+        if(c == 0) throw error("Unexpected end of JSON");
+        if(c != expected) throw error("Expected '" + expected + "'");
+        
+        position++;
+    }
+    
+    /**
+     * Reads the next record. Commas and the brackets of a top level array 
+     * between records are skipped.
+     * 
+     * @return The record with only the selected fields, or null at the end of the input
+     */
+    public JSONObject next()
+    {
+        char c = skipWhitespace();
+        
+        while(c == '[' || c == ']' || c == ',')
+        {
+            position++;
+            c = skipWhitespace();
+        }
+        
+        if(c == 0) return null;
+        if(c != '{') throw error("Expected a JSON object");
+        
+        return readObject(fields);
+    }
+    
+    private JSONObject readObject(Set<String> keep)
+    {
+        JSONObject record = new JSONObject(true);
+        String key;
+        
+        expect('{');
+        
+        if(skipWhitespace() == '}')
+        {
+            position++;
+            return record;
+        }
+        
+        while(true)
+        {
+            expect('"');
+            
+            key = readString();
+            
+            expect(':');
+            
+            if(keep == null || keep.contains(key))
+            {
+                record.put(key, readValue());
+            }
+            else
+            {
+                skipValue();
+                
+                if(skipped != null) skipped.computeIfAbsent(key, name -> new LongAdder()).increment();
+            }
+            
+            switch(skipWhitespace())
+            {
+                case ',':
+                    position++;
+                    skipWhitespace();
+                    break;
+                    
+                case '}':
+                    position++;
+                    return record;
+                    
+                default:
+                    throw error("Expected ',' or '}'");
+            }
+        }
+    }
+    
+    private JSONArray readArray()
+    {
+        JSONArray array = new JSONArray();
+        
+        expect('[');
+        
+        if(skipWhitespace() == ']')
+        {
+            position++;
+            return array;
+        }
+        
+        while(true)
+        {
+            array.add(readValue());
+            
+            switch(skipWhitespace())
+            {
+                case ',':
+                    position++;
+                    break;
+                    
+                case ']':
+                    position++;
+                    return array;
+                    
+                default:
+                    throw error("Expected ',' or ']'");
+            }
+        }
+    }
+    
+    // Called after the opening quote
+    private String readString()
+    {
+        char c;
+        
+        text.setLength(0);
+        
+        while((c = read()) != '"')
+        {
+            if(c != '\\')
+            {
+                text.append(c);
+                continue;
+            }
+            
+            switch(c = read())
+            {
+                case 'b':
+                    text.append('\b');
+                    break;
+                    
+                case 'f':
+                    text.append('\f');
+                    break;
+                    
+                case 'n':
+                    text.append('\n');
+                    break;
+                    
+                case 'r':
+                    text.append('\r');
+                    break;
+                    
+                case 't':
+                    text.append('\t');
+                    break;
+                    
+                case 'u':
+                    text.append(readUnicode());
+                    break;
+                    
+                default:
+                    text.append(c);
+            }
+        }
+        
+        return text.toString();
+    }
+    
+    // Called after the 'u' of a unicode escape
+    private char readUnicode()
+    {
+        int value = 0;
+        int digit;
+        
+        for(int i=0; i<4; i++)
+        {
+            digit = Character.digit(read(), 16);
+            
+            if(digit < 0) throw error("Invalid unicode escape");
+            
+            value = (value << 4) | digit;
+        }
+        
+        return (char)value;
+    }
+    
+    private String readLiteral()
+    {
+        char c;
+        
+        text.setLength(0);
+        
+        while(fill())
+        {
+            c = buffer[position];
+            
+            if(c == ',' || c == '}' || c == ']' || c == ' ' || c == '\n' || c == '\r' || c == '\t') break;
+            
+            text.append(c);
+            position++;
+        }
+        
+        return text.toString();
+    }
+    
+    private Object readNumber(String number)
+    {
+        long value;
+        
+        try
+        {
+            if(number.indexOf('.') >= 0 || number.indexOf('e') >= 0 || number.indexOf('E') >= 0) return Double.parseDouble(number);
+            
+            value = Long.parseLong(number);
+            
+            if(value >= Integer.MIN_VALUE && value <= Integer.MAX_VALUE) return (int)value;
+            
+            return value;
+        }
+        catch(NumberFormatException e)
+        {
+            try
+            {
+                return new BigDecimal(number);
+            }
+            catch(NumberFormatException invalid)
+            {
+                throw error("Invalid value " + number);
+            }
+        }
+    }
+    
+    private Object readValue()
+    {
+        String literal;
+        
+        switch(skipWhitespace())
+        {
+            case '"':
+                position++;
+                return readString();
+                
+            case '{':
+                return readObject(null);
+                
+            case '[':
+                return readArray();
+                
+            case 0:
+                throw error("Unexpected end of JSON");
+                
+            default:
+                literal = readLiteral();
+        }
+        
+        switch(literal)
+        {
+            case "null":
+                return null;
+                
+            case "true":
+                return true;
+                
+            case "false":
+                return false;
+                
+            default:
+                return readNumber(literal);
+        }
+    }
+    
+    // Skips a string, object or array by tracking quotes and nesting only
+    private void skipValue()
+    {
+        int depth = 0;
+        char c;
+        
+        skipWhitespace();
+        
+        while(true)
+        {
+            if(!fill()) throw error("Unexpected end of JSON");
+            
+            c = buffer[position];
+            
+            if(depth == 0 && (c == ',' || c == '}' || c == ']')) return;
+            
+            position++;
+            
+            switch(c)
+            {
+                case '"':
+                    skipString();
+                    if(depth == 0) return;
+                    break;
+                    
+                case '{':
+                case '[':
+                    depth++;
+                    break;
+                    
+                case '}':
+                case ']':
+                    if(--depth == 0) return;
+            }
+        }
+    }
+    
+    private void skipString()
+    {
+        char c;
+        
+        while(true)
+        {
+            if(!fill()) throw error("Unexpected end of JSON");
+            
+            c = buffer[position++];
+            
+            if(c == '"') return;
+            if(c == '\\') read();
+        }
+    }
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright 2024 INVIRGANCE LLC
+
+Permission is hereby granted, free of charge, to any person obtaining a copy 
+of this software and associated documentation files (the “Software”), to deal 
+in the Software without restriction, including without limitation the rights to 
+use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies 
+of the Software, and to permit persons to whom the Software is furnished to do 
+so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all 
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR 
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, 
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER 
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE 
+SOFTWARE.
+ */
+package com.invirgance.virge.sql.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * Recorded when ResultSet.next() has to wait for the database, which is when
+ * the driver fetches the next block of rows. Calls answered from rows the
+ * driver already holds finish well under the threshold and are not recorded.
+ * 
+ * @author tadghh
+ */
+@Name("com.invirgance.virge.FetchRoundTrip")
+@Label("Fetch Round Trip")
+@Category({"Virge", "SQL"})
+@Description("A call to ResultSet.next() that waited for rows from the database")
+@StackTrace(false)
+@Threshold("100 us")
+public class FetchRoundTripEvent extends VirgeEvent
+{
+    @Label("Rows")
+    @Description("Rows read since the previous round trip")
+    public long rows;
+    
+    @Label("Fetch Size")
+    public int fetchSize;
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright 2024 INVIRGANCE LLC
+
+Permission is hereby granted, free of charge, to any person obtaining a copy 
+of this software and associated documentation files (the “Software”), to deal 
+in the Software without restriction, including without limitation the rights to 
+use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies 
+of the Software, and to permit persons to whom the Software is furnished to do 
+so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all 
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR 
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, 
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER 
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE 
+SOFTWARE.
+ */
+package com.invirgance.virge.sql.jfr;
+
+import java.io.File;
+import java.io.IOException;
+import java.text.ParseException;
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+
+/**
+ * A flight recording started by a tool's --jfr option. The recording uses the
+ * JDK's default (low overhead) settings, so the virge events are recorded 
+ * alongside the GC, I/O and thread events. It is written to the file when 
+ * closed.
+ * 
+ * @author tadghh
+ */
+public class FlightRecording implements AutoCloseable
+{
+    private final Recording recording;
+    private final File file;
+    
+    private FlightRecording(Recording recording, File file)
+    {
+        this.recording = recording;
+        this.file = file;
+    }
+    
+    /**
+     * Starts a recording.
+     * 
+     * @param file The file to write the recording to, or null for none
+     * @return The running recording, or null if no file was given
+     * @throws IOException if the recording can't be started
+     * @throws ParseException if the JDK's default settings can't be read
+     */
+    public static FlightRecording start(File file) throws IOException, ParseException
+    {
+        Recording recording;
+        
+        if(file == null) return null;
+        
+        recording = new Recording(Configuration.getConfiguration("default"));
+        
+        recording.setName("virge");
+        recording.setToDisk(true);
+        recording.setDestination(file.toPath());
+        recording.start();
+        
+        return new FlightRecording(recording, file);
+    }
+    
+    /**
+     * Stops the recording and writes it to the file.
+     */
+    @Override
+    public void close()
+    {
+        recording.stop();
+        recording.close();
+        
+        System.err.println("Flight recording written to " + file);
+    }
+}
@@ -0,0 +1,396 @@
+/*
+ * Copyright 2024 INVIRGANCE LLC
+
+Permission is hereby granted, free of charge, to any person obtaining a copy 
+of this software and associated documentation files (the “Software”), to deal 
+in the Software without restriction, including without limitation the rights to 
+use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies 
+of the Software, and to permit persons to whom the Software is furnished to do 
+so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all 
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR 
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, 
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER 
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE 
+SOFTWARE.
+ */
+package com.invirgance.virge.sql.jfr;
+
+import com.invirgance.convirgance.source.Source;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Date;
+import javax.sql.DataSource;
+import jdk.jfr.EventType;
+import jdk.jfr.FlightRecorder;
+
+/**
+ * Wraps connections and sources so that they emit the virge flight recorder 
+ * events. Wrapping is skipped unless a recording with the events enabled is
+ * running, so there is no cost outside of a recording.
+ * 
+ * @author tadghh
+ */
+public class Instrumentation
+{
+    /**
+     * Checks if a recording is collecting the JDBC events.
+     * 
+     * @return true if connections should be wrapped
+     */
+    public static boolean isEnabled()
+    {
+        if(!FlightRecorder.isInitialized()) return false;
+        
+        return EventType.getEventType(BatchExecuteEvent.class).isEnabled()
+            || EventType.getEventType(CommitEvent.class).isEnabled()
+            || EventType.getEventType(FetchRoundTripEvent.class).isEnabled();
+    }
+    
+    /**
+     * Wraps a connection so its batches, commits and fetches are recorded.
+     * 
+     * @param connection The connection to wrap
+     * @param name The name of the stored connection, if any
+     * @param table The table being loaded or exported
+     * @return The instrumented connection, or the same connection when no recording is running
+     */
+    public static Connection wrap(Connection connection, String name, String table)
+    {
+        if(!isEnabled()) return connection;
+        
+        // Defined in the driver's class loader so callers can find driver classes from getClass()
+        return (Connection)Proxy.newProxyInstance(connection.getClass().getClassLoader(), new Class[]{ Connection.class }, new ConnectionHandler(connection, name, table));
+    }
+    
+    /**
+     * Wraps a data source so the connections it hands out are instrumented.
+     * 
+     * @param dataSource The data source to wrap
+     * @param name The name of the stored connection, if any
+     * @param table The table being loaded or exported
+     * @return The instrumented data source, or the same data source when no recording is running
+     */
+    public static DataSource wrap(DataSource dataSource, String name, String table)
+    {
+        if(!isEnabled()) return dataSource;
+        
+        return (DataSource)Proxy.newProxyInstance(Instrumentation.class.getClassLoader(), new Class[]{ DataSource.class }, (proxy, method, args) -> {
+            
+            Object result = Instrumentation.invoke(dataSource, method, args);
+            
+            if(method.getName().equals("getConnection")) return wrap((Connection)result, name, table);
+            
+            return result;
+        });
+    }
+    
+    /**
+     * Wraps a source so the reads of its stream are recorded.
+     * 
+     * @param source The source to wrap
+     * @param table The table being loaded
+     * @return The instrumented source, or the same source when the event is not enabled
+     */
+    public static Source wrap(Source source, String table)
+    {
+        if(!FlightRecorder.isInitialized() || !EventType.getEventType(SourceReadEvent.class).isEnabled()) return source;
+        
+        return new InstrumentedSource(source, table);
+    }
+    
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable
+    {
+        try
+        {
+            return method.invoke(target, args);
+        }
+        catch(InvocationTargetException e)
+        {
+            throw e.getCause();
+        }
+    }
+    
+    private static long getSize(Object value)
+    {
+        if(value == null) return 0;
+        if(value instanceof String) return ((String)value).length();
+        if(value instanceof byte[]) return ((byte[])value).length;
+        if(value instanceof Number || value instanceof Boolean || value instanceof Date) return 8;
+        
+        return value.toString().length();
+    }
+    
+    private static class ConnectionHandler implements InvocationHandler
+    {
+        private final Connection connection;
+        private final String name;
+        private final String table;
+        
+        public ConnectionHandler(Connection connection, String name, String table)
+        {
+            this.connection = connection;
+            this.name = name;
+            this.table = table;
+        }
+        
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable
+        {
+            CommitEvent event;
+            Object result;
+            
+            switch(method.getName())
+            {
+                case "commit":
+                    event = new CommitEvent();
+                    
+                    event.begin();
+                    connection.commit();
+                    event.end();
+                    
+                    if(event.shouldCommit())
+                    {
+                        event.connection = name;
+                        event.table = table;
+                        
+                        event.commit();
+                    }
+                    
+                    return null;
+                    
+                case "createStatement":
+                case "prepareStatement":
+                case "prepareCall":
+                    result = Instrumentation.invoke(connection, method, args);
+                    
+                    return Proxy.newProxyInstance(result.getClass().getClassLoader(), new Class[]{ method.getReturnType() }, new StatementHandler((Statement)result, name, table));
+                    
+                case "equals":
+                    return (proxy == args[0]);
+                    
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                    
+                default:
+                    return Instrumentation.invoke(connection, method, args);
+            }
+        }
+    }
+    
+    private static class StatementHandler implements InvocationHandler
+    {
+        private final Statement statement;
+        private final String name;
+        private final String table;
+        
+        private long rows;
+        private long bytes;
+        private long pending;
+        
+        public StatementHandler(Statement statement, String name, String table)
+        {
+            this.statement = statement;
+            this.name = name;
+            this.table = table;
+        }
+        
+        private Object executeBatch(Method method, Object[] args) throws Throwable
+        {
+            BatchExecuteEvent event = new BatchExecuteEvent();
+            Object result;
+            
+            event.begin();
+            
+            try
+            {
+                result = Instrumentation.invoke(statement, method, args);
+            }
+            finally
+            {
+                event.end();
+                
+                if(event.shouldCommit())
+                {
+                    event.connection = name;
+                    event.table = table;
+                    event.rows = rows;
+                    event.bytes = bytes;
+                    
+                    event.commit();
+                }
+                
+                rows = 0;
+                bytes = 0;
+            }
+            
+            return result;
+        }
+        
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable
+        {
+            String methodName = method.getName();
+            Object result;
+            
+            if(methodName.startsWith("set") && !methodName.equals("setNull") && args != null && args.length >= 2 && method.getParameterTypes()[0] == int.class)
+            {
+                pending += getSize(args[1]);
+                
+                return Instrumentation.invoke(statement, method, args);
+            }
+            
+            switch(methodName)
+            {
+                case "addBatch":
+                    rows++;
+                    bytes += pending;
+                    pending = 0;
+                    
+                    return Instrumentation.invoke(statement, method, args);
+                    
+                case "clearParameters":
+                    pending = 0;
+                    
+                    return Instrumentation.invoke(statement, method, args);
+                    
+                case "executeBatch":
+                case "executeLargeBatch":
+                    return executeBatch(method, args);
+                    
+                case "executeQuery":
+                case "getResultSet":
+                    result = Instrumentation.invoke(statement, method, args);
+                    
+                    if(result == null) return null;
+                    
+                    return Proxy.newProxyInstance(result.getClass().getClassLoader(), new Class[]{ ResultSet.class }, new ResultSetHandler((ResultSet)result, name, table));
+                    
+                case "equals":
+                    return (proxy == args[0]);
+                    
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                    
+                default:
+                    return Instrumentation.invoke(statement, method, args);
+            }
+        }
+    }
+    
+    private static class ResultSetHandler implements InvocationHandler
+    {
+        private final ResultSet set;
+        private final String name;
+        private final String table;
+        
+        private long rows;
+        
+        public ResultSetHandler(ResultSet set, String name, String table)
+        {
+            this.set = set;
+            this.name = name;
+            this.table = table;
+        }
+        
+        private boolean next() throws SQLException
+        {
+            FetchRoundTripEvent event = new FetchRoundTripEvent();
+            boolean available;
+            
+            event.begin();
+            available = set.next();
+            event.end();
+            
+            // Only calls that waited past the threshold are kept
+            if(event.shouldCommit())
+            {
+                event.connection = name;
+                event.table = table;
+                event.rows = rows;
+                event.fetchSize = set.getFetchSize();
+                
+                event.commit();
+                
+                rows = 0;
+            }
+            
+            if(available) rows++;
+            
+            return available;
+        }
+        
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable
+        {
+            switch(method.getName())
+            {
+                case "next":
+                    return next();
+                    
+                case "equals":
+                    return (proxy == args[0]);
+                    
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                    
+                default:
+                    return Instrumentation.invoke(set, method, args);
+            }
+        }
+    }
+    
+    private static class InstrumentedSource implements Source
+    {
+        private final Source source;
+        private final String table;
+        
+        public InstrumentedSource(Source source, String table)
+        {
+            this.source = source;
+            this.table = table;
+        }
+        
+        @Override
+        public InputStream getInputStream()
+        {
+            return new FilterInputStream(source.getInputStream()) {
+                
+                @Override
+                public int read(byte[] buffer, int offset, int length) throws IOException
+                {
+                    SourceReadEvent event = new SourceReadEvent();
+                    int count;
+                    
+                    event.begin();
+                    count = in.read(buffer, offset, length);
+                    event.end();
+                    
+                    if(count > 0 && event.shouldCommit())
+                    {
+                        event.table = table;
+                        event.bytes = count;
+                        
+                        event.commit();
+                    }
+                    
+                    return count;
+                }
+            };
+        }
+    }
+}
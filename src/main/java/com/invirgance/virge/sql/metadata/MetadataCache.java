@@ -0,0 +1,190 @@
+/*
+ * Copyright 2024 INVIRGANCE LLC
+
+Permission is hereby granted, free of charge, to any person obtaining a copy 
+of this software and associated documentation files (the “Software”), to deal 
+in the Software without restriction, including without limitation the rights to 
+use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies 
+of the Software, and to permit persons to whom the Software is furnished to do 
+so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all 
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR 
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, 
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER 
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE 
+SOFTWARE.
+ */
+package com.invirgance.virge.sql.metadata;
+
+import com.invirgance.convirgance.ConvirganceException;
+import com.invirgance.convirgance.json.JSONArray;
+import com.invirgance.convirgance.json.JSONObject;
+import static com.invirgance.virge.sql.VirgeSQL.getenv;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+
+/**
+ * An on-disk cache of schema metadata for a stored connection, shared by all
+ * tools. Every entry is timestamped and expires after the time to live set 
+ * with the virge.metadata.ttl system property or the VIRGE_METADATA_TTL 
+ * environment variable, in seconds. The cache is disabled unless one of them
+ * is set.
+ * 
+ * Entries are kept in ~/.virge/metadata/&lt;connection&gt;.json
+ * 
+ * @author tadghh
+ */
+public class MetadataCache
+{
+    private final File file;
+    private final long ttl;
+    
+    private JSONObject entries;
+    
+    private MetadataCache(File file, long ttl)
+    {
+        this.file = file;
+        this.ttl = ttl;
+    }
+    
+    /**
+     * Returns the configured time to live.
+     * 
+     * @return The time to live in milliseconds, or 0 if caching is disabled
+     */
+    public static long getTTL()
+    {
+        String value = System.getProperty("virge.metadata.ttl", getenv("VIRGE_METADATA_TTL"));
+        
+        if(value == null || value.isBlank()) return 0;
+        
+        try
+        {
+            return Math.max(0, Long.parseLong(value.trim()) * 1000);
+        }
+        catch(NumberFormatException e)
+        {
+            throw new ConvirganceException("Invalid metadata cache TTL: " + value);
+        }
+    }
+    
+    private static File getDirectory()
+    {
+        return new File(System.getProperty("user.home"), ".virge" + File.separator + "metadata");
+    }
+    
+    /**
+     * Opens the cache of a stored connection.
+     * 
+     * @param name The name of the stored connection
+     * @return The cache, or null if caching is disabled or the connection has
+     * no name
+     */
+    public static MetadataCache open(String name)
+    {
+        long ttl = getTTL();
+        
+        if(ttl < 1 || name == null) return null;
+        
+        return new MetadataCache(new File(getDirectory(), name.replaceAll("[^A-Za-z0-9._-]", "_") + ".json"), ttl);
+    }
+    
+    private JSONObject load()
+    {
+        if(entries != null) return entries;
+        
+        try
+        {
+            if(file.exists()) entries = new JSONObject(Files.readString(file.toPath(), StandardCharsets.UTF_8));
+        }
+        catch(IOException | RuntimeException e)
+        {
+            // A damaged cache is simply rebuilt
+            entries = null;
+        }
+        
+        if(entries == null) entries = new JSONObject(true);
+        
+        return entries;
+    }
+    
+    // Written to a temporary file first so concurrent readers never see a partial file
+    private void save()
+    {
+        File temp = new File(file.getPath() + ".tmp" + ProcessHandle.current().pid() + "." + Thread.currentThread().threadId());
+        
+        try
+        {
+            file.getParentFile().mkdirs();
+            Files.writeString(temp.toPath(), entries.toString(4), StandardCharsets.UTF_8);
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+        catch(IOException e)
+        {
+            temp.delete();
+            
+            System.err.println("Warning: unable to save metadata cache " + file + ": " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Returns a cached value if it hasn't expired.
+     * 
+     * @param key The key of the entry
+     * @return The value, or null if it isn't cached or has expired
+     */
+    public synchronized Object get(String key)
+    {
+        JSONObject entry = load().getJSONObject(key);
+        
+        if(entry == null || System.currentTimeMillis() - entry.getLong("time") > ttl) return null;
+        
+        return entry.get("value");
+    }
+    
+    /**
+     * Caches a value and saves the cache to disk.
+     * 
+     * @param key The key of the entry
+     * @param value A boolean, string or list of strings
+     */
+    public synchronized void put(String key, Object value)
+    {
+        JSONObject entry = new JSONObject(true);
+        JSONArray<String> list;
+        
+        if(value instanceof List)
+        {
+            list = new JSONArray<>();
+            
+            for(Object item : (List<?>)value) list.add(item.toString());
+            
+            value = list;
+        }
+        
+        entry.put("time", System.currentTimeMillis());
+        entry.put("value", value);
+        
+        load().put(key, entry);
+        save();
+    }
+    
+    /**
+     * Removes all entries, e.g. after a table is created.
+     */
+    public synchronized void clear()
+    {
+        entries = new JSONObject(true);
+        
+        file.delete();
+    }
+}
@@ -0,0 +1,412 @@
+/*
+ * Copyright 2024 INVIRGANCE LLC
+
+Permission is hereby granted, free of charge, to any person obtaining a copy 
+of this software and associated documentation files (the “Software”), to deal 
+in the Software without restriction, including without limitation the rights to 
+use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies 
+of the Software, and to permit persons to whom the Software is furnished to do 
+so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all 
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR 
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, 
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER 
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE 
+SOFTWARE.
+ */
+package com.invirgance.virge.sql.metadata;
+
+import com.invirgance.convirgance.jdbc.StoredConnection;
+import com.invirgance.convirgance.jdbc.schema.Table;
+import com.invirgance.virge.sql.pool.ConnectionPools;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Schema metadata lookups shared by the tools. Single tables are looked up 
+ * directly with DatabaseMetaData.getTables() rather than by listing every 
+ * table in the database, and results are kept in the MetadataCache of the
+ * stored connection when caching is enabled.
+ * 
+ * @author tadghh
+ */
+public class SchemaMetadata
+{
+    private static boolean isQuoted(String identifier)
+    {
+        return identifier.length() > 1 && "\"`[".indexOf(identifier.charAt(0)) >= 0;
+    }
+    
+    /**
+     * Converts an identifier to the case the database stores unquoted 
+     * identifiers in, e.g. upper case for Oracle and lower case for PostgreSQL.
+     * Quoted identifiers keep their case and lose their quotes.
+     * 
+     * @param metadata The metadata of the database
+     * @param identifier The identifier as written in SQL
+     * @return The identifier as it appears in the database's catalog
+     * @throws SQLException If the metadata can't be read
+     */
+    public static String normalize(DatabaseMetaData metadata, String identifier) throws SQLException
+    {
+        if(identifier == null) return null;
+        if(isQuoted(identifier)) return identifier.substring(1, identifier.length() - 1);
+        if(metadata.storesUpperCaseIdentifiers()) return identifier.toUpperCase();
+        if(metadata.storesLowerCaseIdentifiers()) return identifier.toLowerCase();
+        
+        return identifier;
+    }
+    
+    // Catalog tables can share a name with a user's table, e.g. users
+    private static boolean isSystemSchema(String schema)
+    {
+        if(schema == null) return false;
+        
+        switch(schema.toLowerCase())
+        {
+            case "information_schema":
+            case "pg_catalog":
+            case "sys":
+                return true;
+                
+            default:
+                return false;
+        }
+    }
+    
+    private static String escape(DatabaseMetaData metadata, String pattern) throws SQLException
+    {
+        String escape = metadata.getSearchStringEscape();
+        
+        if(pattern == null || escape == null || escape.isEmpty()) return pattern;
+        
+        return pattern.replace(escape, escape + escape).replace("_", escape + "_").replace("%", escape + "%");
+    }
+    
+    // Splits [catalog.][schema.]table, keeping dots inside quotes
+    private static String[] split(String name)
+    {
+        List<String> parts = new ArrayList<>();
+        StringBuilder part = new StringBuilder();
+        char quote = 0;
+        char c;
+        
+        for(int i=0; i<name.length(); i++)
+        {
+            c = name.charAt(i);
+            
+            if(quote == 0 && c == '.')
+            {
+                parts.add(part.toString());
+                part.setLength(0);
+                continue;
+            }
+            
+            if(quote == 0 && "\"`[".indexOf(c) >= 0) quote = (c == '[') ? ']' : c;
+            else if(c == quote) quote = 0;
+            
+            part.append(c);
+        }
+        
+        parts.add(part.toString());
+        
+        return parts.toArray(new String[parts.size()]);
+    }
+    
+    // Resolves [catalog.][schema.]table to the names in the database's catalog
+    private static String[] resolve(DatabaseMetaData metadata, String[] parts) throws SQLException
+    {
+        String table = normalize(metadata, parts[parts.length - 1]);
+        String schema = (parts.length > 1) ? normalize(metadata, parts[parts.length - 2]) : null;
+        String catalog = (parts.length > 2) ? normalize(metadata, parts[0]) : null;
+        
+        if(parts.length == 2 && !metadata.supportsSchemasInTableDefinitions())
+        {
+            catalog = schema;
+            schema = null;
+        }
+        
+        return new String[]{ catalog, schema, table };
+    }
+    
+    private static boolean find(DatabaseMetaData metadata, String catalog, String schema, String table) throws SQLException
+    {
+        try(ResultSet set = metadata.getTables(catalog, escape(metadata, schema), escape(metadata, table), null))
+        {
+            while(set.next())
+            {
+                if(set.getString("TABLE_NAME").equalsIgnoreCase(table)) return true;
+            }
+        }
+        
+        return false;
+    }
+    
+    /**
+     * Checks if a table exists with a single targeted metadata query. The name
+     * may be qualified with a schema, or a catalog for databases like MySQL
+     * that don't have schemas.
+     * 
+     * @param connection An open connection
+     * @param name The table name as written in SQL
+     * @return true if the table exists
+     * @throws SQLException If the metadata can't be read
+     */
+    public static boolean tableExists(Connection connection, String name) throws SQLException
+    {
+        DatabaseMetaData metadata = connection.getMetaData();
+        String[] parts = split(name);
+        String[] resolved = resolve(metadata, parts);
+        
+        if(find(metadata, resolved[0], resolved[1], resolved[2])) return true;
+        
+        // Some databases store mixed case names even though they report otherwise
+        if(!resolved[2].equals(parts[parts.length - 1]) && !isQuoted(parts[parts.length - 1]))
+        {
+            return find(metadata, resolved[0], resolved[1], parts[parts.length - 1]);
+        }
+        
+        return false;
+    }
+    
+    /**
+     * Returns the default schema of a connection, which unqualified names in
+     * SQL resolve against.
+     * 
+     * @param connection An open connection
+     * @return The schema, or null if the driver doesn't report one
+     */
+    public static String getSchema(Connection connection)
+    {
+        try
+        {
+            return connection.getSchema();
+        }
+        catch(SQLException | AbstractMethodError e)
+        {
+            return null;
+        }
+    }
+    
+    private static List<String> readPrimaryKey(DatabaseMetaData metadata, String[] resolved, String raw) throws SQLException
+    {
+        Map<Integer,String> columns = new TreeMap<>();
+        
+        try(ResultSet set = metadata.getPrimaryKeys(resolved[0], resolved[1], resolved[2]))
+        {
+            while(set.next()) columns.put(set.getInt("KEY_SEQ"), set.getString("COLUMN_NAME"));
+        }
+        
+        // Some databases store mixed case names even though they report otherwise
+        if(columns.isEmpty() && !resolved[2].equals(raw) && !isQuoted(raw))
+        {
+            return readPrimaryKey(metadata, new String[]{ resolved[0], resolved[1], raw }, raw);
+        }
+        
+        return new ArrayList<>(columns.values());
+    }
+    
+    /**
+     * Returns the primary key columns of a table. The name is resolved the 
+     * same way as tableExists(), and unqualified names are looked up in the
+     * connection's default schema before any other schema.
+     * 
+     * @param connection An open connection
+     * @param name The table name as written in SQL
+     * @return The key columns in key order, or an empty list if the table has no primary key
+     * @throws SQLException If the metadata can't be read
+     */
+    public static List<String> getPrimaryKey(Connection connection, String name) throws SQLException
+    {
+        DatabaseMetaData metadata = connection.getMetaData();
+        String[] parts = split(name);
+        String[] resolved = resolve(metadata, parts);
+        String raw = parts[parts.length - 1];
+        List<String> columns;
+        
+        if(parts.length > 1) return readPrimaryKey(metadata, resolved, raw);
+        
+        if(metadata.supportsSchemasInTableDefinitions()) resolved[1] = getSchema(connection);
+        else resolved[0] = connection.getCatalog();
+        
+        columns = readPrimaryKey(metadata, resolved, raw);
+        
+        // The table may be found through a search path rather than the default schema
+        if(columns.isEmpty() && resolved[1] != null)
+        {
+            resolved[1] = null;
+            columns = readPrimaryKey(metadata, resolved, raw);
+        }
+        
+        return columns;
+    }
+    
+    /**
+     * Checks if a table exists on a stored connection, using the metadata 
+     * cache when it is enabled.
+     * 
+     * @param connection The stored connection
+     * @param name The table name as written in SQL
+     * @return true if the table exists
+     * @throws SQLException If the metadata can't be read
+     */
+    public static boolean tableExists(StoredConnection connection, String name) throws SQLException
+    {
+        MetadataCache cache = MetadataCache.open(connection.getName());
+        Object cached = (cache != null) ? cache.get("exists:" + name) : null;
+        boolean exists;
+        
+        if(cached instanceof Boolean) return (Boolean)cached;
+        
+        try(Connection jdbc = ConnectionPools.getPool(connection).getConnection())
+        {
+            exists = tableExists(jdbc, name);
+        }
+        
+        if(cache != null) cache.put("exists:" + name, exists);
+        
+        return exists;
+    }
+    
+    /**
+     * Returns the names of all tables on a stored connection, using the 
+     * metadata cache when it is enabled.
+     * 
+     * @param connection The stored connection
+     * @return The table names
+     * @throws SQLException If the metadata can't be read
+     */
+    public static List<String> getTableNames(StoredConnection connection) throws SQLException
+    {
+        MetadataCache cache = MetadataCache.open(connection.getName());
+        Object cached = (cache != null) ? cache.get("tables") : null;
+        List<String> names = new ArrayList<>();
+        
+        if(cached instanceof List)
+        {
+            for(Object name : (List<?>)cached) names.add(name.toString());
+            
+            return names;
+        }
+        
+        for(Table table : connection.getSchemaLayout().getAllTables()) names.add(table.getName());
+        
+        if(cache != null) cache.put("tables", names);
+        
+        return names;
+    }
+    
+    /**
+     * Returns the names of all tables on a stored connection qualified with 
+     * their schema, or their catalog for databases like MySQL that don't have
+     * schemas, so that tables with the same name in different schemas are 
+     * kept apart. Uses the metadata cache when it is enabled.
+     * 
+     * @param connection The stored connection
+     * @return The qualified table names, e.g. public.orders
+     * @throws SQLException If the metadata can't be read
+     */
+    public static List<String> getQualifiedTableNames(StoredConnection connection) throws SQLException
+    {
+        MetadataCache cache = MetadataCache.open(connection.getName());
+        Object cached = (cache != null) ? cache.get("qualified-tables") : null;
+        Set<String> names = new LinkedHashSet<>();
+        DatabaseMetaData metadata;
+        String qualifier;
+        String type;
+        
+        if(cached instanceof List)
+        {
+            for(Object name : (List<?>)cached) names.add(name.toString());
+            
+            return new ArrayList<>(names);
+        }
+        
+        try(Connection jdbc = ConnectionPools.getPool(connection).getConnection())
+        {
+            metadata = jdbc.getMetaData();
+            
+            // One scan of every schema rather than a lookup per table
+            try(ResultSet set = metadata.getTables(jdbc.getCatalog(), null, "%", new String[]{ "TABLE" }))
+            {
+                while(set.next())
+                {
+                    type = String.valueOf(set.getString("TABLE_TYPE")).toUpperCase();
+                    qualifier = metadata.supportsSchemasInTableDefinitions() ? set.getString("TABLE_SCHEM") : set.getString("TABLE_CAT");
+                    
+                    if(!type.contains("TABLE") || type.contains("SYSTEM") || isSystemSchema(qualifier)) continue;
+                    
+                    names.add((qualifier != null) ? qualifier + "." + set.getString("TABLE_NAME") : set.getString("TABLE_NAME"));
+                }
+            }
+        }
+        
+        if(cache != null) cache.put("qualified-tables", new ArrayList<>(names));
+        
+        return new ArrayList<>(names);
+    }
+    
+    /**
+     * Returns the column names of a table on a stored connection, using the
+     * metadata cache when it is enabled.
+     * 
+     * @param connection The stored connection
+     * @param name The table name as written in SQL
+     * @return The column names in table order
+     * @throws SQLException If the table doesn't exist or the metadata can't be read
+     */
+    public static List<String> getColumnNames(StoredConnection connection, String name) throws SQLException
+    {
+        MetadataCache cache = MetadataCache.open(connection.getName());
+        Object cached = (cache != null) ? cache.get("columns:" + name) : null;
+        List<String> names = new ArrayList<>();
+        ResultSetMetaData metadata;
+        
+        if(cached instanceof List)
+        {
+            for(Object column : (List<?>)cached) names.add(column.toString());
+            
+            return names;
+        }
+        
+        try(Connection jdbc = ConnectionPools.getPool(connection).getConnection();
+            Statement statement = jdbc.createStatement();
+            ResultSet set = statement.executeQuery("SELECT * FROM " + name + " WHERE 1=0"))
+        {
+            metadata = set.getMetaData();
+            
+            for(int i=1; i<=metadata.getColumnCount(); i++) names.add(metadata.getColumnLabel(i));
+        }
+        
+        if(cache != null) cache.put("columns:" + name, names);
+        
+        return names;
+    }
+    
+    /**
+     * Discards cached metadata after the schema of a connection was changed.
+     * 
+     * @param connection The stored connection
+     */
+    public static void invalidate(StoredConnection connection)
+    {
+        MetadataCache cache = MetadataCache.open(connection.getName());
+        
+        if(cache != null) cache.clear();
+    }
+}
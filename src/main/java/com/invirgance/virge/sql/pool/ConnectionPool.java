@@ -0,0 +1,614 @@
+/*
+ * Copyright 2024 INVIRGANCE LLC
+
+Permission is hereby granted, free of charge, to any person obtaining a copy 
+of this software and associated documentation files (the “Software”), to deal 
+in the Software without restriction, including without limitation the rights to 
+use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies 
+of the Software, and to permit persons to whom the Software is furnished to do 
+so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all 
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR 
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, 
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER 
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE 
+SOFTWARE.
+ */
+package com.invirgance.virge.sql.pool;
+
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+import javax.sql.DataSource;
+
+/**
+ * A small, bounded pool of physical connections in front of another 
+ * DataSource. Connections handed out are proxies that return the physical
+ * connection to the pool when closed, after rolling back any open 
+ * transaction and restoring the auto-commit, read-only and isolation 
+ * settings it was created with.
+ * 
+ * Idle connections are validated on borrow, but the result of isValid() is
+ * trusted for a short interval so that busy workers don't pay a round trip
+ * per borrow. Connections idle for too long are closed in the background,
+ * and connections held past the leak threshold are reported along with the
+ * stack trace of the code that borrowed them.
+ * 
+ * @author tadghh
+ */
+public class ConnectionPool implements DataSource, AutoCloseable
+{
+    private static final ScheduledExecutorService MAINTENANCE = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        
+        // Created lazily by whichever thread needs it first, so it mustn't inherit that thread's daemon session
+        Thread thread = new Thread(null, runnable, "connection-pool-maintenance", 0, false);
+        
+        thread.setDaemon(true);
+        
+        return thread;
+    });
+    
+    private final String name;
+    private final DataSource dataSource;
+    private final Permits permits;
+    private final Deque<Entry> idle = new ArrayDeque<>();
+    private final Set<Entry> borrowed = ConcurrentHashMap.newKeySet();
+    
+    private int maximumSize;
+    private long borrowTimeout = TimeUnit.MINUTES.toMillis(5);
+    private long validationInterval = TimeUnit.SECONDS.toMillis(5);
+    private long idleTimeout = TimeUnit.SECONDS.toMillis(60);
+    private long leakThreshold = TimeUnit.HOURS.toMillis(1);
+    private volatile boolean closed;
+    
+    private final ScheduledFuture<?> maintenance;
+    
+    private final AtomicLong borrows = new AtomicLong();
+    private final AtomicLong waitTime = new AtomicLong();
+    private final AtomicLong maximumWait = new AtomicLong();
+    private final AtomicLong created = new AtomicLong();
+    private final AtomicLong invalid = new AtomicLong();
+    private final AtomicLong evicted = new AtomicLong();
+    
+    /**
+     * Creates a new pool.
+     * 
+     * @param name The name used when reporting statistics and leaks
+     * @param dataSource The source of physical connections
+     * @param maximumSize The maximum number of connections open at once
+     */
+    public ConnectionPool(String name, DataSource dataSource, int maximumSize)
+    {
+        this.name = name;
+        this.dataSource = dataSource;
+        this.maximumSize = maximumSize;
+        this.permits = new Permits(maximumSize);
+        
+        this.maintenance = MAINTENANCE.scheduleWithFixedDelay(this::maintain, 10, 10, TimeUnit.SECONDS);
+    }
+    
+    public String getName()
+    {
+        return name;
+    }
+    
+    public synchronized int getMaximumSize()
+    {
+        return maximumSize;
+    }
+    
+    /**
+     * Changes the maximum number of connections. When the size is lowered, 
+     * connections already borrowed past the new size are kept until they are
+     * returned.
+     * 
+     * @param maximumSize The maximum number of connections open at once
+     */
+    public synchronized void setMaximumSize(int maximumSize)
+    {
+        if(maximumSize > this.maximumSize) permits.release(maximumSize - this.maximumSize);
+        if(maximumSize < this.maximumSize) permits.reducePermits(this.maximumSize - maximumSize);
+        
+        this.maximumSize = maximumSize;
+    }
+    
+    public long getBorrowTimeout()
+    {
+        return borrowTimeout;
+    }
+    
+    /**
+     * Sets how long getConnection() waits for a connection to be returned
+     * when the pool is exhausted.
+     * 
+     * @param borrowTimeout The timeout in milliseconds
+     */
+    public void setBorrowTimeout(long borrowTimeout)
+    {
+        this.borrowTimeout = borrowTimeout;
+    }
+    
+    public long getValidationInterval()
+    {
+        return validationInterval;
+    }
+    
+    /**
+     * Sets how long a connection that was successfully used is assumed to be
+     * valid without calling isValid().
+     * 
+     * @param validationInterval The interval in milliseconds
+     */
+    public void setValidationInterval(long validationInterval)
+    {
+        this.validationInterval = validationInterval;
+    }
+    
+    public long getIdleTimeout()
+    {
+        return idleTimeout;
+    }
+    
+    /**
+     * Sets how long a connection can sit unused before it is closed.
+     * 
+     * @param idleTimeout The timeout in milliseconds
+     */
+    public void setIdleTimeout(long idleTimeout)
+    {
+        this.idleTimeout = idleTimeout;
+    }
+    
+    public long getLeakThreshold()
+    {
+        return leakThreshold;
+    }
+    
+    /**
+     * Sets how long a connection can be borrowed before it is reported as a
+     * possible leak, or 0 to disable reporting.
+     * 
+     * @param leakThreshold The threshold in milliseconds
+     */
+    public void setLeakThreshold(long leakThreshold)
+    {
+        this.leakThreshold = leakThreshold;
+    }
+    
+    private synchronized Entry takeIdle()
+    {
+        return idle.pollFirst();
+    }
+    
+    private boolean isUsable(Entry entry)
+    {
+        if(System.currentTimeMillis() - entry.lastUsed < validationInterval) return true;
+        
+        try
+        {
+            return entry.physical.isValid(5);
+        }
+        catch(SQLException e)
+        {
+            return false;
+        }
+    }
+    
+    private Entry create() throws SQLException
+    {
+        Entry entry = new Entry(dataSource.getConnection());
+        
+        created.incrementAndGet();
+        
+        return entry;
+    }
+    
+    private void record(long wait)
+    {
+        borrows.incrementAndGet();
+        waitTime.addAndGet(wait);
+        maximumWait.accumulateAndGet(wait, Math::max);
+    }
+    
+    @Override
+    public Connection getConnection() throws SQLException
+    {
+        long start = System.nanoTime();
+        Entry entry;
+        
+        if(closed) throw new SQLException("Connection pool " + name + " is closed");
+        
+        try
+        {
+            if(!permits.tryAcquire(borrowTimeout, TimeUnit.MILLISECONDS))
+            {
+                throw new SQLException("Timed out after " + borrowTimeout + "ms waiting for a connection from " + name + " (" + maximumSize + " in use)");
+            }
+        }
+        catch(InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            
+            throw new SQLException("Interrupted waiting for a connection from " + name, e);
+        }
+        
+        try
+        {
+            while((entry = takeIdle()) != null)
+            {
+                if(isUsable(entry)) break;
+                
+                invalid.incrementAndGet();
+                entry.discard();
+            }
+            
+            if(entry == null) entry = create();
+        }
+        catch(SQLException | RuntimeException e)
+        {
+            permits.release();
+            
+            throw e;
+        }
+        
+        record(System.nanoTime() - start);
+        
+        return entry.borrow();
+    }
+    
+    private void release(Entry entry)
+    {
+        borrowed.remove(entry);
+        
+        try
+        {
+            if(closed || entry.broken || !entry.reset())
+            {
+                entry.discard();
+                return;
+            }
+            
+            entry.lastUsed = System.currentTimeMillis();
+            
+            synchronized(this)
+            {
+                idle.addFirst(entry);
+            }
+        }
+        finally
+        {
+            permits.release();
+        }
+    }
+    
+    private void maintain()
+    {
+        long now = System.currentTimeMillis();
+        Entry entry;
+        
+        while(true)
+        {
+            synchronized(this)
+            {
+                // The least recently used connections are at the end
+                entry = idle.peekLast();
+                
+                if(entry == null || now - entry.lastUsed < idleTimeout) break;
+                
+                idle.pollLast();
+            }
+            
+            evicted.incrementAndGet();
+            entry.discard();
+        }
+        
+        if(leakThreshold < 1) return;
+        
+        for(Entry candidate : borrowed)
+        {
+            if(!candidate.reported && now - candidate.borrowedAt > leakThreshold)
+            {
+                candidate.reported = true;
+                
+                System.err.println("Warning: connection from " + name + " has been borrowed for " + ((now - candidate.borrowedAt) / 1000) + "s and may have leaked");
+                candidate.origin.printStackTrace();
+            }
+        }
+    }
+    
+    /**
+     * Returns the number of connections currently borrowed.
+     * 
+     * @return The active connection count
+     */
+    public int getActiveCount()
+    {
+        return borrowed.size();
+    }
+    
+    /**
+     * Returns the number of open connections waiting to be borrowed.
+     * 
+     * @return The idle connection count
+     */
+    public synchronized int getIdleCount()
+    {
+        return idle.size();
+    }
+    
+    public long getBorrowCount()
+    {
+        return borrows.get();
+    }
+    
+    public long getCreatedCount()
+    {
+        return created.get();
+    }
+    
+    /**
+     * Returns the total time callers spent waiting in getConnection(), 
+     * including the time to open new physical connections.
+     * 
+     * @return The wait time in nanoseconds
+     */
+    public long getTotalWaitTime()
+    {
+        return waitTime.get();
+    }
+    
+    /**
+     * Returns the longest time a single call to getConnection() waited.
+     * 
+     * @return The wait time in nanoseconds
+     */
+    public long getMaximumWaitTime()
+    {
+        return maximumWait.get();
+    }
+    
+    /**
+     * Closes all idle connections and rejects further borrows. Borrowed 
+     * connections are closed when returned and are reported as leaks.
+     */
+    @Override
+    public void close()
+    {
+        closed = true;
+        
+        maintenance.cancel(false);
+        
+        synchronized(this)
+        {
+            for(Entry entry : idle) entry.discard();
+            
+            idle.clear();
+        }
+        
+        for(Entry entry : borrowed)
+        {
+            System.err.println("Warning: connection from " + name + " was not returned before the pool closed");
+            entry.origin.printStackTrace();
+        }
+    }
+    
+    @Override
+    public String toString()
+    {
+        long count = Math.max(1, borrows.get());
+        
+        return String.format("%s: %d borrows, %d connections opened, %d failed validation, %d evicted, wait avg %.2fms max %.2fms", 
+                name, borrows.get(), created.get(), invalid.get(), evicted.get(), 
+                waitTime.get() / count / 1000000.0, maximumWait.get() / 1000000.0);
+    }
+    
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException
+    {
+        throw new SQLFeatureNotSupportedException("Pooled connections use the stored connection's credentials");
+    }
+    
+    @Override
+    public PrintWriter getLogWriter() throws SQLException
+    {
+        return dataSource.getLogWriter();
+    }
+    
+    @Override
+    public void setLogWriter(PrintWriter out) throws SQLException
+    {
+        dataSource.setLogWriter(out);
+    }
+    
+    @Override
+    public void setLoginTimeout(int seconds) throws SQLException
+    {
+        dataSource.setLoginTimeout(seconds);
+    }
+    
+    @Override
+    public int getLoginTimeout() throws SQLException
+    {
+        return dataSource.getLoginTimeout();
+    }
+    
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException
+    {
+        return dataSource.getParentLogger();
+    }
+    
+    @Override
+    public <T> T unwrap(Class<T> type) throws SQLException
+    {
+        if(type.isInstance(this)) return type.cast(this);
+        
+        return dataSource.unwrap(type);
+    }
+    
+    @Override
+    public boolean isWrapperFor(Class<?> type) throws SQLException
+    {
+        return type.isInstance(this) || dataSource.isWrapperFor(type);
+    }
+    
+    // Exposes reducePermits() so the pool can shrink while connections are borrowed
+    private static class Permits extends Semaphore
+    {
+        public Permits(int permits)
+        {
+            super(permits, true);
+        }
+        
+        @Override
+        public void reducePermits(int reduction)
+        {
+            super.reducePermits(reduction);
+        }
+    }
+    
+    private class Entry
+    {
+        private final Connection physical;
+        private final boolean autoCommit;
+        private final boolean readOnly;
+        private final int isolation;
+        
+        private long lastUsed;
+        private long borrowedAt;
+        private Exception origin;
+        private boolean broken;
+        private boolean reported;
+        
+        public Entry(Connection physical) throws SQLException
+        {
+            this.physical = physical;
+            this.autoCommit = physical.getAutoCommit();
+            this.readOnly = physical.isReadOnly();
+            this.isolation = physical.getTransactionIsolation();
+            this.lastUsed = System.currentTimeMillis();
+        }
+        
+        public Connection borrow()
+        {
+            borrowedAt = System.currentTimeMillis();
+            origin = new Exception("Connection borrowed from " + name);
+            reported = false;
+            
+            borrowed.add(this);
+            
+            // Defined in the driver's class loader so callers can find driver classes from getClass()
+            return (Connection)Proxy.newProxyInstance(physical.getClass().getClassLoader(), new Class[]{ Connection.class }, new Handle(this));
+        }
+        
+        public boolean reset()
+        {
+            try
+            {
+                if(!physical.getAutoCommit()) physical.rollback();
+                if(physical.getAutoCommit() != autoCommit) physical.setAutoCommit(autoCommit);
+                if(physical.isReadOnly() != readOnly) physical.setReadOnly(readOnly);
+                if(physical.getTransactionIsolation() != isolation) physical.setTransactionIsolation(isolation);
+                
+                physical.clearWarnings();
+                
+                return true;
+            }
+            catch(SQLException e)
+            {
+                return false;
+            }
+        }
+        
+        public void discard()
+        {
+            try
+            {
+                physical.close();
+            }
+            catch(SQLException e)
+            {
+                // The connection is being thrown away
+            }
+        }
+    }
+    
+    private class Handle implements InvocationHandler
+    {
+        private Entry entry;
+        
+        public Handle(Entry entry)
+        {
+            this.entry = entry;
+        }
+        
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable
+        {
+            Entry current = entry;
+            
+            switch(method.getName())
+            {
+                case "close":
+                    if(current == null) return null;
+                    
+                    entry = null;
+                    release(current);
+                    
+                    return null;
+                    
+                case "isClosed":
+                    if(current == null) return true;
+                    
+                    break;
+                    
+                case "equals":
+                    return (proxy == args[0]);
+                    
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                    
+                case "toString":
+                    return "Pooled " + ((current != null) ? current.physical : "closed connection");
+            }
+            
+            if(current == null) throw new SQLException("Connection is closed");
+            
+            try
+            {
+                return method.invoke(current.physical, args);
+            }
+            catch(InvocationTargetException e)
+            {
+                // SQLState class 08 means the connection itself failed
+                if(e.getCause() instanceof SQLException && ((SQLException)e.getCause()).getSQLState() != null && ((SQLException)e.getCause()).getSQLState().startsWith("08"))
+                {
+                    current.broken = true;
+                }
+                
+                throw e.getCause();
+            }
+        }
+    }
+}
@@ -0,0 +1,260 @@
+/*
+ * Copyright 2024 INVIRGANCE LLC
+
+Permission is hereby granted, free of charge, to any person obtaining a copy 
+of this software and associated documentation files (the “Software”), to deal 
+in the Software without restriction, including without limitation the rights to 
+use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies 
+of the Software, and to permit persons to whom the Software is furnished to do 
+so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all 
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR 
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, 
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER 
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE 
+SOFTWARE.
+ */
+package com.invirgance.virge.sql.pool;
+
+import com.invirgance.convirgance.jdbc.StoredConnection;
+import java.io.PrintStream;
+import java.lang.reflect.Method;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import javax.sql.DataSource;
+
+/**
+ * Shares connection pools between the tools and worker threads of the 
+ * process. Pools are keyed on the configuration of the stored connection's 
+ * data source rather than its name, so that a tuned data source, an untuned
+ * one and a connection saved again with new settings never share physical 
+ * connections. Pools are closed when the JVM exits.
+ * 
+ * In the daemon each command runs inside a Command scope. A pool is only as 
+ * large as the commands using it need, and pools no command is using are 
+ * closed once their idle connections have expired.
+ * 
+ * @author tadghh
+ */
+public class ConnectionPools
+{
+    private static final int DEFAULT_SIZE = 4;
+    
+    private static final Object PROCESS = new Object();
+    private static final InheritableThreadLocal<Command> CURRENT = new InheritableThreadLocal<>();
+    
+    private static final Map<String,Shared> pools = new HashMap<>();
+    
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread(null, ConnectionPools::closeAll, "connection-pool-shutdown", 0, false));
+    }
+    
+    private static boolean isSimple(Class<?> type)
+    {
+        return type.isPrimitive() || type.isEnum() || type == String.class || type == Boolean.class || Number.class.isAssignableFrom(type) || Map.class.isAssignableFrom(type);
+    }
+    
+    private static String getProperty(Method method)
+    {
+        String name = method.getName();
+        
+        if(name.startsWith("set") && method.getParameterCount() == 1) return name.substring(3).toLowerCase();
+        if(name.startsWith("get") && method.getParameterCount() == 0) return name.substring(3).toLowerCase();
+        if(name.startsWith("is") && method.getParameterCount() == 0) return name.substring(2).toLowerCase();
+        
+        return null;
+    }
+    
+    // The data source's settable bean properties hold its URL, credentials and any tuning applied to it
+    private static String getKey(StoredConnection connection)
+    {
+        DataSource source = connection.getDataSource();
+        Map<String,Object> properties = new TreeMap<>();
+        Set<String> settable = new HashSet<>();
+        String property;
+        Object value;
+        
+        for(Method method : source.getClass().getMethods())
+        {
+            if(method.getName().startsWith("set") && method.getParameterCount() == 1) settable.add(getProperty(method));
+        }
+        
+        for(Method method : source.getClass().getMethods())
+        {
+            property = getProperty(method);
+            
+            if(property == null || method.getName().startsWith("set") || !settable.contains(property)) continue;
+            if(!isSimple(method.getReturnType())) continue;
+            
+            try
+            {
+                value = method.invoke(source);
+                
+                if(value instanceof Map) value = new TreeMap<>((Map<?,?>)value).toString();
+            }
+            catch(ReflectiveOperationException | RuntimeException e)
+            {
+                continue;
+            }
+            
+            properties.put(method.getName(), value);
+        }
+        
+        return connection.getName() + "\n" + source.getClass().getName() + "\n" + properties;
+    }
+    
+    /**
+     * Returns the pool for a stored connection, creating it if needed. 
+     * Connections built from a JDBC URL on the command line have no name and
+     * share a pool with other connections to the same configuration.
+     * 
+     * @param connection The stored connection
+     * @return The shared pool
+     */
+    public static ConnectionPool getPool(StoredConnection connection)
+    {
+        return getPool(connection, DEFAULT_SIZE);
+    }
+    
+    /**
+     * Returns the pool for a stored connection, making sure it allows at least
+     * the given number of connections until the calling command ends.
+     * 
+     * @param connection The stored connection
+     * @param size The number of connections the caller may hold at once
+     * @return The shared pool
+     */
+    public static ConnectionPool getPool(StoredConnection connection, int size)
+    {
+        String key = getKey(connection);
+        Command command = CURRENT.get();
+        Object owner = (command != null) ? command : PROCESS;
+        Shared shared;
+        
+        synchronized(ConnectionPools.class)
+        {
+            removeUnused();
+            
+            shared = pools.get(key);
+            
+            if(shared == null)
+            {
+                shared = new Shared(new ConnectionPool((connection.getName() != null) ? connection.getName() : "connection", connection.getDataSource(), DEFAULT_SIZE));
+                
+                pools.put(key, shared);
+            }
+            
+            shared.sizes.merge(owner, size, Math::max);
+            shared.resize();
+            
+            return shared.pool;
+        }
+    }
+    
+    // Pools without users keep their idle connections warm for the next command until the pool's idle timeout evicts them
+    private static void removeUnused()
+    {
+        Iterator<Shared> iterator = pools.values().iterator();
+        Shared shared;
+        
+        while(iterator.hasNext())
+        {
+            shared = iterator.next();
+            
+            if(!shared.sizes.isEmpty() || shared.pool.getActiveCount() > 0 || shared.pool.getIdleCount() > 0) continue;
+            
+            shared.pool.close();
+            iterator.remove();
+        }
+    }
+    
+    /**
+     * Starts a command on the calling thread. Threads it starts belong to the
+     * same command. Closing the command releases the pool sizes it asked for.
+     * 
+     * @return The command
+     */
+    public static Command startCommand()
+    {
+        Command command = new Command();
+        
+        CURRENT.set(command);
+        
+        return command;
+    }
+    
+    /**
+     * Prints the borrow and wait statistics of every pool.
+     * 
+     * @param out The stream to print to
+     */
+    public static synchronized void printStatistics(PrintStream out)
+    {
+        for(Shared shared : pools.values()) out.println(shared.pool);
+    }
+    
+    /**
+     * Closes every pool.
+     */
+    public static synchronized void closeAll()
+    {
+        for(Shared shared : pools.values()) shared.pool.close();
+        
+        pools.clear();
+    }
+    
+    private static class Shared
+    {
+        private final ConnectionPool pool;
+        private final Map<Object,Integer> sizes = new HashMap<>();
+        
+        public Shared(ConnectionPool pool)
+        {
+            this.pool = pool;
+        }
+        
+        public void resize()
+        {
+            int size = DEFAULT_SIZE;
+            
+            for(int requested : sizes.values()) size = Math.max(size, requested);
+            
+            pool.setMaximumSize(size);
+        }
+    }
+    
+    /**
+     * The pools used by a command run in the daemon.
+     */
+    public static class Command implements AutoCloseable
+    {
+        private Command()
+        {
+        }
+        
+        @Override
+        public void close()
+        {
+            CURRENT.remove();
+            
+            synchronized(ConnectionPools.class)
+            {
+                for(Shared shared : pools.values())
+                {
+                    if(shared.sizes.remove(this) != null) shared.resize();
+                }
+                
+                removeUnused();
+            }
+        }
+    }
+}
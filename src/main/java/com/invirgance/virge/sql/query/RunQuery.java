@@ -0,0 +1,284 @@
+/*
+ * Copyright 2024 INVIRGANCE LLC
+
+Permission is hereby granted, free of charge, to any person obtaining a copy 
+of this software and associated documentation files (the “Software”), to deal 
+in the Software without restriction, including without limitation the rights to 
+use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies 
+of the Software, and to permit persons to whom the Software is furnished to do 
+so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all 
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR 
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, 
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER 
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE 
+SOFTWARE.
+ */
+package com.invirgance.virge.sql.query;
+
+import com.invirgance.convirgance.jdbc.StoredConnection;
+import com.invirgance.convirgance.jdbc.StoredConnections;
+import com.invirgance.convirgance.output.JBINOutput;
+import com.invirgance.convirgance.output.OutputCursor;
+import com.invirgance.convirgance.target.OutputStreamTarget;
+import static com.invirgance.virge.Virge.HELP_DESCRIPTION_SPACING;
+import static com.invirgance.virge.Virge.HELP_SPACING;
+import com.invirgance.virge.sql.StreamingOutputFormatter;
+import static com.invirgance.virge.sql.VirgeSQL.exit;
+import static com.invirgance.virge.sql.VirgeSQL.printToolHelp;
+import com.invirgance.virge.sql.export.DirectExporter;
+import com.invirgance.virge.sql.export.TableExporter.RecordIterator;
+import com.invirgance.virge.sql.pool.ConnectionPools;
+import com.invirgance.virge.tool.Tool;
+import java.io.BufferedOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.Statement;
+
+/**
+ * Runs a SQL statement on a stored connection and streams the results to 
+ * standard out, either as a table or in an export format. Rows are printed as
+ * they are fetched, so memory use doesn't grow with the size of the result.
+ * 
+ * @author tadghh
+ */
+public class RunQuery implements Tool
+{
+    public static final String DESCRIPTION = "Run a SQL query on a stored connection and stream the results.";
+    
+    private String connectionName;
+    private String sql;
+    private String format = "table";
+    private int sampleRows = 100;
+    private int maxWidth = 40;
+    private int maxRows;
+    
+    private StoredConnection connection;
+    
+    private boolean error(String message)
+    {
+        System.err.println(message);
+        
+        return false;
+    }
+    
+    @Override
+    public String getName()
+    {
+        return "query";
+    }
+    
+    @Override
+    public String getShortDescription()
+    {
+        return DESCRIPTION;
+    }
+    
+    @Override
+    public String[] getHelp()
+    {
+        return new String[] {
+            HELP_SPACING + "<SQL> or piped -",
+            HELP_SPACING + HELP_DESCRIPTION_SPACING + "The statement to run. Use - to read it from standard in.",
+            "",
+            HELP_SPACING + "--connection-name <STORED_CONNECTION>",
+            HELP_SPACING + "-c <STORED_CONNECTION>",
+            HELP_SPACING + HELP_DESCRIPTION_SPACING + "The name of the stored connection to use.",
+            "",
+            HELP_SPACING + "--format [table|json|csv|jbin]",
+            HELP_SPACING + "-f [table|json|csv|jbin]",
+            HELP_SPACING + HELP_DESCRIPTION_SPACING + "The format of the results. Defaults to table.",
+            "",
+            HELP_SPACING + "--sample-rows <ROWS>",
+            HELP_SPACING + HELP_DESCRIPTION_SPACING + "The number of rows used to size the table columns. Defaults to 100.",
+            "",
+            HELP_SPACING + "--max-width <CHARACTERS>",
+            HELP_SPACING + HELP_DESCRIPTION_SPACING + "The widest a table column can be, longer values are cut short. Defaults to 40.",
+            "",
+            HELP_SPACING + "--max-rows <ROWS>",
+            HELP_SPACING + HELP_DESCRIPTION_SPACING + "Stop after this many rows.",
+            "",
+            HELP_SPACING + "--help",
+            HELP_SPACING + "-h",
+            HELP_SPACING + HELP_DESCRIPTION_SPACING  + "Display this menu.",
+        };
+    }
+    
+    @Override
+    public String getExample()
+    {
+        return "virge.jar sql query -c warehouse \"select * from orders\" --format csv";
+    }
+    
+    @Override
+    public boolean parse(String[] args, int start) throws Exception
+    {
+        if(start == args.length) return false;
+        
+        for(int i=start; i<args.length; i++)
+        {
+            // Handle single-letter params with no spaces in them
+            if(args[i].length() > 2 && args[i].charAt(0) == '-' && Character.isLetter(args[i].charAt(1)))
+            {
+                parse(new String[]{ args[i].substring(0, 2), args[i].substring(2) }, 0);
+                
+                continue;
+            }
+            
+            switch(args[i])
+            {
+                case "--help":
+                case "-h":
+                    printToolHelp(this);
+                    
+                case "--connection-name":
+                case "-c":
+                    connectionName = args[++i];
+                    break;
+                    
+                case "--format":
+                case "-f":
+                    format = args[++i].toLowerCase();
+                    break;
+                    
+                case "--sample-rows":
+                    sampleRows = Integer.parseInt(args[++i]);
+                    break;
+                    
+                case "--max-width":
+                    maxWidth = Integer.parseInt(args[++i]);
+                    break;
+                    
+                case "--max-rows":
+                    maxRows = Integer.parseInt(args[++i]);
+                    break;
+                    
+                default:
+                    if(sql != null || (args[i].startsWith("-") && !args[i].equals("-")))
+                    {
+                        System.err.println("Unknown parameter: " + args[i]);
+                        printToolHelp(this);
+                    }
+                    
+                    sql = args[i];
+            }
+        }
+        
+        if(sql == null) return error("No query specified!");
+        if(connectionName == null) return error("No connection specified! Use -c to specify a stored connection.");
+        if(!format.matches("table|json|csv|jbin")) return error("Unsupported format: " + format);
+        
+        if(sql.equals("-")) sql = new String(System.in.readAllBytes(), StandardCharsets.UTF_8).trim();
+        
+        connection = StoredConnections.getConnection(connectionName);
+        
+        if(connection == null) exit(255, "Saved connection " + connectionName + " does not exist!");
+        
+        return true;
+    }
+    
+    private long printTable(ResultSet set) throws Exception
+    {
+        PrintStream out = new PrintStream(new BufferedOutputStream(System.out, 64 * 1024), false, StandardCharsets.UTF_8);
+        ResultSetMetaData metadata = set.getMetaData();
+        String[] titles = new String[metadata.getColumnCount()];
+        StreamingOutputFormatter formatter;
+        String[] row;
+        long rows = 0;
+        
+        for(int i=0; i<titles.length; i++) titles[i] = metadata.getColumnLabel(i + 1);
+        
+        formatter = new StreamingOutputFormatter(titles, sampleRows, maxWidth, out);
+        
+        while(set.next())
+        {
+            row = new String[titles.length];
+            
+            for(int i=0; i<row.length; i++) row[i] = set.getString(i + 1);
+            
+            formatter.print(row);
+            rows++;
+        }
+        
+        formatter.finish();
+        
+        return rows;
+    }
+    
+    private long write(ResultSet set) throws Exception
+    {
+        RecordIterator records;
+        long rows = 0;
+        
+        switch(format)
+        {
+            case "table":
+                return printTable(set);
+                
+            case "jbin":
+                records = new RecordIterator(set);
+                
+                try(OutputCursor cursor = new JBINOutput().write(new OutputStreamTarget(System.out)))
+                {
+                    while(records.hasNext())
+                    {
+                        cursor.write(records.next());
+                        rows++;
+                    }
+                }
+                
+                return rows;
+                
+            default:
+                rows = new DirectExporter().export(set, format, ',', System.out);
+                
+                System.out.flush();
+                
+                return rows;
+        }
+    }
+    
+    @Override
+    public void execute() throws Exception
+    {
+        long start = System.currentTimeMillis();
+        long rows;
+        
+        try(Connection jdbc = ConnectionPools.getPool(connection).getConnection())
+        {
+            // Some drivers (e.g. PostgreSQL) only stream results inside a transaction
+            jdbc.setAutoCommit(false);
+            
+            try(Statement statement = jdbc.createStatement())
+            {
+                statement.setFetchSize(1000);
+                
+                if(maxRows > 0) statement.setMaxRows(maxRows);
+                
+                if(statement.execute(sql))
+                {
+                    try(ResultSet set = statement.getResultSet())
+                    {
+                        rows = write(set);
+                    }
+                    
+                    if(format.equals("table")) System.err.println("\n" + rows + " rows in " + (System.currentTimeMillis() - start) + "ms");
+                }
+                else
+                {
+                    System.err.println(statement.getUpdateCount() + " rows affected");
+                }
+            }
+            
+            jdbc.commit();
+        }
+    }
+}
@@ -0,0 +1,78 @@
+#!/bin/bash
+#
+# Trains and dumps an AppCDS archive for the virge-sql assembly jar.
+#
+# Each training command runs with -XX:DumpLoadedClassList, and the class lists
+# are merged into a single static archive. Unlike -XX:ArchiveClassesAtExit,
+# this lets one archive cover several commands.
+#
+# Usage: appcds.sh <virge-sql.jar> <virge-sql.jsa>
+#
+# Set VIRGE_TRAINING_URL to a JDBC URL with a registered driver to also train
+# the export path, e.g. an embedded H2 database (see startup-benchmark.sh).
+# VIRGE_TRAINING_USER and VIRGE_TRAINING_PASSWORD default to H2's sa user.
+#
+# Run the jar with the archive using:
+#   java -XX:SharedArchiveFile=virge-sql.jsa -jar virge-sql.jar <TOOL>
+#
+
+set -e
+
+JAR="$1"
+ARCHIVE="$2"
+JAVA="${JAVA:-java}"
+LIST="$ARCHIVE.classlist"
+
+if [ -z "$JAR" ] || [ -z "$ARCHIVE" ]; then
+    echo "Usage: appcds.sh <virge-sql.jar> <virge-sql.jsa>" >&2
+    exit 1
+fi
+
+rm -f "$LIST" "$LIST.all" "$ARCHIVE"
+
+# Runs a training command, failing unless it ends with the EXPECT exit code
+train() {
+    local status=0
+    
+    "$JAVA" -Xshare:off -XX:DumpLoadedClassList="$LIST.part" -jar "$JAR" "$@" > "$LIST.log" 2>&1 || status=$?
+    
+    if [ "$status" -ne "${EXPECT:-1}" ]; then
+        echo "Training command failed with exit code $status: $*" >&2
+        tail -20 "$LIST.log" >&2
+        exit 1
+    fi
+    
+    rm -f "$LIST.log"
+    
+    if [ -f "$LIST.part" ]; then
+        cat "$LIST.part" >> "$LIST.all"
+        rm "$LIST.part"
+    fi
+}
+
+# Help screens end with exit code 1
+
+train --help
+EXPECT=0 train drivers list
+EXPECT=0 train connection list
+train export --help
+train export table --help
+train import --help
+train copy --help
+
+if [ -n "$VIRGE_TRAINING_URL" ]; then
+    TRAINING_USER="${VIRGE_TRAINING_USER:-sa}"
+    TRAINING_PASSWORD="${VIRGE_TRAINING_PASSWORD:-}"
+    
+    EXPECT=0 train export table -j "$VIRGE_TRAINING_URL" -u "$TRAINING_USER" -p "$TRAINING_PASSWORD" -n "${VIRGE_TRAINING_TABLE:-BENCH}" -s - -i csv
+    EXPECT=0 train export table -j "$VIRGE_TRAINING_URL" -u "$TRAINING_USER" -p "$TRAINING_PASSWORD" -n "${VIRGE_TRAINING_TABLE:-BENCH}" -s - -i json
+fi
+
+# Ids are only unique within a single run. Classes from custom loaders need
+# their ids, so they are left out of the merged list.
+sed -e '/ source: /d' -e 's/ id: [0-9]*$//' "$LIST.all" | awk '!seen[$0]++' > "$LIST"
+rm "$LIST.all"
+
+"$JAVA" -Xshare:dump -XX:SharedClassListFile="$LIST" -XX:SharedArchiveFile="$ARCHIVE" -cp "$JAR"
+
+echo "Archived $(grep -vc '^@' "$LIST") classes to $ARCHIVE"
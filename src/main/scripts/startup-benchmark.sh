@@ -0,0 +1,86 @@
+#!/bin/bash
+#
+# Measures the cold start time of the virge-sql assembly jar, with and without
+# class data sharing, to catch startup regressions.
+#
+#   help      - time to print 'sql --help'
+#   first row - time to export a one row table from an embedded H2 database
+#
+# Usage: startup-benchmark.sh <virge-sql.jar> [virge-sql.jsa] [runs]
+#
+# The first row benchmark needs the H2 driver added with:
+#
+#   java -jar virge-sql.jar drivers add -n H2 -p jdbc:h2: -a com.h2database:h2:2.2.224 -d org.h2.Driver
+#
+# Set VIRGE_BENCH_URL, VIRGE_BENCH_USER and VIRGE_BENCH_PASSWORD to benchmark
+# another database.
+#
+
+JAR="$1"
+ARCHIVE="${2:-${JAR%.jar}.jsa}"
+RUNS="${3:-10}"
+JAVA="${JAVA:-java}"
+URL="${VIRGE_BENCH_URL:-jdbc:h2:mem:bench;INIT=CREATE TABLE IF NOT EXISTS BENCH AS SELECT X AS ID, 'row ' || X AS NAME FROM SYSTEM_RANGE(1, 1)}"
+USER="${VIRGE_BENCH_USER:-sa}"
+PASSWORD="${VIRGE_BENCH_PASSWORD:-}"
+
+if [ -z "$JAR" ]; then
+    echo "Usage: startup-benchmark.sh <virge-sql.jar> [virge-sql.jsa] [runs]" >&2
+    exit 1
+fi
+
+# Prints the median wall clock time in milliseconds of RUNS executions. Stops
+# the benchmark if a run doesn't end with the EXPECT exit code, since a run
+# that fails early (e.g. on a bad option) would only time the error path.
+measure() {
+    local times=()
+    local start
+    local status
+    local log
+    
+    log=$(mktemp)
+    
+    for ((i=0; i<RUNS; i++)); do
+        start=$(date +%s%N)
+        "$@" > "$log" 2>&1
+        status=$?
+        times+=($(( ($(date +%s%N) - start) / 1000000 )))
+        
+        if [ "$status" -ne "${EXPECT:-0}" ]; then
+            echo "Expected exit code ${EXPECT:-0} but got $status from: $*" >&2
+            tail -20 "$log" >&2
+            rm -f "$log"
+            kill -TERM $$
+            exit 1
+        fi
+    done
+    
+    rm -f "$log"
+    
+    printf "%s\n" "${times[@]}" | sort -n | awk '{ t[NR] = $1 } END { print t[int((NR + 1) / 2)] }'
+}
+
+report() {
+    local name="$1"
+    
+    shift
+    
+    printf "%-12s %8s %8s" "$name" "$(measure "$JAVA" -Xshare:off "$@")" "$(measure "$JAVA" "$@")"
+    
+    if [ -f "$ARCHIVE" ]; then
+        printf " %8s" "$(measure "$JAVA" -XX:SharedArchiveFile="$ARCHIVE" "$@")"
+    fi
+    
+    printf "\n"
+}
+
+echo "Median of $RUNS runs in milliseconds"
+echo
+
+printf "%-12s %8s %8s" "" "no CDS" "JDK CDS"
+[ -f "$ARCHIVE" ] && printf " %8s" "AppCDS"
+printf "\n"
+
+# Help screens exit with 1
+EXPECT=1 report "help" -jar "$JAR" --help
+EXPECT=0 report "first row" -jar "$JAR" export table -j "$URL" -u "$USER" -p "$PASSWORD" -n BENCH -s - -i csv
@@ -0,0 +1,110 @@
+/*
+ * Copyright 2024 INVIRGANCE LLC
+
+Permission is hereby granted, free of charge, to any person obtaining a copy 
+of this software and associated documentation files (the “Software”), to deal 
+in the Software without restriction, including without limitation the rights to 
+use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies 
+of the Software, and to permit persons to whom the Software is furnished to do 
+so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all 
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR 
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, 
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER 
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE 
+SOFTWARE.
+ */
+package com.invirgance.virge.sql.export;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests number formatting and UTF-8 encoding in OutputBuffer.
+ * 
+ * @author tadghh
+ */
+public class OutputBufferTest
+{
+    private static String text(OutputBuffer buffer)
+    {
+        return new String(buffer.toByteArray(), StandardCharsets.UTF_8);
+    }
+    
+    @Test
+    public void testLongs()
+    {
+        long[] values = { 0, 7, -7, 10, 1234567890123L, -1000000, Long.MAX_VALUE, Long.MIN_VALUE };
+        
+        for(long value : values)
+        {
+            assertEquals(Long.toString(value), text(new OutputBuffer(1).append(value)));
+        }
+    }
+    
+    @Test
+    public void testDoubles()
+    {
+        assertEquals("1.0", text(new OutputBuffer().append(1.0)));
+        assertEquals("-42.0", text(new OutputBuffer().append(-42.0)));
+        assertEquals("0.0", text(new OutputBuffer().append(0.0)));
+        assertEquals("0.1", text(new OutputBuffer().append(0.1)));
+        assertEquals("-2.5E-7", text(new OutputBuffer().append(-2.5e-7)));
+        assertEquals("1.0E20", text(new OutputBuffer().append(1e20)));
+        assertEquals("NaN", text(new OutputBuffer().append(Double.NaN)));
+    }
+    
+    @Test
+    public void testUTF8()
+    {
+        String value = "a\u00e9\u00a7\u2502\u20ac\ud83d\ude00z";
+        
+        assertArrayEquals(value.getBytes(StandardCharsets.UTF_8), new OutputBuffer(1).append(value).toByteArray());
+    }
+    
+    @Test
+    public void testUnpairedSurrogates()
+    {
+        assertEquals("a?b?", text(new OutputBuffer().append("a\ud83db\ude00")));
+    }
+    
+    @Test
+    public void testChars()
+    {
+        OutputBuffer buffer = new OutputBuffer(1);
+        
+        buffer.append('a').append('\u00a7').append('\u2502').append('b');
+        
+        assertArrayEquals("a\u00a7\u2502b".getBytes(StandardCharsets.UTF_8), buffer.toByteArray());
+    }
+    
+    @Test
+    public void testGrowAndDrain() throws Exception
+    {
+        OutputBuffer buffer = new OutputBuffer(4);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        String text = "0123456789".repeat(100);
+        
+        buffer.appendAscii(text);
+        
+        assertEquals(1000, buffer.size());
+        
+        buffer.drainTo(out);
+        
+        assertEquals(0, buffer.size());
+        assertEquals(text, out.toString(StandardCharsets.UTF_8));
+        
+        buffer.append("x");
+        buffer.reset();
+        
+        assertEquals(0, buffer.toByteArray().length);
+    }
+}
@@ -0,0 +1,177 @@
+/*
+ * Copyright 2024 INVIRGANCE LLC
+
+Permission is hereby granted, free of charge, to any person obtaining a copy 
+of this software and associated documentation files (the “Software”), to deal 
+in the Software without restriction, including without limitation the rights to 
+use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies 
+of the Software, and to permit persons to whom the Software is furnished to do 
+so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all 
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR 
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, 
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER 
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE 
+SOFTWARE.
+ */
+package com.invirgance.virge.sql.export;
+
+import com.invirgance.virge.sql.export.ExportColumn.Kind;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests the delimited and JSON encoders against rows held in a RowBatch.
+ * 
+ * @author tadghh
+ */
+public class RecordEncoderTest
+{
+    private static final ExportColumn[] COLUMNS = {
+        new ExportColumn("id", Kind.LONG),
+        new ExportColumn("price", Kind.DOUBLE),
+        new ExportColumn("amount", Kind.DECIMAL),
+        new ExportColumn("active", Kind.BOOLEAN),
+        new ExportColumn("name", Kind.STRING)
+    };
+    
+    private static RowBatch batch()
+    {
+        RowBatch batch = new RowBatch(COLUMNS, 3);
+        
+        batch.setLong(0, 0, 1);
+        batch.setDouble(0, 1, 2.5);
+        batch.setObject(0, 2, new BigDecimal("1E+3"));
+        batch.setBoolean(0, 3, true);
+        batch.setObject(0, 4, "plain");
+        
+        batch.setLong(1, 0, -2);
+        batch.setDouble(1, 1, Double.NaN);
+        batch.setObject(1, 2, new BigDecimal("0.10"));
+        batch.setBoolean(1, 3, false);
+        batch.setObject(1, 4, "a,\"b\"\nc\u00e9\ud83d\ude00");
+        
+        for(int i=0; i<COLUMNS.length; i++) batch.setNull(2, i);
+        
+        batch.setSize(3);
+        
+        return batch;
+    }
+    
+    private static String encode(RecordEncoder encoder)
+    {
+        OutputBuffer buffer = new OutputBuffer(16);
+        RowBatch batch = batch();
+        
+        encoder.begin(buffer);
+        
+        for(int i=0; i<batch.size(); i++) encoder.encode(batch, i, buffer);
+        
+        encoder.end(buffer);
+        
+        return new String(buffer.toByteArray(), StandardCharsets.UTF_8);
+    }
+    
+    @Test
+    public void testDelimited()
+    {
+        String expected = "id,price,amount,active,name\n"
+                        + "1,2.5,1000,true,plain\n"
+                        + "-2,NaN,0.10,false,\"a,\"\"b\"\"\nc\u00e9\ud83d\ude00\"\n"
+                        + ",,,,\n";
+        
+        assertEquals(expected, encode(new DelimitedRecordEncoder(COLUMNS, ',')));
+    }
+    
+    @Test
+    public void testNonAsciiDelimiter()
+    {
+        String expected = "id\u00a7price\u00a7amount\u00a7active\u00a7name\n"
+                        + "1\u00a72.5\u00a71000\u00a7true\u00a7plain\n"
+                        + "-2\u00a7NaN\u00a70.10\u00a7false\u00a7\"a,\"\"b\"\"\nc\u00e9\ud83d\ude00\"\n"
+                        + "\u00a7\u00a7\u00a7\u00a7\n";
+        
+        assertEquals(expected, encode(new DelimitedRecordEncoder(COLUMNS, '\u00a7')));
+    }
+    
+    @Test
+    public void testQuotesValuesContainingTheDelimiter()
+    {
+        ExportColumn[] columns = { new ExportColumn("a|b", Kind.STRING) };
+        RowBatch batch = new RowBatch(columns, 1);
+        OutputBuffer buffer = new OutputBuffer();
+        DelimitedRecordEncoder encoder = new DelimitedRecordEncoder(columns, '|');
+        
+        batch.setObject(0, 0, "x|y\r");
+        batch.setSize(1);
+        
+        encoder.begin(buffer);
+        encoder.encode(batch, 0, buffer);
+        
+        assertEquals("\"a|b\"\n\"x|y\r\"\n", new String(buffer.toByteArray(), StandardCharsets.UTF_8));
+    }
+    
+    @Test
+    public void testJSON()
+    {
+        String expected = "[\n"
+                        + "{\"id\":1,\"price\":2.5,\"amount\":1000,\"active\":true,\"name\":\"plain\"},\n"
+                        + "{\"id\":-2,\"price\":null,\"amount\":0.10,\"active\":false,\"name\":\"a,\\\"b\\\"\\nc\u00e9\ud83d\ude00\"},\n"
+                        + "{\"id\":null,\"price\":null,\"amount\":null,\"active\":null,\"name\":null}\n"
+                        + "]\n";
+        
+        assertEquals(expected, encode(new JSONRecordEncoder(COLUMNS)));
+    }
+    
+    @Test
+    public void testJSONEscapes()
+    {
+        ExportColumn[] columns = { new ExportColumn("key \"1\"\\", Kind.STRING) };
+        RowBatch batch = new RowBatch(columns, 1);
+        OutputBuffer buffer = new OutputBuffer();
+        JSONRecordEncoder encoder = new JSONRecordEncoder(columns);
+        
+        batch.setObject(0, 0, "\\\t\r\u0001\u001f/");
+        batch.setSize(1);
+        
+        encoder.encode(batch, 0, buffer);
+        
+        assertEquals("\n{\"key \\\"1\\\"\\\\\":\"\\\\\\t\\r\\u0001\\u001f/\"}", new String(buffer.toByteArray(), StandardCharsets.UTF_8));
+    }
+    
+    @Test
+    public void testJSONResume()
+    {
+        OutputBuffer buffer = new OutputBuffer();
+        JSONRecordEncoder encoder = new JSONRecordEncoder(COLUMNS);
+        RowBatch batch = batch();
+        
+        encoder.resume(5);
+        encoder.encode(batch, 0, buffer);
+        encoder.end(buffer);
+        
+        assertTrue(new String(buffer.toByteArray(), StandardCharsets.UTF_8).startsWith(",\n{\"id\":1,"));
+        assertTrue(new String(buffer.toByteArray(), StandardCharsets.UTF_8).endsWith("}\n]\n"));
+    }
+    
+    @Test
+    public void testGetEncoder()
+    {
+        assertTrue(RecordEncoder.getEncoder("csv", ',', COLUMNS) instanceof DelimitedRecordEncoder);
+        assertTrue(RecordEncoder.getEncoder("delimited", '\u00a7', COLUMNS) instanceof DelimitedRecordEncoder);
+        assertTrue(RecordEncoder.getEncoder("json", (char)0, COLUMNS) instanceof JSONRecordEncoder);
+        assertNull(RecordEncoder.getEncoder("csv", (char)0, COLUMNS));
+        assertNull(RecordEncoder.getEncoder("jbin", ',', COLUMNS));
+        assertFalse(RecordEncoder.isSupported("xml", ','));
+    }
+}
@@ -0,0 +1,220 @@
+/*
+ * Copyright 2024 INVIRGANCE LLC
+
+Permission is hereby granted, free of charge, to any person obtaining a copy 
+of this software and associated documentation files (the “Software”), to deal 
+in the Software without restriction, including without limitation the rights to 
+use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies 
+of the Software, and to permit persons to whom the Software is furnished to do 
+so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all 
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR 
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, 
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER 
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE 
+SOFTWARE.
+ */
+package com.invirgance.virge.sql.importtools;
+
+import com.invirgance.convirgance.ConvirganceException;
+import com.invirgance.convirgance.json.JSONObject;
+import com.invirgance.virge.sql.export.ExportColumn.Kind;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests in memory and spilled sorts in ExternalSorter.
+ * 
+ * @author tadghh
+ */
+public class ExternalSorterTest
+{
+    private static JSONObject record(Object... pairs)
+    {
+        JSONObject record = new JSONObject(true);
+        
+        for(int i=0; i<pairs.length; i+=2) record.put((String)pairs[i], pairs[i + 1]);
+        
+        return record;
+    }
+    
+    private static List<JSONObject> records(int count, long seed)
+    {
+        List<JSONObject> records = new ArrayList<>();
+        Random random = new Random(seed);
+        
+        for(int i=0; i<count; i++)
+        {
+            records.add(record("group", random.nextInt(50), "value", random.nextDouble(), "sequence", i));
+        }
+        
+        return records;
+    }
+    
+    private static List<JSONObject> collect(Iterable<JSONObject> records)
+    {
+        List<JSONObject> list = new ArrayList<>();
+        
+        for(JSONObject record : records) list.add(record);
+        
+        return list;
+    }
+    
+    private static void assertSorted(List<JSONObject> records)
+    {
+        JSONObject previous;
+        JSONObject current;
+        int group;
+        
+        for(int i=1; i<records.size(); i++)
+        {
+            previous = records.get(i - 1);
+            current = records.get(i);
+            group = Integer.compare(((Number)previous.get("group")).intValue(), ((Number)current.get("group")).intValue());
+            
+            assertTrue(group <= 0, "Out of order at " + i);
+            
+            if(group == 0) assertTrue(((Number)previous.get("value")).doubleValue() <= ((Number)current.get("value")).doubleValue(), "Out of order at " + i);
+        }
+    }
+    
+    @Test
+    public void testSortInMemory() throws Exception
+    {
+        ExternalSorter sorter = new ExternalSorter(List.of("group", "value"), 64 * 1024 * 1024);
+        List<JSONObject> sorted = collect(sorter.sort(records(10000, 1)));
+        
+        assertEquals(10000, sorted.size());
+        assertEquals(0, sorter.getRunCount());
+        assertSorted(sorted);
+    }
+    
+    @Test
+    public void testSortSpilledRuns() throws Exception
+    {
+        ExternalSorter sorter = new ExternalSorter(List.of("group", "value"), 20000);
+        List<JSONObject> sorted;
+        
+        sorter.setThreads(2);
+        
+        sorted = collect(sorter.sort(records(10000, 2)));
+        
+        assertEquals(10000, sorted.size());
+        assertTrue(sorter.getRunCount() > 0);
+        assertSorted(sorted);
+    }
+    
+    @Test
+    public void testSortIsStable() throws Exception
+    {
+        for(long memory : new long[]{ 64 * 1024 * 1024, 20000 })
+        {
+            ExternalSorter sorter = new ExternalSorter(List.of("group"), memory);
+            List<JSONObject> sorted = collect(sorter.sort(records(5000, 3)));
+            JSONObject previous;
+            JSONObject current;
+            
+            assertEquals(5000, sorted.size());
+            
+            for(int i=1; i<sorted.size(); i++)
+            {
+                previous = sorted.get(i - 1);
+                current = sorted.get(i);
+                
+                if(!previous.get("group").equals(current.get("group"))) continue;
+                
+                assertTrue(((Number)previous.get("sequence")).intValue() < ((Number)current.get("sequence")).intValue(), "Unstable at " + i);
+            }
+        }
+    }
+    
+    @Test
+    public void testKeysIgnoreCase() throws Exception
+    {
+        ExternalSorter sorter = new ExternalSorter(List.of("ID"), 1024 * 1024);
+        List<JSONObject> sorted = collect(sorter.sort(List.of(record("id", 3), record("id", 1), record("id", 2))));
+        
+        assertEquals(List.of(1, 2, 3), List.of(sorted.get(0).get("id"), sorted.get(1).get("id"), sorted.get(2).get("id")));
+    }
+    
+    @Test
+    public void testMissingKey()
+    {
+        ExternalSorter sorter = new ExternalSorter(List.of("missing"), 1024 * 1024);
+        ConvirganceException error = assertThrows(ConvirganceException.class, () -> sorter.sort(List.of(record("id", 1))));
+        
+        assertEquals("Sort field missing not found in the source", error.getMessage());
+    }
+    
+    @Test
+    public void testMixedNumbersAndNulls() throws Exception
+    {
+        ExternalSorter sorter = new ExternalSorter(List.of("value"), 1024 * 1024);
+        List<JSONObject> sorted = collect(sorter.sort(List.of(record("value", 10L), record("value", 2.5), record("value", null), 
+                                                              record("value", new BigDecimal("3.25")), record("value", 3))));
+        
+        assertNull(sorted.get(0).get("value"));
+        assertEquals(2.5, sorted.get(1).get("value"));
+        assertEquals(3, sorted.get(2).get("value"));
+        assertEquals(new BigDecimal("3.25"), sorted.get(3).get("value"));
+        assertEquals(10L, sorted.get(4).get("value"));
+    }
+    
+    @Test
+    public void testStringKeysSortAsText() throws Exception
+    {
+        ExternalSorter sorter = new ExternalSorter(List.of("id"), 1024 * 1024);
+        List<JSONObject> sorted = collect(sorter.sort(List.of(record("id", "10"), record("id", "9"), record("id", "100"))));
+        
+        assertEquals(List.of("10", "100", "9"), List.of(sorted.get(0).get("id"), sorted.get(1).get("id"), sorted.get(2).get("id")));
+    }
+    
+    @Test
+    public void testKeyKindsCoerceStrings() throws Exception
+    {
+        ExternalSorter sorter = new ExternalSorter(List.of("id", "price", "amount"), 1024 * 1024);
+        List<JSONObject> sorted;
+        
+        sorter.setKeyKinds(Map.of("ID", Kind.LONG, "Price", Kind.DOUBLE, "amount", Kind.DECIMAL));
+        
+        sorted = collect(sorter.sort(List.of(record("id", "10", "price", "1.5", "amount", "2.50"), 
+                                             record("id", " 9 ", "price", "", "amount", "1"), 
+                                             record("id", "10", "price", "1.25", "amount", "3"), 
+                                             record("id", "", "price", "0", "amount", "0"))));
+        
+        assertNull(sorted.get(0).get("id"));
+        assertEquals(9L, sorted.get(1).get("id"));
+        assertNull(sorted.get(1).get("price"));
+        assertEquals(10L, sorted.get(2).get("id"));
+        assertEquals(1.25, sorted.get(2).get("price"));
+        assertEquals(new BigDecimal("3"), sorted.get(2).get("amount"));
+        assertEquals(1.5, sorted.get(3).get("price"));
+        assertEquals(new BigDecimal("2.50"), sorted.get(3).get("amount"));
+    }
+    
+    @Test
+    public void testKeyKindsRejectText()
+    {
+        ExternalSorter sorter = new ExternalSorter(List.of("id"), 1024 * 1024);
+        ConvirganceException error;
+        
+        sorter.setKeyKinds(Map.of("id", Kind.LONG));
+        
+        error = assertThrows(ConvirganceException.class, () -> sorter.sort(List.of(record("id", "1"), record("id", "one"))));
+        
+        assertEquals("Sort field id has the non-numeric value 'one'", error.getMessage());
+    }
+}
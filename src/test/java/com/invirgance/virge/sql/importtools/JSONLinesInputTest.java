@@ -0,0 +1,221 @@
+/*
+ * Copyright 2024 INVIRGANCE LLC
+
+Permission is hereby granted, free of charge, to any person obtaining a copy 
+of this software and associated documentation files (the “Software”), to deal 
+in the Software without restriction, including without limitation the rights to 
+use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies 
+of the Software, and to permit persons to whom the Software is furnished to do 
+so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all 
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR 
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, 
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER 
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE 
+SOFTWARE.
+ */
+package com.invirgance.virge.sql.importtools;
+
+import com.invirgance.convirgance.CloseableIterator;
+import com.invirgance.convirgance.ConvirganceException;
+import com.invirgance.convirgance.json.JSONObject;
+import com.invirgance.convirgance.source.FileSource;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests chunking, ordering and projection in JSONLinesInput.
+ * 
+ * @author tadghh
+ */
+public class JSONLinesInputTest
+{
+    @TempDir
+    Path directory;
+    
+    private File write(String text) throws Exception
+    {
+        File file = directory.resolve("records.jsonl").toFile();
+        
+        Files.writeString(file.toPath(), text, StandardCharsets.UTF_8);
+        
+        return file;
+    }
+    
+    private static String lines(int count)
+    {
+        StringBuilder text = new StringBuilder();
+        
+        for(int i=0; i<count; i++)
+        {
+            text.append("{\"id\":").append(i).append(", \"name\":\"record \\u00e9 ").append(i).append("\", \"tags\":[\"a\",{\"b\":1}]}\n");
+        }
+        
+        return text.toString();
+    }
+    
+    private static List<JSONObject> read(JSONLinesInput input, File file) throws Exception
+    {
+        List<JSONObject> records = new ArrayList<>();
+        
+        try(CloseableIterator<JSONObject> iterator = input.read(new FileSource(file)).iterator())
+        {
+            while(iterator.hasNext()) records.add(iterator.next());
+        }
+        
+        return records;
+    }
+    
+    private static Set<String> fields(String... names)
+    {
+        Set<String> fields = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+        
+        fields.addAll(List.of(names));
+        
+        return fields;
+    }
+    
+    @Test
+    public void testOrderedAcrossChunks() throws Exception
+    {
+        JSONLinesInput input = new JSONLinesInput();
+        List<JSONObject> records;
+        
+        input.setChunkSize(1024);
+        input.setThreads(4);
+        input.setFields(fields("id", "name"));
+        
+        records = read(input, write(lines(5000)));
+        
+        assertEquals(5000, records.size());
+        
+        for(int i=0; i<records.size(); i++)
+        {
+            assertEquals(i, records.get(i).get("id"));
+            assertEquals("record é " + i, records.get(i).get("name"));
+            assertFalse(records.get(i).containsKey("tags"));
+        }
+    }
+    
+    @Test
+    public void testUnordered() throws Exception
+    {
+        JSONLinesInput input = new JSONLinesInput();
+        TreeSet<Integer> ids = new TreeSet<>();
+        
+        input.setChunkSize(1024);
+        input.setThreads(4);
+        input.setOrdered(false);
+        input.setFields(fields("id"));
+        
+        for(JSONObject record : read(input, write(lines(5000)))) ids.add((Integer)record.get("id"));
+        
+        assertEquals(5000, ids.size());
+        assertEquals(0, ids.first());
+        assertEquals(4999, ids.last());
+    }
+    
+    @Test
+    public void testCountsSkippedKeys() throws Exception
+    {
+        JSONLinesInput input = new JSONLinesInput();
+        Map<String,LongAdder> skipped = new ConcurrentHashMap<>();
+        
+        input.setChunkSize(1024);
+        input.setThreads(4);
+        input.setFields(fields("id"));
+        input.setSkipped(skipped);
+        
+        assertEquals(5000, read(input, write(lines(5000))).size());
+        assertEquals(5000, skipped.get("name").sum());
+        assertEquals(5000, skipped.get("tags").sum());
+    }
+    
+    @Test
+    public void testAllFields() throws Exception
+    {
+        JSONLinesInput input = new JSONLinesInput();
+        List<JSONObject> records = read(input, write(lines(3)));
+        
+        assertEquals(3, records.size());
+        assertEquals(2, records.get(2).get("id"));
+        assertEquals("record é 2", records.get(2).get("name"));
+        assertTrue(records.get(2).containsKey("tags"));
+    }
+    
+    @Test
+    public void testBlankLinesAndLineEndings() throws Exception
+    {
+        JSONLinesInput input = new JSONLinesInput();
+        List<JSONObject> records;
+        
+        input.setFields(fields("id"));
+        
+        records = read(input, write("\n{\"id\":1}\r\n  \r\n{\"id\":2}\n\n{\"id\":3}"));
+        
+        assertEquals(3, records.size());
+        assertEquals(1, records.get(0).get("id"));
+        assertEquals(2, records.get(1).get("id"));
+        assertEquals(3, records.get(2).get("id"));
+    }
+    
+    @Test
+    public void testLinesLongerThanTheChunk() throws Exception
+    {
+        JSONLinesInput input = new JSONLinesInput();
+        String text = "é".repeat(3000);
+        List<JSONObject> records;
+        
+        input.setChunkSize(1024);
+        input.setFields(fields("id", "text"));
+        
+        records = read(input, write("{\"id\":1, \"text\":\"" + text + "\"}\n{\"id\":2, \"text\":\"short\"}\n{\"id\":3, \"text\":\"" + text + text + "\"}\n"));
+        
+        assertEquals(3, records.size());
+        assertEquals(text, records.get(0).get("text"));
+        assertEquals("short", records.get(1).get("text"));
+        assertEquals(text + text, records.get(2).get("text"));
+    }
+    
+    @Test
+    public void testEmptyInput() throws Exception
+    {
+        assertTrue(read(new JSONLinesInput(), write("")).isEmpty());
+        assertTrue(read(new JSONLinesInput(), write("\n\n")).isEmpty());
+    }
+    
+    @Test
+    public void testMalformedLine() throws Exception
+    {
+        JSONLinesInput input = new JSONLinesInput();
+        File file = write(lines(2000) + "{\"id\":2000, \"name\":\"broken}\n" + lines(10));
+        ConvirganceException error;
+        
+        input.setChunkSize(1024);
+        input.setFields(fields("id", "name"));
+        
+        error = assertThrows(ConvirganceException.class, () -> read(input, file));
+        
+        assertTrue(error.getMessage().startsWith("Invalid JSON line: {\"id\":2000"), error.getMessage());
+    }
+}
@@ -0,0 +1,268 @@
+/*
+ * Copyright 2024 INVIRGANCE LLC
+
+Permission is hereby granted, free of charge, to any person obtaining a copy 
+of this software and associated documentation files (the “Software”), to deal 
+in the Software without restriction, including without limitation the rights to 
+use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies 
+of the Software, and to permit persons to whom the Software is furnished to do 
+so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all 
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR 
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, 
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER 
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, 
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE 
+SOFTWARE.
+ */
+package com.invirgance.virge.sql.importtools;
+
+import com.invirgance.convirgance.ConvirganceException;
+import com.invirgance.convirgance.json.JSONObject;
+import java.io.FilterReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests parsing, skipping and buffering in ProjectingJSONParser.
+ * 
+ * @author tadghh
+ */
+public class ProjectingJSONParserTest
+{
+    private static final Set<String> ALL = null;
+    
+    // Hands out one character per read so every value straddles a buffer boundary
+    private static class TrickleReader extends FilterReader
+    {
+        public TrickleReader(String json)
+        {
+            super(new StringReader(json));
+        }
+        
+        @Override
+        public int read(char[] buffer, int offset, int length) throws IOException
+        {
+            return super.read(buffer, offset, Math.min(1, length));
+        }
+    }
+    
+    private static Set<String> fields(String... names)
+    {
+        Set<String> fields = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+        
+        fields.addAll(List.of(names));
+        
+        return fields;
+    }
+    
+    private static JSONObject parse(String json, Set<String> fields)
+    {
+        return new ProjectingJSONParser(json, fields).next();
+    }
+    
+    private static void assertMalformed(String json)
+    {
+        assertThrows(ConvirganceException.class, () -> parse(json, ALL), json);
+        assertThrows(ConvirganceException.class, () -> new ProjectingJSONParser(new TrickleReader(json), ALL).next(), json);
+    }
+    
+    @Test
+    public void testEscapes()
+    {
+        JSONObject record = parse("{\"text\":\"a\\\"b\\\\c\\/d\\b\\f\\n\\r\\t\", \"key \\\" quoted\":1}", ALL);
+        
+        assertEquals("a\"b\\c/d\b\f\n\r\t", record.get("text"));
+        assertEquals(1, record.get("key \" quoted"));
+    }
+    
+    @Test
+    public void testUnicodeEscapes()
+    {
+        JSONObject record = parse("{\"a\":\"\\u00e9\\u00C9\", \"b\":\"\\u0000x\", \"c\":\"\\ud83d\\ude00\", \"d\":\"caf\u00e9\"}", ALL);
+        
+        assertEquals("\u00e9\u00c9", record.get("a"));
+        assertEquals("\u0000x", record.get("b"));
+        assertEquals("\ud83d\ude00", record.get("c"));
+        assertEquals("caf\u00e9", record.get("d"));
+    }
+    
+    @Test
+    public void testSkipsUnselectedValues()
+    {
+        String json = "{\"skip1\":{\"a\":[1,{\"b\":\"}]\"}],\"c\":{}}, \"id\":7, "
+                    + "\"skip2\":[[],[{\"x\":\"\\\"]\"}],\"{\"], \"skip3\":\"a,b}\\\"\", \"skip4\":-1.5e3, "
+                    + "\"skip5\":null, \"NAME\":\"kept\", \"skip6\":true}";
+        JSONObject record = parse(json, fields("id", "name"));
+        
+        assertEquals(Map.of("id", 7, "NAME", "kept"), Map.copyOf(record));
+    }
+    
+    @Test
+    public void testKeepsNestedValuesOfSelectedFields()
+    {
+        JSONObject record = parse("{\"skip\":[1,2], \"nested\":{\"a\":[1,\"two\",{\"b\":null}],\"c\":{}}, \"list\":[]}", fields("nested", "list"));
+        Map<?,?> nested = (Map<?,?>)record.get("nested");
+        List<?> array = (List<?>)nested.get("a");
+        
+        assertEquals(2, record.size());
+        assertEquals(List.of(1, "two"), array.subList(0, 2));
+        assertTrue(((Map<?,?>)array.get(2)).containsKey("b"));
+        assertNull(((Map<?,?>)array.get(2)).get("b"));
+        assertTrue(((Map<?,?>)nested.get("c")).isEmpty());
+        assertTrue(((List<?>)record.get("list")).isEmpty());
+    }
+    
+    @Test
+    public void testCountsSkippedKeys()
+    {
+        Map<String,LongAdder> skipped = new ConcurrentHashMap<>();
+        ProjectingJSONParser parser = new ProjectingJSONParser(new StringReader("[{\"id\":1, \"nmae\":\"a\", \"extra\":{\"x\":1}}, {\"id\":2, \"nmae\":\"b\"}, {\"id\":3}]"), fields("id", "name"));
+        
+        parser.setSkipped(skipped);
+        
+        while(parser.next() != null);
+        
+        assertEquals(2, skipped.size());
+        assertEquals(2, skipped.get("nmae").sum());
+        assertEquals(1, skipped.get("extra").sum());
+    }
+    
+    @Test
+    public void testRecordSequences()
+    {
+        ProjectingJSONParser array = new ProjectingJSONParser(new StringReader(" [ {\"a\":1} , {\"a\":2},{}\n] "), ALL);
+        ProjectingJSONParser lines = new ProjectingJSONParser(new StringReader("{\"a\":1}\r\n{\"a\":2}\n\n{}\n"), ALL);
+        
+        for(ProjectingJSONParser parser : List.of(array, lines))
+        {
+            assertEquals(1, parser.next().get("a"));
+            assertEquals(2, parser.next().get("a"));
+            assertTrue(parser.next().isEmpty());
+            assertNull(parser.next());
+            assertNull(parser.next());
+        }
+    }
+    
+    @Test
+    public void testBufferBoundaries()
+    {
+        String json = "[{\"skip\":{\"a\":[\"x\\\"y\",{}]}, \"text\":\"a\\u00e9\\n\\\"b\", \"number\":-12345.678e-2, "
+                    + "\"long\":1234567890123, \"flag\":false, \"none\":null, \"array\":[1, [2], {\"c\":3}]}, {\"text\":\"second\"}]";
+        JSONObject expected = parse(json, fields("text", "number", "long", "flag", "none", "array"));
+        ProjectingJSONParser parser = new ProjectingJSONParser(new TrickleReader(json), fields("text", "number", "long", "flag", "none", "array"));
+        JSONObject record = parser.next();
+        
+        assertEquals("a\u00e9\n\"b", record.get("text"));
+        assertEquals(-123.45678, record.get("number"));
+        assertEquals(1234567890123L, record.get("long"));
+        assertEquals(false, record.get("flag"));
+        assertTrue(record.containsKey("none"));
+        assertFalse(record.containsKey("skip"));
+        assertEquals(expected.keySet(), record.keySet());
+        assertEquals(expected.get("array").toString(), record.get("array").toString());
+        assertEquals("second", parser.next().get("text"));
+        assertNull(parser.next());
+    }
+    
+    @Test
+    public void testValuesLongerThanTheBuffer()
+    {
+        String text = "\u00e9\\\"".repeat(5000);
+        String json = "{\"skip\":\"" + text + "\", \"skip2\":[" + "[],".repeat(5000) + "[]], \"text\":\"" + text + "\"}\n{\"text\":\"" + "x".repeat(20000) + "\"}";
+        ProjectingJSONParser parser = new ProjectingJSONParser(new StringReader(json), fields("text"));
+        
+        assertEquals("\u00e9\"".repeat(5000), parser.next().get("text"));
+        assertEquals("x".repeat(20000), parser.next().get("text"));
+        assertNull(parser.next());
+    }
+    
+    @Test
+    public void testNumberTypesMatchJSONObject()
+    {
+        String[] numbers = {"0", "-1", "2147483647", "-2147483648", "2147483648", "-2147483649", "9223372036854775807", 
+                            "1.5", "-0.25", "1e3", "1E-3", "2.5e+10", "12345678901234567890", "1.0"};
+        String json;
+        Object expected;
+        Object actual;
+        
+        for(String number : numbers)
+        {
+            json = "{\"value\":" + number + "}";
+            expected = new JSONObject(json).get("value");
+            actual = parse(json, ALL).get("value");
+            
+            assertEquals(expected.getClass(), actual.getClass(), number);
+            assertEquals(expected, actual, number);
+        }
+    }
+    
+    @Test
+    public void testNumberTypes()
+    {
+        JSONObject record = parse("{\"int\":42, \"long\":4294967296, \"double\":0.5, \"exponent\":1e2, \"big\":12345678901234567890, \"true\":true, \"null\":null}", ALL);
+        
+        assertEquals(Integer.valueOf(42), record.get("int"));
+        assertEquals(Long.valueOf(4294967296L), record.get("long"));
+        assertEquals(Double.valueOf(0.5), record.get("double"));
+        assertEquals(Double.valueOf(100), record.get("exponent"));
+        assertEquals(new BigDecimal("12345678901234567890"), record.get("big"));
+        assertEquals(Boolean.TRUE, record.get("true"));
+        assertTrue(record.containsKey("null"));
+        assertNull(record.get("null"));
+    }
+    
+    @Test
+    public void testMalformedInput()
+    {
+        assertMalformed("{\"a\":\"unterminated");
+        assertMalformed("{\"a\":1");
+        assertMalformed("{\"a\" 1}");
+        assertMalformed("{\"a\":1 \"b\":2}");
+        assertMalformed("{\"a\":1,}");
+        assertMalformed("{a:1}");
+        assertMalformed("{\"a\":}");
+        assertMalformed("{\"a\":tru}");
+        assertMalformed("{\"a\":12abc}");
+        assertMalformed("{\"a\":[1 2]}");
+        assertMalformed("{\"a\":[1,2}");
+        assertMalformed("{\"a\":\"\\u12G4\"}");
+        assertMalformed("{\"a\":\"\\u12");
+        assertMalformed("\"string\"");
+        assertMalformed("42");
+    }
+    
+    @Test
+    public void testMalformedSkippedValues()
+    {
+        assertThrows(ConvirganceException.class, () -> parse("{\"skip\":{\"a\":[1,2}", fields("id")));
+        assertThrows(ConvirganceException.class, () -> parse("{\"skip\":\"unterminated}", fields("id")));
+        assertThrows(ConvirganceException.class, () -> parse("{\"skip\":[1,2] \"id\":1}", fields("id")));
+    }
+    
+    @Test
+    public void testErrorPosition()
+    {
+        ConvirganceException error = assertThrows(ConvirganceException.class, () -> new ProjectingJSONParser(new TrickleReader("{\"a\":1,\"b\" 2}"), ALL).next());
+        
+        assertTrue(error.getMessage().endsWith("at character 11"), error.getMessage());
+    }
+}